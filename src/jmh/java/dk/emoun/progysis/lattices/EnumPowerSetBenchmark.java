@@ -0,0 +1,73 @@
+package dk.emoun.progysis.lattices;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the operations of {@link EnumPowerSet}, on two sets of the same size
+ * sharing a given ratio of their values.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EnumPowerSetBenchmark {
+	
+//Fields
+	@Param({"4", "32", "64"})
+	public int size;
+	
+	@Param({"0.0", "0.5", "1.0"})
+	public double overlap;
+	
+	private FactPowerSet set1;
+	private FactPowerSet set2;
+	
+//Setup
+	@Setup
+	public void setup(){
+		Fact[] facts = Fact.values();
+		int shared = (int) (size*overlap);
+		Fact[] values1 = new Fact[size], values2 = new Fact[size];
+		for(int i = 0; i<size; i++){
+			values1[i] = facts[i];
+			values2[i] = facts[(i < shared)? i : size + i];
+		}
+		set1 = new FactPowerSet(values1);
+		set2 = new FactPowerSet(values2);
+	}
+	
+//Benchmarks
+	@Benchmark
+	public FactPowerSet join(){
+		return set1.join(set2);
+	}
+	
+	@Benchmark
+	public boolean compare(){
+		return set1.compare(set2);
+	}
+	
+	@Benchmark
+	public boolean isBottom(){
+		return set1.isBottom();
+	}
+	
+	@Benchmark
+	public boolean equal(){
+		return LatticeUtilities.equal(set1, set2);
+	}
+}
@@ -0,0 +1,21 @@
+package dk.emoun.progysis.lattices;
+
+import java.util.Set;
+
+public class FactPowerSet extends EnumPowerSet<FactPowerSet, Fact> {
+
+//Constructors
+	public FactPowerSet(Fact...facts){
+		super(facts);
+	}
+	
+	public FactPowerSet(Set<Fact> factSet){
+		super(factSet);
+	}
+	
+//Overriding methods
+	@Override
+	public FactPowerSet createPowerSet(Set<Fact> factSet) {
+		return new FactPowerSet(factSet);
+	}
+}
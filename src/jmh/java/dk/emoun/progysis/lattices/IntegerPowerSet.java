@@ -0,0 +1,21 @@
+package dk.emoun.progysis.lattices;
+
+import java.util.Set;
+
+public class IntegerPowerSet extends PowerSet<IntegerPowerSet, Integer> {
+
+//Constructors
+	public IntegerPowerSet(Integer...values){
+		super(values);
+	}
+	
+	public IntegerPowerSet(Set<Integer> valueSet){
+		super(valueSet);
+	}
+	
+//Overriding methods
+	@Override
+	public IntegerPowerSet createPowerSet(Set<Integer> valueSet) {
+		return new IntegerPowerSet(valueSet);
+	}
+}
@@ -0,0 +1,21 @@
+package dk.emoun.progysis.lattices;
+
+import java.util.Map;
+
+public class IntegerTotalFunction extends TotalFunction<IntegerTotalFunction, Integer, IntegerPowerSet>{
+
+//Constructors
+	protected IntegerTotalFunction(Map<Integer, IntegerPowerSet> mapping, IntegerPowerSet lattice) {
+		super(mapping, lattice);
+	}
+	
+	public IntegerTotalFunction(IntegerPowerSet lattice, Integer... keys) {
+		super(lattice, keys);
+	}
+
+//Overriding methods
+	@Override
+	protected IntegerTotalFunction constructTotalFunction(Map<Integer, IntegerPowerSet> mapping, IntegerPowerSet defaultElement) {
+		return new IntegerTotalFunction(mapping, defaultElement);
+	}
+}
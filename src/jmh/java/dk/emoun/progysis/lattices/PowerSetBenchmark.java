@@ -0,0 +1,74 @@
+package dk.emoun.progysis.lattices;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the operations of {@link PowerSet}, on two sets of the same size
+ * sharing a given ratio of their values.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PowerSetBenchmark {
+	
+//Fields
+	@Param({"16", "256", "4096"})
+	public int size;
+	
+	@Param({"0.0", "0.5", "1.0"})
+	public double overlap;
+	
+	private IntegerPowerSet set1;
+	private IntegerPowerSet set2;
+	
+//Setup
+	@Setup
+	public void setup(){
+		int shared = (int) (size*overlap);
+		Set<Integer> values1 = new HashSet<Integer>(), values2 = new HashSet<Integer>();
+		for(int i = 0; i<size; i++){
+			values1.add(i);
+			values2.add((i < shared)? i : size + i);
+		}
+		set1 = new IntegerPowerSet(values1);
+		set2 = new IntegerPowerSet(values2);
+	}
+	
+//Benchmarks
+	@Benchmark
+	public IntegerPowerSet join(){
+		return set1.join(set2);
+	}
+	
+	@Benchmark
+	public boolean compare(){
+		return set1.compare(set2);
+	}
+	
+	@Benchmark
+	public boolean isBottom(){
+		return set1.isBottom();
+	}
+	
+	@Benchmark
+	public boolean equal(){
+		return LatticeUtilities.equal(set1, set2);
+	}
+}
@@ -0,0 +1,90 @@
+package dk.emoun.progysis.lattices;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the operations of {@link TotalFunction}, on two functions mapping the same keys, 
+ * which map a given ratio of their keys to the same values. 
+ * Functions are built the way analyses usually build them, by updating a common function.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TotalFunctionBenchmark {
+	
+//Fields
+	@Param({"16", "1024", "16384"})
+	public int keys;
+	
+	@Param({"0.0", "0.5", "1.0"})
+	public double overlap;
+	
+	private IntegerTotalFunction function1;
+	private IntegerTotalFunction function2;
+	
+	private IntegerPowerSet value;
+	
+	private int key;
+	
+//Setup
+	@Setup
+	public void setup(){
+		Integer[] keySet = new Integer[keys];
+		for(int i = 0; i<keys; i++){
+			keySet[i] = i;
+		}
+		IntegerTotalFunction common = new IntegerTotalFunction(new IntegerPowerSet(), keySet);
+		function1 = common;
+		function2 = common;
+		
+		int shared = (int) (keys*overlap);
+		for(int i = 0; i<keys; i++){
+			function1 = function1.getUpdateValue(i, new IntegerPowerSet(i));
+			function2 = function2.getUpdateValue(i, 
+					(i < shared)? function1.getValue(i) : new IntegerPowerSet(i, -i-1));
+		}
+		value = new IntegerPowerSet(-1);
+		key = keys/2;
+	}
+	
+//Benchmarks
+	@Benchmark
+	public IntegerTotalFunction join(){
+		return function1.join(function2);
+	}
+	
+	@Benchmark
+	public boolean compare(){
+		return function1.compare(function2);
+	}
+	
+	@Benchmark
+	public IntegerTotalFunction getUpdateValue(){
+		return function1.getUpdateValue(key, value);
+	}
+	
+	@Benchmark
+	public boolean isBottom(){
+		return function1.isBottom();
+	}
+	
+	@Benchmark
+	public boolean equal(){
+		return LatticeUtilities.equal(function1, function2);
+	}
+}
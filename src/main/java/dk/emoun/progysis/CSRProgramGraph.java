@@ -0,0 +1,280 @@
+package dk.emoun.progysis;
+
+import java.util.Arrays;
+
+import org.jgrapht.DirectedGraph;
+
+/**
+ * A {@link ProgramGraph} in compressed sparse row form.<br>
+ * The source, target and action of each transition are stored in arrays indexed by transition,
+ * while both the outgoing and the incoming transitions of all states are stored in a single
+ * array each, with the transitions of a state stored consecutively from the offset of the state.
+ * The graph therefore uses 4 integers and an action reference per transition, 
+ * plus 2 integers per state, and is immutable once constructed.
+ * @param <K>
+ * The action type of the transitions.
+ */
+public class CSRProgramGraph<K> implements ProgramGraph<K>{
+
+//Fields
+	private int numberOfStates;
+	
+	/**
+	 * The source state of each transition, indexed by transition.
+	 */
+	private int[] sources;
+	
+	/**
+	 * The target state of each transition, indexed by transition.
+	 */
+	private int[] targets;
+	
+	/**
+	 * The action of each transition, indexed by transition.
+	 */
+	private Object[] actions;
+	
+	/**
+	 * The index in {@link #outgoing} of the first outgoing transition of each state, 
+	 * indexed by state, followed by the number of transitions.
+	 */
+	private int[] outgoingOffsets;
+	
+	/**
+	 * The outgoing transitions of all states, grouped by state.
+	 */
+	private int[] outgoing;
+	
+	/**
+	 * The index in {@link #incoming} of the first incoming transition of each state, 
+	 * indexed by state, followed by the number of transitions.
+	 */
+	private int[] incomingOffsets;
+	
+	/**
+	 * The incoming transitions of all states, grouped by state.
+	 */
+	private int[] incoming;
+	
+	/**
+	 * The reversed view of the graph.
+	 */
+	private ProgramGraph<K> reversed;
+	
+//Constructors
+	/**
+	 * Constructs a program graph with the given transitions. 
+	 * Transition {@code i} goes from state {@code sources[i]} to state {@code targets[i]}
+	 * with action {@code actions[i]}.<br>
+	 * The given arrays are copied.
+	 * @param numberOfStates
+	 * The number of states in the graph.
+	 * @param sources
+	 * @param targets
+	 * @param actions
+	 * @throws IllegalArgumentException
+	 * If the arrays are of different lengths or a state is not in the graph.
+	 */
+	public CSRProgramGraph(int numberOfStates, int[] sources, int[] targets, K[] actions){
+		if(sources.length != targets.length || sources.length != actions.length){
+			throw new IllegalArgumentException("The sources, targets and actions must have the same length");
+		}
+		this.numberOfStates = numberOfStates;
+		this.sources = Arrays.copyOf(sources, sources.length);
+		this.targets = Arrays.copyOf(targets, targets.length);
+		this.actions = Arrays.copyOf(actions, actions.length, Object[].class);
+		
+		for(int t = 0; t<sources.length; t++){
+			validateState(sources[t]);
+			validateState(targets[t]);
+		}
+		
+		this.outgoingOffsets = new int[numberOfStates + 1];
+		this.outgoing = new int[sources.length];
+		group(this.sources, outgoingOffsets, outgoing);
+		
+		this.incomingOffsets = new int[numberOfStates + 1];
+		this.incoming = new int[targets.length];
+		group(this.targets, incomingOffsets, incoming);
+	}
+	
+	/**
+	 * Constructs a program graph with the vertices and edges of the given graph. 
+	 * The vertices must be the values 0 through the number of vertices - 1, and
+	 * the edges are used as the actions of the transitions.
+	 * @param graph
+	 * @return
+	 * @throws IllegalArgumentException
+	 * If a vertex is not between 0 and the number of vertices.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <K> CSRProgramGraph<K> fromGraph(DirectedGraph<Integer, K> graph){
+		int numberOfTransitions = graph.edgeSet().size();
+		int[] sources = new int[numberOfTransitions];
+		int[] targets = new int[numberOfTransitions];
+		Object[] actions = new Object[numberOfTransitions];
+		
+		//Visit the vertices in order, such that the transitions of a state keep their order
+		int t = 0, numberOfStates = graph.vertexSet().size();
+		for(int state = 0; state<numberOfStates; state++){
+			if(!graph.containsVertex(state)){
+				throw new IllegalArgumentException("The vertices must be the values 0 through " + (numberOfStates-1));
+			}
+			for(K edge: graph.outgoingEdgesOf(state)){
+				sources[t] = state;
+				targets[t] = graph.getEdgeTarget(edge);
+				actions[t] = edge;
+				t++;
+			}
+		}
+		return new CSRProgramGraph<K>(numberOfStates, sources, targets, (K[]) actions);
+	}
+	
+//Methods
+	@Override
+	public int getNumberOfStates() {
+		return numberOfStates;
+	}
+
+	@Override
+	public int getNumberOfTransitions() {
+		return sources.length;
+	}
+
+	@Override
+	public int getOutDegree(int state) {
+		return outgoingOffsets[state + 1] - outgoingOffsets[state];
+	}
+
+	@Override
+	public int getOutgoingTransition(int state, int index) {
+		return outgoing[outgoingOffsets[state] + index];
+	}
+
+	@Override
+	public int getInDegree(int state) {
+		return incomingOffsets[state + 1] - incomingOffsets[state];
+	}
+
+	@Override
+	public int getIncomingTransition(int state, int index) {
+		return incoming[incomingOffsets[state] + index];
+	}
+
+	@Override
+	public int getSource(int transition) {
+		return sources[transition];
+	}
+
+	@Override
+	public int getTarget(int transition) {
+		return targets[transition];
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public K getAction(int transition) {
+		return (K) actions[transition];
+	}
+
+	@Override
+	public ProgramGraph<K> reversed() {
+		if(reversed == null){
+			reversed = new Reversed<K>(this);
+		}
+		return reversed;
+	}
+	
+//Private methods
+	/**
+	 * Groups the transitions by the given states using a counting sort. 
+	 * The transitions of each state keep their relative order.
+	 * @param states
+	 * The state of each transition to group by.
+	 * @param offsets
+	 * Is filled with the offsets of the groups.
+	 * @param grouped
+	 * Is filled with the grouped transitions.
+	 */
+	private static void group(int[] states, int[] offsets, int[] grouped){
+		for(int state: states){
+			offsets[state + 1]++;
+		}
+		for(int i = 1; i<offsets.length; i++){
+			offsets[i] += offsets[i-1];
+		}
+		int[] next = Arrays.copyOf(offsets, offsets.length - 1);
+		for(int t = 0; t<states.length; t++){
+			grouped[next[states[t]]++] = t;
+		}
+	}
+	
+	private void validateState(int state){
+		if(state < 0 || state >= numberOfStates){
+			throw new IllegalArgumentException("State not in graph: " + state);
+		}
+	}
+	
+//Private classes
+	/**
+	 * A view of a program graph with every transition reversed.
+	 */
+	private static class Reversed<K> implements ProgramGraph<K>{
+		
+		private ProgramGraph<K> graph;
+		
+		private Reversed(ProgramGraph<K> graph){
+			this.graph = graph;
+		}
+
+		@Override
+		public int getNumberOfStates() {
+			return graph.getNumberOfStates();
+		}
+
+		@Override
+		public int getNumberOfTransitions() {
+			return graph.getNumberOfTransitions();
+		}
+
+		@Override
+		public int getOutDegree(int state) {
+			return graph.getInDegree(state);
+		}
+
+		@Override
+		public int getOutgoingTransition(int state, int index) {
+			return graph.getIncomingTransition(state, index);
+		}
+
+		@Override
+		public int getInDegree(int state) {
+			return graph.getOutDegree(state);
+		}
+
+		@Override
+		public int getIncomingTransition(int state, int index) {
+			return graph.getOutgoingTransition(state, index);
+		}
+
+		@Override
+		public int getSource(int transition) {
+			return graph.getTarget(transition);
+		}
+
+		@Override
+		public int getTarget(int transition) {
+			return graph.getSource(transition);
+		}
+
+		@Override
+		public K getAction(int transition) {
+			return graph.getAction(transition);
+		}
+
+		@Override
+		public ProgramGraph<K> reversed() {
+			return graph;
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package dk.emoun.progysis;
+
+/**
+ * Defines the interface of a program graph.<br>
+ * A program graph has a fixed number of states, identified by the values 0 through 
+ * {@link #getNumberOfStates()}-1, and a fixed number of transitions between them,
+ * identified by the values 0 through {@link #getNumberOfTransitions()}-1. 
+ * Each transition has a source state, a target state and an action.<br>
+ * <br>
+ * The outgoing and incoming transitions of a state are accessed by index, e.g.:<br>
+ * <code>
+ * for(int i = 0; i&lt;graph.getOutDegree(state); i++){<br>
+ * &emsp;int transition = graph.getOutgoingTransition(state, i);<br>
+ * &emsp;...<br>
+ * }
+ * </code>
+ * @param <K>
+ * The action type of the transitions.
+ * @see CSRProgramGraph
+ */
+public interface ProgramGraph<K> {
+	
+	/**
+	 * @return
+	 * The number of states in the graph.
+	 */
+	public int getNumberOfStates();
+	
+	/**
+	 * @return
+	 * The number of transitions in the graph.
+	 */
+	public int getNumberOfTransitions();
+	
+	/**
+	 * @param state
+	 * @return
+	 * The number of transitions with the given state as source.
+	 */
+	public int getOutDegree(int state);
+	
+	/**
+	 * @param state
+	 * @param index
+	 * A value from 0 to the out degree of the state (exclusive).
+	 * @return
+	 * The outgoing transition of the given state at the given index.
+	 */
+	public int getOutgoingTransition(int state, int index);
+	
+	/**
+	 * @param state
+	 * @return
+	 * The number of transitions with the given state as target.
+	 */
+	public int getInDegree(int state);
+	
+	/**
+	 * @param state
+	 * @param index
+	 * A value from 0 to the in degree of the state (exclusive).
+	 * @return
+	 * The incoming transition of the given state at the given index.
+	 */
+	public int getIncomingTransition(int state, int index);
+	
+	/**
+	 * @param transition
+	 * @return
+	 * The source state of the given transition.
+	 */
+	public int getSource(int transition);
+	
+	/**
+	 * @param transition
+	 * @return
+	 * The target state of the given transition.
+	 */
+	public int getTarget(int transition);
+	
+	/**
+	 * @param transition
+	 * @return
+	 * The action of the given transition.
+	 */
+	public K getAction(int transition);
+	
+	/**
+	 * @return
+	 * A view of the graph where the direction of every transition is reversed.
+	 * The transitions of the view have the same identifiers as in this graph.
+	 */
+	public ProgramGraph<K> reversed();
+}
@@ -0,0 +1,18 @@
+package dk.emoun.progysis.lattices;
+
+/**
+ * Defines lattice elements that provide a {@link JoinAccumulator}, 
+ * for joining many elements without creating intermediate elements.<br>
+ * {@link dk.emoun.progysis.worklist.CompoundConstraint Compound constraints} use the accumulator 
+ * automatically when the first of their constraints evaluates to an accumulable element.
+ * @param <V>
+ * The type of the implementing lattice element
+ */
+public interface Accumulable<V extends LatticeElement<V>> {
+	
+	/**
+	 * @return
+	 * A new accumulator, starting from the invoked element.
+	 */
+	public JoinAccumulator<V> accumulator();
+}
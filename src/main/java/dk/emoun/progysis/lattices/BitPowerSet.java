@@ -0,0 +1,371 @@
+package dk.emoun.progysis.lattices;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A Powerset over a fixed universe of elements, given as a list.<br>
+ * The set of an element is stored as a bit mask indexed by the positions of the elements in the universe,
+ * like {@link EnumPowerSet}, which makes joining and comparing elements a few word operations.
+ * {@link #getValueSet()} returns a view of the mask.<br>
+ * The elements of a lattice must all be created from the same element, using the lattice operations,
+ * {@link #createPowerSet(Set)} or {@link #withWords(long[])}, such that they share the universe.
+ * The values of a {@link dk.emoun.progysis.worklist.BitRowFlowValueStore} over the same universe are
+ * read and written as rows of words, without their elements.
+ * @param <E>
+ * The type of the elements of the universe.
+ */
+public final class BitPowerSet<E> extends PowerSet<BitPowerSet<E>, E>{
+
+//Fields
+	/**
+	 * Mask used by all empty sets.
+	 */
+	private static final long[] EMPTY = new long[0];
+	
+	/**
+	 * The elements of the universe, indexed by bit. Shared by all the elements of the lattice.
+	 */
+	private final List<E> universe;
+	
+	/**
+	 * The bit of each element of the universe. Shared by all the elements of the lattice.
+	 */
+	private final Map<E, Integer> bitOf;
+	
+	/**
+	 * Bit i of word i/64 is set if the element at position i of the universe is in the set.
+	 * Missing words are zero. The array is never modified.
+	 */
+	private final long[] mask;
+	
+	/**
+	 * Lazily created view of the mask, as returned by {@link #getValueSet()}.
+	 */
+	private Set<E> valueSet;
+
+//Constructors
+	/**
+	 * Creates the bottom element of the lattice over the given universe.
+	 * @param universe
+	 * The elements the sets may contain. Must not contain duplicates.
+	 */
+	public BitPowerSet(List<E> universe){
+		super();
+		this.universe = Collections.unmodifiableList(new ArrayList<E>(universe));
+		this.bitOf = new HashMap<E, Integer>();
+		for(int i = 0; i<universe.size(); i++){
+			if(bitOf.put(universe.get(i), i) != null){
+				throw new IllegalArgumentException("The universe contains a duplicate: " + universe.get(i));
+			}
+		}
+		this.mask = EMPTY;
+	}
+	
+	/**
+	 * Creates an element over the universe of the given element.
+	 * @param over
+	 * @param mask
+	 */
+	private BitPowerSet(BitPowerSet<E> over, long[] mask){
+		super();
+		this.universe = over.universe;
+		this.bitOf = over.bitOf;
+		this.mask = mask;
+	}
+
+//Methods
+	/**
+	 * @return
+	 * The elements of the universe, indexed by bit.
+	 */
+	public List<E> getUniverse(){
+		return universe;
+	}
+	
+	/**
+	 * @param i
+	 * @return
+	 * The i'th word of the mask, i.e. the bits of elements 64*i through 64*i + 63 of the universe,
+	 * or zero if the mask has no such word.
+	 */
+	public long getWord(int i){
+		return word(mask, i);
+	}
+	
+	/**
+	 * @param words
+	 * The mask of the element, like {@link #getWord(int)}. The array is not copied, and must not be modified.
+	 * @return
+	 * An element over the universe of the invoked element, with the given mask.
+	 * @throws IllegalArgumentException
+	 * If the mask has a bit set that is outside the universe.
+	 */
+	public BitPowerSet<E> withWords(long[] words){
+		int bits = universe.size();
+		for(int i = (bits >>> 6); i<words.length; i++){
+			long outside = (i == (bits >>> 6))? (-1L << bits) : -1L;
+			if((words[i] & outside) != 0){
+				throw new IllegalArgumentException("The mask has a bit outside the universe in word: " + i);
+			}
+		}
+		return new BitPowerSet<E>(this, words);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @throws IllegalArgumentException
+	 * If the set contains an element that is not in the universe.
+	 */
+	@Override
+	public BitPowerSet<E> createPowerSet(Set<E> valueSet) {
+		if(valueSet instanceof BitMaskSet && ((BitMaskSet<?>) valueSet).over.universe == universe){
+			//Sets created by this class share their mask
+			return new BitPowerSet<E>(this, ((BitMaskSet<?>) valueSet).over.mask);
+		}
+		long[] result = new long[(universe.size() + 63) >>> 6];
+		for(E e: valueSet){
+			Integer bit = bitOf.get(e);
+			if(bit == null){
+				throw new IllegalArgumentException("The element is not in the universe: " + e);
+			}
+			result[bit >>> 6] |= 1L << bit;
+		}
+		return new BitPowerSet<E>(this, result);
+	}
+	
+	@Override
+	public Set<E> getValueSet(){
+		if(valueSet == null){
+			valueSet = new BitMaskSet<E>(this);
+		}
+		return valueSet;
+	}
+	
+	/**
+	 * {@inheritDoc}<br>
+	 * Runs in time proportional to the number of words of the masks.
+	 */
+	@Override
+	public BitPowerSet<E> difference(Evaluable<BitPowerSet<E>> other){
+		BitPowerSet<E> o = other.value();
+		long[] result = null;
+		for(int i = 0; i<mask.length; i++){
+			long word = mask[i] & ~word(o.mask, i);
+			if(word != mask[i]){
+				if(result == null){
+					result = Arrays.copyOf(mask, mask.length);
+				}
+				result[i] = word;
+			}
+		}
+		return (result == null)? value() : new BitPowerSet<E>(this, result);
+	}
+
+//Overriding methods
+	@Override
+	public BitPowerSet<E> getBottom(){
+		if(isBottom()){
+			return value();
+		}
+		return new BitPowerSet<E>(this, EMPTY);
+	}
+	
+	@Override
+	public boolean isBottom() {
+		for(long word: mask){
+			if(word != 0){
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	@Override
+	public boolean compare(Evaluable<BitPowerSet<E>> other) {
+		long[] otherMask = other.value().mask;
+		for(int i = 0; i<mask.length; i++){
+			if((mask[i] & ~word(otherMask, i)) != 0){
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	@Override
+	public BitPowerSet<E> join(Evaluable<BitPowerSet<E>> other) {
+		BitPowerSet<E> o = other.value();
+		if(o.compare(this)){
+			return value();
+		}
+		if(this.compare(other)){
+			return o;
+		}
+		long[] longer = (mask.length >= o.mask.length)? mask : o.mask;
+		long[] shorter = (longer == mask)? o.mask : mask;
+		long[] result = Arrays.copyOf(longer, longer.length);
+		for(int i = 0; i<shorter.length; i++){
+			result[i] |= shorter[i];
+		}
+		return new BitPowerSet<E>(this, result);
+	}
+	
+	@Override
+	public JoinAccumulator<BitPowerSet<E>> accumulator() {
+		return new JoinAccumulator<BitPowerSet<E>>(){
+			
+			/**
+			 * The accumulated mask, or {@code null} if nothing has been added to the invoked element's mask.
+			 */
+			private long[] result;
+			
+			@Override
+			public void join(Evaluable<BitPowerSet<E>> other) {
+				BitPowerSet<E> o = other.value();
+				if(result == null){
+					if(o.compare(BitPowerSet.this)){
+						return;
+					}
+					result = Arrays.copyOf(mask, Math.max(mask.length, o.mask.length));
+				}else if(result.length < o.mask.length){
+					result = Arrays.copyOf(result, o.mask.length);
+				}
+				for(int i = 0; i<o.mask.length; i++){
+					result[i] |= o.mask[i];
+				}
+			}
+			
+			@Override
+			public BitPowerSet<E> result() {
+				return (result == null)? BitPowerSet.this.value() : new BitPowerSet<E>(BitPowerSet.this, result);
+			}
+		};
+	}
+	
+	/**
+	 * Two elements are equal if they have equal universes and masks.
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if(this == obj){
+			return true;
+		}
+		if(!(obj instanceof BitPowerSet)){
+			return false;
+		}
+		BitPowerSet<?> other = (BitPowerSet<?>) obj;
+		int length = Math.max(mask.length, other.mask.length);
+		for(int i = 0; i<length; i++){
+			if(word(mask, i) != word(other.mask, i)){
+				return false;
+			}
+		}
+		return universe == other.universe || universe.equals(other.universe);
+	}
+	
+	@Override
+	public int hashCode() {
+		long h = 0;
+		for(int i = 0; i<mask.length; i++){
+			h ^= mask[i] * (i+1);
+		}
+		return Long.hashCode(h);
+	}
+
+//Private Methods
+	/**
+	 * @param mask
+	 * @param i
+	 * @return
+	 * The i'th word of the mask, or zero if the mask has no such word.
+	 */
+	private static long word(long[] mask, int i){
+		return (i < mask.length)? mask[i] : 0;
+	}
+
+//Classes
+	/**
+	 * An unmodifiable set view of the mask of an element.
+	 */
+	private static class BitMaskSet<E> extends AbstractSet<E>{
+		
+		private final BitPowerSet<E> over;
+		
+		BitMaskSet(BitPowerSet<E> over){
+			this.over = over;
+		}
+		
+		@Override
+		public boolean contains(Object o) {
+			Integer bit = over.bitOf.get(o);
+			return bit != null && (word(over.mask, bit >>> 6) & (1L << bit)) != 0;
+		}
+		
+		@Override
+		public int size() {
+			int size = 0;
+			for(long word: over.mask){
+				size += Long.bitCount(word);
+			}
+			return size;
+		}
+		
+		@Override
+		public Iterator<E> iterator() {
+			return new Iterator<E>(){
+				
+				/**
+				 * The bit of the next element, or the mask's size in bits if there is none.
+				 */
+				private int next = nextSetBit(0);
+				
+				@Override
+				public boolean hasNext() {
+					return next < over.mask.length*64;
+				}
+				
+				@Override
+				public E next() {
+					if(!hasNext()){
+						throw new NoSuchElementException();
+					}
+					E e = over.universe.get(next);
+					next = nextSetBit(next+1);
+					return e;
+				}
+			};
+		}
+		
+		/**
+		 * @param from
+		 * @return
+		 * The first set bit at or after the given bit,
+		 * or the mask's size in bits if there is none.
+		 */
+		private int nextSetBit(int from){
+			long[] mask = over.mask;
+			int i = from >>> 6;
+			if(i >= mask.length){
+				return mask.length*64;
+			}
+			long word = mask[i] & (-1L << from);
+			while(true){
+				if(word != 0){
+					return i*64 + Long.numberOfTrailingZeros(word);
+				}
+				if(++i == mask.length){
+					return mask.length*64;
+				}
+				word = mask[i];
+			}
+		}
+	}
+}
@@ -1,14 +1,53 @@
 package dk.emoun.progysis.lattices;
 
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 /**
- * A Powerset over the instances of an enum.
+ * A Powerset over the instances of an enum.<br>
+ * The set of an element is stored as a bit mask indexed by the ordinals of the enum constants,
+ * which makes joining and comparing elements a few word operations.
+ * {@link #getValueSet()} returns a view of the mask.
  * @param <S>
  * @param <E>
  */
 public abstract class EnumPowerSet<S extends EnumPowerSet<S,E>, E extends Enum<E>> extends PowerSet<S, E>{
 
+//Fields
+	/**
+	 * The constants of each enum type, indexed by ordinal.
+	 */
+	private static final ClassValue<Enum<?>[]> UNIVERSES = new ClassValue<Enum<?>[]>(){
+		@Override
+		protected Enum<?>[] computeValue(Class<?> type) {
+			return (Enum<?>[]) type.getEnumConstants();
+		}
+	};
+	
+	/**
+	 * Mask used by all empty sets.
+	 */
+	private static final long[] EMPTY = new long[0];
+	
+	/**
+	 * Bit i of word i/64 is set if the enum constant with ordinal i is in the set.
+	 * Missing words are zero. The array is never modified.
+	 */
+	private long[] mask;
+	
+	/**
+	 * The constants of the enum, indexed by ordinal. 
+	 * {@code null} if the set has never contained any constant.
+	 */
+	private E[] universe;
+	
+	/**
+	 * Lazily created view of the mask, as returned by {@link #getValueSet()}.
+	 */
+	private Set<E> valueSet;
 	
 //Constructors
 	/**
@@ -16,6 +55,7 @@ public abstract class EnumPowerSet<S extends EnumPowerSet<S,E>, E extends Enum<E
 	 */
 	public EnumPowerSet(){
 		super();
+		this.mask = EMPTY;
 	}
 	
 	/**
@@ -25,7 +65,11 @@ public abstract class EnumPowerSet<S extends EnumPowerSet<S,E>, E extends Enum<E
 	 * Values of the set.
 	 */
 	public EnumPowerSet(E...enums){
-		super(enums);
+		super();
+		this.mask = EMPTY;
+		for(E e: enums){
+			add(e);
+		}
 	}
 	
 	/**
@@ -33,9 +77,275 @@ public abstract class EnumPowerSet<S extends EnumPowerSet<S,E>, E extends Enum<E
 	 * @param enumSet
 	 */
 	public EnumPowerSet(Set<E> enumSet){
-		super(enumSet);
+		super();
+		if(enumSet instanceof EnumMaskSet){
+			//Sets created by this class share their mask 
+			EnumMaskSet<E> maskSet = (EnumMaskSet<E>) enumSet;
+			this.mask = maskSet.mask;
+			this.universe = maskSet.universe;
+			this.valueSet = maskSet;
+		}else{
+			this.mask = EMPTY;
+			for(E e: enumSet){
+				add(e);
+			}
+		}
+	}
+	
+//Methods
+	@Override
+	public Set<E> getValueSet(){
+		if(valueSet == null){
+			valueSet = new EnumMaskSet<E>(mask, universe);
+		}
+		return valueSet;
+	}
+	
+	/**
+	 * {@inheritDoc}<br>
+	 * Runs in time proportional to the number of words of the masks.
+	 */
+	@Override
+	public S difference(Evaluable<S> other){
+		EnumPowerSet<S,E> o = other.value();
+		long[] result = null;
+		for(int i = 0; i<mask.length; i++){
+			long word = mask[i] & ~word(o.mask, i);
+			if(word != mask[i]){
+				if(result == null){
+					result = Arrays.copyOf(mask, mask.length);
+				}
+				result[i] = word;
+			}
+		}
+		return (result == null)? value() : createPowerSet(new EnumMaskSet<E>(result, universe));
+	}
+	
+//Overriding methods
+	@Override
+	public S getBottom(){
+		if(isBottom()){
+			return value();
+		}
+		return createPowerSet(new EnumMaskSet<E>(EMPTY, universe));
 	}
 	
+	@Override
+	public boolean isBottom() {
+		for(long word: mask){
+			if(word != 0){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public boolean compare(Evaluable<S> other) {
+		EnumPowerSet<S,E> o = other.value();
+		long[] otherMask = o.mask;
+		for(int i = 0; i<mask.length; i++){
+			long otherWord = (i < otherMask.length)? otherMask[i] : 0;
+			if((mask[i] & ~otherWord) != 0){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public S join(Evaluable<S> other) {
+		EnumPowerSet<S,E> o = other.value();
+		if(o.compare(this)){
+			return value();
+		}
+		if(this.compare(other)){
+			return other.value();
+		}
+		long[] longer = (mask.length >= o.mask.length)? mask : o.mask;
+		long[] shorter = (longer == mask)? o.mask : mask;
+		long[] result = Arrays.copyOf(longer, longer.length);
+		for(int i = 0; i<shorter.length; i++){
+			result[i] |= shorter[i];
+		}
+		return createPowerSet(new EnumMaskSet<E>(result, (universe != null)? universe : o.universe));
+	}
+	
+	@Override
+	public JoinAccumulator<S> accumulator() {
+		return new JoinAccumulator<S>(){
+			
+			/**
+			 * The accumulated mask, or {@code null} if nothing has been added to the invoked element's mask.
+			 */
+			private long[] result;
+			
+			private E[] resultUniverse = universe;
+			
+			@Override
+			public void join(Evaluable<S> other) {
+				EnumPowerSet<S,E> o = other.value();
+				if(result == null){
+					if(o.compare(EnumPowerSet.this)){
+						return;
+					}
+					result = Arrays.copyOf(mask, Math.max(mask.length, o.mask.length));
+				}else if(result.length < o.mask.length){
+					result = Arrays.copyOf(result, o.mask.length);
+				}
+				for(int i = 0; i<o.mask.length; i++){
+					result[i] |= o.mask[i];
+				}
+				if(resultUniverse == null){
+					resultUniverse = o.universe;
+				}
+			}
+
+			@Override
+			public S result() {
+				return (result == null)? EnumPowerSet.this.value() : 
+					createPowerSet(new EnumMaskSet<E>(result, resultUniverse));
+			}
+		};
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		if(this == obj){
+			return true;
+		}
+		if(obj == null || obj.getClass() != getClass()){
+			return false;
+		}
+		EnumPowerSet<?,?> other = (EnumPowerSet<?,?>) obj;
+		int length = Math.max(mask.length, other.mask.length);
+		for(int i = 0; i<length; i++){
+			if(word(mask, i) != word(other.mask, i)){
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	@Override
+	public int hashCode() {
+		long h = 0;
+		for(int i = 0; i<mask.length; i++){
+			h ^= mask[i] * (i+1);
+		}
+		return Long.hashCode(h);
+	}
+	
+//Private Methods
+	/**
+	 * Adds the given constant to the mask. Must only be used during construction.
+	 * @param e
+	 */
+	private void add(E e){
+		if(universe == null){
+			//The constants of the enum of E are E's
+			@SuppressWarnings("unchecked")
+			E[] constants = (E[]) UNIVERSES.get(e.getDeclaringClass());
+			universe = constants;
+		}
+		int word = e.ordinal() >>> 6;
+		if(word >= mask.length){
+			mask = Arrays.copyOf(mask, (universe.length + 63) >>> 6);
+		}
+		mask[word] |= 1L << e.ordinal();
+	}
+	
+	/**
+	 * @param mask
+	 * @param i
+	 * @return
+	 * The i'th word of the mask, or zero if the mask has no such word.
+	 */
+	private static long word(long[] mask, int i){
+		return (i < mask.length)? mask[i] : 0;
+	}
+	
+//Classes
+	/**
+	 * An unmodifiable set view of a mask.
+	 */
+	private static class EnumMaskSet<E extends Enum<E>> extends AbstractSet<E>{
+		
+		private final long[] mask;
+		private final E[] universe;
+		
+		EnumMaskSet(long[] mask, E[] universe){
+			this.mask = mask;
+			this.universe = universe;
+		}
+		
+		@Override
+		public boolean contains(Object o) {
+			if(universe == null || !(o instanceof Enum) || 
+					((Enum<?>)o).getDeclaringClass() != universe[0].getDeclaringClass())
+			{
+				return false;
+			}
+			int ordinal = ((Enum<?>)o).ordinal();
+			return (word(mask, ordinal >>> 6) & (1L << ordinal)) != 0;
+		}
+		
+		@Override
+		public int size() {
+			int size = 0;
+			for(long word: mask){
+				size += Long.bitCount(word);
+			}
+			return size;
+		}
 
+		@Override
+		public Iterator<E> iterator() {
+			return new Iterator<E>(){
+				
+				/**
+				 * The ordinal of the next constant, or the mask's size in bits if there is none.
+				 */
+				private int next = nextSetBit(0);
+				
+				@Override
+				public boolean hasNext() {
+					return next < mask.length*64;
+				}
 
+				@Override
+				public E next() {
+					if(!hasNext()){
+						throw new NoSuchElementException();
+					}
+					E e = universe[next];
+					next = nextSetBit(next+1);
+					return e;
+				}
+			};
+		}
+		
+		/**
+		 * @param from
+		 * @return
+		 * The first set bit at or after the given bit, 
+		 * or the mask's size in bits if there is none.
+		 */
+		private int nextSetBit(int from){
+			int i = from >>> 6;
+			if(i >= mask.length){
+				return mask.length*64;
+			}
+			long word = mask[i] & (-1L << from);
+			while(true){
+				if(word != 0){
+					return i*64 + Long.numberOfTrailingZeros(word);
+				}
+				if(++i == mask.length){
+					return mask.length*64;
+				}
+				word = mask[i];
+			}
+		}
+	}
 }
@@ -0,0 +1,28 @@
+package dk.emoun.progysis.lattices;
+
+/**
+ * A private, mutable builder of the join of many lattice elements.<br>
+ * Joining many elements one at a time using {@link CompleteLattice#join} creates an intermediate 
+ * element for every join, while an accumulator only creates the final element.<br>
+ * <br>
+ * Accumulators are obtained from {@link Accumulable} lattice elements, and are not thread safe.
+ * @param <V>
+ * The type of the lattice elements joined.
+ */
+public interface JoinAccumulator<V extends LatticeElement<V>> {
+	
+	/**
+	 * Joins the given element into the accumulated element.
+	 * @param other
+	 * Element of the lattice
+	 */
+	public void join(Evaluable<V> other);
+	
+	/**
+	 * Freezes the accumulated element. The accumulator must not be used afterwards.
+	 * @return
+	 * The join of the element the accumulator was started from and all the elements joined into it.
+	 * May be an element previously given to the accumulator, if it fits the contract.
+	 */
+	public V result();
+}
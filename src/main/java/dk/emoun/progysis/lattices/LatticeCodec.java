@@ -0,0 +1,31 @@
+package dk.emoun.progysis.lattices;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Converts lattice elements to and from a binary representation.<br>
+ * Equal elements must be written as the same bytes, since the bytes may be used to identify the element.
+ * @param <V>
+ * The type of the lattice elements.
+ */
+public interface LatticeCodec<V extends LatticeElement<V>> {
+	
+	/**
+	 * Writes the given element to the given output.
+	 * @param element
+	 * @param out
+	 * @throws IOException
+	 */
+	public void write(V element, DataOutput out) throws IOException;
+	
+	/**
+	 * Reads an element written by {@link #write(LatticeElement, DataOutput)} from the given input.
+	 * @param in
+	 * @return
+	 * The element read.
+	 * @throws IOException
+	 */
+	public V read(DataInput in) throws IOException;
+}
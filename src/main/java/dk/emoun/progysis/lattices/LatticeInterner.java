@@ -0,0 +1,79 @@
+package dk.emoun.progysis.lattices;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Keeps a single canonical instance of each distinct lattice element (hash-consing).<br>
+ * <br>
+ * When all the elements of a computation are interned, two elements are equal exactly when they 
+ * are the same instance, which makes testing for equality a reference comparison, 
+ * and the memory of all the duplicate elements can be reclaimed.<br>
+ * Elements are considered equal according to their {@link Object#equals} and {@link Object#hashCode}.
+ * Elements equal by {@link Object#equals} must be equal in the lattice, while the opposite need not hold:
+ * <ul>
+ * 	<li>For {@link PowerSet} and {@link EnumPowerSet}, equality is the same as equality in the lattice.</li>
+ * 	<li>For {@link TotalFunction}, equality is stricter, since it also compares the defaults, which the lattice does not.
+ * 		Functions equal in the lattice, but with different defaults, are therefore kept as distinct instances.
+ * 		Solvers comparing interned elements by identity then see a change between them, 
+ * 		which can only cost extra evaluations.</li>
+ * </ul>
+ * The interner only references its canonical instances weakly, so an instance is forgotten 
+ * once nothing else references it, and the interner can outlive the analyses using it. 
+ * It is safe to use from multiple threads.
+ * @param <V>
+ * The type of the interned lattice elements
+ */
+public class LatticeInterner<V extends LatticeElement<V>> {
+
+//Fields
+	/**
+	 * Maps each canonical instance to a weak reference to itself, 
+	 * such that neither the key nor the value keeps the instance alive.
+	 */
+	private Map<V,WeakReference<V>> canonical;
+	
+//Constructors
+	public LatticeInterner(){
+		this.canonical = new WeakHashMap<V,WeakReference<V>>();
+	}
+	
+//Methods
+	/**
+	 * @param element
+	 * @return
+	 * The canonical instance equal to the given element. 
+	 * If there is none, the given element becomes the canonical instance.
+	 */
+	public V intern(V element){
+		synchronized(canonical){
+			WeakReference<V> reference = canonical.get(element);
+			V existing = (reference == null)? null : reference.get();
+			if(existing != null){
+				return existing;
+			}
+			canonical.put(element, new WeakReference<V>(element));
+			return element;
+		}
+	}
+	
+	/**
+	 * @return
+	 * The number of canonical instances that have not been forgotten.
+	 */
+	public int size(){
+		synchronized(canonical){
+			return canonical.size();
+		}
+	}
+	
+	/**
+	 * Forgets all canonical instances.
+	 */
+	public void clear(){
+		synchronized(canonical){
+			canonical.clear();
+		}
+	}
+}
@@ -4,7 +4,8 @@ public class LatticeUtilities {
 	
 //CompleteLattice methods
 	/**
-	 * Returns whether the two lattice elements are equal in their Complete Lattice.
+	 * Returns whether the two lattice elements are equal in their Complete Lattice.<br>
+	 * Identical instances are equal without being compared.
 	 * @param element1
 	 * @param element2
 	 * Complete Lattice over the given elements
@@ -17,8 +18,12 @@ public class LatticeUtilities {
 		> 
 	boolean equal(Evaluable<V> element1, Evaluable<V> element2) 
 	{
-		return 	element1.value().compare(element2) &&
-				element2.value().compare( element1);
+		V value1 = element1.value(), value2 = element2.value();
+		if(value1 == value2){
+			return true;
+		}
+		return 	value1.compare(value2) &&
+				value2.compare(value1);
 	}
 	
 	/**
@@ -49,6 +54,6 @@ public class LatticeUtilities {
 	public static  <R extends TotalFunction<R,?,?>>
 	boolean equal(R r1,R r2) 
 	{
-		return 	equal(r1, r2);
+		return 	equal((Evaluable<R>) r1, (Evaluable<R>) r2);
 	}	
 }
@@ -0,0 +1,705 @@
+package dk.emoun.progysis.lattices;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiPredicate;
+import java.util.function.BinaryOperator;
+import java.util.function.UnaryOperator;
+
+/**
+ * An immutable map implemented as a hash array mapped trie.<br>
+ * <br>
+ * Instead of being modified, a map is updated by creating a new map which shares all the
+ * parts of the trie that are not affected by the update, 
+ * which makes {@link #plus updating} a key O(log n) in time and space.
+ * Since the shape of the trie only depends on the keys it maps, maps derived from each other 
+ * often share large parts of their tries, which {@link #merge} and {@link #allMatch} exploit, 
+ * by not visiting identical parts.<br>
+ * The nodes of the trie cache the sum of the hash codes of their entries, 
+ * so the {@link #hashCode() hash code} of a map derived from a hashed map only visits the parts of the trie that differ.<br>
+ * <br>
+ * Like other maps, the methods of the {@link Map} interface that modify the map throw 
+ * {@link UnsupportedOperationException}. {@code null} keys and values are not supported.
+ * @param <K>
+ * The key type
+ * @param <V>
+ * The value type
+ */
+public final class PersistentMap<K,V> extends AbstractMap<K,V>{
+
+//Fields
+	/**
+	 * The number of hash bits consumed by each level of the trie.
+	 */
+	private static final int BITS = 5;
+	
+	/**
+	 * The empty trie
+	 */
+	private static final BitmapNode EMPTY_NODE = new BitmapNode(0, new Object[0]);
+	
+	/**
+	 * The empty map
+	 */
+	private static final PersistentMap<?,?> EMPTY = new PersistentMap<Object,Object>(EMPTY_NODE, 0);
+	
+	/**
+	 * The root of the trie. 
+	 */
+	private final BitmapNode root;
+	
+	/**
+	 * The number of keys mapped, or -1 if not yet counted.
+	 */
+	private int size;
+	
+	/**
+	 * Lazily created entry set view
+	 */
+	private Set<Entry<K,V>> entrySet;
+	
+//Constructors
+	private PersistentMap(BitmapNode root, int size){
+		this.root = root;
+		this.size = size;
+	}
+	
+//Static methods
+	/**
+	 * @return
+	 * The empty map.
+	 */
+	@SuppressWarnings("unchecked")
+	public static <K,V> PersistentMap<K,V> empty(){
+		//The empty map contains no keys or values of any type
+		return (PersistentMap<K,V>) EMPTY;
+	}
+	
+	/**
+	 * @param map
+	 * @return
+	 * A persistent map with the same mapping as the given map.
+	 * If the given map is a persistent map, it is returned.
+	 */
+	public static <K,V> PersistentMap<K,V> copyOf(Map<K,V> map){
+		if(map instanceof PersistentMap){
+			return (PersistentMap<K,V>) map;
+		}
+		PersistentMap<K,V> result = empty();
+		for(Entry<K,V> e: map.entrySet()){
+			result = result.plus(e.getKey(), e.getValue());
+		}
+		return result;
+	}
+	
+	/**
+	 * Returns whether the two maps map the same keys, and the given predicate holds for the
+	 * two values of every key.<br>
+	 * The predicate must be reflexive, since it is not evaluated for values in parts of
+	 * the tries shared by the maps.
+	 * @param m1
+	 * @param m2
+	 * @param predicate
+	 * Given the value of a key in m1 and the value of the same key in m2, 
+	 * returns whether they match.
+	 * @return
+	 */
+	public static <K,V> boolean allMatch(PersistentMap<K,V> m1, PersistentMap<K,V> m2, BiPredicate<? super V, ? super V> predicate){
+		return nodesMatch(m1.root, m2.root, predicate);
+	}
+	
+//Methods
+	/**
+	 * @param key
+	 * @param value
+	 * @return
+	 * A map with the same mapping as this map, except that the given key maps to the given value.
+	 * If the key already maps to the given value instance, this map is returned.
+	 */
+	public PersistentMap<K,V> plus(K key, V value){
+		boolean[] added = new boolean[1];
+		BitmapNode newRoot = (BitmapNode) put(root, new Leaf(hash(key), key, value), 0, added);
+		if(newRoot == root){
+			return this;
+		}
+		return new PersistentMap<K,V>(newRoot, (size < 0)? -1 : (added[0]? size+1 : size));
+	}
+	
+	/**
+	 * Constructs a map that maps the union of the keys of this map and the given map,
+	 * using the given functions to calculate the values.<br>
+	 * Where the tries of the two maps are identical, the result shares that part of the trie, 
+	 * without evaluating the functions. The function given for keys in both maps must therefore
+	 * return its arguments when they are identical, like joins do.
+	 * If the functions return the values of one of the maps for every key, that map is returned.
+	 * @param other
+	 * @param both
+	 * Given the values of a key mapped by both maps, returns the value of the key.
+	 * @param onlyThis
+	 * Given the value of a key mapped only by this map, returns the value of the key.
+	 * @param onlyOther
+	 * Given the value of a key mapped only by the other map, returns the value of the key.
+	 * @return
+	 */
+	public PersistentMap<K,V> merge(PersistentMap<K,V> other, 
+			BinaryOperator<V> both, UnaryOperator<V> onlyThis, UnaryOperator<V> onlyOther)
+	{
+		BitmapNode newRoot = (BitmapNode) 
+				new Merger<V>(both, onlyThis, onlyOther).merge(root, other.root, 0);
+		if(newRoot == root){
+			return this;
+		}
+		if(newRoot == other.root){
+			return other;
+		}
+		return new PersistentMap<K,V>(newRoot, -1);
+	}
+	
+	/**
+	 * @param f
+	 * @return
+	 * A map with the same keys as this map, mapping each key to the result
+	 * of the given function on its value in this map.
+	 */
+	public PersistentMap<K,V> mapValues(UnaryOperator<V> f){
+		Object newRoot = mapValues(root, f);
+		if(newRoot == root){
+			return this;
+		}
+		return new PersistentMap<K,V>((BitmapNode)newRoot, size);
+	}
+	
+//Overriding methods
+	@Override
+	public V get(Object key) {
+		if(key == null){
+			return null;
+		}
+		int hash = hash(key);
+		Object node = root;
+		for(int shift = 0; ; shift += BITS){
+			if(node instanceof BitmapNode){
+				BitmapNode b = (BitmapNode) node;
+				int bit = bit(hash, shift);
+				if((b.bitmap & bit) == 0){
+					return null;
+				}
+				node = b.children[b.index(bit)];
+			}else if(node instanceof Leaf){
+				Leaf l = (Leaf) node;
+				return (l.hash == hash && l.getKey().equals(key))? valueOf(l) : null;
+			}else{
+				for(Leaf l: ((CollisionNode) node).leaves){
+					if(l.getKey().equals(key)){
+						return valueOf(l);
+					}
+				}
+				return null;
+			}
+		}
+	}
+	
+	@Override
+	public boolean containsKey(Object key) {
+		return get(key) != null;
+	}
+	
+	@Override
+	public int size() {
+		if(size < 0){
+			int count = 0;
+			for(Iterator<Leaf> leaves = new LeafIterator(root); leaves.hasNext(); leaves.next()){
+				count++;
+			}
+			size = count;
+		}
+		return size;
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return root.bitmap == 0;
+	}
+	
+	@Override
+	public boolean equals(Object o) {
+		if(o instanceof PersistentMap){
+			return nodesMatch(root, ((PersistentMap<?,?>) o).root, Object::equals);
+		}
+		return super.equals(o);
+	}
+	
+	/**
+	 * {@inheritDoc}<br>
+	 * The hash codes of the nodes of the trie are cached, so only the nodes 
+	 * not shared with a map whose hash code was already calculated are visited.
+	 */
+	@Override
+	public int hashCode() {
+		return entryHash(root);
+	}
+	
+	@Override
+	public Set<Entry<K,V>> entrySet() {
+		if(entrySet == null){
+			entrySet = new AbstractSet<Entry<K,V>>(){
+				@Override
+				public Iterator<Entry<K, V>> iterator() {
+					//The leaves of the trie are entries of K's and V's
+					@SuppressWarnings("unchecked")
+					Iterator<Entry<K, V>> leaves = (Iterator<Entry<K, V>>) (Iterator<?>) new LeafIterator(root);
+					return leaves;
+				}
+				
+				@Override
+				public int size() {
+					return PersistentMap.this.size();
+				}
+			};
+		}
+		return entrySet;
+	}
+	
+//Private methods
+	private static int hash(Object key){
+		int h = key.hashCode();
+		return h ^ (h >>> 16);
+	}
+	
+	/**
+	 * @param hash
+	 * @param shift
+	 * @return
+	 * The bit of the slot of the given hash, at the level of the trie with the given shift.
+	 */
+	private static int bit(int hash, int shift){
+		return 1 << ((hash >>> shift) & 31);
+	}
+	
+	/**
+	 * Puts the given leaf into the given node.
+	 * @param node
+	 * A node or leaf at the level with the given shift.
+	 * @param leaf
+	 * @param shift
+	 * @param added
+	 * Set to true if the leaf's key was not already in the node.
+	 * @return
+	 * The resulting node. The given node if nothing changed.
+	 */
+	private static Object put(Object node, Leaf leaf, int shift, boolean[] added){
+		if(node instanceof BitmapNode){
+			BitmapNode b = (BitmapNode) node;
+			int bit = bit(leaf.hash, shift);
+			int index = b.index(bit);
+			if((b.bitmap & bit) == 0){
+				added[0] = true;
+				Object[] children = new Object[b.children.length+1];
+				System.arraycopy(b.children, 0, children, 0, index);
+				children[index] = leaf;
+				System.arraycopy(b.children, index, children, index+1, b.children.length-index);
+				return new BitmapNode(b.bitmap | bit, children);
+			}
+			Object child = b.children[index];
+			Object newChild = put(child, leaf, shift+BITS, added);
+			if(newChild == child){
+				return b;
+			}
+			Object[] children = b.children.clone();
+			children[index] = newChild;
+			return new BitmapNode(b.bitmap, children);
+		}else if(node instanceof Leaf){
+			Leaf l = (Leaf) node;
+			if(l.hash == leaf.hash && l.getKey().equals(leaf.getKey())){
+				return (l.getValue() == leaf.getValue())? l : leaf;
+			}
+			added[0] = true;
+			if(l.hash == leaf.hash){
+				return new CollisionNode(l.hash, new Leaf[]{l, leaf});
+			}
+			return pair(l, l.hash, leaf, shift);
+		}else{
+			CollisionNode c = (CollisionNode) node;
+			if(c.hash != leaf.hash){
+				added[0] = true;
+				return pair(c, c.hash, leaf, shift);
+			}
+			for(int i = 0; i<c.leaves.length; i++){
+				if(c.leaves[i].getKey().equals(leaf.getKey())){
+					if(c.leaves[i].getValue() == leaf.getValue()){
+						return c;
+					}
+					Leaf[] leaves = c.leaves.clone();
+					leaves[i] = leaf;
+					return new CollisionNode(c.hash, leaves);
+				}
+			}
+			added[0] = true;
+			Leaf[] leaves = new Leaf[c.leaves.length+1];
+			System.arraycopy(c.leaves, 0, leaves, 0, c.leaves.length);
+			leaves[c.leaves.length] = leaf;
+			return new CollisionNode(c.hash, leaves);
+		}
+	}
+	
+	/**
+	 * @param existing
+	 * A leaf or collision node
+	 * @param existingHash
+	 * The hash of the keys in the existing node
+	 * @param leaf
+	 * A leaf with a different hash than the existing node
+	 * @param shift
+	 * The shift of the level the resulting node is at.
+	 * @return
+	 * A node containing the both the given nodes.
+	 */
+	private static BitmapNode pair(Object existing, int existingHash, Leaf leaf, int shift){
+		int bit1 = bit(existingHash, shift), bit2 = bit(leaf.hash, shift);
+		if(bit1 == bit2){
+			return new BitmapNode(bit1, new Object[]{pair(existing, existingHash, leaf, shift+BITS)});
+		}
+		return new BitmapNode(bit1 | bit2, 
+				(Integer.compareUnsigned(bit1, bit2) < 0)? 
+					new Object[]{existing, leaf} : new Object[]{leaf, existing});
+	}
+	
+	/**
+	 * @param leaf
+	 * @return
+	 * The value of the given leaf, which is a V since leaves are only created by maps of V's.
+	 */
+	@SuppressWarnings("unchecked")
+	private static <V> V valueOf(Leaf leaf){
+		return (V) leaf.getValue();
+	}
+	
+	private static <V> Object mapValues(Object node, UnaryOperator<V> f){
+		if(node instanceof Leaf){
+			Leaf l = (Leaf) node;
+			V value = f.apply(valueOf(l));
+			return (value == l.getValue())? l : new Leaf(l.hash, l.getKey(), value);
+		}
+		Object[] children = (node instanceof BitmapNode)? 
+				((BitmapNode)node).children : ((CollisionNode)node).leaves;
+		Object[] newChildren = null;
+		for(int i = 0; i<children.length; i++){
+			Object newChild = mapValues(children[i], f);
+			if(newChild != children[i]){
+				if(newChildren == null){
+					newChildren = children.clone();
+				}
+				newChildren[i] = newChild;
+			}
+		}
+		if(newChildren == null){
+			return node;
+		}
+		return (node instanceof BitmapNode)? 
+				new BitmapNode(((BitmapNode)node).bitmap, newChildren) :
+				new CollisionNode(((CollisionNode)node).hash, (Leaf[]) newChildren);
+	}
+	
+	/**
+	 * @param node
+	 * A node or leaf.
+	 * @return
+	 * The sum of the hash codes of the entries in the given node, 
+	 * which is calculated once per node, like the hash codes of {@link String strings}.
+	 */
+	private static int entryHash(Object node){
+		if(node instanceof Leaf){
+			return node.hashCode();
+		}
+		if(node instanceof BitmapNode){
+			BitmapNode b = (BitmapNode) node;
+			int h = b.entryHash;
+			if(h == 0){
+				for(Object child: b.children){
+					h += entryHash(child);
+				}
+				b.entryHash = h;
+			}
+			return h;
+		}
+		CollisionNode c = (CollisionNode) node;
+		int h = c.entryHash;
+		if(h == 0){
+			for(Leaf l: c.leaves){
+				h += l.hashCode();
+			}
+			c.entryHash = h;
+		}
+		return h;
+	}
+	
+	private static <V> boolean nodesMatch(Object n1, Object n2, BiPredicate<? super V, ? super V> predicate){
+		if(n1 == n2){
+			return true;
+		}
+		if(n1 instanceof BitmapNode && n2 instanceof BitmapNode){
+			BitmapNode b1 = (BitmapNode) n1, b2 = (BitmapNode) n2;
+			//The shape of a trie is given by its keys, so different shapes means different keys.
+			if(b1.bitmap != b2.bitmap){
+				return false;
+			}
+			for(int i = 0; i<b1.children.length; i++){
+				if(!nodesMatch(b1.children[i], b2.children[i], predicate)){
+					return false;
+				}
+			}
+			return true;
+		}
+		if(n1 instanceof Leaf && n2 instanceof Leaf){
+			Leaf l1 = (Leaf) n1, l2 = (Leaf) n2;
+			return 	l1.hash == l2.hash && l1.getKey().equals(l2.getKey()) && 
+					predicate.test(valueOf(l1), valueOf(l2));
+		}
+		if(n1 instanceof CollisionNode && n2 instanceof CollisionNode){
+			Leaf[] leaves1 = ((CollisionNode)n1).leaves, leaves2 = ((CollisionNode)n2).leaves;
+			if(leaves1.length != leaves2.length){
+				return false;
+			}
+			outer:
+			for(Leaf l1: leaves1){
+				for(Leaf l2: leaves2){
+					if(l1.getKey().equals(l2.getKey())){
+						if(!predicate.test(valueOf(l1), valueOf(l2))){
+							return false;
+						}
+						continue outer;
+					}
+				}
+				return false;
+			}
+			return true;
+		}
+		return false;
+	}
+	
+//Classes
+	/**
+	 * A key-value pair of the map.
+	 */
+	private static final class Leaf extends SimpleImmutableEntry<Object,Object>{
+		
+		private static final long serialVersionUID = 1L;
+		
+		final int hash;
+		
+		/**
+		 * The hash code of the entry, or zero if not yet calculated.
+		 */
+		private int entryHash;
+		
+		Leaf(int hash, Object key, Object value){
+			super(key, value);
+			this.hash = hash;
+		}
+		
+		@Override
+		public int hashCode() {
+			int h = entryHash;
+			if(h == 0){
+				h = super.hashCode();
+				entryHash = h;
+			}
+			return h;
+		}
+	}
+	
+	/**
+	 * A node of the trie, with up to 32 children, each of which is a 
+	 * leaf, bitmap node or collision node.
+	 */
+	private static final class BitmapNode{
+		/**
+		 * Bit i is set if the node has a child in slot i.
+		 */
+		final int bitmap;
+		
+		/**
+		 * The children of the slots, in order of slot.
+		 */
+		final Object[] children;
+		
+		/**
+		 * The sum of the hash codes of the entries in the node, or zero if not yet calculated.
+		 */
+		int entryHash;
+		
+		BitmapNode(int bitmap, Object[] children){
+			this.bitmap = bitmap;
+			this.children = children;
+		}
+		
+		/**
+		 * @param bit
+		 * @return
+		 * The index in {@link #children} of the slot with the given bit.
+		 */
+		int index(int bit){
+			return Integer.bitCount(bitmap & (bit - 1));
+		}
+	}
+	
+	/**
+	 * Leaves whose keys have the same hash.
+	 */
+	private static final class CollisionNode{
+		final int hash;
+		final Leaf[] leaves;
+		
+		/**
+		 * The sum of the hash codes of the leaves, or zero if not yet calculated.
+		 */
+		int entryHash;
+		
+		CollisionNode(int hash, Leaf[] leaves){
+			this.hash = hash;
+			this.leaves = leaves;
+		}
+	}
+	
+	/**
+	 * Merges tries, see {@link PersistentMap#merge}.
+	 */
+	private static final class Merger<V>{
+		final BinaryOperator<V> both;
+		final UnaryOperator<V> onlyFirst;
+		final UnaryOperator<V> onlySecond;
+		
+		Merger(BinaryOperator<V> both, UnaryOperator<V> onlyFirst, UnaryOperator<V> onlySecond){
+			this.both = both;
+			this.onlyFirst = onlyFirst;
+			this.onlySecond = onlySecond;
+		}
+		
+		Object merge(Object n1, Object n2, int shift){
+			if(n1 == n2){
+				return n1;
+			}
+			if(n1 instanceof BitmapNode && n2 instanceof BitmapNode){
+				BitmapNode b1 = (BitmapNode) n1, b2 = (BitmapNode) n2;
+				int bitmap = b1.bitmap | b2.bitmap;
+				Object[] children = new Object[Integer.bitCount(bitmap)];
+				boolean same1 = bitmap == b1.bitmap, same2 = bitmap == b2.bitmap;
+				int i = 0;
+				for(int remaining = bitmap; remaining != 0; remaining &= remaining - 1){
+					int bit = remaining & -remaining;
+					Object c1 = ((b1.bitmap & bit) != 0)? b1.children[b1.index(bit)] : null;
+					Object c2 = ((b2.bitmap & bit) != 0)? b2.children[b2.index(bit)] : null;
+					Object merged;
+					if(c2 == null){
+						merged = mapValues(c1, onlyFirst);
+					}else if(c1 == null){
+						merged = mapValues(c2, onlySecond);
+					}else{
+						merged = merge(c1, c2, shift+BITS);
+					}
+					same1 &= merged == c1;
+					same2 &= merged == c2;
+					children[i++] = merged;
+				}
+				return same1? b1 : same2? b2 : new BitmapNode(bitmap, children);
+			}
+			if(n1 instanceof Leaf && n2 instanceof Leaf){
+				Leaf l1 = (Leaf) n1, l2 = (Leaf) n2;
+				if(l1.hash == l2.hash && l1.getKey().equals(l2.getKey())){
+					V value = both.apply(valueOf(l1), valueOf(l2));
+					return (value == l1.getValue())? l1 : (value == l2.getValue())? l2 : new Leaf(l1.hash, l1.getKey(), value);
+				}
+			}
+			return mergeSlowly(n1, n2, shift);
+		}
+		
+		/**
+		 * Merges nodes of different kinds by looking up each key of one node in the other.
+		 * @param n1
+		 * @param n2
+		 * @param shift
+		 * @return
+		 */
+		private Object mergeSlowly(Object n1, Object n2, int shift){
+			Map<Object,V> values2 = new HashMap<Object,V>();
+			for(Iterator<Leaf> leaves = new LeafIterator(n2); leaves.hasNext();){
+				Leaf l = leaves.next();
+				values2.put(l.getKey(), valueOf(l));
+			}
+			
+			boolean[] added = new boolean[1];
+			Object result = EMPTY_NODE;
+			for(Iterator<Leaf> leaves = new LeafIterator(n1); leaves.hasNext();){
+				Leaf l = leaves.next();
+				V v2 = values2.remove(l.getKey());
+				V value = (v2 == null)? onlyFirst.apply(valueOf(l)) : both.apply(valueOf(l), v2);
+				result = put(result, new Leaf(l.hash, l.getKey(), value), shift, added);
+			}
+			for(Entry<Object,V> e: values2.entrySet()){
+				result = put(result, new Leaf(hash(e.getKey()), e.getKey(), onlySecond.apply(e.getValue())), shift, added);
+			}
+			return unwrap((BitmapNode) result);
+		}
+		
+		/**
+		 * @param node
+		 * @return
+		 * The node that should be in a slot, given the bitmap node of the slot's entries.
+		 */
+		private Object unwrap(BitmapNode node){
+			if(node.children.length == 1 && !(node.children[0] instanceof BitmapNode)){
+				return node.children[0];
+			}
+			return node;
+		}
+	}
+	
+	/**
+	 * Iterates over the leaves of a trie, depth first.
+	 */
+	private static final class LeafIterator implements Iterator<Leaf>{
+		
+		private final Deque<Object> stack = new ArrayDeque<Object>();
+		
+		LeafIterator(Object root){
+			stack.push(root);
+			advance();
+		}
+		
+		@Override
+		public boolean hasNext() {
+			return !stack.isEmpty();
+		}
+
+		@Override
+		public Leaf next() {
+			if(stack.isEmpty()){
+				throw new NoSuchElementException();
+			}
+			Leaf leaf = (Leaf) stack.pop();
+			advance();
+			return leaf;
+		}
+		
+		/**
+		 * Expands the top of the stack until it is a leaf or the stack is empty.
+		 */
+		private void advance(){
+			while(!stack.isEmpty() && !(stack.peek() instanceof Leaf)){
+				Object node = stack.pop();
+				Object[] children = (node instanceof BitmapNode)? 
+						((BitmapNode)node).children : ((CollisionNode)node).leaves;
+				for(int i = children.length-1; i>=0; i--){
+					stack.push(children[i]);
+				}
+			}
+		}
+	}
+}
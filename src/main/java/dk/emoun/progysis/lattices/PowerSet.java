@@ -17,7 +17,7 @@ import java.util.Set;
  * @param <V>
  * The type of values in the sets of the powerset elements.
  */
-public abstract class PowerSet<S extends PowerSet<S,V>, V> extends LatticeElement<S>{
+public abstract class PowerSet<S extends PowerSet<S,V>, V> extends LatticeElement<S> implements Accumulable<S>{
 	
 //fields
 	
@@ -25,6 +25,12 @@ public abstract class PowerSet<S extends PowerSet<S,V>, V> extends LatticeElemen
 	 * The set of values comprising the lattice element
 	 */
 	private Set<V> valueSet;
+	
+	/**
+	 * Cached hash code, or zero if not yet calculated.
+	 */
+	private int hash;
+	
 //Constructors
 	
 	/**
@@ -78,9 +84,28 @@ public abstract class PowerSet<S extends PowerSet<S,V>, V> extends LatticeElemen
 	}
 		
 	
+	/**
+	 * @param other
+	 * @return
+	 * An element with the values of the invoked element's set that are not in the given element's set.
+	 */
+	public S difference(Evaluable<S> other){
+		Set<V> otherSet = other.value().getValueSet();
+		Set<V> result = new HashSet<V>();
+		for(V v: valueSet){
+			if(!otherSet.contains(v)){
+				result.add(v);
+			}
+		}
+		return (result.size() == valueSet.size())? value() : createPowerSet(result);
+	}
+	
 //Overriding methods
 	@Override
 	public S getBottom(){
+		if(isBottom()){
+			return value();
+		}
 		return createPowerSet(Collections.emptySet());
 	}
 	
@@ -96,7 +121,7 @@ public abstract class PowerSet<S extends PowerSet<S,V>, V> extends LatticeElemen
 			return true;
 		}
 		
-		return valueSet.containsAll(other.value().getValueSet());
+		return other.value().getValueSet().containsAll(getValueSet());
 	}
 
 	@Override
@@ -107,15 +132,66 @@ public abstract class PowerSet<S extends PowerSet<S,V>, V> extends LatticeElemen
 		return (createPowerSet(result));
 	}
 
+	@Override
+	public JoinAccumulator<S> accumulator() {
+		return new JoinAccumulator<S>(){
+			
+			/**
+			 * The accumulated set, or {@code null} if nothing has been added to the invoked element's set.
+			 */
+			private Set<V> result;
+			
+			@Override
+			public void join(Evaluable<S> other) {
+				Set<V> otherSet = other.value().getValueSet();
+				if(result == null){
+					if(getValueSet().containsAll(otherSet)){
+						return;
+					}
+					result = new HashSet<V>(getValueSet());
+				}
+				result.addAll(otherSet);
+			}
+
+			@Override
+			public S result() {
+				return (result == null)? PowerSet.this.value() : createPowerSet(result);
+			}
+		};
+	}
+
+	/**
+	 * Two powersets are equal if they are of the same class and have equal sets, 
+	 * which is consistent with equality in the lattice.
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if(this == obj){
+			return true;
+		}
+		if(obj == null || obj.getClass() != getClass()){
+			return false;
+		}
+		return getValueSet().equals(((PowerSet<?,?>) obj).getValueSet());
+	}
+	
+	@Override
+	public int hashCode() {
+		if(hash == 0){
+			hash = getValueSet().hashCode();
+		}
+		return hash;
+	}
+
 	@Override
 	public String stringRepresentation() {
-		if(valueSet.size() == 0){
+		if(isBottom()){
 			return "{}";
 		}
 		StringBuilder b = new StringBuilder();
 		
 		b.append('{');
-		for(V s: valueSet){
+		for(V s: getValueSet()){
 			b.append(s);
 			b.append(',');
 		}
@@ -0,0 +1,178 @@
+package dk.emoun.progysis.lattices;
+
+import java.util.Arrays;
+
+/**
+ * An element of the product of several Complete Lattices, i.e. a tuple with 
+ * an element of each of the lattices.<br>
+ * The product is ordered component-wise: a tuple is below another if each of its components is below 
+ * the corresponding component of the other. Likewise, tuples are joined by joining their components.<br>
+ * <br>
+ * Operations that leave every component unchanged return one of the operands, and 
+ * components that are unchanged are kept as the same instances, so that unchanged components
+ * can be recognised by reference.
+ */
+public final class ProductElement extends LatticeElement<ProductElement>{
+
+//Fields
+	private final LatticeElement<?>[] components;
+	
+	/**
+	 * The bottom element of the product, or {@code null} if not yet constructed.
+	 */
+	private ProductElement bottom;
+	
+	private int hash;
+	
+//Constructors
+	/**
+	 * Constructs a tuple of the given components.
+	 * @param components
+	 */
+	public ProductElement(LatticeElement<?>... components){
+		this.components = Arrays.copyOf(components, components.length);
+	}
+	
+//Methods
+	/**
+	 * @return
+	 * The number of components of the tuple.
+	 */
+	public int getNumberOfComponents(){
+		return components.length;
+	}
+	
+	/**
+	 * @param index
+	 * @return
+	 * The component at the given index, which is an element of the type of the lattice at that index.
+	 */
+	@SuppressWarnings("unchecked")
+	public <C extends LatticeElement<C>> C getComponent(int index){
+		return (C) components[index];
+	}
+	
+	/**
+	 * @param index
+	 * @param component
+	 * @return
+	 * A tuple equal to this one, except the component at the given index is the given component.
+	 */
+	public ProductElement withComponent(int index, LatticeElement<?> component){
+		if(components[index] == component){
+			return this;
+		}
+		ProductElement result = new ProductElement(components);
+		result.components[index] = component;
+		return result;
+	}
+	
+	@Override
+	public ProductElement getBottom() {
+		if(bottom == null){
+			LatticeElement<?>[] bottoms = new LatticeElement<?>[components.length];
+			boolean isBottom = true;
+			for(int i = 0; i<components.length; i++){
+				bottoms[i] = components[i].getBottom();
+				isBottom &= bottoms[i] == components[i];
+			}
+			bottom = isBottom? this : new ProductElement(bottoms);
+			bottom.bottom = bottom;
+		}
+		return bottom;
+	}
+
+	@Override
+	public boolean isBottom() {
+		for(LatticeElement<?> component: components){
+			if(!component.isBottom()){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public boolean compare(Evaluable<ProductElement> other) {
+		ProductElement o = other.value();
+		validateArity(o);
+		for(int i = 0; i<components.length; i++){
+			if(components[i] != o.components[i] && !compare(components[i], o.components[i])){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public ProductElement join(Evaluable<ProductElement> other) {
+		ProductElement o = other.value();
+		validateArity(o);
+		LatticeElement<?>[] joined = null;
+		boolean isThis = true, isOther = true;
+		for(int i = 0; i<components.length; i++){
+			LatticeElement<?> c = (components[i] == o.components[i])? 
+									components[i] : join(components[i], o.components[i]);
+			if(joined == null && c != components[i]){
+				joined = Arrays.copyOf(components, components.length);
+			}
+			if(joined != null){
+				joined[i] = c;
+			}
+			isThis &= c == components[i];
+			isOther &= c == o.components[i];
+		}
+		if(isThis){
+			return this;
+		}
+		if(isOther){
+			return o;
+		}
+		return new ProductElement(joined);
+	}
+
+	@Override
+	public String stringRepresentation() {
+		StringBuilder b = new StringBuilder("(");
+		for(int i = 0; i<components.length; i++){
+			if(i > 0){
+				b.append(", ");
+			}
+			b.append(components[i].stringRepresentation());
+		}
+		return b.append(")").toString();
+	}
+	
+	@Override
+	public boolean equals(Object o){
+		return this == o || (o instanceof ProductElement && 
+				Arrays.equals(components, ((ProductElement) o).components));
+	}
+	
+	@Override
+	public int hashCode(){
+		int h = hash;
+		if(h == 0){
+			h = hash = Arrays.hashCode(components);
+		}
+		return h;
+	}
+	
+//Private methods
+	private void validateArity(ProductElement other){
+		if(other.components.length != components.length){
+			throw new IllegalArgumentException("Products of different arity: " 
+										+ components.length + " and " + other.components.length);
+		}
+	}
+	
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static boolean compare(LatticeElement e1, LatticeElement e2){
+		return e1.compare(e2);
+	}
+	
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static LatticeElement<?> join(LatticeElement e1, LatticeElement e2){
+		return (LatticeElement<?>) e1.join(e2);
+	}
+}
@@ -1,10 +1,9 @@
 package dk.emoun.progysis.lattices;
 
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Set;
+import java.util.function.BinaryOperator;
 
 
 /**
@@ -28,20 +27,33 @@ public abstract class TotalFunction
 		V extends LatticeElement<V>
 	> 
 	extends LatticeElement<R> 
+	implements Accumulable<R>
 {
 	
 //Fields	
 	/**
 	 * Mapping of keys to lattice elements.<br>
 	 * Effectively the state of the Total Function.<br>
-	 * Given a Total Function 'f', 'f(s)' == mapping.get(s).
+	 * Given a Total Function 'f', 'f(s)' == mapping.get(s).<br>
+	 * The map is persistent, so functions derived from each other share most of their mapping.
 	 */
-	private Map<K,V> mapping;
+	private PersistentMap<K,V> mapping;
 	
 	/**
 	 * The default element for the total function.
 	 */
 	private V lattice;
+	
+	/**
+	 * The bottom element corresponding to the instance, or {@code null} if not yet created.
+	 */
+	private R bottom;
+	
+	/**
+	 * Cached hash code, or zero if not yet calculated.
+	 */
+	private int hash;
+	
 //Constructors
 	/**
 	 * Constructs a Total Function over the given lattice, mapping the given keys.
@@ -54,9 +66,9 @@ public abstract class TotalFunction
 	 * 
 	 */
 	public TotalFunction(V lattice, K... keys){
-		this(new HashMap<K,V>(), lattice);
+		this(PersistentMap.empty(), lattice);
 		for(K key: keys){
-			this.mapping.put(key, lattice);
+			this.mapping = this.mapping.plus(key, lattice);
 		}
 	}
 	
@@ -64,11 +76,13 @@ public abstract class TotalFunction
 	 * Constructs a Total Function with the given mapping and default element.
 	 * @param mapping
 	 * Mapping from a key set to elements of the given lattice.
+	 * A {@link PersistentMap} is kept as is, while other maps are copied into one, 
+	 * which takes time proportional to their size.
 	 * @param lattice
 	 * The default element of the total function.
 	 */
 	protected TotalFunction(Map<K,V> mapping, V lattice){
-		this.mapping = mapping;
+		this.mapping = PersistentMap.copyOf(mapping);
 		this.lattice = lattice;
 	}
 	
@@ -77,14 +91,19 @@ public abstract class TotalFunction
 	 * Constructs a new Total Function with the given mapping to the same lattice elements as
 	 * the instance this method is invoked on.<br>
 	 * <br>
+	 * <b>The given mapping must be passed to the {@link #TotalFunction(Map, LatticeElement) constructor} as is.</b>
+	 * It is a {@link PersistentMap}, which the constructor keeps without copying. 
+	 * Copying it, e.g. into a {@link HashMap}, makes every update of a total function copy the whole mapping, 
+	 * and makes joins and comparisons visit every key instead of only the keys that differ.<br>
+	 * <br>
 	 * Simply, an implementation could be:<br>
-	 * protected R constructTotalFunction(Map<K,V> mapping){<br>
-	 * return new R(mapping, V);<br>
+	 * protected R constructTotalFunction(Map&lt;K,V&gt; mapping, V defaultElement){<br>
+	 * return new R(mapping, defaultElement);<br>
 	 * }<br>
 	 * 
 	 * @param mapping
 	 * The mapping of a key set to elements of the same lattice 
-	 * as the instance this method is invoked on.
+	 * as the instance this method is invoked on. A {@link PersistentMap} to give to the constructor as is.
 	 * 
 	 * @param defaultElement
 	 * Default lattice element of the resulting total function.
@@ -123,12 +142,11 @@ public abstract class TotalFunction
 	 * @return
 	 * a new Total Function that is identical to the invoking instance except that it
 	 * maps the given key to the given lattice element.<br>
+	 * Runs in O(log n) time and space, since the new function shares
+	 * all but the updated key's part of the mapping with the invoking instance.
 	 */
 	public R getUpdateValue(K key, Evaluable<V> e){
-		HashMap<K,V> newMapping = new HashMap<K,V>();
-		newMapping.putAll(mapping);
-		newMapping.put(key, e.value());
-		return constructTotalFunction(newMapping, lattice);
+		return constructTotalFunction(mapping.plus(key, e.value()), lattice);
 	}
 	
 	/**
@@ -141,11 +159,47 @@ public abstract class TotalFunction
 	 * A new Total function that maps the given keys to bottom
 	 */
 	public R constructBottomTotalFunction(K... keys){
-		Map<K, V> mapping = new HashMap<K, V>();
+		V bottom = lattice.getBottom();
+		PersistentMap<K, V> mapping = PersistentMap.empty();
 		for(K key: keys){
-			mapping.put(key, lattice.getBottom());
+			mapping = mapping.plus(key, bottom);
 		}
-		return constructTotalFunction(mapping, lattice.getBottom());
+		return constructTotalFunction(mapping, bottom);
+	}
+	
+	/**
+	 * Combines the instance with the given total function key by key, 
+	 * e.g. to {@link WidenableTotalFunction widen} them pointwise.<br>
+	 * Keys mapped by only one of the functions are combined with the other function's default,
+	 * and the default of the result is the combination of the two defaults.
+	 * Parts of the mappings the two functions share are not combined, but shared by the result, 
+	 * so keys whose values are identical in both functions keep that value. 
+	 * This is exact for operators that return their arguments when they are identical, like joins, widenings and narrowings do.
+	 * Other operators, like the differences of {@link PowerSet powersets}, give an upper bound for those keys.
+	 * @param other
+	 * @param operator
+	 * Given the values of a key in the instance and in the other function, returns the value of the key.
+	 * @return
+	 * The combined total function. 
+	 * If the operator returns the values of one of the functions for every key and the default, that function is returned, 
+	 * such that e.g. a join that changes nothing returns an operand.
+	 */
+	public R pointwise(Evaluable<R> other, BinaryOperator<V> operator){
+		TotalFunction<R,K,V> o = other.value();
+		
+		PersistentMap<K,V> newMapping = mapping.merge(o.mapping, 
+				operator, 
+				(V v1) -> operator.apply(v1, o.lattice), 
+				(V v2) -> operator.apply(lattice, v2));
+		V newDefault = operator.apply(lattice, o.lattice);
+		
+		if(newMapping == mapping && newDefault == lattice){
+			return value();
+		}
+		if(newMapping == o.mapping && newDefault == o.lattice){
+			return other.value();
+		}
+		return constructTotalFunction(newMapping, newDefault);
 	}
 	
 //Accessors
@@ -162,7 +216,12 @@ public abstract class TotalFunction
 		
 	@Override
 	public R getBottom() {
-		return copyThisToFunctionWhereAllKeysMapTo(lattice.getBottom());
+		if(bottom == null){
+			R b = copyThisToFunctionWhereAllKeysMapTo(lattice.getBottom());
+			((TotalFunction<R,K,V>) b).bottom = b;
+			bottom = b;
+		}
+		return bottom;
 	}
 	
 	@Override
@@ -170,60 +229,146 @@ public abstract class TotalFunction
 		return allValuesMapTo(lattice.getBottom());
 	}
 
+	/**
+	 * {@inheritDoc}<br>
+	 * Total functions are only comparable if they map the same keys.
+	 * Parts of the mappings the two functions share are not compared.
+	 */
 	@Override
 	public boolean compare(Evaluable<R> other){
 		
 		TotalFunction<R,K,V> o = (TotalFunction) (other.value());
 		
-		if( !mapsKeysOf(this, o) || 
-			!mapsKeysOf(o, this))
-		{
-			return false;
-		}
-		
-		if(isBottom())
-		{
+		return PersistentMap.allMatch(mapping, o.mapping, 
+				(V v1, V v2) -> v1.compare(v2));
+	}
+
+	/**
+	 * {@inheritDoc}<br>
+	 * Keys mapped by only one of the functions are joined with the other function's default.
+	 * Parts of the mappings the two functions share are not joined, but shared by the result.
+	 * If the join changes nothing, an operand is returned.
+	 */
+	@Override
+	public R join(Evaluable<R> other) {
+		return pointwise(other, (V v1, V v2) -> v1.join(v2));
+	}
+
+	/**
+	 * {@inheritDoc}<br>
+	 * The accumulator keeps the joined values of the keys that changed in a private map,
+	 * and only updates the invoked element's mapping with them when the result is requested.
+	 */
+	@Override
+	public JoinAccumulator<R> accumulator() {
+		return new JoinAccumulator<R>(){
+			
+			/**
+			 * The accumulated values of the keys whose value differ from the invoked element's mapping.
+			 */
+			private Map<K,V> changed = new HashMap<K,V>();
+			
+			/**
+			 * The accumulated default element
+			 */
+			private V resultDefault = lattice;
+			
+			@Override
+			public void join(Evaluable<R> other) {
+				TotalFunction<R,K,V> o = other.value();
+				
+				//Keys mapped only by the accumulated function are joined with the other's default
+				if(!o.lattice.isBottom()){
+					for(K key: mapping.keySet()){
+						if(!o.mapping.containsKey(key)){
+							joinValue(key, o.lattice);
+						}
+					}
+					for(K key: changed.keySet()){
+						if(!mapping.containsKey(key) && !o.mapping.containsKey(key)){
+							joinValue(key, o.lattice);
+						}
+					}
+				}
+				for(Entry<K,V> e: o.mapping.entrySet()){
+					joinValue(e.getKey(), e.getValue());
+				}
+				resultDefault = resultDefault.join(o.lattice);
+			}
+			
+			/**
+			 * Joins the given value into the accumulated value of the given key.
+			 * @param key
+			 * @param value
+			 */
+			private void joinValue(K key, V value){
+				V current = changed.get(key);
+				if(current == null){
+					current = mapping.get(key);
+					if(current == null){
+						//Keys not mapped by the accumulated function are joined with its default
+						current = resultDefault;
+					}
+				}
+				if(current != value && !value.compare(current)){
+					changed.put(key, current.join(value));
+				}else if(!mapping.containsKey(key)){
+					changed.put(key, current);
+				}
+			}
+
+			@Override
+			public R result() {
+				if(changed.isEmpty() && resultDefault == lattice){
+					return TotalFunction.this.value();
+				}
+				PersistentMap<K,V> result = mapping;
+				for(Entry<K,V> e: changed.entrySet()){
+					result = result.plus(e.getKey(), e.getValue());
+				}
+				return constructTotalFunction(result, resultDefault);
+			}
+		};
+	}
+	
+	/**
+	 * Two total functions are equal if they are of the same class, have the same default 
+	 * and equal mappings, which is stricter than equality in the lattice, since the lattice 
+	 * does not compare the defaults. Equal functions are always equal in the lattice.
+	 * See {@link LatticeInterner} for the consequences for interning.
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if(this == obj){
 			return true;
 		}
-		
-		if(other.value().isBottom())
-		{
+		if(obj == null || obj.getClass() != getClass()){
 			return false;
 		}
-		
-		//At this point neither is bottom and they map the same keys
-		for(K key: mapping.keySet()){
-			if(!this.getValue(key).compare(
-					o.getValue(key)
-					))
-			{
-				return false;
-			}
-		}
-		return true;
+		TotalFunction<?,?,?> o = (TotalFunction<?,?,?>) obj;
+		return 	hashCode() == o.hashCode() &&
+				lattice.equals(o.lattice) && 
+				mapping.equals(o.mapping);
 	}
-
+	
 	@Override
-	public R join(Evaluable<R> other) {
-		TotalFunction<R,K,V> e2TF = (TotalFunction) (other.value());
-		
-		HashMap<K,V> newMapping = new HashMap<K,V>();
-		
-		//Get all keys from both functions
-		Set<K> allKeys = joinKeySets(this, e2TF);
-		
-		//Join the two values for each key and put it in the new map
-		V v1, v2;
-		for(K key: allKeys){
-			v1 = getValueOrBottom(this, key);
-			v2 = getValueOrBottom(e2TF, key);
-			
-			newMapping.put(key, v1.join(v2));
+	public int hashCode() {
+		if(hash == 0){
+			hash = 31*mapping.hashCode() + lattice.hashCode();
 		}
-		
-		return constructTotalFunction(newMapping, lattice.join(e2TF.lattice));
+		return hash;
 	}
-
+	
+	/**
+	 * @return
+	 * The hash code of the mapping of the function. Unlike {@link #hashCode()}, it does not depend on the default,
+	 * so functions equal in the lattice have equal mapping hash codes, 
+	 * as long as the hash codes of their lattice elements are consistent with lattice equality.
+	 */
+	public int mappingHashCode(){
+		return mapping.hashCode();
+	}
+	
 	@Override
 	public String stringRepresentation(){
 		if(mapping.isEmpty()){
@@ -245,69 +390,6 @@ public abstract class TotalFunction
 		
 //private methods
 	
-	/**
-	 * Get the lattice element that the given Total Function maps the given to.<br>
-	 * If the given function does not map the key, the bottom element of the lattice
-	 * is returned instead.
-	 * @param e
-	 * @param key
-	 * @return
-	 */
-	private V getValueOrBottom(TotalFunction<R, K, V> e, K key) {
-		try{
-			return e.getValue(key);
-		}catch(UnmappedKeyException err){
-			return lattice.getBottom();
-		}
-	}
-	
-	/**
-	 * Returns a new set of keys, which contains all the keys both given Total Functions
-	 * map.
-	 * @param e1T
-	 * @param e2T
-	 * @return
-	 */
-	private Set<K> joinKeySets(TotalFunction<R, K, V> e1T, TotalFunction<R, K, V> e2T) {
-		Set<K> allKeys = new HashSet<K>();
-		allKeys.addAll(e1T.mapping.keySet());
-		allKeys.addAll(e2T.mapping.keySet());
-		return allKeys;
-	}
-		
-	/**
-	 * Returns whether the first Total Function maps
-	 * all of the second Total Function's keys.
-	 * @param maps
-	 * @param keys
-	 * @return
-	 * whether {@code maps} maps all of the keys {@code keys'} maps. 
-	 */
-	private boolean mapsKeysOf(TotalFunction<R, K, V> maps, TotalFunction<R, K, V> keys){
-		for(K key: keys.mapping.keySet()){
-			if(!maps.mapping.containsKey(key)){
-				return false;
-			}
-		}
-		return true;
-	}
-	
-	/**
-	 * Copies the given maps' keys into a new map, and maps
-	 * then all to the given value.
-	 * @param value
-	 * @return
-	 * The resulting map
-	 */
-	private Map<K,V> copyKeysWithValue(Map<K,V> keys, V value) {
-		Map<K,V> newKeyMapping = new HashMap<K,V>();
-		for(K key: keys.keySet()){
-			newKeyMapping.put(key, value);
-		}
-		
-		return newKeyMapping;
-	}
-	
 	/**
 	 * Creates a new Total Function that maps the same keys
 	 * as the invoking instance, but where all keys map to
@@ -319,7 +401,7 @@ public abstract class TotalFunction
 	 * The resulting Total Function instance
 	 */
 	private R copyThisToFunctionWhereAllKeysMapTo(V e) {
-		return constructTotalFunction(copyKeysWithValue(mapping, e), lattice);
+		return constructTotalFunction(mapping.mapValues((V v) -> e), lattice);
 	}
 	
 	/**
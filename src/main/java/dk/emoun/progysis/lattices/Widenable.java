@@ -0,0 +1,40 @@
+package dk.emoun.progysis.lattices;
+
+/**
+ * Defines lattice elements that provide a widening operator, and optionally a narrowing operator.<br>
+ * <br>
+ * Widening allows solving constraint systems over lattices of infinite height 
+ * (or very large finite height), where the ascending chains climbed by
+ * the worklist algorithm would otherwise be infinite (or very long).
+ * Narrowing can then be used to regain some of the precision lost to widening.
+ * 
+ * @param <V>
+ * The type of the implementing lattice element
+ */
+public interface Widenable<V extends LatticeElement<V>> {
+	
+	/**
+	 * Widens the invoked element with the given element.<br>
+	 * The result must be larger than both elements, and for any ascending chain e0, e1, ...
+	 * the chain w0 = e0, w(i+1) = wi.widen(e(i+1)) must eventually stabilize.
+	 * @param other
+	 * Element of the lattice
+	 * @return
+	 * an element larger than both the invoked element and the given.
+	 */
+	public V widen(Evaluable<V> other);
+	
+	/**
+	 * Narrows the invoked element with the given element, which is smaller than the invoked element.<br>
+	 * The result must be between the two elements.
+	 * The default implementation simply returns the given element, 
+	 * which does not guarantee that descending chains stabilize.
+	 * @param other
+	 * Element of the lattice smaller than the invoked element.
+	 * @return
+	 * an element between the given element and the invoked element.
+	 */
+	public default V narrow(Evaluable<V> other){
+		return other.value();
+	}
+}
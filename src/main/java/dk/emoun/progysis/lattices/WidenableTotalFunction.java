@@ -0,0 +1,69 @@
+package dk.emoun.progysis.lattices;
+
+import java.util.Map;
+
+/**
+ * A {@link TotalFunction Total Function} to a lattice that can be widened,
+ * which is widened and narrowed pointwise.<br>
+ * This allows the constraint systems of a {@link dk.emoun.progysis.monotoneFramework.MonotoneFramework},
+ * e.g. of an interval analysis, to be solved by {@link dk.emoun.progysis.worklist.WideningWorklistAlgorithm}.
+ *
+ * @param <R>
+ * The type of the extender (IE R should be the exact same type as the extending class)
+ * @param <K>
+ * The key type of the Total Function.
+ * @param <V>
+ * The lattice element type the total function maps to.
+ */
+public abstract class WidenableTotalFunction
+	<
+		R extends WidenableTotalFunction<R,K,V>,
+		K,
+		V extends LatticeElement<V> & Widenable<V>
+	>
+	extends TotalFunction<R,K,V>
+	implements Widenable<R>
+{
+
+//Constructors
+	/**
+	 * See {@link TotalFunction#TotalFunction(LatticeElement, Object...)}.
+	 * @param lattice
+	 * @param keys
+	 */
+	@SafeVarargs
+	@SuppressWarnings("varargs")
+	public WidenableTotalFunction(V lattice, K... keys){
+		super(lattice, keys);
+	}
+
+	/**
+	 * See {@link TotalFunction#TotalFunction(Map, LatticeElement)}.
+	 * @param mapping
+	 * @param lattice
+	 */
+	protected WidenableTotalFunction(Map<K,V> mapping, V lattice){
+		super(mapping, lattice);
+	}
+
+//Overriding methods
+	/**
+	 * {@inheritDoc}<br>
+	 * Widens the value of every key, and the default.
+	 * Keys mapped by only one of the functions are widened with the other function's default.
+	 * Since each key is widened separately, ascending chains stabilize when the keys mapped are bounded.
+	 */
+	@Override
+	public R widen(Evaluable<R> other) {
+		return pointwise(other, (V v1, V v2) -> v1.widen(v2));
+	}
+
+	/**
+	 * {@inheritDoc}<br>
+	 * Narrows the value of every key, and the default.
+	 */
+	@Override
+	public R narrow(Evaluable<R> other) {
+		return pointwise(other, (V v1, V v2) -> v1.narrow(v2));
+	}
+}
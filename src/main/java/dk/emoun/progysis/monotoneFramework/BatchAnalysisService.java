@@ -0,0 +1,409 @@
+package dk.emoun.progysis.monotoneFramework;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import dk.emoun.progysis.lattices.LatticeElement;
+import dk.emoun.progysis.lattices.TotalFunction;
+import dk.emoun.progysis.worklist.AbstractWorklistAlgorithm;
+import dk.emoun.progysis.worklist.ConstraintSystem;
+import dk.emoun.progysis.worklist.SolverListener;
+import dk.emoun.progysis.worklist.PriorityWorklist;
+
+/**
+ * Runs the analyses of many Monotone Frameworks concurrently, 
+ * e.g. one per method of a program.<br>
+ * <br>
+ * Each job constructs the constraint system of a framework and solves it using the Abstract Worklist Algorithm, 
+ * extracting the flow variables in the order of {@link MonotoneFramework#priorityWorklist()}. 
+ * The jobs are run by an executor, which may be a pool of platform threads or, from Java 21, 
+ * a virtual thread per task executor.<br>
+ * Jobs are taken from their source lazily: at most a fixed number of jobs are in flight, i.e. 
+ * submitted but not yet delivered, so a slow consumer of the results holds back the source of the jobs. 
+ * Results are delivered in the order the jobs complete.<br>
+ * A job that runs for longer than the timeout of the service is abandoned, 
+ * and its result reports the time out. The time is only checked after each phase and between the evaluations 
+ * of flow variables, so a job is not abandoned while a single evaluation runs, and a monotone function
+ * that never returns is never abandoned. Jobs are not interrupted.<br>
+ * A job failing with a {@link RuntimeException} gives a failed result. An {@link Error} is not caught, 
+ * but thrown by the results iterator when the result of the job would have been delivered.<br>
+ * <br>
+ * The scratch structures of the jobs are reused by later jobs, whichever thread they run on: 
+ * the worklists, including the bit sets marking the flow variables they contain, 
+ * and the arrays of the traversals ordering the program graphs, including the ranks the worklists order by.
+ * Only the structures belonging to the constraint system of a result, like its values and the bit set 
+ * recording which flow variables are solved, are allocated by each job.
+ */
+public class BatchAnalysisService implements AutoCloseable{
+
+//Fields
+	private ExecutorService executor;
+	
+	/**
+	 * Whether the executor was created by, and should be shut down by, the service.
+	 */
+	private boolean ownsExecutor;
+	
+	/**
+	 * The maximum number of jobs of a batch that are in flight.
+	 */
+	private int maxInFlight;
+	
+	/**
+	 * The time a job may run in nanoseconds, or 0 if it may run forever.
+	 */
+	private long timeout;
+	
+	/**
+	 * Scratch structures not currently used by a job.
+	 */
+	private ConcurrentLinkedQueue<Scratch> scratches;
+	
+//Constructors
+	/**
+	 * Constructs a service running jobs on a pool of the given number of threads, without time outs.
+	 * The pool is shut down when the service is {@link #close() closed}.
+	 * @param threads
+	 */
+	public BatchAnalysisService(int threads){
+		this(Executors.newFixedThreadPool(threads), 2*threads, 0, TimeUnit.NANOSECONDS);
+		this.ownsExecutor = true;
+	}
+	
+	/**
+	 * Constructs a service running jobs on the given executor.
+	 * The executor is not shut down when the service is closed.
+	 * @param executor
+	 * @param maxInFlight
+	 * The maximum number of jobs of a batch that are submitted but whose results have not been delivered.
+	 * @param timeout
+	 * The time a job may run before it is abandoned, or 0 if jobs are never abandoned.
+	 * @param unit
+	 * The unit of the time out.
+	 */
+	public BatchAnalysisService(ExecutorService executor, int maxInFlight, long timeout, TimeUnit unit){
+		if(maxInFlight < 1){
+			throw new IllegalArgumentException("At least one job must be allowed in flight: " + maxInFlight);
+		}
+		if(timeout < 0){
+			throw new IllegalArgumentException("The time out must not be negative: " + timeout);
+		}
+		this.executor = executor;
+		this.maxInFlight = maxInFlight;
+		this.timeout = unit.toNanos(timeout);
+		this.scratches = new ConcurrentLinkedQueue<Scratch>();
+	}
+	
+//Methods
+	/**
+	 * Analyses the given frameworks.<br>
+	 * The returned iterator takes frameworks from the given iterator as results are requested, 
+	 * keeping the maximum number of jobs in flight. It must only be used by one thread.
+	 * @param frameworks
+	 * @return
+	 * The results of the frameworks, in the order the jobs complete.
+	 * @throws java.util.concurrent.RejectedExecutionException
+	 * From the returned iterator, if the executor does not accept a job.
+	 * @throws Error
+	 * From the returned iterator, if a job threw it.
+	 */
+	public 	<
+			K,
+			L extends TotalFunction<L,?, V>,
+			V extends LatticeElement<V> 
+			>
+	Iterator<Result<K, L, V>> analyse(Iterator<? extends MonotoneFramework<K, L, V>> frameworks){
+		return new Batch<K, L, V>(frameworks);
+	}
+	
+	/**
+	 * Analyses the given frameworks, like {@link #analyse(Iterator)}.
+	 * @param frameworks
+	 * @return
+	 * A sequential stream of the results of the frameworks, in the order the jobs complete.
+	 */
+	public 	<
+			K,
+			L extends TotalFunction<L,?, V>,
+			V extends LatticeElement<V> 
+			>
+	Stream<Result<K, L, V>> analyse(Stream<? extends MonotoneFramework<K, L, V>> frameworks){
+		return StreamSupport.stream(
+				Spliterators.spliteratorUnknownSize(analyse(frameworks.iterator()), Spliterator.NONNULL), 
+				false);
+	}
+	
+	/**
+	 * Shuts down the executor if it was created by the service.
+	 */
+	@Override
+	public void close(){
+		if(ownsExecutor){
+			executor.shutdown();
+		}
+	}
+	
+//Private methods
+	/**
+	 * Constructs and solves the constraint system of the given framework.
+	 * @param framework
+	 * @param index
+	 * @return
+	 */
+	private 	<
+				K,
+				L extends TotalFunction<L,?, V>,
+				V extends LatticeElement<V> 
+				>
+	Result<K, L, V> run(MonotoneFramework<K, L, V> framework, long index){
+		Scratch scratch = scratches.poll();
+		if(scratch == null){
+			scratch = new Scratch();
+		}
+		//Errors may leave the scratch structures in any state, so they are only reused if none are thrown
+		boolean reusable = false;
+		try{
+			Deadline deadline = (timeout > 0)? new Deadline(System.nanoTime() + timeout) : null;
+			ConstraintSystem<L> cS = framework.constraintSystem(deadline);
+			scratch.worklist.setRank(framework.reversePostorder(scratch.traversal));
+			AbstractWorklistAlgorithm.solveConstraintSystem(scratch.worklist, cS, deadline);
+			reusable = true;
+			return new Result<K, L, V>(index, framework, cS, null);
+		}catch(RuntimeException e){
+			//Includes exceeded deadlines, which leave the worklist as it was. 
+			//The traversal arrays are reset by the next traversal.
+			scratch.worklist.clear();
+			reusable = true;
+			return new Result<K, L, V>(index, framework, null, e);
+		}finally{
+			if(reusable){
+				scratches.offer(scratch);
+			}
+		}
+	}
+	
+	/**
+	 * Runs the job of the given framework and delivers the result to the given queue. 
+	 * An {@link Error} is delivered as a result failed by it, for the iterator to throw, before it is rethrown.
+	 * @param framework
+	 * @param index
+	 * @param completed
+	 */
+	private 	<
+				K,
+				L extends TotalFunction<L,?, V>,
+				V extends LatticeElement<V> 
+				>
+	void runAndDeliver(MonotoneFramework<K, L, V> framework, long index, BlockingQueue<Result<K, L, V>> completed){
+		try{
+			completed.add(run(framework, index));
+		}catch(Error e){
+			completed.add(new Result<K, L, V>(index, framework, null, e));
+			throw e;
+		}
+	}
+	
+//Classes
+	/**
+	 * The result of analysing a framework.
+	 * @param <K>
+	 * The action type of the framework.
+	 * @param <L>
+	 * The state type of the framework.
+	 * @param <V>
+	 * The Complete Lattice element type of the framework.
+	 */
+	public static class Result<K, L extends TotalFunction<L,?, V>, V extends LatticeElement<V>>{
+		
+		private final long index;
+		
+		private final MonotoneFramework<K, L, V> framework;
+		
+		private final ConstraintSystem<L> constraintSystem;
+		
+		private final Throwable failure;
+		
+		private Result(long index, MonotoneFramework<K, L, V> framework, 
+						ConstraintSystem<L> constraintSystem, Throwable failure)
+		{
+			this.index = index;
+			this.framework = framework;
+			this.constraintSystem = constraintSystem;
+			this.failure = failure;
+		}
+		
+		/**
+		 * @return
+		 * The position of the framework in the source of the batch, starting from 0.
+		 */
+		public long getIndex(){
+			return index;
+		}
+		
+		/**
+		 * @return
+		 * The analysed framework.
+		 */
+		public MonotoneFramework<K, L, V> getFramework(){
+			return framework;
+		}
+		
+		/**
+		 * @return
+		 * Whether the analysis completed.
+		 */
+		public boolean isSuccess(){
+			return failure == null;
+		}
+		
+		/**
+		 * @return
+		 * Whether the analysis was abandoned because it ran for longer than the time out.
+		 */
+		public boolean isTimedOut(){
+			return failure instanceof DeadlineExceededException;
+		}
+		
+		/**
+		 * @return
+		 * The solved constraint system of the framework.
+		 * @throws IllegalStateException
+		 * If the analysis did not complete, with the cause of the failure.
+		 */
+		public ConstraintSystem<L> getConstraintSystem(){
+			if(failure != null){
+				throw new IllegalStateException("The analysis failed", failure);
+			}
+			return constraintSystem;
+		}
+		
+		/**
+		 * @return
+		 * What made the analysis fail, or {@code null} if it completed.
+		 */
+		public Throwable getFailure(){
+			return failure;
+		}
+	}
+	
+	/**
+	 * The jobs of a call to {@link BatchAnalysisService#analyse(Iterator)}.
+	 */
+	private class Batch<K, L extends TotalFunction<L,?, V>, V extends LatticeElement<V>> 
+		implements Iterator<Result<K, L, V>>
+	{
+		
+		private final Iterator<? extends MonotoneFramework<K, L, V>> frameworks;
+		
+		private final BlockingQueue<Result<K, L, V>> completed;
+		
+		private int inFlight;
+		
+		private long submitted;
+		
+		private Batch(Iterator<? extends MonotoneFramework<K, L, V>> frameworks){
+			this.frameworks = frameworks;
+			this.completed = new LinkedBlockingQueue<Result<K, L, V>>();
+		}
+		
+		@Override
+		public boolean hasNext() {
+			submit();
+			return inFlight > 0;
+		}
+
+		@Override
+		public Result<K, L, V> next() {
+			if(!hasNext()){
+				throw new NoSuchElementException();
+			}
+			Result<K, L, V> result;
+			try {
+				result = completed.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while waiting for a result", e);
+			}
+			inFlight--;
+			if(result.failure instanceof Error){
+				throw (Error) result.failure;
+			}
+			return result;
+		}
+		
+		/**
+		 * Submits jobs until the maximum is in flight or there are no more jobs.
+		 */
+		private void submit(){
+			while(inFlight < maxInFlight && frameworks.hasNext()){
+				MonotoneFramework<K, L, V> framework = frameworks.next();
+				long index = submitted;
+				executor.execute(() -> runAndDeliver(framework, index, completed));
+				submitted++;
+				inFlight++;
+			}
+		}
+	}
+	
+	/**
+	 * The scratch structures of a job, which grow to the largest constraint system they have been used for.
+	 */
+	private static class Scratch{
+		
+		private final TraversalScratch traversal = new TraversalScratch(0);
+		
+		private final PriorityWorklist worklist = new PriorityWorklist(traversal.rank);
+	}
+	
+	/**
+	 * Abandons an analysis when its deadline has passed.
+	 * The clock is checked at the end of each phase and after every evaluation, 
+	 * so an evaluation running past the deadline is not abandoned until it returns.
+	 */
+	private static class Deadline implements SolverListener{
+		
+		private final long deadline;
+		
+		private Deadline(long deadline){
+			this.deadline = deadline;
+		}
+		
+		@Override
+		public void phaseFinished(Phase phase){
+			check();
+		}
+		
+		@Override
+		public void flowVariableUpdated(int flowVariable, boolean changed, int worklistSize){
+			check();
+		}
+		
+		private void check(){
+			if(System.nanoTime() - deadline > 0){
+				throw new DeadlineExceededException();
+			}
+		}
+	}
+	
+	/**
+	 * Thrown by {@link Deadline} to abandon an analysis.
+	 */
+	private static class DeadlineExceededException extends RuntimeException{
+		
+		private static final long serialVersionUID = 1L;
+
+		private DeadlineExceededException(){
+			super("The analysis ran for longer than the time out", null, false, false);
+		}
+	}
+}
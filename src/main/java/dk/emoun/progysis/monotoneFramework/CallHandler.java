@@ -0,0 +1,54 @@
+package dk.emoun.progysis.monotoneFramework;
+
+import dk.emoun.progysis.lattices.LatticeElement;
+
+/**
+ * Defines how an {@link InterproceduralFramework} analyses calls.<br>
+ * A call is a transition in the program graph of the caller, from the call site to the return site,
+ * whose action calls another procedure. The state at the return site is found by:
+ * <ol>
+ * 	<li>Computing the entry state of the callee from the state at the call site, 
+ * 		using {@link #enter(Object, LatticeElement)}.</li>
+ * 	<li>Finding the exit state of the callee given that entry state, i.e. its summary.</li>
+ * 	<li>Combining the state at the call site with the exit state of the callee, 
+ * 		using {@link #exit(Object, LatticeElement, LatticeElement)}.</li>
+ * </ol>
+ * Both {@link #enter(Object, LatticeElement) enter} and {@link #exit(Object, LatticeElement, LatticeElement) exit}
+ * must be monotone in their state arguments.
+ * @param <K>
+ * The action type of the program graphs.
+ * @param <L>
+ * The state type of the analysis.
+ */
+public interface CallHandler<K, L extends LatticeElement<L>> {
+	
+	/**
+	 * @param action
+	 * @return
+	 * The procedure called by the given action, 
+	 * or {@code null} if the action is not a call.
+	 */
+	public Procedure<K> calleeOf(K action);
+	
+	/**
+	 * @param call
+	 * The action of the call.
+	 * @param callSiteState
+	 * The state at the call site.
+	 * @return
+	 * The state the callee is entered with.
+	 */
+	public L enter(K call, L callSiteState);
+	
+	/**
+	 * @param call
+	 * The action of the call.
+	 * @param callSiteState
+	 * The state at the call site.
+	 * @param calleeExitState
+	 * The state of the callee at its exit.
+	 * @return
+	 * The state at the return site.
+	 */
+	public L exit(K call, L callSiteState, L calleeExitState);
+}
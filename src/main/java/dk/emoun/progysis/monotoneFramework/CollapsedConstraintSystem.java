@@ -0,0 +1,271 @@
+package dk.emoun.progysis.monotoneFramework;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import dk.emoun.progysis.ProgramGraph;
+import dk.emoun.progysis.lattices.LatticeElement;
+import dk.emoun.progysis.worklist.BaseConstraint;
+import dk.emoun.progysis.worklist.ConstraintSystem;
+
+/**
+ * The constraint system a {@link MonotoneFramework} gives rise to, where the straight-line chains 
+ * of the program graph have been collapsed, as constructed by {@link MonotoneFramework#collapsedConstraintSystem()}.<br>
+ * <br>
+ * A state is interior to a chain if it is not q0 and has exactly one incoming and one outgoing transition
+ * (in the direction of the analysis). Only the remaining states, i.e. q0, join points and branch points,
+ * get a flow variable. A chain of transitions from one such state to the next, through interior states, 
+ * becomes a single constraint, which composes the monotone functions of the transitions.<br>
+ * If a cycle consists only of interior states, one of them keeps its flow variable.<br>
+ * <br>
+ * The {@link #getConstraintSystem() constraint system} is solved like any other. 
+ * The values of interior states are then computed from the solution when queried,
+ * by applying the monotone functions of the chain leading to them.
+ * @param <K>
+ * The action type of the program graph.
+ * @param <L>
+ * The state type of the analysis.
+ */
+public class CollapsedConstraintSystem<K, L extends LatticeElement<L>> {
+
+//Fields
+	private ConstraintSystem<L> cS;
+	
+	/**
+	 * The program graph in the direction of the analysis.
+	 */
+	private ProgramGraph<K> graph;
+	
+	private MonotoneFunctionMapper<K, L> monotoneFunctions;
+	
+	/**
+	 * The flow variable of each state, or -1 if the state is interior to a chain.
+	 */
+	private int[] flowVariableOf;
+	
+	/**
+	 * The state of each flow variable.
+	 */
+	private int[] stateOf;
+	
+//Constructors
+	/**
+	 * Constructs the collapsed constraint system of the given program graph.
+	 * @param graph
+	 * The program graph in the direction of the analysis.
+	 * @param q0
+	 * @param extremalValue
+	 * @param monotoneFunctions
+	 * Maps the actions of the program graph to their monotone functions.
+	 */
+	CollapsedConstraintSystem(	ProgramGraph<K> graph, int q0, L extremalValue, 
+								MonotoneFunctionMapper<K, L> monotoneFunctions)
+	{
+		this.graph = graph;
+		this.monotoneFunctions = monotoneFunctions;
+		
+		int numberOfStates = graph.getNumberOfStates();
+		this.flowVariableOf = new int[numberOfStates];
+		int numberOfFlowVariables = 0;
+		for(int state = 0; state<numberOfStates; state++){
+			flowVariableOf[state] = isInterior(state, q0)? -1 : numberOfFlowVariables++;
+		}
+		
+		//Interior states not reachable through a chain from a flow variable are on a cycle 
+		//of interior states, which must keep a flow variable
+		boolean[] chained = new boolean[numberOfStates];
+		for(int state = 0; state<numberOfStates; state++){
+			if(flowVariableOf[state] != -1){
+				markChains(state, chained);
+			}
+		}
+		for(int state = 0; state<numberOfStates; state++){
+			if(flowVariableOf[state] == -1 && !chained[state]){
+				flowVariableOf[state] = numberOfFlowVariables++;
+				markChains(state, chained);
+			}
+		}
+		
+		this.stateOf = new int[numberOfFlowVariables];
+		for(int state = 0; state<numberOfStates; state++){
+			if(flowVariableOf[state] != -1){
+				stateOf[flowVariableOf[state]] = state;
+			}
+		}
+		
+		this.cS = new ConstraintSystem<L>(numberOfFlowVariables, extremalValue.getBottom());
+		cS.addIndependentConstraintToVariable(
+				flowVariableOf[q0], new BaseConstraint<L>(extremalValue));
+		
+		for(int fV = 0; fV<numberOfFlowVariables; fV++){
+			int state = stateOf[fV];
+			for(int i = 0, outDegree = graph.getOutDegree(state); i<outDegree; i++){
+				addChainConstraint(fV, graph.getOutgoingTransition(state, i));
+			}
+		}
+	}
+	
+//Methods
+	/**
+	 * @return
+	 * The collapsed constraint system, which has a flow variable per state 
+	 * that is not interior to a chain.
+	 */
+	public ConstraintSystem<L> getConstraintSystem(){
+		return cS;
+	}
+	
+	/**
+	 * @param state
+	 * @return
+	 * The flow variable of the given state, 
+	 * or -1 if the state is interior to a chain and therefore has no flow variable.
+	 */
+	public int getFlowVariableOf(int state){
+		return flowVariableOf[state];
+	}
+	
+	/**
+	 * @return
+	 * The number of states in the program graph.
+	 */
+	public int getNumberOfStates(){
+		return flowVariableOf.length;
+	}
+	
+	/**
+	 * Gets the value of the given state, given the current values of the flow variables.<br>
+	 * The value of a state interior to a chain is computed by applying the monotone functions
+	 * of the chain from the closest preceding flow variable.
+	 * @param state
+	 * @return
+	 */
+	public L getValueAt(int state){
+		//Go back to the closest flow variable, remembering the way
+		int[] transitions = new int[4];
+		int length = 0;
+		while(flowVariableOf[state] == -1){
+			if(length == transitions.length){
+				transitions = Arrays.copyOf(transitions, length*2);
+			}
+			int transition = graph.getIncomingTransition(state, 0);
+			transitions[length++] = transition;
+			state = graph.getSource(transition);
+		}
+		L value = cS.getValueOf(flowVariableOf[state]);
+		while(length > 0){
+			int transition = transitions[--length];
+			value = monotoneFunctions.apply(graph.getAction(transition), value);
+		}
+		return value;
+	}
+	
+	/**
+	 * Gets the values of all the states, given the current values of the flow variables.<br>
+	 * Each transition of a chain is applied once, so this is cheaper than
+	 * calling {@link #getValueAt(int)} for every state.
+	 * @return
+	 * The values of the states, indexed by state.
+	 */
+	public List<L> getValues(){
+		int numberOfStates = flowVariableOf.length;
+		List<L> values = new ArrayList<L>(Collections.nCopies(numberOfStates, (L) null));
+		for(int fV = 0; fV<stateOf.length; fV++){
+			values.set(stateOf[fV], cS.getValueOf(fV));
+		}
+		//Walk each chain forward from its flow variable
+		for(int fV = 0; fV<stateOf.length; fV++){
+			int head = stateOf[fV];
+			for(int i = 0, outDegree = graph.getOutDegree(head); i<outDegree; i++){
+				int transition = graph.getOutgoingTransition(head, i);
+				L value = values.get(head);
+				int state = graph.getTarget(transition);
+				while(flowVariableOf[state] == -1){
+					value = monotoneFunctions.apply(graph.getAction(transition), value);
+					values.set(state, value);
+					transition = graph.getOutgoingTransition(state, 0);
+					state = graph.getTarget(transition);
+				}
+			}
+		}
+		return values;
+	}
+	
+//Private methods
+	/**
+	 * @param state
+	 * @param q0
+	 * @return
+	 * Whether the given state has exactly one incoming and one outgoing transition and is not q0.
+	 */
+	private boolean isInterior(int state, int q0){
+		return state != q0 && graph.getInDegree(state) == 1 && graph.getOutDegree(state) == 1;
+	}
+	
+	/**
+	 * Marks the interior states of the chains starting at the given state.
+	 * @param state
+	 * @param chained
+	 */
+	private void markChains(int state, boolean[] chained){
+		for(int i = 0, outDegree = graph.getOutDegree(state); i<outDegree; i++){
+			int next = graph.getTarget(graph.getOutgoingTransition(state, i));
+			while(flowVariableOf[next] == -1 && !chained[next]){
+				chained[next] = true;
+				next = graph.getTarget(graph.getOutgoingTransition(next, 0));
+			}
+		}
+	}
+	
+	/**
+	 * Adds the constraint of the chain starting with the given transition 
+	 * to the flow variable ending the chain.
+	 * @param from
+	 * The flow variable the chain starts at.
+	 * @param transition
+	 * The first transition of the chain.
+	 */
+	private void addChainConstraint(int from, int transition){
+		List<K> actions = new ArrayList<K>();
+		List<MonotoneFunction<K, L>> functions = new ArrayList<MonotoneFunction<K, L>>();
+		int state;
+		do{
+			K action = graph.getAction(transition);
+			actions.add(action);
+			functions.add(applicableFunction(action));
+			state = graph.getTarget(transition);
+			transition = (flowVariableOf[state] == -1)? graph.getOutgoingTransition(state, 0) : -1;
+		}while(transition != -1);
+		
+		Function<L, L> calculateConstraintValueGivenState;
+		if(functions.size() == 1){
+			MonotoneFunction<K, L> f = functions.get(0);
+			K action = actions.get(0);
+			calculateConstraintValueGivenState = (L s) -> f.apply(action, s);
+		}else{
+			@SuppressWarnings("unchecked")
+			MonotoneFunction<K, L>[] fs = (MonotoneFunction<K, L>[]) functions.toArray(new MonotoneFunction<?, ?>[functions.size()]);
+			@SuppressWarnings("unchecked")
+			K[] as = (K[]) actions.toArray();
+			calculateConstraintValueGivenState = (L s) -> {
+				for(int i = 0; i<fs.length; i++){
+					s = fs[i].apply(as[i], s);
+				}
+				return s;
+			};
+		}
+		cS.addConstraintToVariableDependentOnVariable(
+				flowVariableOf[state], from, calculateConstraintValueGivenState);
+	}
+	
+	private MonotoneFunction<K, L> applicableFunction(K action){
+		MonotoneFunction<K, L> f = monotoneFunctions.getApplicableFunction(action);
+		if(f == null){
+			throw new IllegalStateException("No applicable function for action");
+		}
+		return f;
+	}
+}
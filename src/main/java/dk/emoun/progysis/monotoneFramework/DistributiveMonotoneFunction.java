@@ -0,0 +1,19 @@
+package dk.emoun.progysis.monotoneFramework;
+
+import dk.emoun.progysis.lattices.LatticeElement;
+import dk.emoun.progysis.worklist.DistributiveFunction;
+
+/**
+ * A monotone function which distributes over joins, i.e. applying it to the join of two states 
+ * gives the join of applying it to each state.<br>
+ * The constraints of distributive functions are calculated by {@link DistributiveFunction distributive} 
+ * constraint calculators, which {@link dk.emoun.progysis.worklist.DeltaWorklistAlgorithm#solveTotalFunctionConstraintSystem}
+ * applies to only the part of a state that changed, when the states are total functions to powersets.
+ * @param <K>
+ * The action type the function evaluates.
+ * @param <T>
+ * The state type the function evaluates.
+ */
+public interface DistributiveMonotoneFunction<K,T extends LatticeElement<T>> extends MonotoneFunction<K,T> {
+
+}
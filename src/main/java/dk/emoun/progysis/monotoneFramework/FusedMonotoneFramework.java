@@ -0,0 +1,213 @@
+package dk.emoun.progysis.monotoneFramework;
+
+import java.util.Objects;
+import java.util.function.Function;
+
+import dk.emoun.progysis.ProgramGraph;
+import dk.emoun.progysis.lattices.LatticeElement;
+import dk.emoun.progysis.lattices.ProductElement;
+import dk.emoun.progysis.worklist.BaseConstraint;
+import dk.emoun.progysis.worklist.ConstraintSystem;
+
+/**
+ * Fuses several Monotone Frameworks over the same program graph into one, 
+ * such that their analyses are run together.<br>
+ * <br>
+ * The fused framework gives rise to a single {@link ConstraintSystem} over the {@link ProductElement product}
+ * of the lattices of the fused frameworks, where component i of each value is the value of the
+ * i'th framework. The constraint of a transition applies the monotone function of each framework
+ * to its component. The graph is therefore traversed once, there is one flow variable per state 
+ * and one worklist for all analyses, while the solution of each component is the same as
+ * the solution of its framework solved alone.<br>
+ * The constraint of a transition remembers the components it was last applied to, and only applies the 
+ * monotone functions of the components that changed since. The constraints are therefore added 
+ * {@link ConstraintSystem#addConstraintToVariableDependentOnVariable(int, int, Function) unmemoized}, 
+ * since memoizing the whole product as well would only keep a second copy of the same results.<br>
+ * <br>
+ * The fused frameworks must all be forward or all backward analyses, with the same q0, 
+ * over the same program graph, i.e. with the same states and the same transitions in the same order.
+ * They may differ in everything else.
+ * @param <K>
+ * The action type of the program graph.
+ */
+public class FusedMonotoneFramework<K> {
+
+//Fields
+	private MonotoneFramework<K, ?, ?>[] frameworks;
+	
+	/**
+	 * The program graph in the direction of the analyses.
+	 */
+	private ProgramGraph<K> graph;
+	
+	private int q0;
+	
+//Constructors
+	/**
+	 * Fuses the given frameworks.
+	 * @param frameworks
+	 * The frameworks to fuse. The results of the i'th framework are component i of the fused results.
+	 * @throws IllegalArgumentException
+	 * If no frameworks are given, or they do not analyse the same graph in the same direction from the same q0.
+	 */
+	@SafeVarargs
+	@SuppressWarnings("varargs")
+	public FusedMonotoneFramework(MonotoneFramework<K, ?, ?>... frameworks){
+		if(frameworks.length == 0){
+			throw new IllegalArgumentException("No frameworks to fuse");
+		}
+		this.frameworks = frameworks.clone();
+		this.graph = frameworks[0].getGraphToAnalyse();
+		this.q0 = frameworks[0].getQ0();
+		for(MonotoneFramework<K, ?, ?> framework: frameworks){
+			if(	framework.isForwardAnalysis() != frameworks[0].isForwardAnalysis() ||
+				framework.getQ0() != q0 ||
+				!sameTransitions(framework.getGraphToAnalyse(), graph))
+			{
+				throw new IllegalArgumentException("The frameworks do not analyse the same program graph "
+												+ "in the same direction from the same initial state");
+			}
+		}
+	}
+	
+//Methods
+	/**
+	 * @return
+	 * The number of fused frameworks, i.e. the number of components of the values of the constraint system.
+	 */
+	public int getNumberOfFrameworks(){
+		return frameworks.length;
+	}
+	
+	/**
+	 * Constructs the Constraint System that the fused frameworks give rise to.
+	 * @return
+	 */
+	public ConstraintSystem<ProductElement> constraintSystem(){
+		int numberOfFrameworks = frameworks.length;
+		LatticeElement<?>[] extremalValues = new LatticeElement<?>[numberOfFrameworks];
+		for(int i = 0; i<numberOfFrameworks; i++){
+			extremalValues[i] = frameworks[i].getLatticeAndExtremalValue();
+		}
+		ProductElement extremalValue = new ProductElement(extremalValues);
+		
+		ConstraintSystem<ProductElement> cS = new ConstraintSystem<ProductElement>(
+												graph.getNumberOfStates(), extremalValue.getBottom());
+		cS.addIndependentConstraintToVariable(q0, new BaseConstraint<ProductElement>(extremalValue));
+		
+		for(int t = 0; t<graph.getNumberOfTransitions(); t++){
+			K action = graph.getAction(t);
+			@SuppressWarnings("unchecked")
+			MonotoneFunction<K, ?>[] functions = (MonotoneFunction<K, ?>[]) new MonotoneFunction<?, ?>[numberOfFrameworks];
+			for(int i = 0; i<numberOfFrameworks; i++){
+				functions[i] = frameworks[i].getMonotoneFunctionMapper().getApplicableFunction(action);
+				if(functions[i] == null){
+					throw new IllegalStateException("No applicable function for action");
+				}
+			}
+			cS.addConstraintToVariableDependentOnVariable(
+					graph.getTarget(t), graph.getSource(t), new FusedFunction<K>(action, functions));
+		}
+		return cS;
+	}
+	
+	/**
+	 * @param cS
+	 * A constraint system constructed by {@link #constraintSystem()}.
+	 * @param framework
+	 * The index of a fused framework.
+	 * @param state
+	 * @return
+	 * The value of the given state in the analysis of the given framework.
+	 */
+	public <L extends LatticeElement<L>> L getValueOf(ConstraintSystem<ProductElement> cS, int framework, int state){
+		return cS.getValueOf(state).getComponent(framework);
+	}
+	
+//Private methods
+	/**
+	 * @param graph1
+	 * @param graph2
+	 * @return
+	 * Whether the two graphs have the same number of states, and the same transitions in the same order,
+	 * i.e. each transition has the same source, target and an equal action in both graphs.
+	 */
+	private static <K> boolean sameTransitions(ProgramGraph<K> graph1, ProgramGraph<K> graph2){
+		if(graph1 == graph2){
+			return true;
+		}
+		if(	graph1.getNumberOfStates() != graph2.getNumberOfStates() ||
+			graph1.getNumberOfTransitions() != graph2.getNumberOfTransitions())
+		{
+			return false;
+		}
+		for(int t = 0; t<graph1.getNumberOfTransitions(); t++){
+			if(	graph1.getSource(t) != graph2.getSource(t) ||
+				graph1.getTarget(t) != graph2.getTarget(t) ||
+				!Objects.equals(graph1.getAction(t), graph2.getAction(t)))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+	
+//Private classes
+	/**
+	 * The constraint calculator of a transition, which applies the monotone function of each 
+	 * framework to its component, unless the component is the same instance as last time.
+	 */
+	private static class FusedFunction<K> implements Function<ProductElement, ProductElement>{
+		
+		private final K action;
+		
+		private final MonotoneFunction<K, ?>[] functions;
+		
+		/**
+		 * The last input and output, or {@code null} if the function has not been applied.
+		 */
+		private volatile ProductElement[] last;
+		
+		private FusedFunction(K action, MonotoneFunction<K, ?>[] functions){
+			this.action = action;
+			this.functions = functions;
+		}
+
+		@Override
+		public ProductElement apply(ProductElement input) {
+			ProductElement[] last = this.last;
+			ProductElement output;
+			if(last == null){
+				LatticeElement<?>[] outputs = new LatticeElement<?>[functions.length];
+				for(int i = 0; i<functions.length; i++){
+					outputs[i] = apply(functions[i], action, input.getComponent(i));
+				}
+				output = new ProductElement(outputs);
+			}else{
+				ProductElement lastInput = last[0];
+				output = last[1];
+				for(int i = 0; i<functions.length; i++){
+					if(input.getComponent(i) != lastInput.getComponent(i)){
+						output = output.withComponent(i, apply(functions[i], action, input.getComponent(i)));
+					}
+				}
+			}
+			this.last = new ProductElement[]{input, output};
+			return output;
+		}
+		
+		/**
+		 * Applies the given function to the given state, which must be a component of the framework of the function.
+		 * @param f
+		 * @param action
+		 * @param state
+		 * @return
+		 */
+		private static <K, L extends LatticeElement<L>> L apply(MonotoneFunction<K, L> f, K action, LatticeElement<?> state){
+			//The component of a framework has the state type of its functions
+			@SuppressWarnings("unchecked")
+			L s = (L) state;
+			return f.apply(action, s);
+		}
+	}
+}
@@ -0,0 +1,366 @@
+package dk.emoun.progysis.monotoneFramework;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+import dk.emoun.progysis.ProgramGraph;
+import dk.emoun.progysis.lattices.LatticeElement;
+import dk.emoun.progysis.lattices.LatticeUtilities;
+import dk.emoun.progysis.lattices.TotalFunction;
+import dk.emoun.progysis.worklist.AbstractWorklistAlgorithm;
+import dk.emoun.progysis.worklist.BaseConstraint;
+import dk.emoun.progysis.worklist.ConstraintSystem;
+import dk.emoun.progysis.worklist.UniqueFIFOWorklist;
+
+/**
+ * A forward Monotone Framework over a program of several {@link Procedure procedures}, 
+ * which analyses calls using procedure summaries (the functional approach).<br>
+ * <br>
+ * Each procedure is analysed in a context, consisting of the state it is entered with and, optionally,
+ * the call string leading to it, limited to the last k calls. Each context gives rise to its own 
+ * {@link ConstraintSystem} over the program graph of the procedure, and the value of its exit state 
+ * is the summary of the procedure in that context. The constraint of a call transition 
+ * enters the callee in the context of the call, and combines the summary of the callee in that context with
+ * the state at the call site, using the {@link CallHandler} of the framework. 
+ * Until a context has been analysed, its summary is the bottom element.<br>
+ * <br>
+ * Contexts are analysed from a worklist of contexts. When the summary of a context changes, 
+ * the contexts that called it are analysed again, starting from the return sites of those calls. 
+ * Recursive procedures are therefore analysed until their summaries stabilise.<br>
+ * <br>
+ * The summaries are kept between the {@link #solve(Procedure, LatticeElement) solves} of the instance,
+ * so a procedure entered with the same state in the same context is only analysed once per instance, 
+ * no matter how many call sites or solves enter it. 
+ * Without call strings (k = 0), the summary of a procedure for a given entry state 
+ * is shared by all call sites. Entry states are the same if they are equal in the lattice, 
+ * and are looked up by their {@link TotalFunction#mappingHashCode() mapping hash codes}. 
+ * The hash codes of the lattice elements the states map to must therefore be consistent with lattice equality,
+ * like those of {@link dk.emoun.progysis.lattices.PowerSet PowerSet} are, or else states equal in the 
+ * lattice may get separate contexts, which only costs extra analyses.<br>
+ * <br>
+ * Every context keeps the constraint system of its procedure, and the return sites of its callers, 
+ * until {@link #clearSummaries()} is called. The memory retained by an instance is therefore 
+ * proportional to the number of states of the analysed procedures times the number of distinct
+ * contexts they are entered in, which grows with the number of distinct entry states and, for k > 0, 
+ * call strings. Analyses with many distinct entry states should clear the summaries between solves,
+ * using {@link #getNumberOfSummaries()} to decide when. Contexts are not evicted individually, 
+ * since the summaries of the contexts they call are needed to re-analyse them.<br>
+ * <br>
+ * Instances are not thread safe.
+ * @param <K>
+ * The action type the monotone functions evaluate.
+ * @param <L>
+ * The state type of the analysis.
+ * @param <V>
+ * The Complete Lattice element type.
+ */
+public class InterproceduralFramework
+		<
+			K,
+			L extends TotalFunction<L,?, V>,
+			V extends LatticeElement<V> 
+		> 
+{
+	
+//Fields
+	/**
+	 * Maps the intraprocedural actions to their monotone functions.
+	 */
+	private MonotoneFunctionMapper<K, L> monotoneFunctionMapper;
+	
+	private CallHandler<K, L> callHandler;
+	
+	/**
+	 * The number of calls in the call strings of the contexts.
+	 */
+	private int callStringLength;
+	
+	/**
+	 * Every context analysed by the instance.
+	 */
+	private Map<Context<K, L>, Context<K, L>> contexts;
+	
+	/**
+	 * The contexts that need to be analysed.
+	 */
+	private Deque<Context<K, L>> worklist;
+	
+//Constructors
+	/**
+	 * Constructs a framework without call strings, 
+	 * i.e. where a procedure has one summary per entry state.
+	 * @param callHandler
+	 * Recognises and analyses the calls of the program.
+	 * @param monotoneFunctions
+	 * The monotone functions of the actions that are not calls.
+	 * See {@link MonotoneFramework#MonotoneFramework(TotalFunction, org.jgrapht.graph.SimpleDirectedGraph, int, boolean, MonotoneFunction...)}.
+	 */
+	@SafeVarargs
+	@SuppressWarnings("varargs")
+	public InterproceduralFramework(CallHandler<K, L> callHandler, MonotoneFunction<K, L>... monotoneFunctions){
+		this(callHandler, 0, monotoneFunctions);
+	}
+	
+	/**
+	 * Constructs a framework with k-limited call strings, 
+	 * i.e. where a procedure has one summary per entry state and sequence of the last k calls leading to it.
+	 * @param callHandler
+	 * Recognises and analyses the calls of the program.
+	 * @param callStringLength
+	 * The k of the call strings. 0 means no call strings are used.
+	 * @param monotoneFunctions
+	 * The monotone functions of the actions that are not calls.
+	 * See {@link MonotoneFramework#MonotoneFramework(TotalFunction, org.jgrapht.graph.SimpleDirectedGraph, int, boolean, MonotoneFunction...)}.
+	 */
+	@SafeVarargs
+	@SuppressWarnings("varargs")
+	public InterproceduralFramework(CallHandler<K, L> callHandler, int callStringLength, 
+									MonotoneFunction<K, L>... monotoneFunctions)
+	{
+		if(callStringLength < 0){
+			throw new IllegalArgumentException("The call string length must not be negative");
+		}
+		this.monotoneFunctionMapper = new MonotoneFunctionMapper<K, L>(monotoneFunctions);
+		this.callHandler = callHandler;
+		this.callStringLength = callStringLength;
+		this.contexts = new HashMap<Context<K, L>, Context<K, L>>();
+		this.worklist = new ArrayDeque<Context<K, L>>();
+	}
+	
+//Methods
+	/**
+	 * Analyses the given procedure entered with the given state, 
+	 * and every procedure it (transitively) calls.
+	 * @param procedure
+	 * @param entryState
+	 * @return
+	 * The solved constraint system of the procedure entered with the given state, 
+	 * whose flow variables are the states of the program graph of the procedure.
+	 */
+	public ConstraintSystem<L> solve(Procedure<K> procedure, L entryState){
+		Context<K, L> context = contextOf(procedure, entryState, Collections.emptyList());
+		while(!worklist.isEmpty()){
+			analyse(worklist.poll());
+		}
+		return context.cS;
+	}
+	
+	/**
+	 * Analyses the given procedure entered with the given state, like {@link #solve(Procedure, LatticeElement)}.
+	 * @param procedure
+	 * @param entryState
+	 * @return
+	 * The summary of the procedure entered with the given state, i.e. the value of its exit state.
+	 */
+	public L summaryOf(Procedure<K> procedure, L entryState){
+		return solve(procedure, entryState).getValueOf(procedure.getExit());
+	}
+	
+	/**
+	 * @return
+	 * The number of contexts the instance has analysed, i.e. the number of summaries it keeps.
+	 */
+	public int getNumberOfSummaries(){
+		return contexts.size();
+	}
+	
+	/**
+	 * Discards all summaries, such that following solves start from scratch,
+	 * and the constraint systems of the contexts can be garbage collected.
+	 */
+	public void clearSummaries(){
+		contexts.clear();
+	}
+	
+//Private methods
+	/**
+	 * Finds the context of the given procedure with the given entry state and call string,
+	 * constructing it and adding it to the worklist if it is new.
+	 * @param procedure
+	 * @param entryState
+	 * @param callString
+	 * @return
+	 */
+	private Context<K, L> contextOf(Procedure<K> procedure, L entryState, List<K> callString){
+		Context<K, L> key = new Context<K, L>(procedure, entryState, callString);
+		Context<K, L> context = contexts.get(key);
+		if(context == null){
+			context = key;
+			context.summary = entryState.getBottom();
+			context.cS = constraintSystem(context);
+			context.pending.set(0, context.cS.getNumberOfFlowVariables());
+			contexts.put(context, context);
+			enqueue(context);
+		}
+		return context;
+	}
+	
+	private void enqueue(Context<K, L> context){
+		if(!context.queued){
+			context.queued = true;
+			worklist.add(context);
+		}
+	}
+	
+	/**
+	 * Evaluates the pending flow variables of the given context until its constraint system is solved,
+	 * and re-queues its callers if its summary changed.
+	 * @param context
+	 */
+	private void analyse(Context<K, L> context){
+		context.queued = false;
+		int[] pending = context.pending.stream().toArray();
+		context.pending.clear();
+		AbstractWorklistAlgorithm.resolveAfterAddition(
+				new UniqueFIFOWorklist(context.cS.getNumberOfFlowVariables()), context.cS, pending);
+		
+		L summary = context.cS.getValueOf(context.procedure.getExit());
+		if(!LatticeUtilities.equal(context.summary, summary)){
+			context.summary = summary;
+			for(Map.Entry<Context<K, L>, BitSet> caller: context.callers.entrySet()){
+				caller.getKey().pending.or(caller.getValue());
+				enqueue(caller.getKey());
+			}
+		}
+	}
+	
+	/**
+	 * Constructs the constraint system of the given context.
+	 * @param context
+	 * @return
+	 */
+	private ConstraintSystem<L> constraintSystem(Context<K, L> context){
+		ProgramGraph<K> graph = context.procedure.getProgramGraph();
+		ConstraintSystem<L> cS = new ConstraintSystem<L>(graph.getNumberOfStates(), context.entryState.getBottom());
+		
+		cS.addIndependentConstraintToVariable(
+				context.procedure.getEntry(), new BaseConstraint<L>(context.entryState));
+		
+		for(int t = 0; t<graph.getNumberOfTransitions(); t++){
+			int qs = graph.getSource(t), qt = graph.getTarget(t);
+			K action = graph.getAction(t);
+			
+			Procedure<K> callee = callHandler.calleeOf(action);
+			Function<L, L> calculateConstraintValueGivenState;
+			if(callee != null){
+				List<K> calleeCallString = calleeCallString(context.callString, action);
+				calculateConstraintValueGivenState = (L state) -> {
+					Context<K, L> calleeContext = 
+							contextOf(callee, callHandler.enter(action, state), calleeCallString);
+					//The return site must be re-evaluated if the summary changes
+					calleeContext.callers.computeIfAbsent(context, c -> new BitSet()).set(qt);
+					return callHandler.exit(action, state, calleeContext.summary);
+				};
+				//The value also depends on the summary of the callee
+				cS.addConstraintToVariableDependentOnVariable(qt, qs, calculateConstraintValueGivenState);
+			}else{
+				final MonotoneFunction<K, L> f = monotoneFunctionMapper.getApplicableFunction(action);
+				if(f == null){
+					throw new IllegalStateException("No applicable function for action");
+				}
+				calculateConstraintValueGivenState = (L state) -> f.apply(action, state);
+				cS.addConstraintToVariableDependentOnVariable(qt, qs, calculateConstraintValueGivenState);
+			}
+		}
+		return cS;
+	}
+	
+	/**
+	 * @param callString
+	 * The call string of the caller.
+	 * @param call
+	 * @return
+	 * The call string of the callee, i.e. the last k calls of the given call string followed by the given call.
+	 */
+	private List<K> calleeCallString(List<K> callString, K call){
+		if(callStringLength == 0){
+			return Collections.emptyList();
+		}
+		List<K> calleeCallString = new ArrayList<K>(callString);
+		calleeCallString.add(call);
+		if(calleeCallString.size() > callStringLength){
+			calleeCallString.remove(0);
+		}
+		return Collections.unmodifiableList(calleeCallString);
+	}
+	
+//Private classes
+	/**
+	 * A procedure entered with a given state after a given call string, 
+	 * and the analysis of the procedure in that context.<br>
+	 * Contexts are equal if their procedures are identical, their entry states equal in the lattice
+	 * and their call strings equal. The entry states are hashed by their mappings, 
+	 * since their defaults are not compared by the lattice.
+	 */
+	private static class Context<K, L extends TotalFunction<L, ?, ?>>{
+		
+		private final Procedure<K> procedure;
+		
+		private final L entryState;
+		
+		private final List<K> callString;
+		
+		private final int hash;
+		
+		private ConstraintSystem<L> cS;
+		
+		/**
+		 * The value of the exit state of the procedure, as of the last analysis of the context.
+		 */
+		private L summary;
+		
+		/**
+		 * The return sites of the calls to this context, grouped by the calling context.
+		 */
+		private Map<Context<K, L>, BitSet> callers;
+		
+		/**
+		 * The flow variables that must be evaluated the next time the context is analysed.
+		 */
+		private BitSet pending;
+		
+		/**
+		 * Whether the context is in the worklist.
+		 */
+		private boolean queued;
+		
+		private Context(Procedure<K> procedure, L entryState, List<K> callString){
+			this.procedure = procedure;
+			this.entryState = entryState;
+			this.callString = callString;
+			this.hash = Objects.hash(System.identityHashCode(procedure), entryState.mappingHashCode(), callString);
+			this.callers = new LinkedHashMap<Context<K, L>, BitSet>();
+			this.pending = new BitSet();
+		}
+		
+		@Override
+		public boolean equals(Object o){
+			if(this == o){
+				return true;
+			}
+			if(!(o instanceof Context)){
+				return false;
+			}
+			//Contexts of the same instance have the same state type
+			@SuppressWarnings("unchecked")
+			Context<K, L> other = (Context<K, L>) o;
+			return 	procedure == other.procedure && hash == other.hash &&
+					callString.equals(other.callString) && 
+					LatticeUtilities.equal(entryState, other.entryState);
+		}
+		
+		@Override
+		public int hashCode(){
+			return hash;
+		}
+	}
+}
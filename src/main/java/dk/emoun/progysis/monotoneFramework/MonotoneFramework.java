@@ -1,16 +1,21 @@
 package dk.emoun.progysis.monotoneFramework;
 
-import java.util.Set;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Map;
 import java.util.function.Function;
 
+import dk.emoun.progysis.CSRProgramGraph;
+import dk.emoun.progysis.ProgramGraph;
 import dk.emoun.progysis.lattices.CompleteLattice;
 import dk.emoun.progysis.lattices.LatticeElement;
 import dk.emoun.progysis.lattices.TotalFunction;
 import dk.emoun.progysis.worklist.BaseConstraint;
 import dk.emoun.progysis.worklist.ConstraintSystem;
+import dk.emoun.progysis.worklist.DistributiveFunction;
+import dk.emoun.progysis.worklist.PriorityWorklist;
+import dk.emoun.progysis.worklist.SolverListener;
 
-import org.jgrapht.DirectedGraph;
-import org.jgrapht.graph.EdgeReversedGraph;
 import org.jgrapht.graph.SimpleDirectedGraph;
 
 /**
@@ -57,9 +62,16 @@ public class MonotoneFramework
 	private MonotoneFunctionMapper<K, L> monotoneFunctionMapper; 
 	
 	/**
-	 * Functions as E'
+	 * Functions as E'.<br>
+	 * If the framework was given a JGraphT graph, this is a snapshot of it, 
+	 * or {@code null} if the graph changed since the snapshot was taken.
 	 */
-	private SimpleDirectedGraph<Integer, K> programGraph; 
+	private volatile ProgramGraph<K> programGraph; 
+	
+	/**
+	 * The JGraphT graph the framework was given, or {@code null} if it was given a {@link ProgramGraph}.
+	 */
+	private SimpleDirectedGraph<Integer,K> jGraphTGraph;
 	
 	/**
 	 * The formal q0 in the Monotone Framework
@@ -78,7 +90,12 @@ public class MonotoneFramework
 	 * Its value is also assumed to be the extremal value of the framework.
 	 * @param programGraph
 	 * The program graph to run an analysis on. 
-	 * All vertices in the graph must have a zero or positive unique value.
+	 * The vertices of the graph must be the values 0 through the number of vertices - 1.
+	 * The framework analyses a {@link CSRProgramGraph#fromGraph snapshot} of the graph, which it takes when an operation, 
+	 * e.g. {@link #constraintSystem()}, first needs the graph, and reuses until the graph changes.
+	 * Later changes to the graph are therefore seen by the framework: a new snapshot is taken when 
+	 * {@link #transitionAdded} or {@link #transitionRemoved} reports a change, 
+	 * or when the number of vertices or edges of the graph differs from the snapshot's.
 	 * @param q0
 	 * The initial state of the program graph, the formal q0 in the constructed Monotone Framework.
 	 * @param forwardAnalysis
@@ -91,15 +108,143 @@ public class MonotoneFramework
 	 * the {@link #constraintSystem()} method.
 	 * 
 	 */
+	@SafeVarargs
+	@SuppressWarnings("varargs")
+	public MonotoneFramework(	L latticeAndExtremalValue,  
+								SimpleDirectedGraph<Integer,K> programGraph,
+								int q0,
+								boolean forwardAnalysis,
+								MonotoneFunction<K, L>... monotoneFunctions) 
+	{
+		this(	latticeAndExtremalValue, null, programGraph, q0, forwardAnalysis, 
+				new MonotoneFunctionMapper<K, L>(monotoneFunctions));
+	}
+	
+	/**
+	 * Constructs a Monotone Framework with the given form, 
+	 * like {@link #MonotoneFramework(TotalFunction, SimpleDirectedGraph, int, boolean, MonotoneFunction...)}.
+	 * @param latticeAndExtremalValue
+	 * See {@link #MonotoneFramework(TotalFunction, SimpleDirectedGraph, int, boolean, MonotoneFunction...)}.
+	 * @param programGraph
+	 * The program graph to run an analysis on.
+	 * @param q0
+	 * See {@link #MonotoneFramework(TotalFunction, SimpleDirectedGraph, int, boolean, MonotoneFunction...)}.
+	 * @param forwardAnalysis
+	 * See {@link #MonotoneFramework(TotalFunction, SimpleDirectedGraph, int, boolean, MonotoneFunction...)}.
+	 * @param monotoneFunctions
+	 * See {@link #MonotoneFramework(TotalFunction, SimpleDirectedGraph, int, boolean, MonotoneFunction...)}.
+	 */
+	@SafeVarargs
+	@SuppressWarnings("varargs")
+	public MonotoneFramework(	L latticeAndExtremalValue,  
+								ProgramGraph<K> programGraph,
+								int q0,
+								boolean forwardAnalysis,
+								MonotoneFunction<K, L>... monotoneFunctions) 
+	{
+		this(	latticeAndExtremalValue, programGraph, null, q0, forwardAnalysis, 
+				new MonotoneFunctionMapper<K, L>(monotoneFunctions));
+	}
+	
+	/**
+	 * Constructs a Monotone Framework with the given form, where the monotone function of each action 
+	 * is found using a hash lookup on the action's key.<br>
+	 * All actions with the same key must have the same applicable function. 
+	 * The applicable function of a key is found the first time the key is encountered, 
+	 * by asking each of the given functions whether they are applicable for the action.
+	 * @param latticeAndExtremalValue
+	 * See {@link #MonotoneFramework(TotalFunction, SimpleDirectedGraph, int, boolean, MonotoneFunction...)}.
+	 * @param programGraph
+	 * See {@link #MonotoneFramework(TotalFunction, SimpleDirectedGraph, int, boolean, MonotoneFunction...)}.
+	 * @param q0
+	 * See {@link #MonotoneFramework(TotalFunction, SimpleDirectedGraph, int, boolean, MonotoneFunction...)}.
+	 * @param forwardAnalysis
+	 * See {@link #MonotoneFramework(TotalFunction, SimpleDirectedGraph, int, boolean, MonotoneFunction...)}.
+	 * @param actionClassifier
+	 * Classifies actions into keys, e.g. {@code Object::getClass}.
+	 * @param monotoneFunctions
+	 * The monotone functions of the framework.
+	 */
+	@SafeVarargs
+	@SuppressWarnings("varargs")
 	public MonotoneFramework(	L latticeAndExtremalValue,  
 								SimpleDirectedGraph<Integer,K> programGraph,
 								int q0,
 								boolean forwardAnalysis,
+								Function<? super K, ?> actionClassifier,
 								MonotoneFunction<K, L>... monotoneFunctions) 
+	{
+		this(	latticeAndExtremalValue, null, programGraph, q0, forwardAnalysis, 
+				new MonotoneFunctionMapper<K, L>(actionClassifier, Collections.emptyMap(), monotoneFunctions));
+	}
+	
+	/**
+	 * Constructs a Monotone Framework with the given form, where the monotone function of each action 
+	 * is registered for the action's key.
+	 * @param latticeAndExtremalValue
+	 * See {@link #MonotoneFramework(TotalFunction, SimpleDirectedGraph, int, boolean, MonotoneFunction...)}.
+	 * @param programGraph
+	 * See {@link #MonotoneFramework(TotalFunction, SimpleDirectedGraph, int, boolean, MonotoneFunction...)}.
+	 * @param q0
+	 * See {@link #MonotoneFramework(TotalFunction, SimpleDirectedGraph, int, boolean, MonotoneFunction...)}.
+	 * @param forwardAnalysis
+	 * See {@link #MonotoneFramework(TotalFunction, SimpleDirectedGraph, int, boolean, MonotoneFunction...)}.
+	 * @param actionClassifier
+	 * Classifies actions into keys, e.g. {@code Object::getClass}.
+	 * @param monotoneFunctions
+	 * The monotone function of each key. The functions are applied to all actions of their key, 
+	 * without asking whether they are applicable.
+	 */
+	public MonotoneFramework(	L latticeAndExtremalValue,  
+								SimpleDirectedGraph<Integer,K> programGraph,
+								int q0,
+								boolean forwardAnalysis,
+								Function<? super K, ?> actionClassifier,
+								Map<?, ? extends MonotoneFunction<K, L>> monotoneFunctions) 
+	{
+		this(	latticeAndExtremalValue, null, programGraph, q0, forwardAnalysis, 
+				new MonotoneFunctionMapper<K, L>(actionClassifier, monotoneFunctions));
+	}
+	
+	/**
+	 * Constructs a Monotone Framework with the given form, like
+	 * {@link #MonotoneFramework(TotalFunction, SimpleDirectedGraph, int, boolean, Function, Map)}.
+	 * @param latticeAndExtremalValue
+	 * See {@link #MonotoneFramework(TotalFunction, SimpleDirectedGraph, int, boolean, MonotoneFunction...)}.
+	 * @param programGraph
+	 * The program graph to run an analysis on.
+	 * @param q0
+	 * See {@link #MonotoneFramework(TotalFunction, SimpleDirectedGraph, int, boolean, MonotoneFunction...)}.
+	 * @param forwardAnalysis
+	 * See {@link #MonotoneFramework(TotalFunction, SimpleDirectedGraph, int, boolean, MonotoneFunction...)}.
+	 * @param actionClassifier
+	 * Classifies actions into keys, e.g. {@code Object::getClass}.
+	 * @param monotoneFunctions
+	 * The monotone function of each key. The functions are applied to all actions of their key, 
+	 * without asking whether they are applicable.
+	 */
+	public MonotoneFramework(	L latticeAndExtremalValue,  
+								ProgramGraph<K> programGraph,
+								int q0,
+								boolean forwardAnalysis,
+								Function<? super K, ?> actionClassifier,
+								Map<?, ? extends MonotoneFunction<K, L>> monotoneFunctions) 
+	{
+		this(	latticeAndExtremalValue, programGraph, null, q0, forwardAnalysis, 
+				new MonotoneFunctionMapper<K, L>(actionClassifier, monotoneFunctions));
+	}
+	
+	private MonotoneFramework(	L latticeAndExtremalValue,  
+								ProgramGraph<K> programGraph,
+								SimpleDirectedGraph<Integer,K> jGraphTGraph,
+								int q0,
+								boolean forwardAnalysis,
+								MonotoneFunctionMapper<K, L> monotoneFunctionMapper) 
 	{
 		this.latticeAndExtremalValue = latticeAndExtremalValue; 
-		this.monotoneFunctionMapper = new MonotoneFunctionMapper<K, L>(monotoneFunctions);
+		this.monotoneFunctionMapper = monotoneFunctionMapper;
 		this.programGraph = programGraph;
+		this.jGraphTGraph = jGraphTGraph;
 		this.q0 = q0;
 		this.forwardAnalysis = forwardAnalysis;
 	}
@@ -107,20 +252,29 @@ public class MonotoneFramework
 //Methods
 	
 	/**
-	 * Constructs the Constrain System that the instance gives rise to.
+	 * Constructs the Constrain System that the instance gives rise to.<br>
+	 * The monotone function of each edge is found once, when its constraint is constructed.
 	 * @return
 	 */
 	public ConstraintSystem<L> constraintSystem(){
-		DirectedGraph<Integer,K> graphToAnalyse;
-		
-		if(forwardAnalysis){
-			graphToAnalyse = this.programGraph;
-		}else{
-			graphToAnalyse = new EdgeReversedGraph<Integer, K>(this.programGraph);
+		return constraintSystem(null);
+	}
+	
+	/**
+	 * Constructs the Constrain System that the instance gives rise to, like {@link #constraintSystem()},
+	 * notifying the given listener of the construction phase.
+	 * @param listener
+	 * The listener to notify, or {@code null} if none should be notified.
+	 * @return
+	 */
+	public ConstraintSystem<L> constraintSystem(SolverListener listener){
+		if(listener != null){
+			listener.phaseStarted(SolverListener.Phase.CONSTRUCTION);
 		}
+		ProgramGraph<K> graphToAnalyse = graphToAnalyse();
 		
 		ConstraintSystem<L> cS = new ConstraintSystem<L>(	
-										graphToAnalyse.vertexSet().size(),
+										graphToAnalyse.getNumberOfStates(),
 										latticeAndExtremalValue.getBottom()
 										);
 		
@@ -129,31 +283,367 @@ public class MonotoneFramework
 				q0, new BaseConstraint<L>(latticeAndExtremalValue));
 		
 		for(int i = 0; i<cS.getNumberOfFlowVariables(); i++){
-			Set<K> outgoingTransitions = 
-					graphToAnalyse.outgoingEdgesOf(i);
-			
 			//Calculate the constraints for the states this state transitions to
-			for(K action :outgoingTransitions){
-					int qs = i,
-						qt = graphToAnalyse.getEdgeTarget(action);
-					
-					final MonotoneFunction<K, L> f = monotoneFunctionMapper.getApplicableFunction(action);
-					
-					if(f == null){
-						throw new IllegalStateException("No applicable function for action");
-					}
-					
-					Function<L, L> calculateConstraintValueGivenState = 
-							(L state) -> f.apply(action, state);
-					
-					cS.addConstraintToVariableDependentOnVariable(
-							qt, 
-							qs, 
-							calculateConstraintValueGivenState
-							);
+			for(int j = 0, outDegree = graphToAnalyse.getOutDegree(i); j<outDegree; j++){
+				int transition = graphToAnalyse.getOutgoingTransition(i, j);
+				addTransitionConstraint(cS, i, graphToAnalyse.getTarget(transition), 
+										graphToAnalyse.getAction(transition));
 			}
 		}
+		if(listener != null){
+			listener.phaseFinished(SolverListener.Phase.CONSTRUCTION);
+		}
 		return cS;
 	}
-
+	
+	/**
+	 * Constructs the Constraint System that the instance gives rise to, where the straight-line chains
+	 * of the program graph are collapsed into single constraints.<br>
+	 * Only q0, join points and branch points get flow variables, 
+	 * while the values of the other states are computed when queried. 
+	 * See {@link CollapsedConstraintSystem}.<br>
+	 * The collapsed constraint system cannot be updated using {@link #transitionAdded} 
+	 * or {@link #transitionRemoved}.
+	 * @return
+	 */
+	public CollapsedConstraintSystem<K, L> collapsedConstraintSystem(){
+		return new CollapsedConstraintSystem<K, L>(
+				graphToAnalyse(), q0, latticeAndExtremalValue, monotoneFunctionMapper);
+	}
+	
+	/**
+	 * Adds the constraint of a transition added to the program graph, to a constraint system 
+	 * the instance gave rise to.<br>
+	 * The transition must also be added to the program graph of the framework, 
+	 * otherwise later operations, e.g. {@link #priorityWorklist()}, do not see it.
+	 * This is only possible if the framework was given a mutable graph, e.g. a {@link SimpleDirectedGraph},
+	 * since a {@link CSRProgramGraph} is immutable. The framework's snapshot of the graph is then retaken
+	 * by the next operation that needs it.<br>
+	 * The solution of the constraint system can then be re-established using 
+	 * {@link dk.emoun.progysis.worklist.AbstractWorklistAlgorithm#resolveAfterAddition} 
+	 * with the returned flow variable.
+	 * @param cS
+	 * A constraint system constructed by {@link #constraintSystem()}.
+	 * @param source
+	 * The source state of the added transition in the program graph.
+	 * @param target
+	 * The target state of the added transition in the program graph.
+	 * @param action
+	 * The action of the added transition.
+	 * @return
+	 * The flow variable the constraint was added to.
+	 */
+	public int transitionAdded(ConstraintSystem<L> cS, int source, int target, K action){
+		int qs = forwardAnalysis? source : target,
+			qt = forwardAnalysis? target : source;
+		addTransitionConstraint(cS, qs, qt, action);
+		graphChanged();
+		return qt;
+	}
+	
+	/**
+	 * Removes the constraints of all the transitions between the two given states, from a constraint system 
+	 * the instance gave rise to.<br>
+	 * Use {@link #transitionRemoved(ConstraintSystem, int, int, Object)} if other transitions 
+	 * between the states remain in the program graph. 
+	 * Like for {@link #transitionAdded}, the transitions must also be removed from the program graph.<br>
+	 * The solution of the constraint system can then be re-established using 
+	 * {@link dk.emoun.progysis.worklist.AbstractWorklistAlgorithm#resolveAfterRemoval} 
+	 * with the returned flow variable.
+	 * @param cS
+	 * A constraint system constructed by {@link #constraintSystem()}.
+	 * @param source
+	 * The source state of the removed transitions in the program graph.
+	 * @param target
+	 * The target state of the removed transitions in the program graph.
+	 * @return
+	 * The flow variable the constraints were removed from.
+	 */
+	public int transitionRemoved(ConstraintSystem<L> cS, int source, int target){
+		int qs = forwardAnalysis? source : target,
+			qt = forwardAnalysis? target : source;
+		cS.removeConstraintsFromVariableDependentOnVariable(qt, qs);
+		graphChanged();
+		return qt;
+	}
+	
+	/**
+	 * Removes the constraint of a single transition removed from the program graph, from a constraint system 
+	 * the instance gave rise to.<br>
+	 * If the program graph has more than one transition with the given action between the two states,
+	 * only the constraint of one of them is removed.
+	 * Like for {@link #transitionAdded}, the transition must also be removed from the program graph.<br>
+	 * The solution of the constraint system can then be re-established using 
+	 * {@link dk.emoun.progysis.worklist.AbstractWorklistAlgorithm#resolveAfterRemoval} 
+	 * with the returned flow variable.
+	 * @param cS
+	 * A constraint system constructed by {@link #constraintSystem()}.
+	 * @param source
+	 * The source state of the removed transition in the program graph.
+	 * @param target
+	 * The target state of the removed transition in the program graph.
+	 * @param action
+	 * The action of the removed transition.
+	 * @return
+	 * The flow variable the constraint was removed from.
+	 */
+	public int transitionRemoved(ConstraintSystem<L> cS, int source, int target, K action){
+		int qs = forwardAnalysis? source : target,
+			qt = forwardAnalysis? target : source;
+		cS.removeConstraintFromVariableDependentOnVariable(qt, qs, 
+				(c) -> c instanceof TransitionFunction && ((TransitionFunction<?,?>) c).action.equals(action));
+		graphChanged();
+		return qt;
+	}
+	
+	/**
+	 * Constructs a worklist for the constraint system the instance gives rise to, 
+	 * which extracts flow variables in the reverse postorder of the program graph, starting from q0.<br>
+	 * For a backward analysis the order is the reverse postorder of the edge reversed program graph.
+	 * States not reachable from q0 are extracted after all reachable states.
+	 * @return
+	 */
+	public PriorityWorklist priorityWorklist(){
+		ProgramGraph<K> graph = graphToAnalyse();
+		TraversalScratch scratch = new TraversalScratch(graph.getNumberOfStates());
+		depthFirstSearch(graph, scratch, new BitSet());
+		return new PriorityWorklist(scratch.rank);
+	}
+	
+	/**
+	 * Finds the loop heads of the program graph, which can be used as the widening points of
+	 * {@link dk.emoun.progysis.worklist.WideningWorklistAlgorithm}.<br>
+	 * The loop heads are the targets of the back edges found by a depth first traversal 
+	 * of the program graph in the direction of the analysis, starting from q0 and then from every state not yet visited. 
+	 * Every cycle of the program graph therefore contains a loop head, 
+	 * including the cycles not reachable from q0, whose flow variables are solved too.
+	 * @return
+	 * The flow variables of the loop heads.
+	 */
+	public BitSet wideningPoints(){
+		ProgramGraph<K> graph = graphToAnalyse();
+		BitSet loopHeads = new BitSet();
+		depthFirstSearch(graph, new TraversalScratch(graph.getNumberOfStates()), loopHeads);
+		return loopHeads;
+	}
+	
+//Package methods
+	/**
+	 * Ranks the flow variables in the order of {@link #priorityWorklist()}, using the given scratch arrays.
+	 * @param scratch
+	 * @return
+	 * The rank of each flow variable, which is the rank array of the scratch arrays.
+	 * It may be longer than the number of flow variables.
+	 */
+	int[] reversePostorder(TraversalScratch scratch){
+		depthFirstSearch(graphToAnalyse(), scratch, new BitSet());
+		return scratch.rank;
+	}
+	
+	L getLatticeAndExtremalValue(){
+		return latticeAndExtremalValue;
+	}
+	
+	MonotoneFunctionMapper<K, L> getMonotoneFunctionMapper(){
+		return monotoneFunctionMapper;
+	}
+	
+	int getQ0(){
+		return q0;
+	}
+	
+	boolean isForwardAnalysis(){
+		return forwardAnalysis;
+	}
+	
+	/**
+	 * @return
+	 * The program graph in the direction of the analysis.
+	 */
+	ProgramGraph<K> getGraphToAnalyse(){
+		return graphToAnalyse();
+	}
+	
+//Private methods
+	
+	/**
+	 * Adds the constraint of the transition with the given action 
+	 * from state qs to state qt, in the direction of the analysis.
+	 * @param cS
+	 * @param qs
+	 * @param qt
+	 * @param action
+	 */
+	private void addTransitionConstraint(ConstraintSystem<L> cS, int qs, int qt, K action){
+		final MonotoneFunction<K, L> f = monotoneFunctionMapper.getApplicableFunction(action);
+		
+		if(f == null){
+			throw new IllegalStateException("No applicable function for action");
+		}
+		
+		Function<L, L> calculateConstraintValueGivenState = (f instanceof DistributiveMonotoneFunction)?
+				new DistributiveTransitionFunction<K, L>(action, f) : new TransitionFunction<K, L>(action, f);
+		
+		if(f instanceof PureMonotoneFunction){
+			cS.addConstraintToVariableDependentOnVariable(
+					qt, 
+					qs, 
+					calculateConstraintValueGivenState,
+					((PureMonotoneFunction<K, L>) f).memoizedInputs()
+					);
+		}else{
+			cS.addConstraintToVariableDependentOnVariable(
+					qt, 
+					qs, 
+					calculateConstraintValueGivenState
+					);
+		}
+	}
+	
+	/**
+	 * @return
+	 * The program graph in the direction of the analysis, 
+	 * i.e. the edge reversed program graph for a backward analysis.
+	 */
+	private ProgramGraph<K> graphToAnalyse(){
+		ProgramGraph<K> graph = this.programGraph;
+		if(jGraphTGraph != null && (graph == null || 
+				graph.getNumberOfStates() != jGraphTGraph.vertexSet().size() ||
+				graph.getNumberOfTransitions() != jGraphTGraph.edgeSet().size()))
+		{
+			graph = CSRProgramGraph.fromGraph(jGraphTGraph);
+			this.programGraph = graph;
+		}
+		if(forwardAnalysis){
+			return graph;
+		}else{
+			return graph.reversed();
+		}
+	}
+	
+	/**
+	 * Discards the snapshot of the JGraphT graph the framework was given, if any, 
+	 * such that the next operation takes a new one.
+	 */
+	private void graphChanged(){
+		if(jGraphTGraph != null){
+			this.programGraph = null;
+		}
+	}
+	
+	/**
+	 * Runs a depth first traversal of the given graph, starting at q0, 
+	 * followed by traversals from each state not yet visited, in the order of their value.
+	 * @param graph
+	 * @param scratch
+	 * The arrays of the traversals. Its rank array is filled with the position of each state 
+	 * in the reverse postorder of the traversal from q0, indexed by state.
+	 * States not reachable from q0 are positioned after all reachable states, 
+	 * in the reverse postorder of the remaining traversals.
+	 * @param loopHeads
+	 * Is filled with the targets of the back edges of the traversals.
+	 */
+	private void depthFirstSearch(ProgramGraph<K> graph, TraversalScratch scratch, BitSet loopHeads){
+		int numberOfStates = graph.getNumberOfStates();
+		scratch.prepare(numberOfStates);
+		int[] rank = scratch.rank;
+		boolean[] visited = scratch.visited;
+		boolean[] onStack = scratch.onStack;
+		int[] states = scratch.states;
+		int[] nextTransition = scratch.nextTransition;
+		
+		//Finished states are numbered from the back, so shift the reachable states to the front
+		int next = traverse(graph, q0, numberOfStates, rank, loopHeads, visited, onStack, states, nextTransition);
+		for(int i = 0; i<numberOfStates; i++){
+			if(visited[i]){
+				rank[i] -= next;
+			}
+		}
+		
+		//The unreachable states are then numbered from the back, after the reachable
+		next = numberOfStates;
+		for(int root = 0; root<numberOfStates; root++){
+			if(!visited[root]){
+				next = traverse(graph, root, next, rank, loopHeads, visited, onStack, states, nextTransition);
+			}
+		}
+	}
+	
+	/**
+	 * Runs a depth first traversal of the given graph from the given root, 
+	 * not entering states visited by previous traversals.
+	 * @param graph
+	 * @param root
+	 * @param next
+	 * One more than the number to give the first state finished by the traversal. 
+	 * Each state finished is given one less than the previous.
+	 * @param rank
+	 * Is filled with the number of each state finished by the traversal.
+	 * @param loopHeads
+	 * Is filled with the targets of the back edges of the traversal.
+	 * @param visited
+	 * @param onStack
+	 * @param states
+	 * The stack of the traversal. Must have room for all states.
+	 * @param nextTransition
+	 * @return
+	 * The number given to the last state finished.
+	 */
+	private static <K> int traverse(ProgramGraph<K> graph, int root, int next, int[] rank, BitSet loopHeads, 
+			boolean[] visited, boolean[] onStack, int[] states, int[] nextTransition)
+	{
+		int size = 0;
+		visited[root] = onStack[root] = true;
+		states[size++] = root;
+		while(size > 0){
+			int state = states[size-1];
+			if(nextTransition[state] < graph.getOutDegree(state)){
+				int target = graph.getTarget(graph.getOutgoingTransition(state, nextTransition[state]++));
+				if(!visited[target]){
+					visited[target] = onStack[target] = true;
+					states[size++] = target;
+				}else if(onStack[target]){
+					loopHeads.set(target);
+				}
+			}else{
+				size--;
+				onStack[state] = false;
+				rank[state] = --next;
+			}
+		}
+		return next;
+	}
+	
+//Private classes
+	/**
+	 * The constraint calculator of a transition, which applies the monotone function of the transition's action.
+	 * Keeps the action, such that the constraint of a single transition can be found again.
+	 */
+	private static class TransitionFunction<K, L extends LatticeElement<L>> implements Function<L, L>{
+		
+		final K action;
+		
+		final MonotoneFunction<K, L> f;
+		
+		TransitionFunction(K action, MonotoneFunction<K, L> f){
+			this.action = action;
+			this.f = f;
+		}
+		
+		@Override
+		public L apply(L state) {
+			return f.apply(action, state);
+		}
+	}
+	
+	/**
+	 * The constraint calculator of a transition whose monotone function is distributive.
+	 */
+	private static class DistributiveTransitionFunction<K, L extends LatticeElement<L>> 
+		extends TransitionFunction<K, L> implements DistributiveFunction<L>
+	{
+		DistributiveTransitionFunction(K action, MonotoneFunction<K, L> f){
+			super(action, f);
+		}
+	}
 }
@@ -1,5 +1,10 @@
 package dk.emoun.progysis.monotoneFramework;
 
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
 import dk.emoun.progysis.lattices.Evaluable;
 import dk.emoun.progysis.lattices.LatticeElement;
 
@@ -7,7 +12,12 @@ import dk.emoun.progysis.lattices.LatticeElement;
  * Maps several MonotoneFunctions to a single function.<br>
  * The mapper is only applicable if at least one of its members functions are so.
  * When the mapper is {@link #apply(Object, Evaluable) applied} it find any one of its members
- * and applies it. If more than one member is applicable which one is chosen is undefined.
+ * and applies it. If more than one member is applicable which one is chosen is undefined.<br>
+ * <br>
+ * Without a classifier, the applicable member is found by asking each member whether it is 
+ * applicable for the action. With a classifier, each action is classified into a key, 
+ * and all actions with the same key use the same member, which is either registered for the key or 
+ * found by asking each member once per key. Finding the applicable member is then a hash lookup.
  * @param <K>
  * @param <T>
  */
@@ -20,11 +30,58 @@ public class MonotoneFunctionMapper
 {
 	
 //Fields
+	/**
+	 * Marks keys with no applicable member in {@link #functionsByKey}.
+	 */
+	private final MonotoneFunction<K,T> none = new MonotoneFunction<K,T>(){
+		@Override
+		public boolean applicableFor(K action) {
+			return false;
+		}
+
+		@Override
+		public T apply(K action, Evaluable<T> state) {
+			throw new IllegalStateException("No applicable function");
+		}
+	};
+	
 	private MonotoneFunction<K,T>[] functions;
 	
+	/**
+	 * Classifies actions into keys, or {@code null} if actions are not classified.
+	 */
+	private Function<? super K, ?> classifier;
+	
+	/**
+	 * The applicable member of each key, either registered or previously found.
+	 */
+	private Map<Object, MonotoneFunction<K,T>> functionsByKey;
+	
 //Constructors
+	@SafeVarargs
 	MonotoneFunctionMapper(MonotoneFunction<K,T>... functions){
+		this(null, Collections.emptyMap(), functions);
+	}
+	
+	/**
+	 * Constructs a mapper that classifies actions using the given classifier.
+	 * @param classifier
+	 * Classifies actions into keys. All actions with the same key must have the same applicable member.
+	 * @param registered
+	 * The members registered for specific keys.
+	 * @param functions
+	 * The members whose applicability is decided by asking them, 
+	 * used for keys that have no registered member.
+	 */
+	@SafeVarargs
+	@SuppressWarnings("varargs")
+	MonotoneFunctionMapper(	Function<? super K, ?> classifier, 
+							Map<?, ? extends MonotoneFunction<K,T>> registered, 
+							MonotoneFunction<K,T>... functions)
+	{
 		this.functions = functions;
+		this.classifier = classifier;
+		this.functionsByKey = new ConcurrentHashMap<Object, MonotoneFunction<K,T>>(registered);
 	}
 	
 	
@@ -52,6 +109,29 @@ public class MonotoneFunctionMapper
 	 * If no such function is found, {@code null} is returned. 
 	 */
 	public MonotoneFunction<K,T> getApplicableFunction(K action){
+		if(classifier == null){
+			return findApplicableFunction(action);
+		}
+		
+		Object key = classifier.apply(action);
+		MonotoneFunction<K,T> f = functionsByKey.get(key);
+		if(f == null){
+			f = findApplicableFunction(action);
+			if(f == null){
+				f = none;
+			}
+			functionsByKey.putIfAbsent(key, f);
+		}
+		return (f == none)? null : f;
+	}
+	
+//Private methods
+	/**
+	 * @param action
+	 * @return
+	 * The first member that is applicable for the given action, or {@code null} if none is.
+	 */
+	private MonotoneFunction<K,T> findApplicableFunction(K action){
 		for(MonotoneFunction<K,T> f: functions){
 			if(f.applicableFor(action)){
 				return f;
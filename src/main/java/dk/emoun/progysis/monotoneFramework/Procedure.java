@@ -0,0 +1,71 @@
+package dk.emoun.progysis.monotoneFramework;
+
+import dk.emoun.progysis.ProgramGraph;
+
+/**
+ * A procedure of a program, analysed by an {@link InterproceduralFramework}.<br>
+ * A procedure has its own program graph with an entry state and an exit state.
+ * Calls to other procedures are transitions from the call site to the return site in the
+ * graph of the caller, whose action is recognised by the {@link CallHandler} of the framework.<br>
+ * <br>
+ * Procedures are compared by identity.
+ * @param <K>
+ * The action type of the program graph.
+ */
+public class Procedure<K> {
+
+//Fields
+	private String name;
+	
+	private ProgramGraph<K> programGraph;
+	
+	private int entry;
+	
+	private int exit;
+	
+//Constructors
+	/**
+	 * Constructs a procedure.
+	 * @param name
+	 * The name of the procedure, only used for its string representation.
+	 * @param programGraph
+	 * The program graph of the procedure.
+	 * @param entry
+	 * The state of the program graph where the procedure is entered.
+	 * @param exit
+	 * The state of the program graph where the procedure returns.
+	 */
+	public Procedure(String name, ProgramGraph<K> programGraph, int entry, int exit){
+		if(	entry < 0 || entry >= programGraph.getNumberOfStates() ||
+			exit < 0 || exit >= programGraph.getNumberOfStates())
+		{
+			throw new IllegalArgumentException("The entry and exit must be states of the program graph");
+		}
+		this.name = name;
+		this.programGraph = programGraph;
+		this.entry = entry;
+		this.exit = exit;
+	}
+	
+//Methods
+	public String getName(){
+		return name;
+	}
+	
+	public ProgramGraph<K> getProgramGraph(){
+		return programGraph;
+	}
+	
+	public int getEntry(){
+		return entry;
+	}
+	
+	public int getExit(){
+		return exit;
+	}
+	
+	@Override
+	public String toString(){
+		return name;
+	}
+}
@@ -0,0 +1,24 @@
+package dk.emoun.progysis.monotoneFramework;
+
+import dk.emoun.progysis.lattices.LatticeElement;
+
+/**
+ * A monotone function which is pure, i.e. returns equal states when 
+ * applied to the same action and equal states, and has no side effects.<br>
+ * The constraints of pure functions keep their results for the most recent states they were applied to,
+ * so the function is not applied again to a state equal to one of them.
+ * @param <K>
+ * The action type the function evaluates.
+ * @param <T>
+ * The state type the function evaluates.
+ */
+public interface PureMonotoneFunction<K,T extends LatticeElement<T>> extends MonotoneFunction<K,T> {
+	
+	/**
+	 * @return
+	 * The number of recent states each constraint of the function keeps the result of.
+	 */
+	public default int memoizedInputs(){
+		return 8;
+	}
+}
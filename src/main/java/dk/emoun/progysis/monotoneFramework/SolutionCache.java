@@ -0,0 +1,467 @@
+package dk.emoun.progysis.monotoneFramework;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import dk.emoun.progysis.ProgramGraph;
+import dk.emoun.progysis.lattices.LatticeCodec;
+import dk.emoun.progysis.lattices.LatticeElement;
+import dk.emoun.progysis.lattices.TotalFunction;
+import dk.emoun.progysis.worklist.AbstractWorklistAlgorithm;
+import dk.emoun.progysis.worklist.ConstraintSystem;
+import dk.emoun.progysis.worklist.Worklist;
+
+/**
+ * A persistent cache of the solutions of Monotone Frameworks, stored as files in a directory.<br>
+ * <br>
+ * A solution is identified by a SHA-256 hash of the framework, covering the direction of the analysis, q0, 
+ * the structure of the program graph, the actions of its transitions and the extremal value, 
+ * together with a version tag for the analysis. The monotone functions are not part of the hash, so the
+ * version tag must be changed whenever they change.<br>
+ * Solutions are stored compactly, as the distinct values of the solution, written by a {@link LatticeCodec}, 
+ * followed by the index of the value of each flow variable.<br>
+ * <br>
+ * The cache can be shared by several threads and processes on the same machine. 
+ * Solutions are written to temporary files and then atomically moved into place, 
+ * so a solution is either read completely or not found.<br>
+ * <br>
+ * The caches of a process keep a running estimate of the total size of the solutions in each directory, 
+ * which is increased by every store. Only when the estimate exceeds the capacity is the directory listed, 
+ * and the least recently used solutions deleted until the total size is at most three quarters of the capacity, 
+ * such that the directory is not listed again for a while. 
+ * Since the estimate only includes the stores of the process, the solutions stored by other processes 
+ * are only counted when the directory is next listed, so the directory may temporarily exceed the capacity 
+ * by what other processes have stored since.<br>
+ * Evicting holds a lock of the directory that is shared by all the caches of the process using the directory,
+ * together with a file lock of the directory, which excludes other processes. 
+ * The lock of a directory is kept for the lifetime of the process.
+ * @param <K>
+ * The action type of the frameworks.
+ * @param <L>
+ * The state type of the frameworks.
+ * @param <V>
+ * The Complete Lattice element type of the frameworks.
+ */
+public class SolutionCache
+		<
+			K,
+			L extends TotalFunction<L,?, V>,
+			V extends LatticeElement<V> 
+		> 
+{
+
+//Fields
+	/**
+	 * The shared state of each directory used by a cache of the process, by the real path of the directory.
+	 */
+	private static final ConcurrentHashMap<Path, SharedDirectory> DIRECTORIES = 
+			new ConcurrentHashMap<Path, SharedDirectory>();
+	
+	private static final int MAGIC = 0x50524753;
+	
+	private static final int FORMAT = 1;
+	
+	private static final String SUFFIX = ".solution";
+	
+	private Path directory;
+	
+	/**
+	 * The state shared with the other caches of the process using the same directory.
+	 */
+	private SharedDirectory shared;
+	
+	private long capacity;
+	
+	private String versionTag;
+	
+	private LatticeCodec<L> codec;
+	
+	/**
+	 * Gives the stable representation of an action that is included in the hash.
+	 */
+	private Function<? super K, String> actionFingerprint;
+	
+//Constructors
+	/**
+	 * Constructs a cache in the given directory, which is created if missing.
+	 * @param directory
+	 * The directory to store the solutions in. Should only be used by solution caches.
+	 * @param capacity
+	 * The maximum total size of the stored solutions in bytes.
+	 * @param versionTag
+	 * Identifies the version of the analysis, i.e. of its monotone functions. 
+	 * Solutions stored with another tag are not found.
+	 * @param codec
+	 * Writes and reads the values of the solutions, and the extremal value for the hash.
+	 * @param actionFingerprint
+	 * Gives a representation of an action, which must be the same for equal actions in all processes, 
+	 * e.g. {@code String::valueOf} if the actions have such a string representation.
+	 * @throws IOException
+	 * If the directory cannot be created.
+	 */
+	public SolutionCache(	Path directory, long capacity, String versionTag, 
+							LatticeCodec<L> codec, Function<? super K, String> actionFingerprint) 
+		throws IOException
+	{
+		if(capacity < 0){
+			throw new IllegalArgumentException("The capacity must not be negative: " + capacity);
+		}
+		this.directory = Files.createDirectories(directory);
+		this.shared = DIRECTORIES.computeIfAbsent(this.directory.toRealPath(), (p) -> new SharedDirectory());
+		this.capacity = capacity;
+		this.versionTag = versionTag;
+		this.codec = codec;
+		this.actionFingerprint = actionFingerprint;
+	}
+	
+//Methods
+	/**
+	 * Constructs the constraint system of the given framework and maps its flow variables to the stored solution,
+	 * if one is found. Otherwise the constraint system is solved and the solution stored.
+	 * @param framework
+	 * @param w
+	 * The worklist to solve with, if no solution is stored. Should not contain any flow variables.
+	 * @return
+	 * The solved constraint system.
+	 * @throws IOException
+	 */
+	public ConstraintSystem<L> solve(MonotoneFramework<K, L, V> framework, Worklist w) throws IOException{
+		ConstraintSystem<L> cS = framework.constraintSystem();
+		//The framework is only hashed once
+		Path file = fileOf(framework);
+		if(!load(file, cS)){
+			AbstractWorklistAlgorithm.solveConstraintSystem(w, cS);
+			store(file, cS);
+		}
+		return cS;
+	}
+	
+	/**
+	 * Maps the flow variables of the given constraint system to the stored solution of the given framework,
+	 * without evaluating them, and marks them {@link ConstraintSystem#isSolved solved}.<br>
+	 * A stored solution that cannot be read, e.g. because it is truncated or the codec fails to read it,
+	 * is deleted and not found.
+	 * @param framework
+	 * @param cS
+	 * A constraint system constructed by the framework.
+	 * @return
+	 * Whether a solution was found. If not, the constraint system is unchanged.
+	 * @throws IOException
+	 * If the framework cannot be hashed, or a solution that cannot be read cannot be deleted.
+	 */
+	public boolean load(MonotoneFramework<K, L, V> framework, ConstraintSystem<L> cS) throws IOException{
+		return load(fileOf(framework), cS);
+	}
+	
+	/**
+	 * Stores the current values of the given constraint system as the solution of the given framework,
+	 * replacing any stored solution. Then evicts solutions if the estimated size of the cache exceeds its capacity.
+	 * @param framework
+	 * @param cS
+	 * A solved constraint system constructed by the framework.
+	 * @throws IOException
+	 */
+	public void store(MonotoneFramework<K, L, V> framework, ConstraintSystem<L> cS) throws IOException{
+		store(fileOf(framework), cS);
+	}
+	
+	/**
+	 * @param framework
+	 * @return
+	 * The key of the solution of the given framework, as a hexadecimal string.
+	 * @throws IOException
+	 * If the codec fails to write the extremal value.
+	 */
+	public String keyOf(MonotoneFramework<K, L, V> framework) throws IOException{
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not supported", e);
+		}
+		OutputStream discard = new OutputStream(){
+			@Override
+			public void write(int b) {}
+			@Override
+			public void write(byte[] b, int off, int len) {}
+		};
+		try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new DigestOutputStream(discard, digest)))){
+			out.writeUTF(versionTag);
+			out.writeBoolean(framework.isForwardAnalysis());
+			out.writeInt(framework.getQ0());
+			ProgramGraph<K> graph = framework.getGraphToAnalyse();
+			out.writeInt(graph.getNumberOfStates());
+			out.writeInt(graph.getNumberOfTransitions());
+			for(int t = 0; t<graph.getNumberOfTransitions(); t++){
+				out.writeInt(graph.getSource(t));
+				out.writeInt(graph.getTarget(t));
+				out.writeUTF(actionFingerprint.apply(graph.getAction(t)));
+			}
+			codec.write(framework.getLatticeAndExtremalValue(), out);
+		}
+		StringBuilder key = new StringBuilder(64);
+		for(byte b: digest.digest()){
+			key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+		return key.toString();
+	}
+	
+	/**
+	 * Deletes all stored solutions.
+	 * @throws IOException
+	 */
+	public void clear() throws IOException{
+		shared.lock.lock();
+		try(FileChannel lockChannel = lockChannel()){
+			//Released when the channel is closed
+			lockChannel.lock();
+			for(Path file: solutionFiles()){
+				Files.deleteIfExists(file);
+			}
+			shared.estimatedSize.set(0);
+		}finally{
+			shared.lock.unlock();
+		}
+	}
+	
+//Private methods
+	private Path fileOf(MonotoneFramework<K, L, V> framework) throws IOException{
+		return directory.resolve(keyOf(framework) + SUFFIX);
+	}
+	
+	/**
+	 * Loads the solution in the given file, like {@link #load(MonotoneFramework, ConstraintSystem)}.
+	 * @param file
+	 * @param cS
+	 * @return
+	 * @throws IOException
+	 */
+	private boolean load(Path file, ConstraintSystem<L> cS) throws IOException{
+		List<L> values;
+		try(DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))){
+			values = read(in, cS.getNumberOfFlowVariables());
+		}catch(NoSuchFileException e){
+			return false;
+		}catch(IOException | RuntimeException e){
+			//Includes truncated solutions and values the codec rejects
+			values = null;
+		}
+		if(values == null){
+			//Corrupt or from another format
+			Files.deleteIfExists(file);
+			return false;
+		}
+		for(int i = 0; i<values.size(); i++){
+			cS.setValueOf(i, values.get(i));
+		}
+		//Setting the values forgets the solved variables
+		cS.markAllSolved();
+		try{
+			Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+		}catch(NoSuchFileException e){
+			//Evicted by another process since
+		}
+		return true;
+	}
+	
+	/**
+	 * Stores the solution in the given file, like {@link #store(MonotoneFramework, ConstraintSystem)}.
+	 * @param file
+	 * @param cS
+	 * @throws IOException
+	 */
+	private void store(Path file, ConstraintSystem<L> cS) throws IOException{
+		Path temporary = Files.createTempFile(directory, "tmp", ".partial");
+		long size;
+		try{
+			try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))){
+				write(cS, out);
+				out.flush();
+				size = out.size();
+			}
+			try{
+				Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			}catch(AtomicMoveNotSupportedException e){
+				Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+			}
+		}finally{
+			Files.deleteIfExists(temporary);
+		}
+		//Replacing a solution counts it twice, which only makes the next listing come sooner
+		long estimate = shared.estimatedSize.addAndGet(size);
+		if(estimate < 0 || estimate > capacity){
+			evict();
+		}
+	}
+	
+	/**
+	 * Writes the distinct values of the given constraint system, followed by the index of the value of each variable.
+	 * @param cS
+	 * @param out
+	 * @throws IOException
+	 */
+	private void write(ConstraintSystem<L> cS, DataOutputStream out) throws IOException{
+		int numberOfFlowVariables = cS.getNumberOfFlowVariables();
+		Map<L, Integer> indices = new HashMap<L, Integer>();
+		List<L> distinct = new ArrayList<L>();
+		int[] valueOf = new int[numberOfFlowVariables];
+		for(int i = 0; i<numberOfFlowVariables; i++){
+			L value = cS.getValueOf(i);
+			Integer index = indices.get(value);
+			if(index == null){
+				index = distinct.size();
+				indices.put(value, index);
+				distinct.add(value);
+			}
+			valueOf[i] = index;
+		}
+		
+		out.writeInt(MAGIC);
+		out.writeInt(FORMAT);
+		out.writeInt(numberOfFlowVariables);
+		out.writeInt(distinct.size());
+		for(L value: distinct){
+			codec.write(value, out);
+		}
+		for(int index: valueOf){
+			out.writeInt(index);
+		}
+	}
+	
+	/**
+	 * Reads values written by {@link #write(ConstraintSystem, DataOutputStream)}.
+	 * @param in
+	 * @param numberOfFlowVariables
+	 * The number of values expected.
+	 * @return
+	 * The value of each flow variable, or {@code null} if the input is not in the expected format.
+	 * @throws IOException
+	 */
+	private List<L> read(DataInputStream in, int numberOfFlowVariables) throws IOException{
+		if(in.readInt() != MAGIC || in.readInt() != FORMAT || in.readInt() != numberOfFlowVariables){
+			return null;
+		}
+		int numberOfDistinct = in.readInt();
+		if(numberOfDistinct < 0 || numberOfDistinct > numberOfFlowVariables){
+			return null;
+		}
+		List<L> distinct = new ArrayList<L>(numberOfDistinct);
+		for(int i = 0; i<numberOfDistinct; i++){
+			distinct.add(codec.read(in));
+		}
+		List<L> values = new ArrayList<L>(numberOfFlowVariables);
+		for(int i = 0; i<numberOfFlowVariables; i++){
+			int index = in.readInt();
+			if(index < 0 || index >= numberOfDistinct){
+				return null;
+			}
+			values.add(distinct.get(index));
+		}
+		return values;
+	}
+	
+	/**
+	 * Lists the solutions, and if their total size exceeds the capacity, deletes the least recently used
+	 * solutions until the total size is at most three quarters of the capacity.
+	 * Then sets the estimated size to the remaining size.
+	 * @throws IOException
+	 */
+	private void evict() throws IOException{
+		shared.lock.lock();
+		try(FileChannel lockChannel = lockChannel()){
+			//Released when the channel is closed
+			lockChannel.lock();
+			List<Path> files = solutionFiles();
+			Map<Path, BasicFileAttributes> attributes = new HashMap<Path, BasicFileAttributes>();
+			long size = 0;
+			for(Path file: files){
+				try{
+					BasicFileAttributes a = Files.readAttributes(file, BasicFileAttributes.class);
+					attributes.put(file, a);
+					size += a.size();
+				}catch(NoSuchFileException e){
+					//Deleted since listed
+				}
+			}
+			if(size > capacity){
+				long target = capacity - capacity/4;
+				files.removeIf((f) -> !attributes.containsKey(f));
+				files.sort((f1, f2) -> attributes.get(f1).lastModifiedTime().compareTo(attributes.get(f2).lastModifiedTime()));
+				for(Path file: files){
+					if(size <= target){
+						break;
+					}
+					Files.deleteIfExists(file);
+					size -= attributes.get(file).size();
+				}
+			}
+			shared.estimatedSize.set(size);
+		}finally{
+			shared.lock.unlock();
+		}
+	}
+	
+	private List<Path> solutionFiles() throws IOException{
+		List<Path> files = new ArrayList<Path>();
+		try(DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SUFFIX)){
+			for(Path file: stream){
+				files.add(file);
+			}
+		}
+		return files;
+	}
+	
+	/**
+	 * @return
+	 * A channel of the lock file of the directory, which processes lock while evicting.
+	 * @throws IOException
+	 */
+	private FileChannel lockChannel() throws IOException{
+		return FileChannel.open(directory.resolve(".lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+	}
+	
+//Private classes
+	/**
+	 * The state of a directory shared by the caches of the process using it.
+	 */
+	private static class SharedDirectory{
+		
+		/**
+		 * Held while holding the file lock of the directory, since a process cannot hold 
+		 * overlapping file locks of the same file.
+		 */
+		private final ReentrantLock lock = new ReentrantLock();
+		
+		/**
+		 * The estimated total size of the solutions in the directory, 
+		 * or a negative value if the directory has not been listed yet.
+		 */
+		private final AtomicLong estimatedSize = new AtomicLong(Long.MIN_VALUE/2);
+	}
+}
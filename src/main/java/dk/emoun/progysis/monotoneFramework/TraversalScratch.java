@@ -0,0 +1,68 @@
+package dk.emoun.progysis.monotoneFramework;
+
+import java.util.Arrays;
+
+/**
+ * Scratch arrays over the states of a program graph, used by the depth first traversals of
+ * {@link MonotoneFramework} to order the states.<br>
+ * They can be reused by traversals of program graphs of any size:
+ * {@link #prepare(int)} grows them, or resets the entries of the states of the next traversal.
+ */
+class TraversalScratch {
+
+//Fields
+	/**
+	 * The position of each state in the reverse postorder of the last traversal.
+	 */
+	int[] rank;
+
+	/**
+	 * Whether each state has been visited. Reset to {@code false}.
+	 */
+	boolean[] visited;
+
+	/**
+	 * Whether each state is on the stack of the traversal. Reset to {@code false}, 
+	 * as a traversal that failed may have left states on it.
+	 */
+	boolean[] onStack;
+
+	/**
+	 * The stack of the traversal.
+	 */
+	int[] states;
+
+	/**
+	 * The index of the next outgoing transition to follow, for each state on the stack. Reset to 0.
+	 */
+	int[] nextTransition;
+
+//Constructors
+	TraversalScratch(int numberOfStates){
+		allocate(numberOfStates);
+	}
+
+//Methods
+	/**
+	 * Prepares the arrays for a traversal of a program graph with the given number of states.
+	 * @param numberOfStates
+	 */
+	void prepare(int numberOfStates){
+		if(visited.length < numberOfStates){
+			allocate(numberOfStates);
+		}else{
+			Arrays.fill(visited, 0, numberOfStates, false);
+			Arrays.fill(onStack, 0, numberOfStates, false);
+			Arrays.fill(nextTransition, 0, numberOfStates, 0);
+		}
+	}
+
+//Private methods
+	private void allocate(int numberOfStates){
+		this.rank = new int[numberOfStates];
+		this.visited = new boolean[numberOfStates];
+		this.onStack = new boolean[numberOfStates];
+		this.states = new int[numberOfStates];
+		this.nextTransition = new int[numberOfStates];
+	}
+}
@@ -0,0 +1,84 @@
+package dk.emoun.progysis.worklist;
+
+import java.util.BitSet;
+
+/**
+ * Base of worklists that never contain a flow variable more than once.<br>
+ * Inserting a flow variable which is already present in the ordering does nothing, 
+ * which means the variable is evaluated once, no matter how many of its dependencies 
+ * changed since it was inserted.<br>
+ * <br>
+ * Membership is tracked using a bitset, while the ordering itself is left to the extender,
+ * which only ever receives flow variables not already in the ordering.
+ */
+public abstract class AbstractUniqueWorklist implements Worklist{
+
+//Fields
+	/**
+	 * The flow variables currently in the ordering.
+	 */
+	private BitSet present;
+	
+//Constructors
+	/**
+	 * Constructs an empty worklist.
+	 * @param expectedFlowVariables
+	 * The expected number of flow variables, used to size the internal structures.
+	 */
+	protected AbstractUniqueWorklist(int expectedFlowVariables){
+		this.present = new BitSet(expectedFlowVariables);
+	}
+	
+//Abstract methods
+	/**
+	 * Puts the given flow variable into the ordering. 
+	 * The flow variable is guaranteed not to be in the ordering already.
+	 * @param flowVariable
+	 */
+	protected abstract void add(int flowVariable);
+	
+	/**
+	 * Removes the next flow variable from the ordering.
+	 * The ordering is guaranteed not to be empty.
+	 * @return
+	 * The removed flow variable.
+	 */
+	protected abstract int remove();
+	
+//methods
+	@Override
+	public void insert(int flowVariable) {
+		if(!present.get(flowVariable)){
+			present.set(flowVariable);
+			add(flowVariable);
+		}
+	}
+
+	@Override
+	public int extractNextFlowVariable() {
+		if(isEmpty()){
+			throw new IllegalStateException("The worklist is empty");
+		}
+		int flowVariable = remove();
+		present.clear(flowVariable);
+		return flowVariable;
+	}
+	
+	/**
+	 * Removes all flow variables from the ordering, such that the worklist can be reused.
+	 */
+	public void clear(){
+		while(!isEmpty()){
+			present.clear(remove());
+		}
+	}
+	
+	/**
+	 * @param flowVariable
+	 * @return
+	 * Whether the given flow variable is currently in the ordering.
+	 */
+	public boolean contains(int flowVariable){
+		return present.get(flowVariable);
+	}
+}
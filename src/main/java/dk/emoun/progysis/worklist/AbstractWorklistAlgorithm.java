@@ -1,5 +1,11 @@
 package dk.emoun.progysis.worklist;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.IntConsumer;
+
 import dk.emoun.progysis.lattices.LatticeElement;
 import dk.emoun.progysis.lattices.LatticeUtilities;
 
@@ -19,26 +25,330 @@ public class AbstractWorklistAlgorithm {
 			V extends LatticeElement<V>
 			>
 	void solveConstraintSystem(Worklist w, ConstraintSystem<V> cS){
+		solveConstraintSystem(w, cS, null);
+	}
+	
+	/**
+	 * Runs the Abstract Worklist Algorithm like {@link #solveConstraintSystem(Worklist, ConstraintSystem)},
+	 * notifying the given listener of the progress.
+	 * @param w
+	 * An instance of a worklist. Should not contain any flow variables.
+	 * @param cS
+	 * The constraint system to solve.
+	 * @param listener
+	 * The listener to notify, or {@code null} if none should be notified.
+	 */
+	public 	static <
+			V extends LatticeElement<V>
+			>
+	void solveConstraintSystem(Worklist w, ConstraintSystem<V> cS, SolverListener listener){
+		if(listener != null){
+			listener.phaseStarted(SolverListener.Phase.SOLVING);
+		}
 		int numberOfFlowVariables = cS.getNumberOfFlowVariables();
 		
 		for(int i = 0; i<numberOfFlowVariables; i++){
 			w.insert(i);
 		}
 		
-		int fV;
+		iterate(w, cS, null, listener);
+		if(listener != null){
+			listener.phaseFinished(SolverListener.Phase.SOLVING);
+		}
+		cS.markAllSolved();
+	}
+	
+	/**
+	 * Solves the constraint system for the given flow variables only.<br>
+	 * Finds the flow variables the given variables (transitively) depend on, i.e. their dependency cone, 
+	 * and runs the Abstract Worklist Algorithm restricted to the cone. 
+	 * The flow variables outside the cone are neither evaluated nor changed.<br>
+	 * The variables of the cone are then marked as {@link ConstraintSystem#isSolved solved},
+	 * and later calls stop the search for the cone at solved variables, reusing their values. 
+	 * Any change to the constraint system, or setting the value of a flow variable, forgets the solved variables.<br>
+	 * <br>
+	 * Like the values computed by {@link #solveConstraintSystem(Worklist, ConstraintSystem)}, the values of the 
+	 * cone are only correct if the current values are below the solution, e.g. because they were never updated.
+	 * @param w
+	 * An instance of a worklist. Should not contain any flow variables.
+	 * @param cS
+	 * The constraint system to solve.
+	 * @param flowVariables
+	 * The flow variables to solve for.
+	 */
+	public 	static <
+			V extends LatticeElement<V>
+			>
+	void solveFor(Worklist w, ConstraintSystem<V> cS, int... flowVariables){
+		BitSet cone = new BitSet(cS.getNumberOfFlowVariables());
+		int[] stack = new int[Math.max(flowVariables.length, 16)];
+		int size = 0;
+		for(int fV: flowVariables){
+			if(!cone.get(fV) && !cS.isSolved(fV)){
+				cone.set(fV);
+				stack[size++] = fV;
+			}
+		}
+		while(size > 0){
+			int fV = stack[--size];
+			for(int influencing: cS.getVariablesInfluencing(fV)){
+				if(!cone.get(influencing) && !cS.isSolved(influencing)){
+					cone.set(influencing);
+					if(size == stack.length){
+						stack = Arrays.copyOf(stack, size*2);
+					}
+					stack[size++] = influencing;
+				}
+			}
+		}
+		
+		for(int fV = cone.nextSetBit(0); fV >= 0; fV = cone.nextSetBit(fV+1)){
+			w.insert(fV);
+		}
+		iterate(w, cS, cone, null);
+		cS.markSolved(cone);
+	}
+	
+	/**
+	 * Re-establishes the solution of a solved constraint system after constraints were added to it.<br>
+	 * Since the previous solution is below the new one, iteration simply continues from the
+	 * flow variables that received new constraints.
+	 * @param w
+	 * An instance of a worklist. Should not contain any flow variables.
+	 * @param cS
+	 * The constraint system to solve, which was solved before the constraints were added.
+	 * @param changedVariables
+	 * The flow variables constraints were added to.
+	 */
+	public 	static <
+			V extends LatticeElement<V>
+			>
+	void resolveAfterAddition(Worklist w, ConstraintSystem<V> cS, int... changedVariables){
+		for(int fV: changedVariables){
+			w.insert(fV);
+		}
+		iterate(w, cS, null, null);
+	}
+	
+	/**
+	 * Re-establishes the solution of a solved constraint system after constraints were removed from it.<br>
+	 * The flow variables (transitively) influenced by the changed variables are split into strongly connected
+	 * components, which are visited in topological order. A component is only re-derived if one of its members was
+	 * changed or is influenced by a variable whose value changed while re-deriving an earlier component. 
+	 * Re-deriving resets the members of the component to the initial value and solves the component 
+	 * using the values of the flow variables outside it.<br>
+	 * The work done is therefore proportional to the part of the influenced region whose values actually change,
+	 * plus a linear pass over the dependencies of the influenced region to find the components.
+	 * The scratch arrays this requires are allocated by the first invocation for a constraint system and then kept by it, 
+	 * such that later invocations only touch the entries of the influenced region.
+	 * @param w
+	 * An instance of a worklist. Should not contain any flow variables.
+	 * @param cS
+	 * The constraint system to solve, which was solved before the constraints were removed.
+	 * @param changedVariables
+	 * The flow variables constraints were removed from.
+	 */
+	public 	static <
+			V extends LatticeElement<V>
+			>
+	void resolveAfterRemoval(Worklist w, ConstraintSystem<V> cS, int... changedVariables){
+		for(int fV: changedVariables){
+			if(fV < 0 || fV >= cS.getNumberOfFlowVariables()){
+				throw new IllegalArgumentException("The flow variable does not exist: " + fV);
+			}
+		}
+		RegionScratch scratch = cS.regionScratch();
+		boolean[] dirty = scratch.dirty;
+		BitSet component = scratch.component;
+		int found = 0;
+		try{
+			//Tarjan's algorithm finds the components of the influenced region in reverse topological order
+			int numberOfComponents = findInfluencedComponents(cS, changedVariables, scratch);
+			found = scratch.componentStart[numberOfComponents];
+			for(int fV: changedVariables){
+				dirty[fV] = true;
+			}
+			
+			int[] byComponent = scratch.byComponent, componentStart = scratch.componentStart;
+			List<V> oldValues = new ArrayList<V>();
+			for(int c = numberOfComponents-1; c>=0; c--){
+				int from = componentStart[c], to = componentStart[c+1];
+				boolean affected = false;
+				for(int i = from; i<to && !affected; i++){
+					affected = dirty[byComponent[i]];
+				}
+				if(!affected){
+					//Nothing the component depends on changed, so its values are still the solution
+					continue;
+				}
+				
+				oldValues.clear();
+				for(int i = from; i<to; i++){
+					int fV = byComponent[i];
+					oldValues.add(cS.getValueOf(fV));
+					cS.resetValueOf(fV);
+					component.set(fV);
+					w.insert(fV);
+				}
+				iterate(w, cS, component, null);
+				
+				for(int i = from; i<to; i++){
+					int fV = byComponent[i];
+					component.clear(fV);
+					if(!LatticeUtilities.equal(oldValues.get(i - from), cS.getValueOf(fV))){
+						//The influenced variables are in the region, since it is closed under influence
+						cS.forEachVariableInfluencedBy(fV, (influenced) -> dirty[influenced] = true);
+					}
+				}
+			}
+		}finally{
+			scratch.reset(found);
+		}
+	}
+	
+//Private methods
+	/**
+	 * Runs an iterative version of Tarjan's strongly connected components algorithm on the
+	 * flow variables (transitively) influenced by the given variables.
+	 * @param cS
+	 * @param roots
+	 * The variables whose influenced region is split into components.
+	 * @param scratch
+	 * Its {@link RegionScratch#byComponent} is filled with the flow variables of the region, grouped by component, 
+	 * and its {@link RegionScratch#componentStart} with the index of the first flow variable of each component,
+	 * followed by the number of flow variables in the region.
+	 * @return
+	 * The number of components found. The components are found in reverse topological order.
+	 */
+	private static int findInfluencedComponents(ConstraintSystem<?> cS, int[] roots, RegionScratch scratch){
+		int[] index = scratch.index, lowLink = scratch.lowLink, nextEdge = scratch.nextEdge;
+		boolean[] onStack = scratch.onStack;
+		int[] callStack = scratch.callStack, componentStack = scratch.componentStack;
+		int[] byComponent = scratch.byComponent, componentStart = scratch.componentStart;
+		int nextIndex = 0, callDepth = 0, componentStackSize = 0, numberOfComponents = 0, found = 0;
+		
+		for(int root: roots){
+			if(index[root] != -1){
+				continue;
+			}
+			callStack = RegionScratch.ensureRoom(callStack, callDepth);
+			callStack[callDepth++] = root;
+			index[root] = lowLink[root] = nextIndex++;
+			componentStack = RegionScratch.ensureRoom(componentStack, componentStackSize);
+			componentStack[componentStackSize++] = root;
+			onStack[root] = true;
+			
+			while(callDepth > 0){
+				int v = callStack[callDepth-1];
+				if(nextEdge[v] < cS.getNumberOfVariablesInfluencedBy(v)){
+					int u = cS.getVariableInfluencedBy(v, nextEdge[v]++);
+					if(index[u] == -1){
+						index[u] = lowLink[u] = nextIndex++;
+						componentStack = RegionScratch.ensureRoom(componentStack, componentStackSize);
+						componentStack[componentStackSize++] = u;
+						onStack[u] = true;
+						callStack = RegionScratch.ensureRoom(callStack, callDepth);
+						callStack[callDepth++] = u;
+					}else if(onStack[u]){
+						lowLink[v] = Math.min(lowLink[v], index[u]);
+					}
+				}else{
+					callDepth--;
+					if(callDepth > 0){
+						int parent = callStack[callDepth-1];
+						lowLink[parent] = Math.min(lowLink[parent], lowLink[v]);
+					}
+					if(lowLink[v] == index[v]){
+						componentStart = RegionScratch.ensureRoom(componentStart, numberOfComponents);
+						componentStart[numberOfComponents++] = found;
+						int u;
+						do{
+							u = componentStack[--componentStackSize];
+							onStack[u] = false;
+							byComponent = RegionScratch.ensureRoom(byComponent, found);
+							byComponent[found++] = u;
+						}while(u != v);
+					}
+				}
+			}
+		}
+		componentStart = RegionScratch.ensureRoom(componentStart, numberOfComponents);
+		componentStart[numberOfComponents] = found;
+		
+		scratch.callStack = callStack;
+		scratch.componentStack = componentStack;
+		scratch.byComponent = byComponent;
+		scratch.componentStart = componentStart;
+		return numberOfComponents;
+	}
+	
+	/**
+	 * Evaluates flow variables from the worklist until it is empty, inserting
+	 * the influenced variables of every flow variable whose value changes.
+	 * @param w
+	 * @param cS
+	 * @param restrictTo
+	 * The only flow variables to insert, or {@code null} if all influenced variables are inserted.
+	 * @param listener
+	 * Notified of every evaluation, unless {@code null}.
+	 */
+	private static <V extends LatticeElement<V>> void iterate(Worklist w, ConstraintSystem<V> cS,
+			BitSet restrictTo, SolverListener listener){
+		IntConsumer insert = (restrictTo == null)? w::insert : 
+			(fV) -> {
+				if(restrictTo.get(fV)){
+					w.insert(fV);
+				}
+			};
+		boolean interning = cS.isInterning();
+		//The lattice operations are only counted for a listener
+		OperationCounts counts = (listener == null)? null : new OperationCounts();
+		int fV, size = -1;
 		V oldValue, newValue;
 		while(!w.isEmpty()){
+			if(listener != null){
+				size = w.size();
+				counts.reset();
+			}
 			fV = w.extractNextFlowVariable();
 			
 			oldValue = cS.getValueOf(fV);
-			newValue = cS.updateValueOf(fV);
+			newValue = cS.updateValueOf(fV, counts);
 			
-			if(!LatticeUtilities.equal(oldValue, newValue)){
-				for(int i: cS.getVariablesInfluencedBy(fV)){
-					w.insert(i);
-				}
+			//Interned values are equal only if identical. Values equal in the lattice, but not by equals(),
+			//are seen as changed, which only costs extra evaluations
+			boolean changed = interning? oldValue != newValue : !equal(oldValue, newValue, counts);
+			if(changed){
+				cS.forEachVariableInfluencedBy(fV, insert);
 			}
-		}		
+			if(listener != null){
+				listener.latticeOperationsPerformed(fV, counts.joins, counts.compares);
+				listener.flowVariableUpdated(fV, changed, size);
+			}
+		}
 	}
 	
+	/**
+	 * Returns whether the two values are equal in the lattice, like {@link LatticeUtilities#equal}, 
+	 * counting the compares done.
+	 * @param v1
+	 * @param v2
+	 * @param counts
+	 * The counts to add the compares to, or {@code null} if they are not counted.
+	 * @return
+	 */
+	private static <V extends LatticeElement<V>> boolean equal(V v1, V v2, OperationCounts counts){
+		if(counts == null){
+			return LatticeUtilities.equal(v1, v2);
+		}
+		if(v1 == v2){
+			return true;
+		}
+		counts.compares++;
+		if(!v1.compare(v2)){
+			return false;
+		}
+		counts.compares++;
+		return v2.compare(v1);
+	}
 }
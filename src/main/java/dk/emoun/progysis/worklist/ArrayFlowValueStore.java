@@ -0,0 +1,42 @@
+package dk.emoun.progysis.worklist;
+
+import dk.emoun.progysis.lattices.LatticeElement;
+
+/**
+ * Stores the values of flow variables in an array on the heap.
+ * Used by constraint systems by default.
+ * @param <V>
+ * The type of the stored values.
+ */
+public class ArrayFlowValueStore<V extends LatticeElement<V>> implements FlowValueStore<V>{
+	
+//Fields
+	private Object[] values;
+	
+//Constructors
+	/**
+	 * Constructs a store for the given number of flow variables, all mapped to {@code null}.
+	 * @param numberOfFlowVariables
+	 */
+	public ArrayFlowValueStore(int numberOfFlowVariables){
+		this.values = new Object[numberOfFlowVariables];
+	}
+	
+//Methods
+	@Override
+	public V get(int flowVariable) {
+		@SuppressWarnings("unchecked")
+		V value = (V) values[flowVariable];
+		return value;
+	}
+
+	@Override
+	public void set(int flowVariable, V value) {
+		values[flowVariable] = value;
+	}
+
+	@Override
+	public int size() {
+		return values.length;
+	}
+}
@@ -0,0 +1,246 @@
+package dk.emoun.progysis.worklist;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import dk.emoun.progysis.lattices.BitPowerSet;
+import dk.emoun.progysis.lattices.PowerSet;
+
+/**
+ * Stores the values of flow variables that are subsets of a fixed universe as rows of bits outside the heap,
+ * one bit for each element of the universe.<br>
+ * The rows are kept in direct buffers, or in a memory-mapped file, split into chunks of at most 
+ * {@value #MAX_CHUNK_BYTES} bytes. The heap then only holds the values currently in use, 
+ * which are created from the rows when read.<br>
+ * <br>
+ * Since reading a value creates a new instance, the values cannot be {@link #keepsInstances() interned}.
+ * If the values are {@link BitPowerSet}s over the universe of the store, a row is read as a copy of its words, 
+ * and the values are joined and compared word-wise. Values of other power sets are read by allocating 
+ * a {@link HashSet} of the elements of the row and a new power set from it, so the store then trades 
+ * heap size for allocation: it suits large systems whose values are read rarely compared to their number, 
+ * and solvers that evaluate each flow variable few times.<br>
+ * <br>
+ * Direct buffers are allocated outside the heap, but count against the limit set by 
+ * {@code -XX:MaxDirectMemorySize}, which defaults to the maximum heap size. 
+ * Exceeding it throws an {@link OutOfMemoryError} from the constructor, 
+ * in which case the memory-mapped constructor, which is not limited by it, can be used instead.
+ * @param <S>
+ * The type of the stored values.
+ * @param <E>
+ * The type of the elements of the universe.
+ */
+public class BitRowFlowValueStore<S extends PowerSet<S,E>, E> implements FlowValueStore<S>{
+	
+//Fields
+	private static final int MAX_CHUNK_BYTES = 1 << 30;
+	
+	private int numberOfFlowVariables;
+	
+	/**
+	 * The element of the universe each bit represents.
+	 */
+	private List<E> universe;
+	
+	/**
+	 * The bit of each element of the universe.
+	 */
+	private Map<E, Integer> bitOf;
+	
+	/**
+	 * Used to create the values read.
+	 */
+	private S prototype;
+	
+	/**
+	 * The universe of the prototype if it is a {@link BitPowerSet} over the universe of the store,
+	 * in which case the rows are read and written as the masks of the values. Otherwise {@code null}.
+	 */
+	private List<?> bitUniverse;
+	
+	private int wordsPerRow;
+	
+	private int rowsPerChunk;
+	
+	private LongBuffer[] chunks;
+	
+//Constructors
+	/**
+	 * Constructs a store that keeps the rows in direct buffers, 
+	 * which count against {@code -XX:MaxDirectMemorySize}.
+	 * All flow variables are mapped to the empty set.
+	 * @param numberOfFlowVariables
+	 * @param universe
+	 * The elements the values may contain. Must not contain duplicates.
+	 * @param prototype
+	 * Any value, used to create values read from the store. 
+	 * If it is a {@link BitPowerSet} over the same universe, the rows are read and written as its masks.
+	 */
+	public BitRowFlowValueStore(int numberOfFlowVariables, List<E> universe, S prototype){
+		init(numberOfFlowVariables, universe, prototype);
+		for(int c = 0; c<chunks.length; c++){
+			chunks[c] = ByteBuffer.allocateDirect(chunkBytes(c)).order(ByteOrder.nativeOrder()).asLongBuffer();
+		}
+	}
+	
+	/**
+	 * Constructs a store that keeps the rows in the given file, which is memory-mapped. 
+	 * The file is created if missing, and is extended to the size of the rows. 
+	 * @param numberOfFlowVariables
+	 * @param universe
+	 * The elements the values may contain. Must not contain duplicates.
+	 * @param prototype
+	 * Any value, used to create values read from the store. 
+	 * If it is a {@link BitPowerSet} over the same universe, the rows are read and written as its masks.
+	 * @param file
+	 * The file to map.
+	 * @throws IOException
+	 */
+	public BitRowFlowValueStore(int numberOfFlowVariables, List<E> universe, S prototype, Path file) throws IOException{
+		init(numberOfFlowVariables, universe, prototype);
+		try(FileChannel channel = FileChannel.open(file, 
+				StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE))
+		{
+			long position = 0;
+			for(int c = 0; c<chunks.length; c++){
+				int bytes = chunkBytes(c);
+				chunks[c] = channel.map(MapMode.READ_WRITE, position, bytes).order(ByteOrder.nativeOrder()).asLongBuffer();
+				position += bytes;
+			}
+		}
+	}
+	
+//Methods
+	@Override
+	public S get(int flowVariable) {
+		LongBuffer chunk = chunkOf(flowVariable);
+		int offset = offsetOf(flowVariable);
+		if(bitUniverse != null){
+			long[] words = new long[wordsPerRow];
+			for(int w = 0; w<wordsPerRow; w++){
+				words[w] = chunk.get(offset + w);
+			}
+			return withWords(words);
+		}
+		Set<E> elements = null;
+		for(int w = 0; w<wordsPerRow; w++){
+			long word = chunk.get(offset + w);
+			while(word != 0){
+				if(elements == null){
+					elements = new HashSet<E>();
+				}
+				elements.add(universe.get(w*64 + Long.numberOfTrailingZeros(word)));
+				word &= word - 1;
+			}
+		}
+		return (elements == null)? prototype.getBottom() : prototype.createPowerSet(elements);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * @throws IllegalArgumentException
+	 * If the value contains an element that is not in the universe.
+	 */
+	@Override
+	public void set(int flowVariable, S value) {
+		LongBuffer chunk = chunkOf(flowVariable);
+		int offset = offsetOf(flowVariable);
+		if(value instanceof BitPowerSet && ((BitPowerSet<?>) value).getUniverse() == bitUniverse){
+			BitPowerSet<?> bits = (BitPowerSet<?>) value;
+			for(int w = 0; w<wordsPerRow; w++){
+				chunk.put(offset + w, bits.getWord(w));
+			}
+			return;
+		}
+		long[] row = new long[wordsPerRow];
+		for(E e: value.getValueSet()){
+			Integer bit = bitOf.get(e);
+			if(bit == null){
+				throw new IllegalArgumentException("The element is not in the universe: " + e);
+			}
+			row[bit >>> 6] |= 1L << bit;
+		}
+		for(int w = 0; w<wordsPerRow; w++){
+			chunk.put(offset + w, row[w]);
+		}
+	}
+
+	@Override
+	public int size() {
+		return numberOfFlowVariables;
+	}
+	
+	@Override
+	public boolean keepsInstances(){
+		return false;
+	}
+	
+//Private methods
+	private void init(int numberOfFlowVariables, List<E> universe, S prototype){
+		if(numberOfFlowVariables < 0){
+			throw new IllegalArgumentException("The number of flow variables must not be negative: " + numberOfFlowVariables);
+		}
+		this.numberOfFlowVariables = numberOfFlowVariables;
+		this.universe = new ArrayList<E>(universe);
+		this.bitOf = new HashMap<E, Integer>();
+		for(int i = 0; i<universe.size(); i++){
+			if(bitOf.put(universe.get(i), i) != null){
+				throw new IllegalArgumentException("The universe contains a duplicate: " + universe.get(i));
+			}
+		}
+		this.prototype = prototype;
+		if(prototype instanceof BitPowerSet && ((BitPowerSet<?>) prototype).getUniverse().equals(this.universe)){
+			this.bitUniverse = ((BitPowerSet<?>) prototype).getUniverse();
+		}
+		this.wordsPerRow = Math.max((universe.size() + 63) / 64, 1);
+		this.rowsPerChunk = MAX_CHUNK_BYTES / (wordsPerRow * 8);
+		if(rowsPerChunk == 0){
+			throw new IllegalArgumentException("The universe is too large: " + universe.size());
+		}
+		this.chunks = new LongBuffer[(numberOfFlowVariables + rowsPerChunk - 1) / rowsPerChunk];
+	}
+	
+	/**
+	 * @param chunk
+	 * @return
+	 * The number of bytes of the given chunk, where only the last chunk may have fewer rows than the others.
+	 */
+	private int chunkBytes(int chunk){
+		int rows = Math.min(rowsPerChunk, numberOfFlowVariables - chunk*rowsPerChunk);
+		return rows * wordsPerRow * 8;
+	}
+	
+	/**
+	 * @param words
+	 * @return
+	 * The value of the prototype's lattice with the given mask. Must only be used if the prototype is a {@link BitPowerSet}.
+	 */
+	private S withWords(long[] words){
+		//The prototype is a bit power set, and bit power sets are of the exact same type, so S is too
+		@SuppressWarnings("unchecked")
+		S value = (S) ((BitPowerSet<?>) prototype).withWords(words);
+		return value;
+	}
+	
+	private LongBuffer chunkOf(int flowVariable){
+		if(flowVariable < 0 || flowVariable >= numberOfFlowVariables){
+			throw new IndexOutOfBoundsException("The flow variable does not exist: " + flowVariable);
+		}
+		return chunks[flowVariable / rowsPerChunk];
+	}
+	
+	private int offsetOf(int flowVariable){
+		return (flowVariable % rowsPerChunk) * wordsPerRow;
+	}
+}
@@ -4,8 +4,11 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.function.Predicate;
 
+import dk.emoun.progysis.lattices.Accumulable;
 import dk.emoun.progysis.lattices.Evaluable;
+import dk.emoun.progysis.lattices.JoinAccumulator;
 import dk.emoun.progysis.lattices.LatticeElement;
 
 
@@ -50,14 +53,41 @@ public class CompoundConstraint
 	
 	@Override
 	public V value() {
+		return value(null);
+	}
+	
+	/**
+	 * Evaluates the instance like {@link #value()}, counting the joins done.
+	 * @param counts
+	 * The counts to add the joins to, or {@code null} if they are not counted.
+	 * @return
+	 */
+	V value(OperationCounts counts) {
 		if(constraints.isEmpty()){
 			throw new IllegalStateException("No constraints");
 		}
 		Iterator<Evaluable<V>> values = constraints.iterator();
 		V result = values.next().value();
 		
+		if(values.hasNext() && result instanceof Accumulable){
+			//Join the rest without creating intermediate elements
+			//An accumulable V accumulates V's
+			@SuppressWarnings("unchecked")
+			JoinAccumulator<V> accumulator = ((Accumulable<V>) result).accumulator();
+			while(values.hasNext()){
+				accumulator.join(values.next());
+				if(counts != null){
+					counts.joins++;
+				}
+			}
+			return accumulator.result();
+		}
+		
 		while(values.hasNext()){
 			result = result.join(values.next());
+			if(counts != null){
+				counts.joins++;
+			}
 		}
 		
 		return result;
@@ -71,6 +101,41 @@ public class CompoundConstraint
 		this.constraints.add(c);
 	}
 	
+	/**
+	 * Removes all the constraints satisfying the given predicate.
+	 * @param filter
+	 * @return
+	 * Whether any constraint was removed.
+	 */
+	public boolean removeConstraints(Predicate<? super Evaluable<V>> filter){
+		return this.constraints.removeIf(filter);
+	}
+	
+	/**
+	 * Removes the first constraint satisfying the given predicate.
+	 * @param filter
+	 * @return
+	 * Whether a constraint was removed.
+	 */
+	public boolean removeFirstConstraint(Predicate<? super Evaluable<V>> filter){
+		Iterator<Evaluable<V>> i = this.constraints.iterator();
+		while(i.hasNext()){
+			if(filter.test(i.next())){
+				i.remove();
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * @return
+	 * The number of constraints compounded by this constraint.
+	 */
+	public int getNumberOfConstraints(){
+		return this.constraints.size();
+	}
+	
 	public List<Evaluable<V>> getConstraints(){
 		return Collections.unmodifiableList(constraints);
 	}
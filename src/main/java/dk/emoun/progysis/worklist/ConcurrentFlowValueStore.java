@@ -0,0 +1,57 @@
+package dk.emoun.progysis.worklist;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import dk.emoun.progysis.lattices.LatticeElement;
+
+/**
+ * Stores the values of flow variables in an array that can be read and updated by multiple threads.<br>
+ * A {@link ConstraintSystem} using this store is {@link ConstraintSystem#isConcurrent() concurrent}: 
+ * it joins the value a flow variable evaluates to with its current value, 
+ * using {@link #compareAndSet(int, LatticeElement, LatticeElement)}, 
+ * such that concurrent updates of the same flow variable never lose each other's values.
+ * @param <V>
+ * The type of the stored values.
+ */
+public class ConcurrentFlowValueStore<V extends LatticeElement<V>> implements FlowValueStore<V>{
+	
+//Fields
+	private AtomicReferenceArray<V> values;
+	
+//Constructors
+	/**
+	 * Constructs a store for the given number of flow variables, all mapped to {@code null}.
+	 * @param numberOfFlowVariables
+	 */
+	public ConcurrentFlowValueStore(int numberOfFlowVariables){
+		this.values = new AtomicReferenceArray<V>(numberOfFlowVariables);
+	}
+	
+//Methods
+	@Override
+	public V get(int flowVariable) {
+		return values.get(flowVariable);
+	}
+
+	@Override
+	public void set(int flowVariable, V value) {
+		values.set(flowVariable, value);
+	}
+	
+	/**
+	 * Maps the given flow variable to the given value, if it is currently mapped to the expected instance.
+	 * @param flowVariable
+	 * @param expected
+	 * @param value
+	 * @return
+	 * Whether the flow variable was mapped to the expected instance, and therefore now is mapped to the given value.
+	 */
+	public boolean compareAndSet(int flowVariable, V expected, V value){
+		return values.compareAndSet(flowVariable, expected, value);
+	}
+
+	@Override
+	public int size() {
+		return values.length();
+	}
+}
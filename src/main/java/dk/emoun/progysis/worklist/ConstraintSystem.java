@@ -1,12 +1,17 @@
 package dk.emoun.progysis.worklist;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
 
 import dk.emoun.progysis.lattices.CompleteLattice;
 import dk.emoun.progysis.lattices.Evaluable;
 import dk.emoun.progysis.lattices.LatticeElement;
+import dk.emoun.progysis.lattices.LatticeInterner;
 
 /**
  * Implements a constraint system of equations/constraints.<br>
@@ -36,6 +41,7 @@ import dk.emoun.progysis.lattices.LatticeElement;
  * <br>
  * The method {@link #getValueOf} returns the currently mapped (I.E. last updated value) of the given flow variable.
  * This method does not recalculate the variable, so it may return an outdated value. This is by design.
+ * The values are kept in a {@link FlowValueStore}, which by default is an array on the heap.
  * 
  * @param <V>
  * The lattice elements the flow variables evaluate to.
@@ -52,7 +58,47 @@ public class ConstraintSystem<V extends LatticeElement<V>> {
 	/**
 	 * The last updated values of the flow variables.
 	 */
-	private List<V> flowVariableCurrentValues;
+	private FlowValueStore<V> flowVariableCurrentValues;
+	
+	/**
+	 * The store of the values if it is concurrent, otherwise {@code null}. See {@link #isConcurrent()}.
+	 */
+	private ConcurrentFlowValueStore<V> concurrentValues;
+	
+	/**
+	 * Reverse dependency index of the flow variables.<br>
+	 * Row 'v' contains, in its first {@code dependentsCount[v]} entries, the flow variables
+	 * that have at least one constraint dependent on 'v'. Each dependent variable is listed once.
+	 */
+	private int[][] dependents;
+	
+	/**
+	 * The number of used entries in each row of {@link #dependents}.
+	 */
+	private int[] dependentsCount;
+	
+	/**
+	 * The initial value of the flow variables, which is also the value
+	 * of flow variables without constraints.
+	 */
+	private V initValue;
+	
+	/**
+	 * Interns the values of the flow variables, or {@code null} if they are not interned.
+	 */
+	private LatticeInterner<V> interner;
+	
+	/**
+	 * The flow variables whose values are known to be their solution, 
+	 * such that {@link AbstractWorklistAlgorithm#solveFor} does not need to evaluate them again.
+	 * Cleared whenever the constraints change or values are set from the outside.
+	 */
+	private BitSet solved;
+	
+	/**
+	 * Used when re-deriving the solution after constraints are removed, or {@code null} until then.
+	 */
+	private RegionScratch regionScratch;
 	
 //Constraints
 	
@@ -66,12 +112,63 @@ public class ConstraintSystem<V extends LatticeElement<V>> {
 	 * @param numberOfFlowVariables
 	 */
 	public ConstraintSystem(int numberOfFlowVariables, V initValue){
+		this(numberOfFlowVariables, initValue, null);
+	}
+	
+	/**
+	 * Constructs a new Constraint system like {@link #ConstraintSystem(int, LatticeElement)}, 
+	 * which interns every value its flow variables are mapped to using the given interner.
+	 * Equal values of flow variables are then always the same instance, which solvers use to 
+	 * detect changes by reference comparison. See {@link #isInterning()}.
+	 * @param numberOfFlowVariables
+	 * @param initValue
+	 * Initial value of the flow variables.
+	 * @param interner
+	 * The interner to use, or {@code null} to not intern values.
+	 */
+	public ConstraintSystem(int numberOfFlowVariables, V initValue, LatticeInterner<V> interner){
+		this(numberOfFlowVariables, initValue, interner, new ArrayFlowValueStore<V>(numberOfFlowVariables));
+	}
+	
+	/**
+	 * Constructs a new Constraint system like {@link #ConstraintSystem(int, LatticeElement, LatticeInterner)}, 
+	 * which stores the values of its flow variables in the given store, 
+	 * e.g. a {@link BitRowFlowValueStore} to keep them outside the heap.
+	 * @param numberOfFlowVariables
+	 * @param initValue
+	 * Initial value of the flow variables.
+	 * @param interner
+	 * The interner to use, or {@code null} to not intern values. 
+	 * Must be {@code null} if the store does not {@link FlowValueStore#keepsInstances() keep instances}.
+	 * @param store
+	 * The store of the values. Must have the given number of flow variables.
+	 * All flow variables are set to the initial value. 
+	 * If it is a {@link ConcurrentFlowValueStore}, the constraint system is {@link #isConcurrent() concurrent}.
+	 */
+	public ConstraintSystem(int numberOfFlowVariables, V initValue, LatticeInterner<V> interner, FlowValueStore<V> store){
+		if(store.size() != numberOfFlowVariables){
+			throw new IllegalArgumentException("The store has " + store.size() + " flow variables, expected: " + numberOfFlowVariables);
+		}
+		if(interner != null && !store.keepsInstances()){
+			throw new IllegalArgumentException("The values of a store that does not keep instances cannot be interned");
+		}
+		if(interner != null){
+			initValue = interner.intern(initValue);
+		}
+		this.interner = interner;
 		this.flowVariables = new FlowVariable[numberOfFlowVariables];
-		this.flowVariableCurrentValues = new ArrayList<V>();
+		this.flowVariableCurrentValues = store;
+		if(store instanceof ConcurrentFlowValueStore){
+			this.concurrentValues = (ConcurrentFlowValueStore<V>) store;
+		}
+		this.dependents = new int[numberOfFlowVariables][];
+		this.dependentsCount = new int[numberOfFlowVariables];
+		this.initValue = initValue;
+		this.solved = new BitSet(numberOfFlowVariables);
 		
 		for(int i = 0; i<this.flowVariables.length; i++){
 			this.flowVariables[i] = new FlowVariable<V>();
-			this.flowVariableCurrentValues.add(initValue);
+			this.flowVariableCurrentValues.set(i, initValue);
 		}
 	}
 //Methods
@@ -84,27 +181,144 @@ public class ConstraintSystem<V extends LatticeElement<V>> {
 	 * The flow variable the constraint is dependent upon
 	 * @param constraintCalculator
 	 * Given the value of the flow variable the constraint is dependent on, returns the value of the constraint evaluates to.
+	 * It is called every time the constraint is evaluated, so it may also depend on state other than 
+	 * the value of the dependency variable.
+	 * See {@link #addConstraintToVariableDependentOnVariable(int, int, Function, int)} for memoizing the outputs
+	 * of pure calculators.
 	 */
 	public void addConstraintToVariableDependentOnVariable(int variableToAddTo, int dependencyVariable, Function<V,V> constraintCalculator){
-		if(!isValidFlowVariable(dependencyVariable))
-		{
-			throw new IllegalArgumentException("The dependecy variable does not exist: " + dependencyVariable);
-		}
-		validateFlowVariable(variableToAddTo);
-		
-		FlowVariableConstraint<V> dependentConstraint = new FlowVariableConstraint<V>(this, dependencyVariable, constraintCalculator);
-		this.flowVariables[variableToAddTo].addConstaint(dependentConstraint);
+		addConstraint(variableToAddTo, dependencyVariable, constraintCalculator, false, 0);
 	}
 	
 	/**
-	 * Adds a constraint to the given flow variable.
+	 * Add a new constraint to a variable, which is dependent on another variable, 
+	 * like {@link #addConstraintToVariableDependentOnVariable(int, int, Function)}, but memoized.
+	 * The constraint reuses its last output as long as the dependency variable keeps the same value instance,
+	 * and keeps its outputs for the given number of recent inputs,
+	 * such that the calculator is not called again for an input equal to one of them.
+	 * The constraint calculator must therefore be pure.
+	 * @param variableToAddTo
+	 * The flow variable to add the constraint to.
+	 * @param dependencyVariable
+	 * The flow variable the constraint is dependent upon
+	 * @param constraintCalculator
+	 * Given the value of the flow variable the constraint is dependent on, returns the value of the constraint evaluates to.
+	 * Must return equal values when given equal values.
+	 * @param memoizedInputs
+	 * The number of recent inputs to keep the outputs of.
+	 */
+	public void addConstraintToVariableDependentOnVariable(	int variableToAddTo, int dependencyVariable, 
+															Function<V,V> constraintCalculator, int memoizedInputs)
+	{
+		addConstraint(variableToAddTo, dependencyVariable, constraintCalculator, true, memoizedInputs);
+	}
+	
+	/**
+	 * Adds a constraint to the given flow variable.<br>
+	 * If the constraint is a {@link FlowVariableConstraint}, the given flow variable is
+	 * recorded as influenced by the flow variable the constraint is dependent on.
 	 * @param variableToAddTo
 	 * @param constraint
 	 */
 	public void addIndependentConstraintToVariable(int variableToAddTo, Evaluable<V> constraint){
 		validateFlowVariable(variableToAddTo);
 		
+		if(constraint instanceof FlowVariableConstraint){
+			int dependencyVariable = ((FlowVariableConstraint<V>) constraint).getInfluencedBy();
+			if(!isValidFlowVariable(dependencyVariable))
+			{
+				throw new IllegalArgumentException("The dependecy variable does not exist: " + dependencyVariable);
+			}
+			addDependent(dependencyVariable, variableToAddTo);
+		}
 		this.flowVariables[variableToAddTo].addConstaint(constraint);
+		invalidateSolved();
+	}
+	
+	/**
+	 * Removes all constraints from a variable, which are dependent on the given variable.<br>
+	 * The current values of the flow variables are not changed. 
+	 * See {@link AbstractWorklistAlgorithm#resolveAfterRemoval} for re-establishing the solution.
+	 * @param variableToRemoveFrom
+	 * The flow variable to remove the constraints from.
+	 * @param dependencyVariable
+	 * The flow variable the constraints are dependent upon
+	 * @return
+	 * Whether any constraint was removed.
+	 */
+	public boolean removeConstraintsFromVariableDependentOnVariable(int variableToRemoveFrom, int dependencyVariable){
+		if(!isValidFlowVariable(dependencyVariable))
+		{
+			throw new IllegalArgumentException("The dependecy variable does not exist: " + dependencyVariable);
+		}
+		validateFlowVariable(variableToRemoveFrom);
+		
+		boolean removed = this.flowVariables[variableToRemoveFrom].removeConstraints(
+				(c) -> 	c instanceof FlowVariableConstraint && 
+						((FlowVariableConstraint<V>)c).getInfluencedBy() == dependencyVariable);
+		if(removed){
+			removeDependent(dependencyVariable, variableToRemoveFrom);
+			invalidateSolved();
+		}
+		return removed;
+	}
+	
+	/**
+	 * Removes a single constraint from a variable, which is dependent on the given variable and 
+	 * whose constraint calculator satisfies the given predicate.<br>
+	 * The current values of the flow variables are not changed. 
+	 * See {@link AbstractWorklistAlgorithm#resolveAfterRemoval} for re-establishing the solution.
+	 * @param variableToRemoveFrom
+	 * The flow variable to remove the constraint from.
+	 * @param dependencyVariable
+	 * The flow variable the constraint is dependent upon
+	 * @param constraintCalculator
+	 * Accepts the constraint calculator of the constraint to remove.
+	 * @return
+	 * Whether a constraint was removed.
+	 */
+	public boolean removeConstraintFromVariableDependentOnVariable(	int variableToRemoveFrom, int dependencyVariable,
+																	Predicate<? super Function<V,V>> constraintCalculator)
+	{
+		if(!isValidFlowVariable(dependencyVariable))
+		{
+			throw new IllegalArgumentException("The dependecy variable does not exist: " + dependencyVariable);
+		}
+		validateFlowVariable(variableToRemoveFrom);
+		
+		FlowVariable<V> fV = this.flowVariables[variableToRemoveFrom];
+		boolean removed = fV.removeFirstConstraint(
+				(c) -> 	c instanceof FlowVariableConstraint && 
+						((FlowVariableConstraint<V>)c).getInfluencedBy() == dependencyVariable &&
+						constraintCalculator.test(((FlowVariableConstraint<V>)c).getConstraintCalculator()));
+		if(removed){
+			//Other constraints may still depend on the dependency
+			if(Arrays.stream(getVariablesInfluencing(variableToRemoveFrom)).noneMatch((v) -> v == dependencyVariable)){
+				removeDependent(dependencyVariable, variableToRemoveFrom);
+			}
+			invalidateSolved();
+		}
+		return removed;
+	}
+	
+	/**
+	 * @param flowVariable
+	 * @return
+	 * An unmodifiable list of the constraints of the given flow variable.
+	 */
+	public List<Evaluable<V>> getConstraintsOf(int flowVariable){
+		validateFlowVariable(flowVariable);
+		return this.flowVariables[flowVariable].getConstraints();
+	}
+	
+	/**
+	 * @param flowVariable
+	 * @return
+	 * The number of constraints on the given flow variable.
+	 */
+	public int getNumberOfConstraintsOf(int flowVariable){
+		validateFlowVariable(flowVariable);
+		return this.flowVariables[flowVariable].getNumberOfConstraints();
 	}
 	
 	/**
@@ -122,15 +336,128 @@ public class ConstraintSystem<V extends LatticeElement<V>> {
 	 * returns the calculated value. Additionally, the variable
 	 * is now mapped to that value, which means the next call to 
 	 * {@link #getValueOf} on the given variable will return
-	 * the same value as returned by this invocation.
+	 * the same value as returned by this invocation.<br>
+	 * If the constraint system is {@link #isConcurrent() concurrent}, the variable is instead mapped to
+	 * the join of the calculated value and its current value, which is returned.
 	 * @param flowVariable
 	 * @return
 	 */
 	public V updateValueOf(int flowVariable){
+		return updateValueOf(flowVariable, null);
+	}
+	
+	/**
+	 * Updates the given flow variable like {@link #updateValueOf(int)}, counting the lattice operations done.
+	 * @param flowVariable
+	 * @param counts
+	 * The counts to add the operations to, or {@code null} if they are not counted.
+	 * @return
+	 */
+	V updateValueOf(int flowVariable, OperationCounts counts){
+		if(concurrentValues != null){
+			return joinValueOf(flowVariable, evaluateValueOf(flowVariable, counts), counts);
+		}
+		V value = intern(evaluateValueOf(flowVariable, counts));
+		this.flowVariableCurrentValues.set(flowVariable, value);
+		return value;
+	}
+	
+	/**
+	 * Calculates the value the given flow variable evaluates to, given the
+	 * current values of the other flow variables, without mapping the variable to it.
+	 * @param flowVariable
+	 * @return
+	 */
+	public V evaluateValueOf(int flowVariable){
+		return evaluateValueOf(flowVariable, null);
+	}
+	
+	/**
+	 * Evaluates the given flow variable like {@link #evaluateValueOf(int)}, counting the joins done.
+	 * @param flowVariable
+	 * @param counts
+	 * The counts to add the joins to, or {@code null} if they are not counted.
+	 * @return
+	 */
+	V evaluateValueOf(int flowVariable, OperationCounts counts){
 		validateFlowVariable(flowVariable);
 		FlowVariable<V> fV = this.flowVariables[flowVariable];
-		this.flowVariableCurrentValues.set(flowVariable, fV.value());
-		return getValueOf(flowVariable);
+		return fV.getConstraints().isEmpty()? initValue : fV.value(counts);
+	}
+	
+	/**
+	 * Maps the given flow variable to the given value, without evaluating it.<br>
+	 * Used by solvers that do not simply map a variable to what it evaluates to, 
+	 * e.g. when widening.
+	 * @param flowVariable
+	 * @param value
+	 */
+	public void setValueOf(int flowVariable, V value){
+		validateFlowVariable(flowVariable);
+		this.flowVariableCurrentValues.set(flowVariable, intern(value));
+		invalidateSolved();
+	}
+	
+	/**
+	 * @return
+	 * Whether the values of the flow variables are interned, in which case
+	 * two values are equal if, and only if, they are the same instance.
+	 */
+	public boolean isInterning(){
+		return interner != null;
+	}
+	
+	/**
+	 * @return
+	 * Whether the constraint system stores its values in a {@link ConcurrentFlowValueStore}, 
+	 * such that {@link #updateValueOf} may be called by multiple threads at once, even for the same flow variable.
+	 * The value of a flow variable then never decreases when updated, since a racing update may have 
+	 * used a larger value of a variable it depends on. The other methods that change the constraint system
+	 * must not be called while the flow variables are being updated.
+	 */
+	public boolean isConcurrent(){
+		return concurrentValues != null;
+	}
+	
+	/**
+	 * Maps the given flow variable back to the initial value of the constraint system,
+	 * without evaluating it.
+	 * @param flowVariable
+	 */
+	public void resetValueOf(int flowVariable){
+		validateFlowVariable(flowVariable);
+		this.flowVariableCurrentValues.set(flowVariable, initValue);
+		invalidateSolved();
+	}
+	
+	/**
+	 * Solves the constraint system for the given flow variables only, i.e. evaluates only
+	 * the given variables and the variables they (transitively) depend on.<br>
+	 * Uses {@link AbstractWorklistAlgorithm#solveFor} with a {@link UniqueFIFOWorklist}.
+	 * @param flowVariables
+	 */
+	public void solveFor(int... flowVariables){
+		AbstractWorklistAlgorithm.solveFor(new UniqueFIFOWorklist(), this, flowVariables);
+	}
+	
+	/**
+	 * @param flowVariable
+	 * @return
+	 * Whether the value of the given flow variable is known to be its solution, 
+	 * because it was solved for and the constraint system has not changed since.
+	 */
+	public boolean isSolved(int flowVariable){
+		validateFlowVariable(flowVariable);
+		return solved.get(flowVariable);
+	}
+	
+	/**
+	 * Marks every flow variable as {@link #isSolved solved}.<br>
+	 * Used by solvers, and after setting the values of the flow variables to a known solution, 
+	 * e.g. one that was stored.
+	 */
+	public void markAllSolved(){
+		solved.set(0, flowVariables.length);
 	}
 	
 	/**
@@ -144,19 +471,78 @@ public class ConstraintSystem<V extends LatticeElement<V>> {
 	
 	/**
 	 * Gets the list of all the flow variables that have constraints which
-	 * are dependent on the given flow variable.
+	 * are dependent on the given flow variable, in ascending order.<br>
+	 * The list is a sorted copy of the constraint system's dependency index. Solvers should prefer
+	 * {@link #forEachVariableInfluencedBy} which does not allocate, but visits the variables
+	 * in the order their constraints were added.
 	 * @param v
 	 * @return
 	 */
 	public List<Integer> getVariablesInfluencedBy(int v){
-		List<Integer> influenced = new ArrayList<Integer>();
-		for(int i = 0; i< flowVariables.length; i++){
-			if(flowVariables[i].influenceBy(v)){
-				influenced.add(i);
-			}
+		validateFlowVariable(v);
+		int[] sorted = Arrays.copyOf(dependents[v] == null? new int[0] : dependents[v], dependentsCount[v]);
+		Arrays.sort(sorted);
+		List<Integer> influenced = new ArrayList<Integer>(sorted.length);
+		for(int i: sorted){
+			influenced.add(i);
 		}
 		return influenced;
 	}
+	
+	/**
+	 * Invokes the given action on every flow variable that has constraints which 
+	 * are dependent on the given flow variable. Each such variable is visited exactly once.<br>
+	 * Runs in time proportional to the number of visited variables and does not allocate.
+	 * @param v
+	 * @param action
+	 */
+	public void forEachVariableInfluencedBy(int v, IntConsumer action){
+		validateFlowVariable(v);
+		int[] row = dependents[v];
+		for(int i = 0, count = dependentsCount[v]; i<count; i++){
+			action.accept(row[i]);
+		}
+	}
+	
+	/**
+	 * @param v
+	 * @return
+	 * The flow variables the constraints of the given flow variable are dependent on, each listed once.
+	 */
+	public int[] getVariablesInfluencing(int v){
+		validateFlowVariable(v);
+		return this.flowVariables[v].getConstraints().stream()
+				.filter((c) -> c instanceof FlowVariableConstraint)
+				.mapToInt((c) -> ((FlowVariableConstraint<V>)c).getInfluencedBy())
+				.distinct()
+				.toArray();
+	}
+	
+	/**
+	 * @param v
+	 * @return
+	 * The number of flow variables that have constraints which are dependent on the given flow variable.
+	 */
+	public int getNumberOfVariablesInfluencedBy(int v){
+		validateFlowVariable(v);
+		return dependentsCount[v];
+	}
+	
+	/**
+	 * Allows indexed iteration over the variables influenced by a flow variable, without allocation.
+	 * @param v
+	 * @param index
+	 * Must be in the range 0..{@link #getNumberOfVariablesInfluencedBy}(v)-1
+	 * @return
+	 * The index'th flow variable that is influenced by the given flow variable.
+	 */
+	public int getVariableInfluencedBy(int v, int index){
+		validateFlowVariable(v);
+		if(index < 0 || index >= dependentsCount[v]){
+			throw new IndexOutOfBoundsException("Variable " + v + " influences " + dependentsCount[v] + " variables: " + index);
+		}
+		return dependents[v][index];
+	}
 
 	
 	public String currentValuesString(){
@@ -173,6 +559,152 @@ public class ConstraintSystem<V extends LatticeElement<V>> {
 	
 //Private methods
 	
+	/**
+	 * @param value
+	 * @return
+	 * The canonical instance of the given value if interning, otherwise the given value.
+	 */
+	private V intern(V value){
+		return (interner == null)? value : interner.intern(value);
+	}
+	
+	/**
+	 * Joins the given value into the current value of the given flow variable in the concurrent store,
+	 * retrying if another thread updates the variable in the meantime.
+	 * @param flowVariable
+	 * @param value
+	 * @param counts
+	 * The counts to add the operations to, or {@code null} if they are not counted.
+	 * @return
+	 * The value the flow variable is mapped to by this invocation, 
+	 * or its current value if that is already at least the given value.
+	 */
+	private V joinValueOf(int flowVariable, V value, OperationCounts counts){
+		while(true){
+			V current = concurrentValues.get(flowVariable);
+			if(value == current){
+				return current;
+			}
+			if(counts != null){
+				counts.compares++;
+			}
+			if(value.compare(current)){
+				return current;
+			}
+			if(counts != null){
+				counts.compares++;
+			}
+			V joined;
+			if(current.compare(value)){
+				joined = value;
+			}else{
+				if(counts != null){
+					counts.joins++;
+				}
+				joined = current.join(value);
+			}
+			joined = intern(joined);
+			if(concurrentValues.compareAndSet(flowVariable, current, joined)){
+				return joined;
+			}
+		}
+	}
+	
+	/**
+	 * Adds a constraint dependent on the given flow variable, to the given flow variable.
+	 * See {@link FlowVariableConstraint#FlowVariableConstraint(ConstraintSystem, int, Function, boolean, int)}.
+	 * @param variableToAddTo
+	 * @param dependencyVariable
+	 * @param constraintCalculator
+	 * @param memoized
+	 * @param memoizedInputs
+	 */
+	private void addConstraint(	int variableToAddTo, int dependencyVariable, Function<V,V> constraintCalculator,
+								boolean memoized, int memoizedInputs)
+	{
+		if(!isValidFlowVariable(dependencyVariable))
+		{
+			throw new IllegalArgumentException("The dependecy variable does not exist: " + dependencyVariable);
+		}
+		validateFlowVariable(variableToAddTo);
+		
+		FlowVariableConstraint<V> dependentConstraint = new FlowVariableConstraint<V>(
+				this, dependencyVariable, constraintCalculator, memoized, memoizedInputs);
+		this.flowVariables[variableToAddTo].addConstaint(dependentConstraint);
+		addDependent(dependencyVariable, variableToAddTo);
+		invalidateSolved();
+	}
+	
+	/**
+	 * Marks the given flow variables as {@link #isSolved solved}.
+	 * @param flowVariables
+	 */
+	void markSolved(BitSet flowVariables){
+		solved.or(flowVariables);
+	}
+	
+	/**
+	 * @return
+	 * The scratch arrays of the constraint system, allocated on the first invocation.
+	 */
+	RegionScratch regionScratch(){
+		if(regionScratch == null){
+			regionScratch = new RegionScratch(flowVariables.length);
+		}
+		return regionScratch;
+	}
+	
+	private void invalidateSolved(){
+		if(!solved.isEmpty()){
+			solved.clear();
+		}
+	}
+	
+	/**
+	 * Records in the dependency index that the given dependent flow variable has a constraint
+	 * dependent on the given dependency variable. Duplicate records are ignored.
+	 * @param dependency
+	 * @param dependent
+	 */
+	private void addDependent(int dependency, int dependent) {
+		int[] row = dependents[dependency];
+		int count = dependentsCount[dependency];
+		
+		for(int i = 0; i<count; i++){
+			if(row[i] == dependent){
+				return;
+			}
+		}
+		
+		if(row == null){
+			row = new int[2];
+		}else if(count == row.length){
+			row = Arrays.copyOf(row, count*2);
+		}
+		row[count] = dependent;
+		dependents[dependency] = row;
+		dependentsCount[dependency] = count+1;
+	}
+	
+	/**
+	 * Removes from the dependency index that the given dependent flow variable has a constraint
+	 * dependent on the given dependency variable.
+	 * @param dependency
+	 * @param dependent
+	 */
+	private void removeDependent(int dependency, int dependent) {
+		int[] row = dependents[dependency];
+		int count = dependentsCount[dependency];
+		
+		for(int i = 0; i<count; i++){
+			if(row[i] == dependent){
+				System.arraycopy(row, i+1, row, i, count-i-1);
+				dependentsCount[dependency] = count-1;
+				return;
+			}
+		}
+	}
+	
 	/**
 	 * Validates that the given flow variable (referenced by the given number)
 	 * is present in the constraint system.<br>
@@ -0,0 +1,314 @@
+package dk.emoun.progysis.worklist;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+import dk.emoun.progysis.lattices.EnumPowerSet;
+import dk.emoun.progysis.lattices.Evaluable;
+import dk.emoun.progysis.lattices.LatticeElement;
+import dk.emoun.progysis.lattices.PowerSet;
+import dk.emoun.progysis.lattices.TotalFunction;
+
+/**
+ * A variant of the {@link AbstractWorklistAlgorithm Abstract Worklist Algorithm} for 
+ * {@link PowerSet Powerset} lattices, which propagates differences (semi-naive evaluation).<br>
+ * <br>
+ * Each flow variable tracks the values added to its set since it was last propagated.
+ * When a flow variable is extracted from the worklist, only the added values are 
+ * given to the constraints dependent on it that are {@link DistributiveFunction distributive}, 
+ * and only the values that are new to the dependent variables are merged into them.
+ * Other dependent constraints are given the whole set as usual.
+ * This makes the cost of propagation proportional to the number of new values,
+ * instead of the size of the sets.<br>
+ * The sets of general powersets are kept in mutable hash sets while solving, 
+ * while the elements of {@link EnumPowerSet enum powersets} are joined directly, 
+ * since their joins and differences are a few word operations.<br>
+ * <br>
+ * {@link TotalFunction Total functions} to powersets, like the states of 
+ * {@link dk.emoun.progysis.monotoneFramework.MonotoneFramework monotone frameworks}, are solved by
+ * {@link #solveTotalFunctionConstraintSystem}, which takes the differences key by key.<br>
+ * <br>
+ * Since the sets only grow, the solution is the least solution that is above the 
+ * values of the flow variables when the algorithm is invoked, which is the same solution as
+ * {@link AbstractWorklistAlgorithm#solveConstraintSystem} finds when starting from bottom.
+ * Constraints not dependent on flow variables are evaluated once.
+ */
+public class DeltaWorklistAlgorithm {
+
+//Methods
+	/**
+	 * Runs the algorithm, given a specific implementation of
+	 * a worklist and a constraint system. The state of the constraint system is changed by
+	 * this invocation into the solved state.
+	 * @param w
+	 * An instance of a worklist. Should not contain any flow variables.
+	 * @param cS
+	 * The constraint system to solve.
+	 */
+	public 	static <
+			S extends PowerSet<S,E>,
+			E
+			>
+	void solveConstraintSystem(Worklist w, ConstraintSystem<S> cS){
+		int n = cS.getNumberOfFlowVariables();
+		if(n == 0){
+			return;
+		}
+		S prototype = cS.getValueOf(0);
+		solve(w, cS, (prototype instanceof EnumPowerSet)? 
+				new ElementValues<S>(n, (S s1, S s2) -> s1.difference(s2)) : new SetValues<S,E>(n, prototype));
+	}
+	
+	/**
+	 * Runs the algorithm on a constraint system over {@link TotalFunction Total Functions} to powersets,
+	 * like the constraint systems of {@link dk.emoun.progysis.monotoneFramework.MonotoneFramework monotone frameworks}
+	 * whose monotone functions are {@link dk.emoun.progysis.monotoneFramework.DistributiveMonotoneFunction distributive}.
+	 * The state of the constraint system is changed by this invocation into the solved state.<br>
+	 * <br>
+	 * The values added to a flow variable are a total function, 
+	 * which maps each key to the values added to the powerset of that key.
+	 * The differences are {@link TotalFunction#pointwise taken key by key}, skipping the parts of the mappings
+	 * the values share, so they cost time proportional to the number of keys whose values changed.
+	 * @param w
+	 * An instance of a worklist. Should not contain any flow variables.
+	 * @param cS
+	 * The constraint system to solve.
+	 */
+	public 	static <
+			R extends TotalFunction<R,K,V>,
+			K,
+			V extends PowerSet<V,E>,
+			E
+			>
+	void solveTotalFunctionConstraintSystem(Worklist w, ConstraintSystem<R> cS){
+		solve(w, cS, new ElementValues<R>(cS.getNumberOfFlowVariables(), 
+				(R r1, R r2) -> r1.pointwise(r2, (V v1, V v2) -> v1.difference(v2))));
+	}
+	
+//Private methods
+	/**
+	 * Solves the given constraint system, keeping the values of the flow variables in the given values.
+	 * @param w
+	 * @param cS
+	 * @param values
+	 */
+	private static <S extends LatticeElement<S>> void solve(Worklist w, ConstraintSystem<S> cS, Values<S> values){
+		int n = cS.getNumberOfFlowVariables();
+		if(n == 0){
+			return;
+		}
+		
+		//Index the dependent constraints by the variable they depend on
+		int[] outStart = new int[n+1];
+		for(int t = 0; t<n; t++){
+			for(Evaluable<S> c: cS.getConstraintsOf(t)){
+				if(c instanceof FlowVariableConstraint){
+					outStart[((FlowVariableConstraint<S>)c).getInfluencedBy()+1]++;
+				}
+			}
+		}
+		for(int v = 1; v<=n; v++){
+			outStart[v] += outStart[v-1];
+		}
+		int[] outTarget = new int[outStart[n]], next = outStart.clone();
+		List<Function<S,S>> outCalculator = new ArrayList<Function<S,S>>(Collections.nCopies(outStart[n], null));
+		
+		for(int t = 0; t<n; t++){
+			S initial = cS.getValueOf(t);
+			for(Evaluable<S> c: cS.getConstraintsOf(t)){
+				if(c instanceof FlowVariableConstraint){
+					FlowVariableConstraint<S> fVC = (FlowVariableConstraint<S>)c;
+					int i = next[fVC.getInfluencedBy()]++;
+					outTarget[i] = t;
+					outCalculator.set(i, fVC.getConstraintCalculator());
+				}else{
+					initial = initial.join(c);
+				}
+			}
+			//Initially, everything is new, so every constraint is applied at least once
+			values.initialize(t, initial);
+			w.insert(t);
+		}
+		
+		int fV;
+		while(!w.isEmpty()){
+			fV = w.extractNextFlowVariable();
+			S delta = values.takeAdded(fV);
+			if(delta == null){
+				continue;
+			}
+			
+			for(int i = outStart[fV]; i<outStart[fV+1]; i++){
+				Function<S,S> calculator = outCalculator.get(i);
+				S contribution = (calculator instanceof DistributiveFunction)? 
+						calculator.apply(delta) : calculator.apply(values.get(fV));
+				
+				if(values.add(outTarget[i], contribution)){
+					w.insert(outTarget[i]);
+				}
+			}
+		}
+		
+		for(int t = 0; t<n; t++){
+			cS.setValueOf(t, values.get(t));
+		}
+		cS.markAllSolved();
+	}
+	
+//Private classes
+	/**
+	 * The values of the flow variables while solving, and the values added to each 
+	 * since it was last propagated.
+	 */
+	private static abstract class Values<S extends LatticeElement<S>>{
+		
+		/**
+		 * Sets both the value of the given flow variable and the values added to it.
+		 * @param fV
+		 * @param initial
+		 */
+		abstract void initialize(int fV, S initial);
+		
+		/**
+		 * @param fV
+		 * @return
+		 * The current value of the given flow variable.
+		 */
+		abstract S get(int fV);
+		
+		/**
+		 * Forgets the values added to the given flow variable.
+		 * @param fV
+		 * @return
+		 * The values added since the last call, or {@code null} if none were.
+		 */
+		abstract S takeAdded(int fV);
+		
+		/**
+		 * Adds the values of the given element to the given flow variable.
+		 * @param fV
+		 * @param contribution
+		 * @return
+		 * Whether the flow variable had no added values before, but has now.
+		 */
+		abstract boolean add(int fV, S contribution);
+	}
+	
+	/**
+	 * Keeps the values as lattice elements, which are joined as values are added.
+	 */
+	private static class ElementValues<S extends LatticeElement<S>> extends Values<S>{
+		
+		private final List<S> values, added;
+		
+		/**
+		 * Given a contribution and the current value of a flow variable, returns the values
+		 * of the contribution that are not in the current value, or an upper bound of them that is below the contribution.
+		 */
+		private final BinaryOperator<S> difference;
+		
+		ElementValues(int n, BinaryOperator<S> difference){
+			this.values = new ArrayList<S>(Collections.nCopies(n, null));
+			this.added = new ArrayList<S>(Collections.nCopies(n, null));
+			this.difference = difference;
+		}
+		
+		@Override
+		void initialize(int fV, S initial) {
+			values.set(fV, initial);
+			added.set(fV, initial);
+		}
+		
+		@Override
+		S get(int fV) {
+			return values.get(fV);
+		}
+		
+		@Override
+		S takeAdded(int fV) {
+			return added.set(fV, null);
+		}
+		
+		@Override
+		boolean add(int fV, S contribution) {
+			S current = values.get(fV);
+			if(contribution.compare(current)){
+				return false;
+			}
+			S contributed = difference.apply(contribution, current);
+			values.set(fV, current.join(contributed));
+			S previous = added.get(fV);
+			added.set(fV, (previous == null)? contributed : previous.join(contributed));
+			return previous == null;
+		}
+	}
+	
+	/**
+	 * Keeps the values in mutable sets, such that adding a value takes constant time.
+	 */
+	private static class SetValues<S extends PowerSet<S,E>, E> extends Values<S>{
+		
+		private final S prototype;
+		
+		private final List<Set<E>> values, added;
+		
+		/**
+		 * The current value of each flow variable as a lattice element, if up to date.
+		 */
+		private final List<S> elements;
+		
+		SetValues(int n, S prototype){
+			this.prototype = prototype;
+			this.values = new ArrayList<Set<E>>(Collections.nCopies(n, null));
+			this.added = new ArrayList<Set<E>>(Collections.nCopies(n, null));
+			this.elements = new ArrayList<S>(Collections.nCopies(n, null));
+		}
+		
+		@Override
+		void initialize(int fV, S initial) {
+			values.set(fV, new HashSet<E>(initial.getValueSet()));
+			added.set(fV, new HashSet<E>(initial.getValueSet()));
+			elements.set(fV, initial);
+		}
+		
+		@Override
+		S get(int fV) {
+			S element = elements.get(fV);
+			if(element == null){
+				//The set is copied, since it keeps changing
+				element = prototype.createPowerSet(new HashSet<E>(values.get(fV)));
+				elements.set(fV, element);
+			}
+			return element;
+		}
+		
+		@Override
+		S takeAdded(int fV) {
+			Set<E> delta = added.set(fV, null);
+			//The set is no longer changed, so it need not be copied
+			return (delta == null)? null : prototype.createPowerSet(delta);
+		}
+		
+		@Override
+		boolean add(int fV, S contribution) {
+			Set<E> current = values.get(fV), delta = added.get(fV);
+			boolean wasEmpty = delta == null;
+			for(E e: contribution.getValueSet()){
+				if(current.add(e)){
+					if(delta == null){
+						delta = new HashSet<E>();
+						added.set(fV, delta);
+					}
+					delta.add(e);
+					elements.set(fV, null);
+				}
+			}
+			return wasEmpty && delta != null;
+		}
+	}
+}
@@ -0,0 +1,20 @@
+package dk.emoun.progysis.worklist;
+
+import java.util.function.Function;
+
+/**
+ * A constraint calculator that distributes over joins, i.e. 
+ * f(e1.join(e2)) equals f(e1).join(f(e2)) for all lattice elements e1 and e2.<br>
+ * <br>
+ * Given to {@link ConstraintSystem#addConstraintToVariableDependentOnVariable}, this tells
+ * solvers that support it, like {@link DeltaWorklistAlgorithm}, that they may apply the function 
+ * to only the part of the dependency variable's value that changed since the function was last applied, 
+ * instead of the whole value.<br>
+ * Gen/kill transfer functions, f(e) = (e \ kill) U gen, are examples of distributive functions.
+ * @param <V>
+ * The type of the lattice elements the function maps.
+ */
+@FunctionalInterface
+public interface DistributiveFunction<V> extends Function<V,V> {
+
+}
@@ -31,5 +31,10 @@ public class FIFOWorklist implements Worklist{
 	public int extractNextFlowVariable() {
 		return queue.poll();
 	}
+	
+	@Override
+	public int size() {
+		return queue.size();
+	}
 
 }
@@ -0,0 +1,42 @@
+package dk.emoun.progysis.worklist;
+
+import dk.emoun.progysis.lattices.LatticeElement;
+
+/**
+ * Defines how a {@link ConstraintSystem} stores the current values of its flow variables.<br>
+ * The flow variables are referenced by integers 0..n-1, where n is the {@link #size() size} of the store.
+ * When a constraint system is constructed, it sets every flow variable to its initial value.
+ * @param <V>
+ * The type of the stored values.
+ */
+public interface FlowValueStore<V extends LatticeElement<V>> {
+	
+	/**
+	 * @param flowVariable
+	 * @return
+	 * The current value of the given flow variable.
+	 */
+	public V get(int flowVariable);
+	
+	/**
+	 * Maps the given flow variable to the given value.
+	 * @param flowVariable
+	 * @param value
+	 */
+	public void set(int flowVariable, V value);
+	
+	/**
+	 * @return
+	 * The number of flow variables the store has values for.
+	 */
+	public int size();
+	
+	/**
+	 * @return
+	 * Whether {@link #get(int)} returns the same instance that was last {@link #set(int, LatticeElement) set}.
+	 * If not, the values of the constraint system cannot be interned.
+	 */
+	public default boolean keepsInstances(){
+		return true;
+	}
+}
@@ -4,7 +4,6 @@ import java.util.ArrayList;
 import java.util.List;
 
 import dk.emoun.progysis.lattices.CompleteLattice;
-import dk.emoun.progysis.lattices.Evaluable;
 import dk.emoun.progysis.lattices.LatticeElement;
 
 
@@ -37,32 +36,4 @@ public class FlowVariable
 		super();
 	}
 	
-//Method
-	
-	/**
-	 * Returns whether this flow variable has a constraint that is dependent on
-	 * the given flow variable.
-	 * @param v
-	 * @return
-	 */
-	public boolean influenceBy(int v){
-		for(Evaluable<V> c: getConstraints()){
-			if(c instanceof FlowVariableConstraint){
-				if(((FlowVariableConstraint)c).getInfluencedBy() == v){
-					return true;
-				}
-			}
-		}
-		return false;
-	}
-
-
-
-
-
-
-
-
-
-
-}
\ No newline at end of file
+}
@@ -1,5 +1,7 @@
 package dk.emoun.progysis.worklist;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.function.Function;
 
 import dk.emoun.progysis.lattices.CompleteLattice;
@@ -35,6 +37,24 @@ public class FlowVariableConstraint
 	 */
 	private Function<V,V> constraintCalculator;
 	
+	/**
+	 * Whether the value of the constraint only depends on the value of the flow variable,
+	 * such that it can be reused as long as that value is the same instance.
+	 */
+	private boolean memoized;
+	
+	/**
+	 * The last input to the constraint calculator and its output, or {@code null} if
+	 * the constraint is not memoized or has not been evaluated.
+	 */
+	private volatile Memo<V> last;
+	
+	/**
+	 * The outputs of the constraint calculator for the most recent inputs, in access order,
+	 * or {@code null} if they are not kept.
+	 */
+	private Map<V,V> recent;
+	
 //Constructors
 	
 	/**
@@ -45,18 +65,85 @@ public class FlowVariableConstraint
 	 * The number reference of the flow variable the constraint is dependent on.
 	 * @param constraintCalculator
 	 * A function calculating the value of the constraint, given the value of the flow variable
-	 * it is dependent on.
+	 * it is dependent on. It is called every time the constraint is evaluated.
 	 */
 	public FlowVariableConstraint(ConstraintSystem<V> parent, int influncedBy, Function<V,V> constraintCalculator) {
+		this(parent, influncedBy, constraintCalculator, false, 0);
+	}
+	
+	/**
+	 * Constructs a new constraint that is dependent on the given flow variable in the given constraint system.
+	 * @param parent
+	 * The constraint system which houses the flow variable this constraint is dependent on.
+	 * @param influncedBy
+	 * The number reference of the flow variable the constraint is dependent on.
+	 * @param constraintCalculator
+	 * A function calculating the value of the constraint, given the value of the flow variable
+	 * it is dependent on.
+	 * @param memoized
+	 * Whether the constraint calculator only depends on its input, such that its output can be reused
+	 * when it is given the same instance as the last time. 
+	 * Must be {@code false} for calculators that also depend on other state.
+	 * @param memoizedInputs
+	 * The number of recent inputs whose outputs are kept, compared by {@link Object#equals(Object) equality}.
+	 * Only applicable if the calculator is pure, i.e. gives equal outputs for equal inputs. 
+	 * 0 if no outputs are kept, except for the last input instance.
+	 */
+	public FlowVariableConstraint(	ConstraintSystem<V> parent, int influncedBy, Function<V,V> constraintCalculator,
+									boolean memoized, int memoizedInputs) 
+	{
+		if(memoizedInputs < 0 || (memoizedInputs > 0 && !memoized)){
+			throw new IllegalArgumentException("Only memoized constraints can keep recent inputs: " + memoizedInputs);
+		}
 		this.constraintCalculator = constraintCalculator;
 		this.influencedBy = influncedBy;
 		this.parent = parent;
+		this.memoized = memoized;
+		if(memoizedInputs > 0){
+			this.recent = new LinkedHashMap<V,V>(16, 0.75f, true){
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<V,V> eldest){
+					return size() > memoizedInputs;
+				}
+			};
+		}
 	}
 //Methods
 	
+	/**
+	 * {@inheritDoc}<br>
+	 * If the constraint is memoized and the flow variable it is dependent on still has the 
+	 * same value instance as the last time it was evaluated, the last value is returned without 
+	 * calling the constraint calculator.
+	 */
 	@Override
 	public V value() {
-		return constraintCalculator.apply(parent.getValueOf(influencedBy));
+		V input = parent.getValueOf(influencedBy);
+		if(!memoized){
+			return constraintCalculator.apply(input);
+		}
+		
+		Memo<V> memo = last;
+		if(memo != null && memo.input == input){
+			return memo.output;
+		}
+		
+		V output = null;
+		if(recent != null){
+			synchronized(recent){
+				output = recent.get(input);
+			}
+		}
+		if(output == null){
+			output = constraintCalculator.apply(input);
+			if(recent != null){
+				synchronized(recent){
+					recent.put(input, output);
+				}
+			}
+		}
+		last = new Memo<V>(input, output);
+		return output;
 	}
 	
 	/**
@@ -68,21 +155,39 @@ public class FlowVariableConstraint
 		return this.influencedBy;
 	}
 	
+	/**
+	 * 
+	 * @return
+	 * The function calculating the value of the constraint, given the value of the flow variable
+	 * it is dependent on.
+	 */
+	public Function<V,V> getConstraintCalculator(){
+		return this.constraintCalculator;
+	}
 	
+	/**
+	 * 
+	 * @return
+	 * Whether the constraint reuses its last value when the flow variable it is dependent on
+	 * has not been updated to a different instance since.
+	 */
+	public boolean isMemoized(){
+		return this.memoized;
+	}
 	
-	
-	
-	
-	
-	
-	
-	
-	
-	
-	
-	
-	
-	
-	
-	
-}
\ No newline at end of file
+//Private classes
+	/**
+	 * An input to the constraint calculator and the output it gave.
+	 */
+	private static class Memo<V>{
+		
+		private final V input;
+		
+		private final V output;
+		
+		private Memo(V input, V output){
+			this.input = input;
+			this.output = output;
+		}
+	}
+}
@@ -30,4 +30,9 @@ public class LIFOWorklist implements Worklist{
 		public int extractNextFlowVariable() {
 			return stack.pop();
 		}
+		
+		@Override
+		public int size() {
+			return stack.size();
+		}
 }
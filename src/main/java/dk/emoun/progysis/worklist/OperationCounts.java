@@ -0,0 +1,26 @@
+package dk.emoun.progysis.worklist;
+
+/**
+ * Counts the lattice operations done by a solver while evaluating a flow variable, 
+ * such that they can be reported to a {@link SolverListener}.<br>
+ * Solvers only count when they have a listener, so the counting costs nothing otherwise.
+ */
+class OperationCounts {
+
+//Fields
+	/**
+	 * The number of joins done since the last {@link #reset()}.
+	 */
+	int joins;
+	
+	/**
+	 * The number of compares done since the last {@link #reset()}.
+	 */
+	int compares;
+	
+//Methods
+	void reset(){
+		joins = 0;
+		compares = 0;
+	}
+}
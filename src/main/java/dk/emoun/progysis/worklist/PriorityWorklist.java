@@ -0,0 +1,112 @@
+package dk.emoun.progysis.worklist;
+
+import java.util.Arrays;
+
+/**
+ * A worklist who's internal ordering is given by a fixed rank of each flow variable:
+ * the flow variable with the lowest rank is always extracted first.
+ * Each flow variable is present at most once.<br>
+ * <br>
+ * Ranking the flow variables of a forward analysis in the reverse postorder of the program graph, 
+ * means that a variable is generally evaluated after all of its dependencies, 
+ * which usually greatly reduces the number of evaluations needed to solve a constraint system.
+ * See {@link dk.emoun.progysis.monotoneFramework.MonotoneFramework#priorityWorklist()}.
+ */
+public class PriorityWorklist extends AbstractUniqueWorklist{
+
+//Fields
+	/**
+	 * The rank of each flow variable.
+	 */
+	private int[] rank;
+	
+	/**
+	 * Binary min-heap of the flow variables in the ordering, ordered by their rank.
+	 */
+	private int[] heap;
+	
+	/**
+	 * Number of flow variables in {@link #heap}.
+	 */
+	private int size;
+	
+//Constructors
+	/**
+	 * Constructs a worklist ordering the flow variables by the given ranks.
+	 * @param rank
+	 * The rank of each flow variable, indexed by flow variable. 
+	 * Flow variables with equal rank are extracted in an undefined order.
+	 * The array is not copied.
+	 */
+	public PriorityWorklist(int[] rank){
+		super(rank.length);
+		this.rank = rank;
+		this.heap = new int[Math.max(rank.length, 1)];
+	}
+	
+//methods 
+	/**
+	 * Replaces the ranks ordering the flow variables, 
+	 * such that the worklist can be reused for another constraint system.
+	 * @param rank
+	 * The rank of each flow variable, like for {@link #PriorityWorklist(int[])}. The array is not copied.
+	 * @throws IllegalStateException
+	 * If the worklist is not empty.
+	 */
+	public void setRank(int[] rank){
+		if(size > 0){
+			throw new IllegalStateException("The ranks of a worklist that is not empty cannot be replaced.");
+		}
+		this.rank = rank;
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	protected void add(int flowVariable) {
+		if(size == heap.length){
+			heap = Arrays.copyOf(heap, size*2);
+		}
+		int r = rank[flowVariable];
+		int i = size++;
+		while(i > 0){
+			int parent = (i-1) >>> 1;
+			if(rank[heap[parent]] <= r){
+				break;
+			}
+			heap[i] = heap[parent];
+			i = parent;
+		}
+		heap[i] = flowVariable;
+	}
+
+	@Override
+	protected int remove() {
+		int first = heap[0];
+		int last = heap[--size];
+		if(size > 0){
+			int r = rank[last];
+			int i = 0, child;
+			while((child = 2*i + 1) < size){
+				if(child + 1 < size && rank[heap[child+1]] < rank[heap[child]]){
+					child++;
+				}
+				if(r <= rank[heap[child]]){
+					break;
+				}
+				heap[i] = heap[child];
+				i = child;
+			}
+			heap[i] = last;
+		}
+		return first;
+	}
+}
@@ -0,0 +1,99 @@
+package dk.emoun.progysis.worklist;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Scratch arrays over all the flow variables of a constraint system, used by
+ * {@link AbstractWorklistAlgorithm#resolveAfterRemoval} to find and re-derive the influenced region.<br>
+ * They are allocated once per constraint system, and between uses every entry has its reset value,
+ * such that a use only needs to touch, and afterwards {@link #reset(int) reset}, the entries of the flow variables it visits.
+ * The arrays that hold a list of visited flow variables grow with the region instead.
+ */
+class RegionScratch {
+
+//Fields
+	/**
+	 * The order in which each flow variable was visited, or -1 if it was not visited.
+	 */
+	final int[] index;
+
+	/**
+	 * The smallest index reachable from each visited flow variable.
+	 */
+	final int[] lowLink;
+
+	/**
+	 * The number of influenced variables already followed from each visited flow variable. Reset to 0.
+	 */
+	final int[] nextEdge;
+
+	/**
+	 * Whether each flow variable is on the component stack. Reset to {@code false}.
+	 */
+	final boolean[] onStack;
+
+	/**
+	 * Whether each flow variable must be re-derived. Reset to {@code false}.
+	 */
+	final boolean[] dirty;
+
+	/**
+	 * The members of the component being re-derived. Reset to empty.
+	 */
+	final BitSet component;
+
+	/**
+	 * The visited flow variables, grouped by component.
+	 */
+	int[] byComponent = new int[16];
+
+	/**
+	 * The index in {@link #byComponent} of the first flow variable of each component,
+	 * followed by the number of visited flow variables.
+	 */
+	int[] componentStart = new int[16];
+
+	int[] callStack = new int[16];
+
+	int[] componentStack = new int[16];
+
+//Constructors
+	RegionScratch(int numberOfFlowVariables){
+		this.index = new int[numberOfFlowVariables];
+		Arrays.fill(index, -1);
+		this.lowLink = new int[numberOfFlowVariables];
+		this.nextEdge = new int[numberOfFlowVariables];
+		this.onStack = new boolean[numberOfFlowVariables];
+		this.dirty = new boolean[numberOfFlowVariables];
+		this.component = new BitSet(numberOfFlowVariables);
+	}
+
+//Methods
+	/**
+	 * Resets the entries of the visited flow variables.
+	 * @param visited
+	 * The number of flow variables in {@link #byComponent}, which must include every visited flow variable.
+	 */
+	void reset(int visited){
+		for(int i = 0; i<visited; i++){
+			int fV = byComponent[i];
+			index[fV] = -1;
+			nextEdge[fV] = 0;
+			onStack[fV] = false;
+			dirty[fV] = false;
+			component.clear(fV);
+		}
+	}
+
+	/**
+	 * @param array
+	 * @param size
+	 * The number of used entries.
+	 * @return
+	 * The given array, or a copy of twice the length if it is full.
+	 */
+	static int[] ensureRoom(int[] array, int size){
+		return (size < array.length)? array : Arrays.copyOf(array, array.length*2);
+	}
+}
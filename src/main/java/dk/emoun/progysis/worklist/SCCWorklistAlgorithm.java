@@ -0,0 +1,344 @@
+package dk.emoun.progysis.worklist;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
+
+import dk.emoun.progysis.lattices.LatticeElement;
+import dk.emoun.progysis.lattices.LatticeUtilities;
+
+/**
+ * A parallel variant of the {@link AbstractWorklistAlgorithm Abstract Worklist Algorithm}.<br>
+ * <br>
+ * The dependency graph of the constraint system is condensed into its strongly connected components, 
+ * which are then solved in topological order, each using its own worklist. 
+ * Since a component only depends on components before it in the topological order, 
+ * each component only needs to be solved once. Components at the same depth of the condensed graph
+ * do not depend on each other and are therefore solved concurrently.<br>
+ * <br>
+ * The result is the same as that of {@link AbstractWorklistAlgorithm#solveConstraintSystem}.
+ * Since components are solved on different threads, the constraints of the constraint system
+ * and the lattice elements they evaluate to must be safe to use from multiple threads.
+ */
+public class SCCWorklistAlgorithm {
+
+//Fields
+	/**
+	 * The number of flow variables below which a level of components is not split further
+	 * into concurrently solved tasks.
+	 */
+	private static final int SEQUENTIAL_THRESHOLD = 256;
+	
+//Method
+	/**
+	 * Solves the given constraint system on the common fork-join pool, using a {@link UniqueFIFOWorklist}
+	 * for each strongly connected component.
+	 * The state of the constraint system is changed by this invocation into the solved state.
+	 * @param cS
+	 * The constraint system to solve.
+	 */
+	public 	static <
+			V extends LatticeElement<V>
+			>
+	void solveConstraintSystem(ConstraintSystem<V> cS){
+		solveConstraintSystem(cS, ForkJoinPool.commonPool(), UniqueFIFOWorklist::new);
+	}
+	
+	/**
+	 * Solves the given constraint system on the given pool.
+	 * The state of the constraint system is changed by this invocation into the solved state, 
+	 * and all its flow variables are marked as {@link ConstraintSystem#isSolved solved}.
+	 * @param cS
+	 * The constraint system to solve.
+	 * @param pool
+	 * The pool independent components are solved on.
+	 * @param worklists
+	 * Supplies an empty worklist for each component that needs one.
+	 */
+	public 	static <
+			V extends LatticeElement<V>
+			>
+	void solveConstraintSystem(ConstraintSystem<V> cS, ForkJoinPool pool, Supplier<? extends Worklist> worklists){
+		Condensation condensation = new Condensation(cS);
+		int[] levels = condensation.levels;
+		
+		for(int l = 0; l<levels.length-1; l++){
+			SolveComponents<V> task = new SolveComponents<V>(cS, condensation, worklists, levels[l], levels[l+1]);
+			if(task.numberOfVariables() <= SEQUENTIAL_THRESHOLD){
+				task.compute();
+			}else{
+				pool.invoke(task);
+			}
+		}
+		cS.markAllSolved();
+	}
+	
+//Private methods
+	/**
+	 * Solves a single strongly connected component of the constraint system, assuming all
+	 * the components it depends on are solved.
+	 * @param cS
+	 * @param condensation
+	 * @param worklists
+	 * @param c
+	 * The component to solve
+	 */
+	private static <V extends LatticeElement<V>> 
+	void solveComponent(ConstraintSystem<V> cS, Condensation condensation, Supplier<? extends Worklist> worklists, int c){
+		int from = condensation.componentStart[c], to = condensation.componentStart[c+1];
+		
+		if(to - from == 1 && !condensation.selfDependent(cS, condensation.members[from])){
+			//A single variable not dependent on itself only needs one evaluation
+			cS.updateValueOf(condensation.members[from]);
+			return;
+		}
+		
+		Worklist w = worklists.get();
+		for(int i = from; i<to; i++){
+			w.insert(condensation.members[i]);
+		}
+		
+		int fV;
+		V oldValue, newValue;
+		while(!w.isEmpty()){
+			fV = w.extractNextFlowVariable();
+			
+			oldValue = cS.getValueOf(fV);
+			newValue = cS.updateValueOf(fV);
+			
+			if(!LatticeUtilities.equal(oldValue, newValue)){
+				for(int i = 0, count = cS.getNumberOfVariablesInfluencedBy(fV); i<count; i++){
+					int influenced = cS.getVariableInfluencedBy(fV, i);
+					if(condensation.component[influenced] == c){
+						w.insert(influenced);
+					}
+				}
+			}
+		}
+	}
+	
+//Classes
+	/**
+	 * The strongly connected components of a constraint system's dependency graph, 
+	 * grouped by their depth in the condensed graph.
+	 */
+	private static class Condensation{
+		
+		/**
+		 * The component of each flow variable.
+		 */
+		final int[] component;
+		
+		/**
+		 * The flow variables grouped by component. 
+		 * The components are ordered by increasing depth.
+		 */
+		final int[] members;
+		
+		/**
+		 * The index in {@link #members} of the first flow variable of each component. 
+		 * Has an additional last entry equal to the number of flow variables.
+		 */
+		final int[] componentStart;
+		
+		/**
+		 * The first component of each depth. 
+		 * Has an additional last entry equal to the number of components.
+		 */
+		final int[] levels;
+		
+		Condensation(ConstraintSystem<?> cS){
+			int n = cS.getNumberOfFlowVariables();
+			this.component = new int[n];
+			int numberOfComponents = findComponents(cS);
+			
+			//Tarjan's algorithm finds the components in reverse topological order,
+			//so the depths are propagated from the last found component.
+			int[] depth = new int[numberOfComponents];
+			int[] byComponent = sortByComponent(numberOfComponents);
+			int maxDepth = 0;
+			for(int i = n-1; i>=0; i--){
+				int v = byComponent[i], c = component[v];
+				for(int j = 0, count = cS.getNumberOfVariablesInfluencedBy(v); j<count; j++){
+					int d = component[cS.getVariableInfluencedBy(v, j)];
+					if(d != c && depth[d] <= depth[c]){
+						depth[d] = depth[c] + 1;
+						maxDepth = Math.max(maxDepth, depth[d]);
+					}
+				}
+			}
+			
+			//Renumber the components by increasing depth
+			this.levels = new int[maxDepth+2];
+			for(int c = 0; c<numberOfComponents; c++){
+				levels[depth[c]+1]++;
+			}
+			for(int l = 1; l<levels.length; l++){
+				levels[l] += levels[l-1];
+			}
+			int[] nextInLevel = Arrays.copyOf(levels, levels.length);
+			int[] renumber = new int[numberOfComponents];
+			for(int c = 0; c<numberOfComponents; c++){
+				renumber[c] = nextInLevel[depth[c]]++;
+			}
+			for(int v = 0; v<n; v++){
+				component[v] = renumber[component[v]];
+			}
+			
+			this.componentStart = new int[numberOfComponents+1];
+			this.members = sortByComponent(numberOfComponents);
+			for(int v = 0; v<n; v++){
+				componentStart[component[v]+1]++;
+			}
+			for(int c = 1; c<componentStart.length; c++){
+				componentStart[c] += componentStart[c-1];
+			}
+		}
+		
+		/**
+		 * @param cS
+		 * @param v
+		 * @return
+		 * Whether the given flow variable has a constraint dependent on itself.
+		 */
+		boolean selfDependent(ConstraintSystem<?> cS, int v){
+			for(int j = 0, count = cS.getNumberOfVariablesInfluencedBy(v); j<count; j++){
+				if(cS.getVariableInfluencedBy(v, j) == v){
+					return true;
+				}
+			}
+			return false;
+		}
+		
+		/**
+		 * Runs an iterative version of Tarjan's strongly connected components algorithm,
+		 * assigning each flow variable its component in {@link #component}.
+		 * @param cS
+		 * @return
+		 * The number of components found.
+		 */
+		private int findComponents(ConstraintSystem<?> cS){
+			int n = cS.getNumberOfFlowVariables();
+			int[] index = new int[n], lowLink = new int[n], nextEdge = new int[n];
+			int[] callStack = new int[n], componentStack = new int[n];
+			boolean[] onStack = new boolean[n];
+			Arrays.fill(index, -1);
+			int nextIndex = 0, callDepth = 0, componentStackSize = 0, numberOfComponents = 0;
+			
+			for(int root = 0; root<n; root++){
+				if(index[root] != -1){
+					continue;
+				}
+				callStack[callDepth++] = root;
+				index[root] = lowLink[root] = nextIndex++;
+				componentStack[componentStackSize++] = root;
+				onStack[root] = true;
+				
+				while(callDepth > 0){
+					int v = callStack[callDepth-1];
+					if(nextEdge[v] < cS.getNumberOfVariablesInfluencedBy(v)){
+						int w = cS.getVariableInfluencedBy(v, nextEdge[v]++);
+						if(index[w] == -1){
+							index[w] = lowLink[w] = nextIndex++;
+							componentStack[componentStackSize++] = w;
+							onStack[w] = true;
+							callStack[callDepth++] = w;
+						}else if(onStack[w]){
+							lowLink[v] = Math.min(lowLink[v], index[w]);
+						}
+					}else{
+						callDepth--;
+						if(callDepth > 0){
+							int parent = callStack[callDepth-1];
+							lowLink[parent] = Math.min(lowLink[parent], lowLink[v]);
+						}
+						if(lowLink[v] == index[v]){
+							int w;
+							do{
+								w = componentStack[--componentStackSize];
+								onStack[w] = false;
+								component[w] = numberOfComponents;
+							}while(w != v);
+							numberOfComponents++;
+						}
+					}
+				}
+			}
+			return numberOfComponents;
+		}
+		
+		/**
+		 * @param numberOfComponents
+		 * @return
+		 * All flow variables, sorted stably by their current component.
+		 */
+		private int[] sortByComponent(int numberOfComponents){
+			int[] start = new int[numberOfComponents+1];
+			for(int c: component){
+				start[c+1]++;
+			}
+			for(int c = 1; c<start.length; c++){
+				start[c] += start[c-1];
+			}
+			int[] sorted = new int[component.length];
+			for(int v = 0; v<component.length; v++){
+				sorted[start[component[v]]++] = v;
+			}
+			return sorted;
+		}
+	}
+	
+	/**
+	 * Solves a range of components that do not depend on each other, 
+	 * splitting the range into concurrent subtasks.
+	 */
+	private static class SolveComponents<V extends LatticeElement<V>> extends RecursiveAction{
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final ConstraintSystem<V> cS;
+		private final Condensation condensation;
+		private final Supplier<? extends Worklist> worklists;
+		
+		/**
+		 * The first component to solve
+		 */
+		private final int from;
+		
+		/**
+		 * The component after the last to solve
+		 */
+		private final int to;
+		
+		SolveComponents(ConstraintSystem<V> cS, Condensation condensation, Supplier<? extends Worklist> worklists, int from, int to){
+			this.cS = cS;
+			this.condensation = condensation;
+			this.worklists = worklists;
+			this.from = from;
+			this.to = to;
+		}
+		
+		/**
+		 * @return
+		 * The total number of flow variables in the components of this task.
+		 */
+		int numberOfVariables(){
+			return condensation.componentStart[to] - condensation.componentStart[from];
+		}
+		
+		@Override
+		protected void compute() {
+			if(to - from == 1 || numberOfVariables() <= SEQUENTIAL_THRESHOLD){
+				for(int c = from; c<to; c++){
+					solveComponent(cS, condensation, worklists, c);
+				}
+			}else{
+				int middle = (from + to) >>> 1;
+				invokeAll(
+						new SolveComponents<V>(cS, condensation, worklists, from, middle),
+						new SolveComponents<V>(cS, condensation, worklists, middle, to));
+			}
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package dk.emoun.progysis.worklist;
+
+/**
+ * Receives notifications about the progress of a solver.<br>
+ * All methods do nothing by default, so implementers only need to override the 
+ * notifications they are interested in.<br>
+ * <br>
+ * Solvers accept {@code null} as their listener, in which case no notifications are
+ * made and the only cost is a {@code null} check per evaluated flow variable and per join.
+ * @see SolverStatistics
+ */
+public interface SolverListener {
+	
+	/**
+	 * The phases of an analysis a listener is notified of.
+	 */
+	public enum Phase{
+		/**
+		 * The construction of the constraint system.
+		 */
+		CONSTRUCTION,
+		/**
+		 * The solving of the constraint system.
+		 */
+		SOLVING
+	}
+	
+	/**
+	 * Called when the given phase starts.
+	 * @param phase
+	 */
+	public default void phaseStarted(Phase phase){}
+	
+	/**
+	 * Called when the given phase finishes.
+	 * @param phase
+	 */
+	public default void phaseFinished(Phase phase){}
+	
+	/**
+	 * Called after a flow variable has been evaluated, before {@link #flowVariableUpdated}, 
+	 * with the number of lattice operations the evaluation did.
+	 * Only the operations of the solver are counted, not the operations the constraints do internally.
+	 * @param flowVariable
+	 * The evaluated flow variable.
+	 * @param joins
+	 * The number of joins done to combine the constraints of the variable.
+	 * @param compares
+	 * The number of compares done to decide whether the value of the variable changed.
+	 */
+	public default void latticeOperationsPerformed(int flowVariable, int joins, int compares){}
+	
+	/**
+	 * Called after a flow variable has been evaluated and, if it changed, the influenced 
+	 * variables have been inserted into the worklist.
+	 * @param flowVariable
+	 * The evaluated flow variable.
+	 * @param changed
+	 * Whether the value of the variable changed.
+	 * @param worklistSize
+	 * The size of the worklist when the flow variable was extracted from it, including the variable,
+	 * or -1 if the worklist does not keep count.
+	 */
+	public default void flowVariableUpdated(int flowVariable, boolean changed, int worklistSize){}
+}
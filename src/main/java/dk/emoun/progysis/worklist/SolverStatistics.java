@@ -0,0 +1,236 @@
+package dk.emoun.progysis.worklist;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * A {@link SolverListener} that records statistics about the runs it listens to.<br>
+ * The statistics accumulate over all runs until {@link #reset()} is called.<br>
+ * <br>
+ * The statistics can be exported as an MBean using {@link #register(String)}.<br>
+ * <br>
+ * The statistics may be shared by runs on different threads, e.g. the analyses of a
+ * {@link dk.emoun.progysis.monotoneFramework.BatchAnalysisService BatchAnalysisService}, 
+ * since all counters are updated atomically. The statistics are read without synchronization,
+ * so statistics read while a run is in progress may be slightly out of date, and a {@link #reset()}
+ * concurrent with a run may lose some of the run's updates.
+ */
+public class SolverStatistics implements SolverListener, SolverStatisticsMBean{
+
+//Fields
+	/**
+	 * The number of flow variables counted by each chunk of {@link #updatesPerFlowVariable}
+	 * is {@code 1 << CHUNK_BITS}.
+	 */
+	private static final int CHUNK_BITS = 10;
+	
+	private final LongAdder updates = new LongAdder();
+	
+	private final LongAdder changedUpdates = new LongAdder();
+	
+	private final LongAdder joins = new LongAdder();
+	
+	private final LongAdder compares = new LongAdder();
+	
+	/**
+	 * The number of evaluations of each flow variable, in chunks indexed by the high bits of the 
+	 * flow variable.<br>
+	 * Growing only copies the references to the chunks, so no increments are lost by
+	 * growing while other threads count.
+	 */
+	private volatile AtomicLongArray[] updatesPerFlowVariable;
+	
+	private final AtomicInteger worklistHighWaterMark = new AtomicInteger();
+	
+	/**
+	 * The accumulated time of each phase, indexed by the ordinal of the phase.
+	 */
+	private final AtomicLongArray phaseTimes = new AtomicLongArray(Phase.values().length);
+	
+	/**
+	 * When each phase was last started on each thread, indexed by the ordinal of the phase.
+	 * The start times are kept per thread, so runs on different threads do not overwrite each other's,
+	 * which requires a phase to finish on the thread it started on.
+	 */
+	private final ThreadLocal<long[]> phaseStarts = ThreadLocal.withInitial(() -> new long[Phase.values().length]);
+	
+//Constructors
+	public SolverStatistics(){
+		reset();
+	}
+	
+//Methods
+	/**
+	 * Registers these statistics with the platform MBean server under the name
+	 * {@code dk.emoun.progysis:type=SolverStatistics,name=<name>}.
+	 * @param name
+	 * The name distinguishing these statistics from other registered ones.
+	 * @return
+	 * The name the statistics were registered under, which can be used to unregister them.
+	 * @throws JMException
+	 * If the name is invalid or already registered.
+	 */
+	public ObjectName register(String name) throws JMException{
+		ObjectName objectName = new ObjectName("dk.emoun.progysis:type=SolverStatistics,name=" 
+												+ ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+		return objectName;
+	}
+	
+	/**
+	 * @param phase
+	 * @return
+	 * The wall time in nanoseconds spent in the given phase.
+	 */
+	public long getPhaseTime(Phase phase){
+		return phaseTimes.get(phase.ordinal());
+	}
+	
+	@Override
+	public String toString(){
+		return "SolverStatistics{updates=" + getUpdates() + ", changed=" + getChangedUpdates() 
+				+ ", unchanged=" + getUnchangedUpdates() + ", worklistHighWaterMark=" + getWorklistHighWaterMark()
+				+ ", joins=" + getJoins() + ", compares=" + getCompares()
+				+ ", constructionTime=" + getConstructionTime() + "ns, solvingTime=" + getSolvingTime() + "ns}";
+	}
+	
+//SolverListener
+	@Override
+	public void phaseStarted(Phase phase){
+		phaseStarts.get()[phase.ordinal()] = System.nanoTime();
+	}
+	
+	@Override
+	public void phaseFinished(Phase phase){
+		phaseTimes.addAndGet(phase.ordinal(), System.nanoTime() - phaseStarts.get()[phase.ordinal()]);
+	}
+	
+	@Override
+	public void latticeOperationsPerformed(int flowVariable, int joins, int compares){
+		this.joins.add(joins);
+		this.compares.add(compares);
+	}
+	
+	@Override
+	public void flowVariableUpdated(int flowVariable, boolean changed, int worklistSize){
+		updates.increment();
+		if(changed){
+			changedUpdates.increment();
+		}
+		AtomicLongArray[] chunks = updatesPerFlowVariable;
+		int chunk = flowVariable >>> CHUNK_BITS;
+		if(chunk >= chunks.length){
+			chunks = grow(chunk);
+		}
+		chunks[chunk].incrementAndGet(flowVariable & ((1 << CHUNK_BITS) - 1));
+		if(worklistSize > worklistHighWaterMark.get()){
+			worklistHighWaterMark.accumulateAndGet(worklistSize, Math::max);
+		}
+	}
+	
+//SolverStatisticsMBean
+	@Override
+	public long getUpdates() {
+		return updates.sum();
+	}
+
+	@Override
+	public long getChangedUpdates() {
+		return changedUpdates.sum();
+	}
+
+	@Override
+	public long getUnchangedUpdates() {
+		long changed = changedUpdates.sum();
+		return updates.sum() - changed;
+	}
+
+	@Override
+	public long getUpdatesOf(int flowVariable) {
+		AtomicLongArray[] chunks = updatesPerFlowVariable;
+		int chunk = flowVariable >>> CHUNK_BITS;
+		return (flowVariable >= 0 && chunk < chunks.length)? 
+				chunks[chunk].get(flowVariable & ((1 << CHUNK_BITS) - 1)) : 0;
+	}
+	
+	@Override
+	public int getMostUpdatedFlowVariable() {
+		AtomicLongArray[] chunks = updatesPerFlowVariable;
+		int most = -1;
+		long mostUpdates = 0;
+		for(int c = 0; c<chunks.length; c++){
+			for(int i = 0; i<chunks[c].length(); i++){
+				long u = chunks[c].get(i);
+				if(u > mostUpdates){
+					most = (c << CHUNK_BITS) | i;
+					mostUpdates = u;
+				}
+			}
+		}
+		return most;
+	}
+
+	@Override
+	public long getJoins() {
+		return joins.sum();
+	}
+
+	@Override
+	public long getCompares() {
+		return compares.sum();
+	}
+
+	@Override
+	public int getWorklistHighWaterMark() {
+		return worklistHighWaterMark.get();
+	}
+
+	@Override
+	public long getConstructionTime() {
+		return getPhaseTime(Phase.CONSTRUCTION);
+	}
+
+	@Override
+	public long getSolvingTime() {
+		return getPhaseTime(Phase.SOLVING);
+	}
+
+	@Override
+	public void reset() {
+		updates.reset();
+		changedUpdates.reset();
+		joins.reset();
+		compares.reset();
+		updatesPerFlowVariable = new AtomicLongArray[]{new AtomicLongArray(1 << CHUNK_BITS)};
+		worklistHighWaterMark.set(0);
+		for(int i = 0; i<phaseTimes.length(); i++){
+			phaseTimes.set(i, 0);
+		}
+	}
+	
+//Private methods
+	/**
+	 * Grows {@link #updatesPerFlowVariable} to include the given chunk, keeping the existing chunks.
+	 * @param chunk
+	 * @return
+	 * The grown chunks.
+	 */
+	private synchronized AtomicLongArray[] grow(int chunk){
+		AtomicLongArray[] chunks = updatesPerFlowVariable;
+		if(chunk >= chunks.length){
+			int oldLength = chunks.length;
+			chunks = Arrays.copyOf(chunks, Math.max(chunk + 1, oldLength*2));
+			for(int c = oldLength; c<chunks.length; c++){
+				chunks[c] = new AtomicLongArray(1 << CHUNK_BITS);
+			}
+			updatesPerFlowVariable = chunks;
+		}
+		return chunks;
+	}
+}
@@ -0,0 +1,73 @@
+package dk.emoun.progysis.worklist;
+
+/**
+ * The management interface of {@link SolverStatistics}.
+ */
+public interface SolverStatisticsMBean {
+	
+	/**
+	 * @return
+	 * The number of flow variable evaluations.
+	 */
+	public long getUpdates();
+	
+	/**
+	 * @return
+	 * The number of flow variable evaluations that changed the value of the variable.
+	 */
+	public long getChangedUpdates();
+	
+	/**
+	 * @return
+	 * The number of flow variable evaluations that did not change the value of the variable.
+	 */
+	public long getUnchangedUpdates();
+	
+	/**
+	 * @param flowVariable
+	 * @return
+	 * The number of evaluations of the given flow variable.
+	 */
+	public long getUpdatesOf(int flowVariable);
+	
+	/**
+	 * @return
+	 * The flow variable that was evaluated the most times, or -1 if none were evaluated.
+	 */
+	public int getMostUpdatedFlowVariable();
+	
+	/**
+	 * @return
+	 * The number of joins done by the solver to combine the constraints of the flow variables.
+	 */
+	public long getJoins();
+	
+	/**
+	 * @return
+	 * The number of compares done by the solver to decide whether the values of the flow variables changed.
+	 */
+	public long getCompares();
+	
+	/**
+	 * @return
+	 * The largest size the worklist had.
+	 */
+	public int getWorklistHighWaterMark();
+	
+	/**
+	 * @return
+	 * The wall time in nanoseconds spent constructing the constraint system.
+	 */
+	public long getConstructionTime();
+	
+	/**
+	 * @return
+	 * The wall time in nanoseconds spent solving the constraint system.
+	 */
+	public long getSolvingTime();
+	
+	/**
+	 * Resets all the statistics.
+	 */
+	public void reset();
+}
@@ -0,0 +1,80 @@
+package dk.emoun.progysis.worklist;
+
+import java.util.Arrays;
+
+/**
+ * A worklist who's internal ordering is that of a queue (first in, first out),
+ * where each flow variable is present at most once.<br>
+ * The queue is a ring buffer of unboxed flow variables.
+ */
+public class UniqueFIFOWorklist extends AbstractUniqueWorklist{
+
+//Fields
+	/**
+	 * Ring buffer of the queued flow variables.
+	 */
+	private int[] queue;
+	
+	/**
+	 * Index in {@link #queue} of the first flow variable.
+	 */
+	private int head;
+	
+	/**
+	 * Number of flow variables in {@link #queue}.
+	 */
+	private int size;
+	
+//Constructors
+	public UniqueFIFOWorklist(){
+		this(16);
+	}
+	
+	/**
+	 * @param expectedFlowVariables
+	 * The expected number of flow variables, used to size the internal structures.
+	 */
+	public UniqueFIFOWorklist(int expectedFlowVariables){
+		super(expectedFlowVariables);
+		this.queue = new int[Math.max(expectedFlowVariables, 1)];
+	}
+	
+//methods 
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	protected void add(int flowVariable) {
+		if(size == queue.length){
+			grow();
+		}
+		queue[(head + size) % queue.length] = flowVariable;
+		size++;
+	}
+
+	@Override
+	protected int remove() {
+		int flowVariable = queue[head];
+		head = (head + 1) % queue.length;
+		size--;
+		return flowVariable;
+	}
+	
+//Private methods
+	/**
+	 * Doubles the capacity of the ring buffer, moving the content to the start of the new buffer.
+	 */
+	private void grow(){
+		int[] newQueue = Arrays.copyOfRange(queue, head, head + queue.length*2);
+		System.arraycopy(queue, 0, newQueue, queue.length - head, head);
+		queue = newQueue;
+		head = 0;
+	}
+}
@@ -0,0 +1,60 @@
+package dk.emoun.progysis.worklist;
+
+import java.util.Arrays;
+
+/**
+ * A worklist who's internal ordering is that of a stack (Last in, first out),
+ * where each flow variable is present at most once.<br>
+ * The stack is an array of unboxed flow variables.
+ */
+public class UniqueLIFOWorklist extends AbstractUniqueWorklist{
+
+//Fields
+	/**
+	 * The stacked flow variables, the top of the stack being the last.
+	 */
+	private int[] stack;
+	
+	/**
+	 * Number of flow variables on the stack.
+	 */
+	private int size;
+	
+//Constructors
+	public UniqueLIFOWorklist(){
+		this(16);
+	}
+	
+	/**
+	 * @param expectedFlowVariables
+	 * The expected number of flow variables, used to size the internal structures.
+	 */
+	public UniqueLIFOWorklist(int expectedFlowVariables){
+		super(expectedFlowVariables);
+		this.stack = new int[Math.max(expectedFlowVariables, 1)];
+	}
+	
+//methods 
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	protected void add(int flowVariable) {
+		if(size == stack.length){
+			stack = Arrays.copyOf(stack, size*2);
+		}
+		stack[size++] = flowVariable;
+	}
+
+	@Override
+	protected int remove() {
+		return stack[--size];
+	}
+}
@@ -0,0 +1,123 @@
+package dk.emoun.progysis.worklist;
+
+import java.util.BitSet;
+import java.util.function.IntConsumer;
+
+import dk.emoun.progysis.lattices.LatticeElement;
+import dk.emoun.progysis.lattices.LatticeUtilities;
+import dk.emoun.progysis.lattices.Widenable;
+
+/**
+ * A variant of the {@link AbstractWorklistAlgorithm Abstract Worklist Algorithm} which 
+ * terminates for lattices of infinite height, by widening at a given set of flow variables.<br>
+ * <br>
+ * The algorithm has two phases:<br>
+ * In the ascending phase, a widening point is mapped to the widening of its current value with what it 
+ * evaluates to, while other variables are mapped to what they evaluate to. This phase results in a 
+ * solution that is sound, but possibly less precise than the least solution.<br>
+ * In the optional descending phase, a widening point is mapped to the narrowing of its current value with 
+ * what it evaluates to, but at most a bounded number of times per widening point, 
+ * which regains some of the precision lost.<br>
+ * <br>
+ * To guarantee termination, every cycle in the dependencies of the flow variables must contain
+ * a widening point, e.g. the loop heads of the program graph. 
+ * See {@link dk.emoun.progysis.monotoneFramework.MonotoneFramework#wideningPoints()}, 
+ * whose constraint systems can be solved by this algorithm when their states are 
+ * {@link dk.emoun.progysis.lattices.WidenableTotalFunction widenable total functions}.
+ */
+public class WideningWorklistAlgorithm {
+
+//Method
+	/**
+	 * Runs the ascending phase, given a specific implementation of
+	 * a worklist and a constraint system. The state of the constraint system is changed by
+	 * this invocation into the solved state.
+	 * @param w
+	 * An instance of a worklist. Should not contain any flow variables.
+	 * @param cS
+	 * The constraint system to solve.
+	 * @param wideningPoints
+	 * The flow variables to widen.
+	 */
+	public 	static <
+			V extends LatticeElement<V> & Widenable<V>
+			>
+	void solveConstraintSystem(Worklist w, ConstraintSystem<V> cS, BitSet wideningPoints){
+		solveConstraintSystem(w, cS, wideningPoints, 0);
+	}
+	
+	/**
+	 * Runs both phases, given a specific implementation of
+	 * a worklist and a constraint system. The state of the constraint system is changed by
+	 * this invocation into the solved state.
+	 * @param w
+	 * An instance of a worklist. Should not contain any flow variables.
+	 * @param cS
+	 * The constraint system to solve.
+	 * @param wideningPoints
+	 * The flow variables to widen and narrow.
+	 * @param narrowingBound
+	 * The maximum number of times each widening point is narrowed. 
+	 * If zero, the descending phase is skipped.
+	 */
+	public 	static <
+			V extends LatticeElement<V> & Widenable<V>
+			>
+	void solveConstraintSystem(Worklist w, ConstraintSystem<V> cS, BitSet wideningPoints, int narrowingBound){
+		int numberOfFlowVariables = cS.getNumberOfFlowVariables();
+		IntConsumer insert = w::insert;
+		int fV;
+		V oldValue, evaluated, newValue;
+		
+		//Ascending phase
+		for(int i = 0; i<numberOfFlowVariables; i++){
+			w.insert(i);
+		}
+		while(!w.isEmpty()){
+			fV = w.extractNextFlowVariable();
+			
+			oldValue = cS.getValueOf(fV);
+			evaluated = cS.evaluateValueOf(fV);
+			
+			if(wideningPoints.get(fV)){
+				newValue = evaluated.compare(oldValue)? oldValue : oldValue.widen(evaluated);
+			}else{
+				newValue = evaluated;
+			}
+			cS.setValueOf(fV, newValue);
+			
+			if(!LatticeUtilities.equal(oldValue, newValue)){
+				cS.forEachVariableInfluencedBy(fV, insert);
+			}
+		}
+		
+		if(narrowingBound <= 0){
+			return;
+		}
+		
+		//Descending phase
+		int[] narrowings = new int[numberOfFlowVariables];
+		for(int i = 0; i<numberOfFlowVariables; i++){
+			w.insert(i);
+		}
+		while(!w.isEmpty()){
+			fV = w.extractNextFlowVariable();
+			
+			oldValue = cS.getValueOf(fV);
+			if(wideningPoints.get(fV)){
+				if(narrowings[fV] == narrowingBound){
+					continue;
+				}
+				narrowings[fV]++;
+				newValue = oldValue.narrow(cS.evaluateValueOf(fV));
+			}else{
+				newValue = cS.evaluateValueOf(fV);
+			}
+			cS.setValueOf(fV, newValue);
+			
+			if(!LatticeUtilities.equal(oldValue, newValue)){
+				cS.forEachVariableInfluencedBy(fV, insert);
+			}
+		}
+	}
+}
@@ -0,0 +1,346 @@
+package dk.emoun.progysis.worklist;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import dk.emoun.progysis.lattices.LatticeElement;
+import dk.emoun.progysis.lattices.LatticeUtilities;
+
+/**
+ * A parallel variant of the {@link AbstractWorklistAlgorithm Abstract Worklist Algorithm}, 
+ * where several workers evaluate flow variables of the same worklist concurrently.<br>
+ * <br>
+ * Each worker has its own deque of flow variables. It evaluates the most recently inserted of them first, and
+ * when its deque is empty, it steals the least recently inserted flow variable of another worker.
+ * The deques are Chase-Lev deques of primitive integers, where only the owner inserts and 
+ * removes at one end without locking, while thieves remove at the other end with a compare-and-set.
+ * A worker that finds no flow variable to steal parks for a period that doubles, up to {@value #MAX_BACKOFF_NANOS}
+ * nanoseconds, each time it again finds none, instead of occupying its thread.
+ * A flow variable is in at most one deque at a time, which is tracked by a shared atomic bit set. 
+ * Its bit is cleared before it is evaluated, so an update of a variable it depends on during the evaluation
+ * inserts it again. The workers finish when no flow variable is in a deque or being evaluated.<br>
+ * <br>
+ * Unlike {@link SCCWorklistAlgorithm}, the flow variables of a single strongly connected component 
+ * are also evaluated concurrently. This requires the constraint system to be 
+ * {@link ConstraintSystem#isConcurrent() concurrent}, such that concurrent updates are joined. 
+ * Its constraints and the lattice elements they evaluate to must be safe to use from multiple threads.
+ * The result is then the same as that of {@link AbstractWorklistAlgorithm#solveConstraintSystem}.
+ */
+public class WorkStealingWorklistAlgorithm {
+
+//Fields
+	private static final long MIN_BACKOFF_NANOS = 1000;
+	
+	private static final long MAX_BACKOFF_NANOS = 1000000;
+	
+//Method
+	/**
+	 * Solves the given constraint system on the common fork-join pool, with a worker for each thread of the pool.
+	 * The state of the constraint system is changed by this invocation into the solved state.
+	 * @param cS
+	 * The concurrent constraint system to solve.
+	 */
+	public 	static <
+			V extends LatticeElement<V>
+			>
+	void solveConstraintSystem(ConstraintSystem<V> cS){
+		ForkJoinPool pool = ForkJoinPool.commonPool();
+		solveConstraintSystem(cS, pool, pool.getParallelism());
+	}
+	
+	/**
+	 * Solves the given constraint system on the given pool.
+	 * The state of the constraint system is changed by this invocation into the solved state.
+	 * @param cS
+	 * The concurrent constraint system to solve.
+	 * @param pool
+	 * The pool the workers run on.
+	 * @param workers
+	 * The number of workers.
+	 * @throws IllegalArgumentException
+	 * If the constraint system is not concurrent, or there are no workers.
+	 */
+	public 	static <
+			V extends LatticeElement<V>
+			>
+	void solveConstraintSystem(ConstraintSystem<V> cS, ForkJoinPool pool, int workers){
+		if(!cS.isConcurrent()){
+			throw new IllegalArgumentException("The constraint system must be concurrent");
+		}
+		if(workers < 1){
+			throw new IllegalArgumentException("There must be at least one worker: " + workers);
+		}
+		int numberOfFlowVariables = cS.getNumberOfFlowVariables();
+		Run<V> run = new Run<V>(cS, workers);
+		
+		//Give each worker a contiguous range of the flow variables
+		for(int i = 0; i<numberOfFlowVariables; i++){
+			run.insert((int)((long) i * workers / numberOfFlowVariables), i);
+		}
+		
+		pool.invoke(new RecursiveAction(){
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected void compute() {
+				@SuppressWarnings("unchecked")
+				Worker<V>[] others = (Worker<V>[]) new Worker<?>[workers-1];
+				for(int i = 1; i<workers; i++){
+					others[i-1] = new Worker<V>(run, i);
+					others[i-1].fork();
+				}
+				new Worker<V>(run, 0).compute();
+				for(Worker<V> other: others){
+					other.join();
+				}
+			}
+		});
+		
+		Throwable failure = run.failure.get();
+		if(failure instanceof RuntimeException){
+			throw (RuntimeException) failure;
+		}else if(failure instanceof Error){
+			throw (Error) failure;
+		}
+		cS.markAllSolved();
+	}
+	
+//Classes
+	/**
+	 * The state shared by the workers solving a constraint system.
+	 */
+	private static class Run<V extends LatticeElement<V>>{
+		
+		final ConstraintSystem<V> cS;
+		
+		final IntDeque[] deques;
+		
+		/**
+		 * Has the bit of each flow variable that is in a deque set.
+		 */
+		final AtomicLongArray inserted;
+		
+		/**
+		 * The number of flow variables in a deque or being evaluated.
+		 */
+		final AtomicInteger pending;
+		
+		/**
+		 * The first exception thrown by a worker, which stops all workers.
+		 */
+		final AtomicReference<Throwable> failure;
+		
+		Run(ConstraintSystem<V> cS, int workers){
+			this.cS = cS;
+			this.deques = new IntDeque[workers];
+			for(int i = 0; i<workers; i++){
+				deques[i] = new IntDeque();
+			}
+			this.inserted = new AtomicLongArray((cS.getNumberOfFlowVariables() + 63) / 64);
+			this.pending = new AtomicInteger();
+			this.failure = new AtomicReference<Throwable>();
+		}
+		
+		/**
+		 * Inserts the given flow variable into the deque of the given worker, unless it is already in a deque.
+		 * Must only be called by the given worker, or before the workers start.
+		 * @param worker
+		 * @param flowVariable
+		 */
+		void insert(int worker, int flowVariable){
+			int word = flowVariable >>> 6;
+			long bit = 1L << flowVariable;
+			long current;
+			do{
+				current = inserted.get(word);
+				if((current & bit) != 0){
+					return;
+				}
+			}while(!inserted.compareAndSet(word, current, current | bit));
+			pending.incrementAndGet();
+			deques[worker].push(flowVariable);
+		}
+		
+		/**
+		 * Marks the given flow variable as no longer in a deque.
+		 * @param flowVariable
+		 */
+		void extracted(int flowVariable){
+			int word = flowVariable >>> 6;
+			long bit = 1L << flowVariable;
+			long current;
+			do{
+				current = inserted.get(word);
+			}while(!inserted.compareAndSet(word, current, current & ~bit));
+		}
+	}
+	
+	/**
+	 * Evaluates flow variables from its own deque, or stolen from other deques, until all workers are done.
+	 */
+	private static class Worker<V extends LatticeElement<V>> extends RecursiveAction{
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final Run<V> run;
+		
+		private final int index;
+		
+		Worker(Run<V> run, int index){
+			this.run = run;
+			this.index = index;
+		}
+		
+		@Override
+		protected void compute(){
+			ConstraintSystem<V> cS = run.cS;
+			long backoff = MIN_BACKOFF_NANOS;
+			try{
+				while(run.failure.get() == null){
+					int fV = run.deques[index].pop();
+					if(fV == IntDeque.EMPTY){
+						fV = steal();
+					}
+					if(fV == IntDeque.EMPTY){
+						if(run.pending.get() == 0){
+							return;
+						}
+						LockSupport.parkNanos(this, backoff);
+						backoff = Math.min(backoff*2, MAX_BACKOFF_NANOS);
+						continue;
+					}
+					backoff = MIN_BACKOFF_NANOS;
+					
+					run.extracted(fV);
+					V oldValue = cS.getValueOf(fV);
+					V newValue = cS.updateValueOf(fV);
+					if(oldValue != newValue && !LatticeUtilities.equal(oldValue, newValue)){
+						for(int i = 0, count = cS.getNumberOfVariablesInfluencedBy(fV); i<count; i++){
+							run.insert(index, cS.getVariableInfluencedBy(fV, i));
+						}
+					}
+					//Only after the influenced variables are pending, such that the count 
+					//cannot reach zero while there is still work
+					run.pending.decrementAndGet();
+				}
+			}catch(RuntimeException | Error e){
+				run.failure.compareAndSet(null, e);
+			}
+		}
+		
+		/**
+		 * @return
+		 * The least recently inserted flow variable of the first other worker that has any, 
+		 * or {@link IntDeque#EMPTY} if none has, or every steal lost a race with another worker.
+		 */
+		private int steal(){
+			int workers = run.deques.length;
+			for(int i = 1; i<workers; i++){
+				int stolen = run.deques[(index + i) % workers].steal();
+				if(stolen != IntDeque.EMPTY){
+					return stolen;
+				}
+			}
+			return IntDeque.EMPTY;
+		}
+	}
+	
+	/**
+	 * A Chase-Lev work-stealing deque of non-negative integers.<br>
+	 * Only its owner may {@link #push(int) push} and {@link #pop() pop}, at the bottom, 
+	 * while any thread may {@link #steal() steal} from the top.
+	 * The elements are kept in a circular array, which the owner replaces by one twice the size when full.
+	 * A thief reading an element that is overwritten in the meantime fails to advance the top, 
+	 * and discards the element.
+	 */
+	private static class IntDeque{
+		
+		/**
+		 * Returned when no element is removed.
+		 */
+		static final int EMPTY = -1;
+		
+		private static final int INITIAL_CAPACITY = 64;
+		
+		/**
+		 * Has a length that is a power of two. The element at index i is at i modulo the length.
+		 */
+		private volatile int[] elements = new int[INITIAL_CAPACITY];
+		
+		/**
+		 * The index after the most recently pushed element. Only written by the owner.
+		 */
+		private volatile long bottom;
+		
+		/**
+		 * The index of the least recently pushed element.
+		 */
+		private final AtomicLong top = new AtomicLong();
+		
+		void push(int element){
+			long b = bottom;
+			long t = top.get();
+			int[] a = elements;
+			if(b - t >= a.length - 1){
+				a = grow(a, b, t);
+			}
+			a[(int) b & (a.length - 1)] = element;
+			//Publishes the element to thieves
+			bottom = b + 1;
+		}
+		
+		/**
+		 * @return
+		 * The most recently pushed element, or {@link #EMPTY} if there is none.
+		 */
+		int pop(){
+			long b = bottom - 1;
+			int[] a = elements;
+			bottom = b;
+			long t = top.get();
+			if(t > b){
+				bottom = b + 1;
+				return EMPTY;
+			}
+			int element = a[(int) b & (a.length - 1)];
+			if(t == b){
+				//The last element, which a thief may be taking
+				if(!top.compareAndSet(t, t + 1)){
+					element = EMPTY;
+				}
+				bottom = b + 1;
+			}
+			return element;
+		}
+		
+		/**
+		 * @return
+		 * The least recently pushed element, or {@link #EMPTY} if there is none, 
+		 * or it was removed by another thread in the meantime.
+		 */
+		int steal(){
+			long t = top.get();
+			long b = bottom;
+			if(t >= b){
+				return EMPTY;
+			}
+			int[] a = elements;
+			int element = a[(int) t & (a.length - 1)];
+			return top.compareAndSet(t, t + 1)? element : EMPTY;
+		}
+		
+		private int[] grow(int[] a, long b, long t){
+			int[] grown = new int[a.length * 2];
+			for(long i = t; i<b; i++){
+				grown[(int) i & (grown.length - 1)] = a[(int) i & (a.length - 1)];
+			}
+			elements = grown;
+			return grown;
+		}
+	}
+}
@@ -11,7 +11,8 @@ package dk.emoun.progysis.worklist;
  * needs to be recalculated, which will make the worklist put it inside its order.
  * Instances of a worklist have an internal order in which the flow variables should be executed
  * and using this method will put the variable into the ordering. 
- * A flow variable may be present in the order more than once.<br>
+ * A flow variable may be present in the order more than once, unless the implementation
+ * prevents it, like extenders of {@link AbstractUniqueWorklist} do.<br>
  * <br>
  * When an instance of a worklist is initialized, its internal ordering must be empty.
  */
@@ -38,4 +39,14 @@ public interface Worklist {
 	 */
 	public int extractNextFlowVariable();
 	
+	/**
+	 * 
+	 * @return
+	 * The number of flow variables in the ordering, or -1 if the worklist
+	 * does not keep count of them.
+	 */
+	public default int size(){
+		return -1;
+	}
+	
 }
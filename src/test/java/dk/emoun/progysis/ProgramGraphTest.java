@@ -1,37 +1,91 @@
 package dk.emoun.progysis;
 
+import org.testng.annotations.*;
+import static org.testng.Assert.*;
+
+import org.jgrapht.graph.SimpleDirectedGraph;
+
 public class ProgramGraphTest {
 	
-	
-	
-	
-	
-	
-	
-	
-	
-	
-	
-	
-	
-	
-	
-	
-	
-	
-	
-	
-	
-	
-	
-	
-	
-	
-	
-	
-	
-	
-	
-	
-	
+	/**
+	 * 0 -a-> 1, 0 -b-> 2, 1 -c-> 2, 2 -d-> 0
+	 */
+	private CSRProgramGraph<String> graph(){
+		return new CSRProgramGraph<String>(3, new int[]{0, 1, 0, 2}, new int[]{1, 2, 2, 0}, new String[]{"a", "c", "b", "d"});
+	}
+	
+	@Test
+	public void groupsTransitionsByState(){
+		CSRProgramGraph<String> g = graph();
+		
+		assertEquals(g.getNumberOfStates(), 3);
+		assertEquals(g.getNumberOfTransitions(), 4);
+		assertEquals(g.getOutDegree(0), 2);
+		assertEquals(g.getAction(g.getOutgoingTransition(0, 0)), "a");
+		assertEquals(g.getAction(g.getOutgoingTransition(0, 1)), "b");
+		assertEquals(g.getInDegree(2), 2);
+		assertEquals(g.getAction(g.getIncomingTransition(2, 0)), "c");
+		assertEquals(g.getAction(g.getIncomingTransition(2, 1)), "b");
+		assertEquals(g.getInDegree(0), 1);
+		assertEquals(g.getSource(g.getIncomingTransition(0, 0)), 2);
+	}
+	
+	@Test
+	public void reversedSwapsSourcesAndTargets(){
+		ProgramGraph<String> r = graph().reversed();
+		
+		assertEquals(r.getOutDegree(2), 2);
+		assertEquals(r.getInDegree(0), 2);
+		int t = r.getOutgoingTransition(0, 0);
+		assertEquals(r.getSource(t), 0);
+		assertEquals(r.getTarget(t), 2);
+		assertEquals(r.getAction(t), "d");
+		assertSame(r.reversed().getAction(0), graph().getAction(0));
+	}
+	
+	@Test
+	public void copiesTheGivenArrays(){
+		int[] sources = {0}, targets = {1};
+		String[] actions = {"a"};
+		CSRProgramGraph<String> g = new CSRProgramGraph<String>(2, sources, targets, actions);
+		sources[0] = 1;
+		actions[0] = "b";
+		
+		assertEquals(g.getSource(0), 0);
+		assertEquals(g.getAction(0), "a");
+	}
+	
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void rejectsTransitionsToMissingStates(){
+		new CSRProgramGraph<String>(2, new int[]{0}, new int[]{2}, new String[]{"a"});
+	}
+	
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void rejectsArraysOfDifferentLengths(){
+		new CSRProgramGraph<String>(2, new int[]{0, 1}, new int[]{1}, new String[]{"a"});
+	}
+	
+	@Test
+	public void fromGraphKeepsStatesAndActions(){
+		SimpleDirectedGraph<Integer, String> jGraph = new SimpleDirectedGraph<Integer, String>(String.class);
+		for(int i = 0; i<3; i++){
+			jGraph.addVertex(i);
+		}
+		jGraph.addEdge(0, 1, "a");
+		jGraph.addEdge(1, 2, "b");
+		CSRProgramGraph<String> g = CSRProgramGraph.fromGraph(jGraph);
+		
+		assertEquals(g.getNumberOfStates(), 3);
+		assertEquals(g.getNumberOfTransitions(), 2);
+		assertEquals(g.getAction(g.getOutgoingTransition(1, 0)), "b");
+		assertEquals(g.getTarget(g.getOutgoingTransition(1, 0)), 2);
+	}
+	
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void fromGraphRejectsVerticesOutOfRange(){
+		SimpleDirectedGraph<Integer, String> jGraph = new SimpleDirectedGraph<Integer, String>(String.class);
+		jGraph.addVertex(0);
+		jGraph.addVertex(5);
+		CSRProgramGraph.fromGraph(jGraph);
+	}
 }
@@ -1,12 +1,9 @@
 package dk.emoun.progysis;
 
-import dk.emoun.progysis.lattices.CompleteLattice;
-import dk.emoun.progysis.lattices.IncomparableLatticeException;
 import dk.emoun.progysis.lattices.LatticeElement;
 import dk.emoun.progysis.worklist.ConstraintSystem;
 
 import org.jgrapht.DirectedGraph;
-import org.testng.annotations.*;
 import static org.testng.Assert.*;
 
 import java.util.ArrayList;
@@ -18,35 +15,26 @@ public class TestUtilities {
 		pg.addEdge(from, to);
 	}
 	
-	public static <L extends CompleteLattice<V>, V extends LatticeElement<V>>void 
-	assertComparison(V v1, V v2,L lattice)
+	public static <V extends LatticeElement<V>>void 
+	assertComparison(V v1, V v2)
 	{
-		try {
-			assertTrue(lattice.compare(v1, v2));
-		} catch (IncomparableLatticeException e) {
-			fail("Incomparable: " + e.getMessage());
-		}
+		assertTrue(v1.compare(v2));
 	}
 	
-	public static <L extends CompleteLattice<V>, V extends LatticeElement<V>>void
-	assertEquals(V expected, V actual, L lattice)
+	public static <V extends LatticeElement<V>>void
+	assertEquals(V expected, V actual)
 	{
-		String actualString = lattice.stringRepresentation(actual);
-		try {
-			if(!lattice.compare(expected, actual)){
-				fail("Was smaller than expected: " + actualString);
-			}else if(!lattice.compare(actual, expected)){
-				fail("Was larger than expected: " + actualString);
-			}
-		} catch (IncomparableLatticeException e) {
-			fail("Incomparable: " + e.getMessage());
+		String actualString = actual.stringRepresentation();
+		if(!expected.compare(actual)){
+			fail("Was smaller than expected: " + actualString);
+		}else if(!actual.compare(expected)){
+			fail("Was larger than expected: " + actualString);
 		}
 	}
 	
-	public static <L extends CompleteLattice<V>, V extends LatticeElement<V>>void 
+	public static <V extends LatticeElement<V>>void 
 	assertFlowVariableValuesEqual(
-			L lattice, 
-			ConstraintSystem<L,V> cS, 
+			ConstraintSystem<V> cS, 
 			List<V> values) 
 	{
 		if(cS.getNumberOfFlowVariables() != values.size()){
@@ -56,36 +44,50 @@ public class TestUtilities {
 		}
 		for(int i = 0; i<cS.getNumberOfFlowVariables(); i++){
 			try{
-				assertEquals(values.get(i), cS.getValueOf(i), lattice);
+				assertEquals(values.get(i), cS.getValueOf(i));
 			}catch(AssertionError e){
 				fail("Variable " + i + " mismatch: " + e.getMessage());
 			}
 		}
 	}
 	
-	public static <L extends CompleteLattice<V>, V extends LatticeElement<V>>void 
+	@SafeVarargs
+	public static <V extends LatticeElement<V>>void 
 	assertFlowVariableValuesEqual(
-			L lattice, 
-			ConstraintSystem<L,V> cS, 
+			ConstraintSystem<V> cS, 
 			V... values) 
 	{
 		List<V> valueList = new ArrayList<V>();
 		for(int i = 0; i<values.length; i++){
 			valueList.add(values[i]);
 		}
-		assertFlowVariableValuesEqual(lattice, cS, valueList);
+		assertFlowVariableValuesEqual(cS, valueList);
 	}
 	
-	public static <L extends CompleteLattice<V>, V extends LatticeElement<V>>void 
+	public static <V extends LatticeElement<V>>void 
 	assertAllFlowVariableValuesEqual(
-			L lattice, 
-			ConstraintSystem<L,V> cS, 
+			ConstraintSystem<V> cS, 
 			V value) 
 	{
 		List<V> values = new ArrayList<V>();
 		for(int i = 0; i<cS.getNumberOfFlowVariables(); i++){
 			values.add(value);
 		}
-		assertFlowVariableValuesEqual(lattice, cS, values);
+		assertFlowVariableValuesEqual(cS, values);
+	}
+	
+	/**
+	 * Asserts that the two constraint systems have equal values for all their flow variables.
+	 * @param expected
+	 * @param actual
+	 */
+	public static <V extends LatticeElement<V>>void 
+	assertSameValues(ConstraintSystem<V> expected, ConstraintSystem<V> actual)
+	{
+		List<V> values = new ArrayList<V>();
+		for(int i = 0; i<expected.getNumberOfFlowVariables(); i++){
+			values.add(expected.getValueOf(i));
+		}
+		assertFlowVariableValuesEqual(actual, values);
 	}
 }
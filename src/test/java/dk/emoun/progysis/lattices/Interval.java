@@ -0,0 +1,139 @@
+package dk.emoun.progysis.lattices;
+
+/**
+ * The lattice of intervals of integers, which has infinite height.<br>
+ * {@link Long#MIN_VALUE} and {@link Long#MAX_VALUE} are used as the infinite bounds.
+ */
+public class Interval extends LatticeElement<Interval> implements Widenable<Interval>{
+	
+	public static final long INFINITY = Long.MAX_VALUE;
+	
+	public static final long MINUS_INFINITY = Long.MIN_VALUE;
+	
+	private static final Interval BOTTOM = new Interval(1, 0);
+	
+	private final long low, high;
+	
+//Constructors
+	/**
+	 * Constructs the interval from 'low' to 'high', inclusive.
+	 * If 'low' is larger than 'high' the interval is empty, i.e. bottom.
+	 */
+	public Interval(long low, long high){
+		this.low = low;
+		this.high = high;
+	}
+	
+	public Interval(){
+		this(1, 0);
+	}
+	
+//Methods
+	/**
+	 * @param n
+	 * @return
+	 * The interval shifted by the given amount. Infinite bounds are not shifted.
+	 */
+	public Interval plus(long n){
+		if(isBottom()){
+			return this;
+		}
+		return new Interval(	(low == MINUS_INFINITY)? low : low + n, 
+								(high == INFINITY)? high : high + n);
+	}
+	
+	/**
+	 * @param bound
+	 * @return
+	 * The part of the interval at most the given bound.
+	 */
+	public Interval atMost(long bound){
+		return isBottom()? this : new Interval(low, Math.min(high, bound));
+	}
+	
+	/**
+	 * @param bound
+	 * @return
+	 * The part of the interval at least the given bound.
+	 */
+	public Interval atLeast(long bound){
+		return isBottom()? this : new Interval(Math.max(low, bound), high);
+	}
+	
+	public long getLow(){
+		return low;
+	}
+	
+	public long getHigh(){
+		return high;
+	}
+	
+//Overriding methods
+	@Override
+	public Interval getBottom() {
+		return BOTTOM;
+	}
+
+	@Override
+	public boolean isBottom() {
+		return low > high;
+	}
+
+	@Override
+	public boolean compare(Evaluable<Interval> other) {
+		Interval o = other.value();
+		return isBottom() || (!o.isBottom() && o.low <= low && high <= o.high);
+	}
+
+	@Override
+	public Interval join(Evaluable<Interval> other) {
+		Interval o = other.value();
+		if(isBottom()){
+			return o;
+		}else if(o.isBottom()){
+			return this;
+		}
+		return new Interval(Math.min(low, o.low), Math.max(high, o.high));
+	}
+	
+	@Override
+	public Interval widen(Evaluable<Interval> other) {
+		Interval o = other.value();
+		if(isBottom()){
+			return o;
+		}else if(o.isBottom()){
+			return this;
+		}
+		return new Interval(	(o.low < low)? MINUS_INFINITY : low, 
+								(o.high > high)? INFINITY : high);
+	}
+	
+	@Override
+	public Interval narrow(Evaluable<Interval> other) {
+		Interval o = other.value();
+		if(o.isBottom()){
+			return o;
+		}
+		return new Interval(	(low == MINUS_INFINITY)? o.low : low, 
+								(high == INFINITY)? o.high : high);
+	}
+
+	@Override
+	public String stringRepresentation() {
+		return isBottom()? "[]" : "[" + low + "," + high + "]";
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		if(!(obj instanceof Interval)){
+			return false;
+		}
+		Interval o = (Interval) obj;
+		return (isBottom() && o.isBottom()) || (low == o.low && high == o.high);
+	}
+	
+	@Override
+	public int hashCode() {
+		return isBottom()? 0 : Long.hashCode(31*low + high);
+	}
+}
@@ -0,0 +1,22 @@
+package dk.emoun.progysis.lattices;
+
+import java.util.Map;
+
+public class IntervalTotalFunction extends WidenableTotalFunction<IntervalTotalFunction, String, Interval>{
+
+//Constructors
+	protected IntervalTotalFunction(Map<String, Interval> mapping, Interval lattice) {
+		super(mapping, lattice);
+	}
+	
+	public IntervalTotalFunction(Interval lattice, String... keys) {
+		super(lattice, keys);
+	}
+
+//Overriding methods
+	@Override
+	protected IntervalTotalFunction constructTotalFunction(Map<String, Interval> mapping, Interval defaultElement) {
+		return new IntervalTotalFunction(mapping, defaultElement);
+	}
+
+}
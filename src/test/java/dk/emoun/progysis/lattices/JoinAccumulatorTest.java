@@ -0,0 +1,118 @@
+package dk.emoun.progysis.lattices;
+
+import org.testng.annotations.*;
+import static org.testng.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import dk.emoun.progysis.TestUtilities;
+import dk.emoun.progysis.worklist.CompoundConstraint;
+
+public class JoinAccumulatorTest {
+	
+	@Test
+	public void powerSetAccumulatesUnion(){
+		JoinAccumulator<IntegerPowerSet> a = new IntegerPowerSet(1).accumulator();
+		a.join(new IntegerPowerSet(2));
+		a.join(new IntegerPowerSet(1, 3));
+		
+		assertEquals(a.result(), new IntegerPowerSet(1, 2, 3));
+	}
+	
+	@Test
+	public void enumPowerSetAccumulatesUnion(){
+		JoinAccumulator<SignPowerSet> a = new SignPowerSet().accumulator();
+		a.join(new SignPowerSet(Sign.PLUS));
+		a.join(new SignPowerSet(Sign.MINUS));
+		
+		assertEquals(a.result(), new SignPowerSet(Sign.PLUS, Sign.MINUS));
+	}
+	
+	@Test
+	public void accumulatingSmallerElementsGivesStartingElement(){
+		IntegerPowerSet s = new IntegerPowerSet(1, 2);
+		JoinAccumulator<IntegerPowerSet> a = s.accumulator();
+		a.join(new IntegerPowerSet(1));
+		a.join(new IntegerPowerSet());
+		assertSame(a.result(), s);
+		
+		SignPowerSet e = new SignPowerSet(Sign.PLUS, Sign.ZERO);
+		JoinAccumulator<SignPowerSet> b = e.accumulator();
+		b.join(new SignPowerSet(Sign.ZERO));
+		assertSame(b.result(), e);
+		
+		SignTotalFunction f = function(Sign.PLUS, Sign.MINUS);
+		JoinAccumulator<SignTotalFunction> c = f.accumulator();
+		c.join(function(Sign.PLUS, null));
+		assertSame(c.result(), f);
+	}
+	
+	@Test
+	public void totalFunctionAccumulatesPointwise(){
+		JoinAccumulator<SignTotalFunction> a = function(Sign.PLUS, null).accumulator();
+		a.join(function(null, Sign.MINUS));
+		a.join(function(Sign.ZERO, null));
+		
+		SignTotalFunction result = a.result();
+		assertEquals(result.getValue("x"), new SignPowerSet(Sign.PLUS, Sign.ZERO));
+		assertEquals(result.getValue("y"), new SignPowerSet(Sign.MINUS));
+	}
+	
+	@Test
+	public void totalFunctionAccumulatesKeysMappedByOneFunctionWithOthersDefault(){
+		SignTotalFunction onlyX = new SignTotalFunction(new SignPowerSet(Sign.ZERO), new String[]{"x"});
+		SignTotalFunction onlyY = new SignTotalFunction(new SignPowerSet(Sign.MINUS), new String[]{"y"})
+				.getUpdateValue("y", new SignPowerSet(Sign.PLUS));
+		
+		JoinAccumulator<SignTotalFunction> a = onlyX.accumulator();
+		a.join(onlyY);
+		
+		TestUtilities.assertEquals(a.result(), onlyX.join(onlyY));
+	}
+	
+	@DataProvider
+	public Object[][] seeds(){
+		return new Object[][]{{1L}, {2L}, {3L}};
+	}
+	
+	@Test(dataProvider = "seeds")
+	public void compoundConstraintEqualsPairwiseJoin(long seed){
+		Random random = new Random(seed);
+		Sign[] signs = Sign.values();
+		List<SignTotalFunction> elements = new ArrayList<SignTotalFunction>();
+		for(int i = 0; i<10; i++){
+			elements.add(function(	random.nextBoolean()? signs[random.nextInt(3)] : null, 
+									random.nextBoolean()? signs[random.nextInt(3)] : null));
+		}
+		
+		CompoundConstraint<SignTotalFunction> c = new CompoundConstraint<SignTotalFunction>();
+		SignTotalFunction expected = elements.get(0);
+		c.addConstaint(expected);
+		for(SignTotalFunction e: elements.subList(1, elements.size())){
+			c.addConstaint(e);
+			expected = expected.join(e);
+		}
+		
+		TestUtilities.assertEquals(c.value(), expected);
+	}
+	
+	/**
+	 * @param x
+	 * The sign of 'x', or {@code null} if bottom.
+	 * @param y
+	 * The sign of 'y', or {@code null} if bottom.
+	 * @return
+	 */
+	private static SignTotalFunction function(Sign x, Sign y){
+		SignTotalFunction f = new SignTotalFunction(new SignPowerSet(), new String[]{"x", "y"});
+		if(x != null){
+			f = f.getUpdateValue("x", new SignPowerSet(x));
+		}
+		if(y != null){
+			f = f.getUpdateValue("y", new SignPowerSet(y));
+		}
+		return f;
+	}
+}
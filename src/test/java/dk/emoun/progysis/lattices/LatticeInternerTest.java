@@ -0,0 +1,66 @@
+package dk.emoun.progysis.lattices;
+
+import org.testng.annotations.*;
+import static org.testng.Assert.*;
+
+import java.lang.ref.WeakReference;
+
+public class LatticeInternerTest {
+	
+	@Test
+	public void equalElementsAreInternedToFirstInstance(){
+		LatticeInterner<IntegerPowerSet> interner = new LatticeInterner<IntegerPowerSet>();
+		IntegerPowerSet first = new IntegerPowerSet(1, 2), second = new IntegerPowerSet(2, 1);
+		
+		assertSame(interner.intern(first), first);
+		assertSame(interner.intern(second), first);
+		assertEquals(interner.size(), 1);
+	}
+	
+	@Test
+	public void distinctElementsAreKeptApart(){
+		LatticeInterner<SignPowerSet> interner = new LatticeInterner<SignPowerSet>();
+		SignPowerSet plus = new SignPowerSet(Sign.PLUS), minus = new SignPowerSet(Sign.MINUS);
+		
+		assertSame(interner.intern(plus), plus);
+		assertSame(interner.intern(minus), minus);
+		assertEquals(interner.size(), 2);
+	}
+	
+	@Test
+	public void totalFunctionsWithDifferentDefaultsAreKeptApart(){
+		LatticeInterner<SignTotalFunction> interner = new LatticeInterner<SignTotalFunction>();
+		SignTotalFunction f1 = new SignTotalFunction(new SignPowerSet(), new String[]{"x"});
+		SignTotalFunction f2 = new SignTotalFunction(new SignPowerSet(Sign.PLUS), new String[]{"x"})
+				.getUpdateValue("x", new SignPowerSet());
+		
+		//Equal in the lattice, but not by equals()
+		assertTrue(LatticeUtilities.equal(f1, f2));
+		assertSame(interner.intern(f1), f1);
+		assertSame(interner.intern(f2), f2);
+	}
+	
+	@Test
+	public void clearForgetsCanonicalInstances(){
+		LatticeInterner<IntegerPowerSet> interner = new LatticeInterner<IntegerPowerSet>();
+		interner.intern(new IntegerPowerSet(1));
+		interner.clear();
+		
+		IntegerPowerSet other = new IntegerPowerSet(1);
+		assertSame(interner.intern(other), other);
+	}
+	
+	@Test
+	public void unreferencedInstancesAreForgotten() throws InterruptedException{
+		LatticeInterner<IntegerPowerSet> interner = new LatticeInterner<IntegerPowerSet>();
+		WeakReference<IntegerPowerSet> reference = new WeakReference<IntegerPowerSet>(interner.intern(new IntegerPowerSet(1)));
+		
+		for(int i = 0; i<50 && (reference.get() != null || interner.size() > 0); i++){
+			System.gc();
+			Thread.sleep(10);
+		}
+		
+		assertNull(reference.get());
+		assertEquals(interner.size(), 0);
+	}
+}
@@ -0,0 +1,215 @@
+package dk.emoun.progysis.lattices;
+
+import org.testng.annotations.*;
+import static org.testng.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class PersistentMapTest {
+	
+	/**
+	 * A key whose hash code is its value divided by 4, such that four keys share each hash.
+	 */
+	private static final class Colliding{
+		
+		final int value;
+		
+		Colliding(int value){
+			this.value = value;
+		}
+		
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Colliding && ((Colliding)obj).value == value;
+		}
+		
+		@Override
+		public int hashCode() {
+			return value / 4;
+		}
+		
+		@Override
+		public String toString() {
+			return "C" + value;
+		}
+	}
+	
+	@Test
+	public void emptyMapsNothing(){
+		PersistentMap<String, Integer> m = PersistentMap.empty();
+		assertTrue(m.isEmpty());
+		assertEquals(m.size(), 0);
+		assertNull(m.get("a"));
+		assertNull(m.get(null));
+	}
+	
+	@Test
+	public void plusDoesNotChangeOriginal(){
+		PersistentMap<String, Integer> m1 = PersistentMap.<String, Integer>empty().plus("a", 1);
+		PersistentMap<String, Integer> m2 = m1.plus("a", 2).plus("b", 3);
+		
+		assertEquals(m1.get("a"), Integer.valueOf(1));
+		assertNull(m1.get("b"));
+		assertEquals(m1.size(), 1);
+		assertEquals(m2.get("a"), Integer.valueOf(2));
+		assertEquals(m2.get("b"), Integer.valueOf(3));
+		assertEquals(m2.size(), 2);
+	}
+	
+	@Test
+	public void plusOfSameValueInstanceIsSameMap(){
+		Integer one = 1000;
+		PersistentMap<String, Integer> m = PersistentMap.<String, Integer>empty().plus("a", one);
+		assertSame(m.plus("a", one), m);
+	}
+	
+	@Test(expectedExceptions = UnsupportedOperationException.class)
+	public void removeIsUnsupported(){
+		PersistentMap.<String, Integer>empty().plus("a", 1).remove("a");
+	}
+	
+	@Test(expectedExceptions = UnsupportedOperationException.class)
+	public void putIsUnsupported(){
+		PersistentMap.<String, Integer>empty().put("a", 1);
+	}
+	
+	@Test
+	public void collidingKeysAreKeptApart(){
+		PersistentMap<Colliding, Integer> m = PersistentMap.empty();
+		for(int i = 0; i<16; i++){
+			m = m.plus(new Colliding(i), i);
+		}
+		m = m.plus(new Colliding(5), 50);
+		
+		assertEquals(m.size(), 16);
+		for(int i = 0; i<16; i++){
+			assertEquals(m.get(new Colliding(i)), Integer.valueOf((i == 5)? 50 : i));
+		}
+		assertNull(m.get(new Colliding(16)));
+	}
+	
+	@Test
+	public void mergeCombinesKeysOfBothMaps(){
+		PersistentMap<String, Integer> m1 = PersistentMap.<String, Integer>empty().plus("a", 1).plus("b", 2);
+		PersistentMap<String, Integer> m2 = PersistentMap.<String, Integer>empty().plus("b", 10).plus("c", 20);
+		
+		PersistentMap<String, Integer> merged = m1.merge(m2, Integer::sum, (v) -> -v, (v) -> v*2);
+		
+		Map<String, Integer> expected = new HashMap<String, Integer>();
+		expected.put("a", -1);
+		expected.put("b", 12);
+		expected.put("c", 40);
+		assertEquals(merged, expected);
+	}
+	
+	@Test
+	public void mergeOfIdenticalMapsIsSameMap(){
+		PersistentMap<String, Integer> m = PersistentMap.<String, Integer>empty().plus("a", 1).plus("b", 2);
+		assertSame(m.merge(m, (v1, v2) -> { throw new AssertionError(); }, (v) -> v, (v) -> v), m);
+	}
+	
+	@Test
+	public void mergeOfCollidingKeys(){
+		PersistentMap<Colliding, Integer> m1 = PersistentMap.empty(), m2 = PersistentMap.empty();
+		for(int i = 0; i<8; i++){
+			m1 = m1.plus(new Colliding(i), i);
+			m2 = m2.plus(new Colliding(i+4), 100);
+		}
+		
+		PersistentMap<Colliding, Integer> merged = m1.merge(m2, Math::max, (v) -> v, (v) -> v);
+		
+		assertEquals(merged.size(), 12);
+		for(int i = 0; i<12; i++){
+			assertEquals(merged.get(new Colliding(i)), Integer.valueOf((i < 4)? i : 100));
+		}
+	}
+	
+	@Test
+	public void allMatchRequiresSameKeys(){
+		PersistentMap<String, Integer> m1 = PersistentMap.<String, Integer>empty().plus("a", 1).plus("b", 2);
+		PersistentMap<String, Integer> m2 = m1.plus("b", 3);
+		PersistentMap<String, Integer> m3 = m1.plus("c", 3);
+		
+		assertTrue(PersistentMap.allMatch(m1, m2, (v1, v2) -> v1 <= v2));
+		assertFalse(PersistentMap.allMatch(m2, m1, (v1, v2) -> v1 <= v2));
+		assertFalse(PersistentMap.allMatch(m1, m3, (v1, v2) -> true));
+	}
+	
+	@Test
+	public void allMatchOfCollidingKeys(){
+		PersistentMap<Colliding, Integer> m1 = PersistentMap.empty();
+		for(int i = 0; i<4; i++){
+			m1 = m1.plus(new Colliding(i), i);
+		}
+		PersistentMap<Colliding, Integer> m2 = m1.plus(new Colliding(2), 5);
+		
+		assertTrue(PersistentMap.allMatch(m1, m2, (v1, v2) -> v1 <= v2));
+		assertFalse(PersistentMap.allMatch(m2, m1, (v1, v2) -> v1 <= v2));
+	}
+	
+	@Test
+	public void hashCodeOnlyHashesEntriesNotSharedWithHashedMap(){
+		int[] hashed = new int[1];
+		class Hashed{
+			@Override
+			public int hashCode() {
+				hashed[0]++;
+				return 1;
+			}
+		}
+		PersistentMap<Integer, Object> m = PersistentMap.empty();
+		Map<Integer, Object> expected = new HashMap<Integer, Object>();
+		for(int i = 0; i<1000; i++){
+			Hashed value = new Hashed();
+			m = m.plus(i, value);
+			expected.put(i, value);
+		}
+		Hashed value = new Hashed();
+		expected.put(500, value);
+		int expectedHash = expected.hashCode();
+		m.hashCode();
+		hashed[0] = 0;
+		
+		PersistentMap<Integer, Object> updated = m.plus(500, value);
+		PersistentMap<Integer, Object> merged = m.merge(updated, (v1, v2) -> v2, (v) -> v, (v) -> v);
+		
+		assertEquals(updated.hashCode(), expectedHash);
+		assertEquals(merged.hashCode(), expectedHash);
+		//Only the new entry is hashed, once by each map
+		assertTrue(hashed[0] <= 2);
+	}
+	
+	@DataProvider
+	public Object[][] seeds(){
+		return new Object[][]{{1L}, {2L}, {3L}};
+	}
+	
+	@Test(dataProvider = "seeds")
+	public void behavesLikeHashMap(long seed){
+		Random random = new Random(seed);
+		Map<Object, Integer> expected = new HashMap<Object, Integer>();
+		PersistentMap<Object, Integer> actual = PersistentMap.empty();
+		for(int i = 0; i<5000; i++){
+			//Mix keys with distinct and with colliding hashes
+			Object key = random.nextBoolean()? (Object) random.nextInt(2000) : new Colliding(random.nextInt(200));
+			int value = random.nextInt(10);
+			expected.put(key, value);
+			actual = actual.plus(key, value);
+			
+			if(i%500 == 0){
+				assertEquals(actual.size(), expected.size());
+				assertEquals(actual, expected);
+				assertEquals(expected, actual);
+				assertEquals(actual.hashCode(), expected.hashCode());
+			}
+		}
+		for(Object key: expected.keySet()){
+			assertEquals(actual.get(key), expected.get(key));
+			assertTrue(actual.containsKey(key));
+		}
+		assertEquals(actual.entrySet(), expected.entrySet());
+		assertEquals(PersistentMap.copyOf(expected), actual);
+	}
+}
@@ -0,0 +1,110 @@
+package dk.emoun.progysis.lattices;
+
+import org.testng.annotations.*;
+import static org.testng.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+public class PowerSetTest {
+	
+	@Test
+	public void subsetIsBelowSuperset(){
+		assertTrue(new IntegerPowerSet(1).compare(new IntegerPowerSet(1, 2)));
+		assertFalse(new IntegerPowerSet(1, 2).compare(new IntegerPowerSet(1)));
+	}
+	
+	@Test
+	public void enumSubsetIsBelowSuperset(){
+		assertTrue(new SignPowerSet(Sign.PLUS).compare(new SignPowerSet(Sign.PLUS, Sign.MINUS)));
+		assertFalse(new SignPowerSet(Sign.PLUS, Sign.MINUS).compare(new SignPowerSet(Sign.PLUS)));
+	}
+	
+	@Test
+	public void incomparableSetsAreNotBelowEachOther(){
+		assertFalse(new IntegerPowerSet(1).compare(new IntegerPowerSet(2)));
+		assertFalse(new IntegerPowerSet(2).compare(new IntegerPowerSet(1)));
+		assertFalse(new SignPowerSet(Sign.PLUS).compare(new SignPowerSet(Sign.MINUS)));
+		assertFalse(new SignPowerSet(Sign.MINUS).compare(new SignPowerSet(Sign.PLUS)));
+	}
+	
+	@Test
+	public void bottomIsBelowEverySet(){
+		assertTrue(new IntegerPowerSet().compare(new IntegerPowerSet(1)));
+		assertFalse(new IntegerPowerSet(1).compare(new IntegerPowerSet()));
+		assertTrue(new SignPowerSet().compare(new SignPowerSet(Sign.ZERO)));
+		assertFalse(new SignPowerSet(Sign.ZERO).compare(new SignPowerSet()));
+	}
+	
+	@Test
+	public void joinIsUnion(){
+		assertEquals(new IntegerPowerSet(1).join(new IntegerPowerSet(2)), new IntegerPowerSet(1, 2));
+		assertEquals(	new SignPowerSet(Sign.PLUS).join(new SignPowerSet(Sign.MINUS)), 
+						new SignPowerSet(Sign.PLUS, Sign.MINUS));
+	}
+	
+	@Test
+	public void differenceRemovesValuesOfOther(){
+		assertEquals(new IntegerPowerSet(1, 2, 3).difference(new IntegerPowerSet(2, 4)), new IntegerPowerSet(1, 3));
+		assertTrue(new IntegerPowerSet(1).difference(new IntegerPowerSet(1, 2)).isBottom());
+	}
+	
+	@Test
+	public void differenceWithDisjointSetIsSameInstance(){
+		IntegerPowerSet s = new IntegerPowerSet(1, 2);
+		assertSame(s.difference(new IntegerPowerSet(3)), s);
+	}
+	
+	@Test
+	public void enumDifferenceRemovesValuesOfOther(){
+		assertEquals(	new SignPowerSet(Sign.PLUS, Sign.ZERO).difference(new SignPowerSet(Sign.ZERO, Sign.MINUS)), 
+						new SignPowerSet(Sign.PLUS));
+		assertTrue(new SignPowerSet(Sign.PLUS).difference(new SignPowerSet(Sign.PLUS)).isBottom());
+		assertTrue(new SignPowerSet().difference(new SignPowerSet(Sign.PLUS)).isBottom());
+	}
+	
+	@Test
+	public void enumDifferenceWithDisjointSetIsSameInstance(){
+		SignPowerSet s = new SignPowerSet(Sign.PLUS);
+		assertSame(s.difference(new SignPowerSet(Sign.MINUS)), s);
+		assertSame(s.difference(new SignPowerSet()), s);
+	}
+	
+	@Test
+	public void bitSetsAreOrderedAndJoinedLikeSets(){
+		BitPowerSet<String> bottom = new BitPowerSet<String>(Arrays.asList("a", "b", "c"));
+		BitPowerSet<String> a = bottom.createPowerSet(new HashSet<String>(Arrays.asList("a")));
+		BitPowerSet<String> ab = bottom.createPowerSet(new HashSet<String>(Arrays.asList("a", "b")));
+		BitPowerSet<String> c = bottom.createPowerSet(new HashSet<String>(Arrays.asList("c")));
+		
+		assertTrue(bottom.compare(a));
+		assertTrue(a.compare(ab));
+		assertFalse(ab.compare(a));
+		assertFalse(a.compare(c));
+		assertSame(a.join(ab), ab);
+		assertSame(ab.join(a), ab);
+		assertEquals(ab.join(c).getValueSet(), new HashSet<String>(Arrays.asList("a", "b", "c")));
+		assertEquals(ab.difference(a), bottom.createPowerSet(new HashSet<String>(Arrays.asList("b"))));
+		assertEquals(ab.getWord(0), 0b011L);
+	}
+	
+	@Test
+	public void bitSetsBeyondOneWordKeepTheirElements(){
+		Integer[] universe = new Integer[130];
+		for(int i = 0; i<universe.length; i++){
+			universe[i] = i;
+		}
+		BitPowerSet<Integer> bottom = new BitPowerSet<Integer>(Arrays.asList(universe));
+		BitPowerSet<Integer> s = bottom.withWords(new long[]{1L, 1L << 63, 0b10L});
+		
+		assertEquals(s.getValueSet(), new HashSet<Integer>(Arrays.asList(0, 127, 129)));
+		assertTrue(s.getValueSet().contains(129));
+		assertFalse(s.getValueSet().contains(128));
+		assertEquals(s, bottom.createPowerSet(new HashSet<Integer>(Arrays.asList(0, 127, 129))));
+	}
+	
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void bitSetsRejectBitsOutsideUniverse(){
+		new BitPowerSet<String>(Arrays.asList("a", "b")).withWords(new long[]{0b100L});
+	}
+}
@@ -16,9 +16,8 @@ public class SignTotalFunction extends TotalFunction<SignTotalFunction, String,
 
 //Overriding methods
 	@Override
-	protected SignTotalFunction constructTotalFunction(Map<String, SignPowerSet> mapping) {
-		// TODO Auto-generated method stub
-		return new SignTotalFunction(mapping, getLattice().getBottom());
+	protected SignTotalFunction constructTotalFunction(Map<String, SignPowerSet> mapping, SignPowerSet defaultElement) {
+		return new SignTotalFunction(mapping, defaultElement);
 	}
 
 }
@@ -0,0 +1,185 @@
+package dk.emoun.progysis.monotoneFramework;
+
+import org.testng.annotations.*;
+import static org.testng.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import dk.emoun.progysis.TestUtilities;
+import dk.emoun.progysis.lattices.Evaluable;
+import dk.emoun.progysis.lattices.Sign;
+import dk.emoun.progysis.lattices.SignPowerSet;
+import dk.emoun.progysis.lattices.SignTotalFunction;
+import dk.emoun.progysis.monotoneFramework.BatchAnalysisService.Result;
+import dk.emoun.progysis.worklist.AbstractWorklistAlgorithm;
+import dk.emoun.progysis.worklist.ConstraintSystem;
+import dk.emoun.progysis.worklist.FIFOWorklist;
+
+public class BatchAnalysisServiceTest {
+
+	private ExecutorService executor;
+
+	@BeforeMethod
+	public void setUp(){
+		executor = Executors.newFixedThreadPool(2);
+	}
+
+	@AfterMethod
+	public void tearDown(){
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void resultsEqualSequentialAnalyses(){
+		List<MonotoneFramework<String, SignTotalFunction, SignPowerSet>> frameworks = IntStream.range(0, 20)
+				.mapToObj((i) -> MonotoneFrameworkTest.framework(4, 0, true,
+						new String[]{(i%2 == 0)? "x=MINUS" : "skip", "y=ZERO", "x+=ZERO", "skip"}, 0,1, 1,2, 2,3, 3,1))
+				.collect(Collectors.toList());
+		BatchAnalysisService service = new BatchAnalysisService(executor, 3, 0, TimeUnit.SECONDS);
+
+		List<Result<String, SignTotalFunction, SignPowerSet>> results =
+				service.analyse(frameworks.stream()).collect(Collectors.toList());
+
+		assertEquals(results.size(), frameworks.size());
+		boolean[] seen = new boolean[frameworks.size()];
+		for(Result<String, SignTotalFunction, SignPowerSet> result: results){
+			int index = (int) result.getIndex();
+			assertFalse(seen[index]);
+			seen[index] = true;
+			assertTrue(result.isSuccess());
+			assertSame(result.getFramework(), frameworks.get(index));
+
+			ConstraintSystem<SignTotalFunction> expected = frameworks.get(index).constraintSystem();
+			AbstractWorklistAlgorithm.solveConstraintSystem(new FIFOWorklist(), expected);
+			TestUtilities.assertSameValues(expected, result.getConstraintSystem());
+		}
+	}
+
+	@Test
+	public void sourceIsConsumedLazily(){
+		int[] taken = new int[1];
+		Iterator<MonotoneFramework<String, SignTotalFunction, SignPowerSet>> source =
+				new Iterator<MonotoneFramework<String, SignTotalFunction, SignPowerSet>>(){
+			@Override
+			public boolean hasNext() {
+				return taken[0] < 100;
+			}
+
+			@Override
+			public MonotoneFramework<String, SignTotalFunction, SignPowerSet> next() {
+				taken[0]++;
+				return MonotoneFrameworkTest.framework(2, 0, true, 0,1);
+			}
+		};
+		BatchAnalysisService service = new BatchAnalysisService(executor, 4, 0, TimeUnit.SECONDS);
+
+		Iterator<Result<String, SignTotalFunction, SignPowerSet>> results = service.analyse(source);
+		assertEquals(taken[0], 0);
+		results.next();
+		assertEquals(taken[0], 4);
+		results.next();
+		assertEquals(taken[0], 5);
+	}
+
+	@Test
+	public void runtimeExceptionFailsOnlyItsJob(){
+		BatchAnalysisService service = new BatchAnalysisService(executor, 2, 0, TimeUnit.SECONDS);
+		List<MonotoneFramework<String, SignTotalFunction, SignPowerSet>> frameworks = new ArrayList<MonotoneFramework<String, SignTotalFunction, SignPowerSet>>();
+		frameworks.add(MonotoneFrameworkTest.framework(2, 0, true, 0,1));
+		frameworks.add(framework(new MonotoneFunction<String, SignTotalFunction>(){
+			@Override
+			public boolean applicableFor(String action) {
+				return true;
+			}
+
+			@Override
+			public SignTotalFunction apply(String action, Evaluable<SignTotalFunction> state) {
+				throw new IllegalStateException("Failing function");
+			}
+		}));
+
+		List<Result<String, SignTotalFunction, SignPowerSet>> results =
+				service.analyse(frameworks.stream()).collect(Collectors.toList());
+
+		assertEquals(results.size(), 2);
+		for(Result<String, SignTotalFunction, SignPowerSet> result: results){
+			if(result.getIndex() == 0){
+				assertTrue(result.isSuccess());
+			}else{
+				assertFalse(result.isSuccess());
+				assertFalse(result.isTimedOut());
+				assertTrue(result.getFailure() instanceof IllegalStateException);
+			}
+		}
+	}
+
+	@Test(expectedExceptions = TestError.class)
+	public void errorIsThrownByIterator(){
+		BatchAnalysisService service = new BatchAnalysisService(executor, 2, 0, TimeUnit.SECONDS);
+		MonotoneFramework<String, SignTotalFunction, SignPowerSet> f = framework(new MonotoneFunction<String, SignTotalFunction>(){
+			@Override
+			public boolean applicableFor(String action) {
+				return true;
+			}
+
+			@Override
+			public SignTotalFunction apply(String action, Evaluable<SignTotalFunction> state) {
+				throw new TestError();
+			}
+		});
+
+		service.analyse(Stream.of(f)).forEach((r) -> fail("Delivered a result: " + r.getFailure()));
+	}
+
+	@Test
+	public void slowJobTimesOut(){
+		BatchAnalysisService service = new BatchAnalysisService(executor, 2, 1, TimeUnit.MILLISECONDS);
+		MonotoneFramework<String, SignTotalFunction, SignPowerSet> f = framework(new MonotoneFunction<String, SignTotalFunction>(){
+			@Override
+			public boolean applicableFor(String action) {
+				return true;
+			}
+
+			@Override
+			public SignTotalFunction apply(String action, Evaluable<SignTotalFunction> state) {
+				try {
+					Thread.sleep(5);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return state.value();
+			}
+		});
+
+		Result<String, SignTotalFunction, SignPowerSet> result = service.analyse(Stream.of(f)).findFirst().get();
+
+		assertFalse(result.isSuccess());
+		assertTrue(result.isTimedOut());
+	}
+
+//Private methods
+	/**
+	 * @param function
+	 * @return
+	 * An analysis of the chain 0 -> 1 -> 2 -> 3 using the given function.
+	 */
+	private static MonotoneFramework<String, SignTotalFunction, SignPowerSet> framework(
+			MonotoneFunction<String, SignTotalFunction> function)
+	{
+		return new MonotoneFramework<String, SignTotalFunction, SignPowerSet>(SignAssignment.state(Sign.PLUS),
+				MonotoneFrameworkTest.graph(4, new String[]{"skip", "skip", "skip"}, 0,1, 1,2, 2,3), 0, true, function);
+	}
+
+//Private classes
+	private static class TestError extends Error{
+		private static final long serialVersionUID = 1L;
+	}
+}
@@ -0,0 +1,87 @@
+package dk.emoun.progysis.monotoneFramework;
+
+import org.testng.annotations.*;
+import static org.testng.Assert.*;
+
+import java.util.List;
+
+import dk.emoun.progysis.TestUtilities;
+import dk.emoun.progysis.lattices.SignPowerSet;
+import dk.emoun.progysis.lattices.SignTotalFunction;
+import dk.emoun.progysis.worklist.AbstractWorklistAlgorithm;
+import dk.emoun.progysis.worklist.ConstraintSystem;
+import dk.emoun.progysis.worklist.FIFOWorklist;
+
+public class CollapsedConstraintSystemTest {
+
+	@Test
+	public void chainIsCollapsedIntoOneConstraint(){
+		MonotoneFramework<String, SignTotalFunction, SignPowerSet> f = MonotoneFrameworkTest.framework(4, 0, true,
+				new String[]{"x=MINUS", "x+=ZERO", "y=PLUS"}, 0,1, 1,2, 2,3);
+		CollapsedConstraintSystem<String, SignTotalFunction> collapsed = f.collapsedConstraintSystem();
+
+		assertEquals(collapsed.getConstraintSystem().getNumberOfFlowVariables(), 2);
+		assertEquals(collapsed.getFlowVariableOf(1), -1);
+		assertEquals(collapsed.getFlowVariableOf(2), -1);
+		assertNotEquals(collapsed.getFlowVariableOf(3), -1);
+		assertSameValues(f, collapsed);
+	}
+
+	@Test
+	public void loopKeepsJoinPoint(){
+		//0 -> 1 -> 2 -> 3 -> 1, where only 1 is a join point
+		MonotoneFramework<String, SignTotalFunction, SignPowerSet> f = MonotoneFrameworkTest.framework(4, 0, true,
+				new String[]{"skip", "x+=ZERO", "x+=MINUS", "skip"}, 0,1, 1,2, 2,3, 3,1);
+		CollapsedConstraintSystem<String, SignTotalFunction> collapsed = f.collapsedConstraintSystem();
+
+		assertEquals(collapsed.getConstraintSystem().getNumberOfFlowVariables(), 2);
+		assertNotEquals(collapsed.getFlowVariableOf(1), -1);
+		assertSameValues(f, collapsed);
+	}
+
+	@Test
+	public void cycleOfInteriorStatesKeepsOneFlowVariable(){
+		//1 -> 2 -> 1 is not reachable from q0 and has no join or branch points
+		MonotoneFramework<String, SignTotalFunction, SignPowerSet> f = MonotoneFrameworkTest.framework(3, 0, true,
+				new String[]{"x=ZERO", "skip"}, 1,2, 2,1);
+		CollapsedConstraintSystem<String, SignTotalFunction> collapsed = f.collapsedConstraintSystem();
+
+		assertEquals(collapsed.getConstraintSystem().getNumberOfFlowVariables(), 2);
+		assertTrue(collapsed.getFlowVariableOf(1) != -1 || collapsed.getFlowVariableOf(2) != -1);
+		assertSameValues(f, collapsed);
+	}
+
+	@Test
+	public void branchesAndJoinsKeepFlowVariables(){
+		//0 branches to the chains 1 -> 2 and 3 -> 4, which join at 5
+		MonotoneFramework<String, SignTotalFunction, SignPowerSet> f = MonotoneFrameworkTest.framework(6, 0, true,
+				new String[]{"x=ZERO", "y=MINUS", "x=MINUS", "y=PLUS", "skip", "skip"},
+				0,1, 1,2, 0,3, 3,4, 2,5, 4,5);
+		CollapsedConstraintSystem<String, SignTotalFunction> collapsed = f.collapsedConstraintSystem();
+
+		assertEquals(collapsed.getConstraintSystem().getNumberOfFlowVariables(), 2);
+		assertSameValues(f, collapsed);
+	}
+
+//Private methods
+	/**
+	 * Solves both the regular and the collapsed constraint systems of the given framework,
+	 * and asserts that the states have the same values in both.
+	 * @param f
+	 * @param collapsed
+	 */
+	private static void assertSameValues(	MonotoneFramework<String, SignTotalFunction, SignPowerSet> f,
+											CollapsedConstraintSystem<String, SignTotalFunction> collapsed)
+	{
+		ConstraintSystem<SignTotalFunction> cS = f.constraintSystem();
+		AbstractWorklistAlgorithm.solveConstraintSystem(new FIFOWorklist(), cS);
+		AbstractWorklistAlgorithm.solveConstraintSystem(new FIFOWorklist(), collapsed.getConstraintSystem());
+
+		List<SignTotalFunction> values = collapsed.getValues();
+		assertEquals(values.size(), collapsed.getNumberOfStates());
+		for(int state = 0; state<cS.getNumberOfFlowVariables(); state++){
+			TestUtilities.assertEquals(cS.getValueOf(state), values.get(state));
+			TestUtilities.assertEquals(cS.getValueOf(state), collapsed.getValueAt(state));
+		}
+	}
+}
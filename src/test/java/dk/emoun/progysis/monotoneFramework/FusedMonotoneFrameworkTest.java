@@ -0,0 +1,156 @@
+package dk.emoun.progysis.monotoneFramework;
+
+import org.testng.annotations.*;
+import static org.testng.Assert.*;
+
+import java.util.Random;
+
+import dk.emoun.progysis.CSRProgramGraph;
+import dk.emoun.progysis.TestUtilities;
+import dk.emoun.progysis.lattices.Evaluable;
+import dk.emoun.progysis.lattices.ProductElement;
+import dk.emoun.progysis.lattices.Sign;
+import dk.emoun.progysis.lattices.SignPowerSet;
+import dk.emoun.progysis.lattices.SignTotalFunction;
+import dk.emoun.progysis.worklist.AbstractWorklistAlgorithm;
+import dk.emoun.progysis.worklist.ConstraintSystem;
+import dk.emoun.progysis.worklist.FIFOWorklist;
+
+public class FusedMonotoneFrameworkTest {
+
+	private static final String[] ACTIONS = {"x=PLUS", "x+=MINUS", "y=ZERO", "y+=PLUS", "skip"};
+
+	/**
+	 * Leaves the state unchanged for every action.
+	 */
+	private static final MonotoneFunction<String, SignTotalFunction> IDENTITY = new MonotoneFunction<String, SignTotalFunction>(){
+		@Override
+		public boolean applicableFor(String action) {
+			return true;
+		}
+
+		@Override
+		public SignTotalFunction apply(String action, Evaluable<SignTotalFunction> state) {
+			return state.value();
+		}
+	};
+
+	@DataProvider
+	public Object[][] seeds(){
+		return new Object[][]{{1L}, {2L}, {3L}, {4L}, {5L}};
+	}
+
+	@Test(dataProvider = "seeds")
+	public void fusedResultsEqualSeparateResults(long seed){
+		CSRProgramGraph<String> graph = randomGraph(seed, 30, 60);
+		for(boolean forward: new boolean[]{true, false}){
+			MonotoneFramework<String, SignTotalFunction, SignPowerSet>[] frameworks = array(
+				new MonotoneFramework<String, SignTotalFunction, SignPowerSet>(
+						SignAssignment.state(Sign.PLUS), graph, 0, forward, new SignAssignment()),
+				new MonotoneFramework<String, SignTotalFunction, SignPowerSet>(
+						SignAssignment.state(Sign.ZERO, Sign.MINUS), graph, 0, forward, new SignAssignment()),
+				new MonotoneFramework<String, SignTotalFunction, SignPowerSet>(
+						SignAssignment.state(Sign.MINUS), graph, 0, forward, IDENTITY)
+			);
+			FusedMonotoneFramework<String> fused = new FusedMonotoneFramework<String>(frameworks);
+			ConstraintSystem<ProductElement> fusedCS = fused.constraintSystem();
+			AbstractWorklistAlgorithm.solveConstraintSystem(new FIFOWorklist(), fusedCS);
+
+			assertEquals(fused.getNumberOfFrameworks(), frameworks.length);
+			for(int i = 0; i<frameworks.length; i++){
+				ConstraintSystem<SignTotalFunction> cS = frameworks[i].constraintSystem();
+				AbstractWorklistAlgorithm.solveConstraintSystem(new FIFOWorklist(), cS);
+				for(int state = 0; state<graph.getNumberOfStates(); state++){
+					SignTotalFunction value = fused.getValueOf(fusedCS, i, state);
+					TestUtilities.assertEquals(cS.getValueOf(state), value);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void unchangedComponentsAreNotReapplied(){
+		//0 -> 1 -> 2 -> 1 and 2 -> 3, where the loop keeps adding signs to the first framework's component
+		CSRProgramGraph<String> graph = MonotoneFrameworkTest.graph(4, 
+				new String[]{"x=PLUS", "x+=MINUS", "y+=ZERO", "skip"}, 0,1, 1,2, 2,1, 2,3);
+		SignAssignment changing = new SignAssignment(), unchanging = new SignAssignment(){
+			@Override
+			public SignTotalFunction apply(String action, Evaluable<SignTotalFunction> state) {
+				return super.apply("skip", state);
+			}
+		};
+		FusedMonotoneFramework<String> fused = new FusedMonotoneFramework<String>(
+				new MonotoneFramework<String, SignTotalFunction, SignPowerSet>(
+						SignAssignment.state(Sign.PLUS), graph, 0, true, changing),
+				new MonotoneFramework<String, SignTotalFunction, SignPowerSet>(
+						SignAssignment.state(Sign.ZERO), graph, 0, true, unchanging));
+		AbstractWorklistAlgorithm.solveConstraintSystem(new FIFOWorklist(), fused.constraintSystem());
+		
+		//The component of the second framework is the same instance after every join, so each transition 
+		//is applied to it once, except 2 -> 1, which is applied again when 2 gets its first value
+		assertEquals(unchanging.applications, 5);
+		assertTrue(changing.applications > unchanging.applications);
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void frameworksMustHaveSameTargets(){
+		new FusedMonotoneFramework<String>(
+				MonotoneFrameworkTest.framework(3, 0, true, 0,1, 1,2),
+				MonotoneFrameworkTest.framework(3, 0, true, 0,1, 0,2));
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void frameworksMustHaveSameActions(){
+		new FusedMonotoneFramework<String>(
+				MonotoneFrameworkTest.framework(3, 0, true, new String[]{"skip", "skip"}, 0,1, 1,2),
+				MonotoneFrameworkTest.framework(3, 0, true, new String[]{"skip", "x=PLUS"}, 0,1, 1,2));
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void frameworksMustHaveSameDirection(){
+		new FusedMonotoneFramework<String>(
+				MonotoneFrameworkTest.framework(3, 0, true, 0,1, 1,2),
+				MonotoneFrameworkTest.framework(3, 0, false, 0,1, 1,2));
+	}
+
+	@Test
+	public void frameworksWithEqualGraphsAreFused(){
+		FusedMonotoneFramework<String> fused = new FusedMonotoneFramework<String>(
+				MonotoneFrameworkTest.framework(3, 0, true, 0,1, 1,2),
+				MonotoneFrameworkTest.framework(3, 0, true, 0,1, 1,2));
+
+		assertEquals(fused.getNumberOfFrameworks(), 2);
+	}
+
+//Private methods
+	/**
+	 * @param elements
+	 * @return
+	 * The given elements as an array, whose type is inferred, unlike array creation expressions of generic types.
+	 * The array is created by the caller with the erasure of the inferred type, so it can be returned safely.
+	 */
+	@SafeVarargs
+	@SuppressWarnings("varargs")
+	private static <T> T[] array(T... elements){
+		return elements;
+	}
+	
+	/**
+	 * @param seed
+	 * @param numberOfStates
+	 * @param numberOfTransitions
+	 * @return
+	 * A graph of random transitions with random actions from {@link #ACTIONS}.
+	 */
+	private static CSRProgramGraph<String> randomGraph(long seed, int numberOfStates, int numberOfTransitions){
+		Random random = new Random(seed);
+		String[] actions = new String[numberOfTransitions];
+		int[] edges = new int[2*numberOfTransitions];
+		for(int t = 0; t<numberOfTransitions; t++){
+			actions[t] = ACTIONS[random.nextInt(ACTIONS.length)];
+			edges[2*t] = random.nextInt(numberOfStates);
+			edges[2*t+1] = random.nextInt(numberOfStates);
+		}
+		return MonotoneFrameworkTest.graph(numberOfStates, actions, edges);
+	}
+}
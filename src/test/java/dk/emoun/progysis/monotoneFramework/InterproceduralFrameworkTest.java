@@ -0,0 +1,165 @@
+package dk.emoun.progysis.monotoneFramework;
+
+import org.testng.annotations.*;
+import static org.testng.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import dk.emoun.progysis.TestUtilities;
+import dk.emoun.progysis.lattices.Sign;
+import dk.emoun.progysis.lattices.SignPowerSet;
+import dk.emoun.progysis.lattices.SignTotalFunction;
+
+public class InterproceduralFrameworkTest {
+
+	/**
+	 * The procedures called by actions of the form {@code "call:<name>"},
+	 * where anything after a '#' in the name is ignored.
+	 */
+	private Map<String, Procedure<String>> procedures;
+
+	/**
+	 * Enters the callee with the state at the call site, and returns with the exit state of the callee.
+	 */
+	private CallHandler<String, SignTotalFunction> calls;
+
+	/**
+	 * Recursive procedure: 0 -> 2 returns directly, while 0 -> 1 -> 2 recurses and then adds MINUS to x.
+	 */
+	private Procedure<String> recursive;
+
+	@BeforeMethod
+	public void setUp(){
+		procedures = new HashMap<String, Procedure<String>>();
+		calls = new CallHandler<String, SignTotalFunction>(){
+			@Override
+			public Procedure<String> calleeOf(String action) {
+				if(!action.startsWith("call:")){
+					return null;
+				}
+				int end = action.indexOf('#');
+				return procedures.get(action.substring(5, (end < 0)? action.length() : end));
+			}
+
+			@Override
+			public SignTotalFunction enter(String call, SignTotalFunction callSiteState) {
+				return callSiteState;
+			}
+
+			@Override
+			public SignTotalFunction exit(String call, SignTotalFunction callSiteState, SignTotalFunction calleeExitState) {
+				return calleeExitState;
+			}
+		};
+		recursive = procedure("R", 3, 0, 2, new String[]{"skip", "call:R", "x+=MINUS"}, 0,2, 0,1, 1,2);
+	}
+
+	@Test
+	public void recursiveProcedureIsAnalysedUntilItsSummaryStabilises(){
+		InterproceduralFramework<String, SignTotalFunction, SignPowerSet> f = framework(0);
+
+		TestUtilities.assertEquals(SignAssignment.state(Sign.PLUS, Sign.MINUS),
+				f.summaryOf(recursive, SignAssignment.state(Sign.PLUS)));
+		assertEquals(f.getNumberOfSummaries(), 1);
+	}
+
+	@Test
+	public void callSitesShareSummaryWithoutCallStrings(){
+		Procedure<String> main = procedure("main", 3, 0, 2, new String[]{"call:R#1", "call:R#2"}, 0,1, 1,2);
+		InterproceduralFramework<String, SignTotalFunction, SignPowerSet> f = framework(0);
+
+		TestUtilities.assertEquals(SignAssignment.state(Sign.PLUS, Sign.MINUS),
+				f.summaryOf(main, SignAssignment.state(Sign.PLUS)));
+		//The second call enters R with the states its call site takes while the first summary stabilises:
+		//bottom, {PLUS}, which shares the context of the first call, and {PLUS, MINUS}
+		assertEquals(f.getNumberOfSummaries(), 4);
+	}
+
+	@Test
+	public void callStringsSeparateCallSites(){
+		Procedure<String> main = procedure("main", 3, 0, 2, new String[]{"call:R#1", "call:R#2"}, 0,1, 0,2);
+		InterproceduralFramework<String, SignTotalFunction, SignPowerSet> withoutCallStrings = framework(0);
+		InterproceduralFramework<String, SignTotalFunction, SignPowerSet> withCallStrings = framework(1);
+
+		withoutCallStrings.solve(main, SignAssignment.state(Sign.PLUS));
+		//main, and R entered with {PLUS}
+		assertEquals(withoutCallStrings.getNumberOfSummaries(), 2);
+
+		TestUtilities.assertEquals(SignAssignment.state(Sign.PLUS, Sign.MINUS),
+				withCallStrings.summaryOf(main, SignAssignment.state(Sign.PLUS)));
+		//main, R after call:R#1, R after call:R#2, and R after its recursive call:R
+		assertEquals(withCallStrings.getNumberOfSummaries(), 4);
+	}
+
+	@Test
+	public void recursionTerminatesWithLongerCallStrings(){
+		Procedure<String> main = procedure("main", 2, 0, 1, new String[]{"call:R#1"}, 0,1);
+
+		for(int k = 1; k<=3; k++){
+			InterproceduralFramework<String, SignTotalFunction, SignPowerSet> f = framework(k);
+
+			TestUtilities.assertEquals(SignAssignment.state(Sign.PLUS, Sign.MINUS),
+					f.summaryOf(main, SignAssignment.state(Sign.PLUS)));
+			//main, and R after [call:R#1], [call:R#1, call:R], ..., [call:R x k]
+			assertEquals(f.getNumberOfSummaries(), 2 + k, "k = " + k);
+		}
+	}
+
+	@Test
+	public void summariesAreReusedBetweenSolves(){
+		InterproceduralFramework<String, SignTotalFunction, SignPowerSet> f = framework(0);
+		SignTotalFunction first = f.summaryOf(recursive, SignAssignment.state(Sign.PLUS));
+
+		assertSame(f.summaryOf(recursive, SignAssignment.state(Sign.PLUS)), first);
+		assertEquals(f.getNumberOfSummaries(), 1);
+
+		f.clearSummaries();
+		assertEquals(f.getNumberOfSummaries(), 0);
+		TestUtilities.assertEquals(first, f.summaryOf(recursive, SignAssignment.state(Sign.PLUS)));
+	}
+
+	@Test
+	public void entryStatesEqualInLatticeShareContext(){
+		//Maps x and y like SignAssignment.state(Sign.PLUS), but has another default
+		SignTotalFunction otherDefault = new SignTotalFunction(new SignPowerSet(Sign.PLUS), new String[]{"x", "y"})
+											.getUpdateValue("y", new SignPowerSet());
+		assertNotEquals(otherDefault, SignAssignment.state(Sign.PLUS));
+		InterproceduralFramework<String, SignTotalFunction, SignPowerSet> f = framework(0);
+
+		f.solve(recursive, SignAssignment.state(Sign.PLUS));
+		f.solve(recursive, otherDefault);
+
+		assertEquals(f.getNumberOfSummaries(), 1);
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void callStringLengthMustNotBeNegative(){
+		framework(-1);
+	}
+
+//Private methods
+	private InterproceduralFramework<String, SignTotalFunction, SignPowerSet> framework(int callStringLength){
+		return new InterproceduralFramework<String, SignTotalFunction, SignPowerSet>(
+				calls, callStringLength, new SignAssignment());
+	}
+
+	/**
+	 * Constructs a procedure and registers it under the given name.
+	 * @param name
+	 * @param numberOfStates
+	 * @param entry
+	 * @param exit
+	 * @param actions
+	 * The action of each transition.
+	 * @param edges
+	 * Pairs of source and target states.
+	 * @return
+	 */
+	private Procedure<String> procedure(String name, int numberOfStates, int entry, int exit, String[] actions, int... edges){
+		Procedure<String> p = new Procedure<String>(name,
+				MonotoneFrameworkTest.graph(numberOfStates, actions, edges), entry, exit);
+		procedures.put(name, p);
+		return p;
+	}
+}
@@ -3,10 +3,381 @@ package dk.emoun.progysis.monotoneFramework;
 import org.testng.annotations.*;
 import static org.testng.Assert.*;
 
-import dk.emoun.progysis.lattices.IncomparableLatticeException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import dk.emoun.progysis.CSRProgramGraph;
+import dk.emoun.progysis.TestUtilities;
+import dk.emoun.progysis.lattices.Evaluable;
+import dk.emoun.progysis.lattices.Interval;
+import dk.emoun.progysis.lattices.IntervalTotalFunction;
+import dk.emoun.progysis.lattices.Sign;
+import dk.emoun.progysis.lattices.SignPowerSet;
+import dk.emoun.progysis.lattices.SignTotalFunction;
+import dk.emoun.progysis.worklist.AbstractWorklistAlgorithm;
+import dk.emoun.progysis.worklist.ConstraintSystem;
+import dk.emoun.progysis.worklist.DeltaWorklistAlgorithm;
+import dk.emoun.progysis.worklist.DistributiveFunction;
+import dk.emoun.progysis.worklist.FIFOWorklist;
+import dk.emoun.progysis.worklist.FlowVariableConstraint;
+import dk.emoun.progysis.worklist.PriorityWorklist;
+import dk.emoun.progysis.worklist.WideningWorklistAlgorithm;
+
+import org.jgrapht.graph.SimpleDirectedGraph;
 
 public class MonotoneFrameworkTest {
 	
-//Helper methods
+	@Test
+	public void priorityWorklistExtractsInReversePostorder(){
+		//0 -> 1 -> 2 -> 3 with a loop 3 -> 1, and 4 unreachable
+		MonotoneFramework<String, SignTotalFunction, SignPowerSet> f = framework(5, 0, true, 0,1, 1,2, 2,3, 3,1, 4,2);
+		PriorityWorklist w = f.priorityWorklist();
+		for(int i = 4; i>=0; i--){
+			w.insert(i);
+		}
+		
+		for(int i = 0; i<5; i++){
+			assertEquals(w.extractNextFlowVariable(), i);
+		}
+	}
+	
+	@Test
+	public void priorityWorklistOfBackwardAnalysisFollowsReversedEdges(){
+		//0 -> 1 -> 2, analysed backwards from 2
+		MonotoneFramework<String, SignTotalFunction, SignPowerSet> f = framework(3, 2, false, 0,1, 1,2);
+		PriorityWorklist w = f.priorityWorklist();
+		for(int i = 0; i<3; i++){
+			w.insert(i);
+		}
+		
+		assertEquals(w.extractNextFlowVariable(), 2);
+		assertEquals(w.extractNextFlowVariable(), 1);
+		assertEquals(w.extractNextFlowVariable(), 0);
+	}
+	
+	@Test
+	public void priorityWorklistRanksStatesAfterAllTheirPredecessorsOnAcyclicGraphs(){
+		//A diamond 0 -> {1,2} -> 3
+		MonotoneFramework<String, SignTotalFunction, SignPowerSet> f = framework(4, 0, true, 0,1, 0,2, 1,3, 2,3);
+		PriorityWorklist w = f.priorityWorklist();
+		for(int i = 3; i>=0; i--){
+			w.insert(i);
+		}
+		
+		assertEquals(w.extractNextFlowVariable(), 0);
+		w.extractNextFlowVariable();
+		w.extractNextFlowVariable();
+		assertEquals(w.extractNextFlowVariable(), 3);
+	}
+	
+	@Test
+	public void wideningPointsAreLoopHeads(){
+		//0 -> 1 -> 2 -> 1 and 2 -> 3
+		MonotoneFramework<String, SignTotalFunction, SignPowerSet> f = framework(4, 0, true, 0,1, 1,2, 2,1, 2,3);
+		BitSet expected = new BitSet();
+		expected.set(1);
+		
+		assertEquals(f.wideningPoints(), expected);
+	}
+	
+	@Test
+	public void wideningPointsIncludeUnreachableLoopHeads(){
+		//0 -> 1, and the cycle 2 -> 3 -> 2 that is not reachable from 0
+		MonotoneFramework<String, SignTotalFunction, SignPowerSet> f = framework(4, 0, true, 0,1, 2,3, 3,2);
+		BitSet wideningPoints = f.wideningPoints();
+		
+		assertEquals(wideningPoints.cardinality(), 1);
+		assertTrue(wideningPoints.get(2) || wideningPoints.get(3));
+	}
+	
+	@Test(timeOut = 10000)
+	public void intervalAnalysisIsSolvedByWideningAtLoopHeads(){
+		//'i = 0; while(i < 100) i++', where 1 is the loop head, 2 the body and 3 after the loop
+		MonotoneFunction<String, IntervalTotalFunction> counting = new MonotoneFunction<String, IntervalTotalFunction>(){
+			@Override
+			public boolean applicableFor(String action) {
+				return true;
+			}
+			
+			@Override
+			public IntervalTotalFunction apply(String action, Evaluable<IntervalTotalFunction> state) {
+				IntervalTotalFunction s = state.value();
+				Interval i = s.getValue("i");
+				switch(action){
+				case "i=0":		return s.getUpdateValue("i", new Interval(0, 0));
+				case "i<100":	return s.getUpdateValue("i", i.atMost(99));
+				case "i++":		return s.getUpdateValue("i", i.plus(1));
+				default:		return s.getUpdateValue("i", i.atLeast(100));
+				}
+			}
+		};
+		MonotoneFramework<String, IntervalTotalFunction, Interval> f = new MonotoneFramework<String, IntervalTotalFunction, Interval>(
+				new IntervalTotalFunction(new Interval(), "i"), 
+				graph(4, new String[]{"i=0", "i<100", "i++", "i>=100"}, 0,1, 1,2, 2,1, 1,3), 
+				0, true, counting);
+		BitSet wideningPoints = f.wideningPoints();
+		
+		ConstraintSystem<IntervalTotalFunction> widened = f.constraintSystem();
+		WideningWorklistAlgorithm.solveConstraintSystem(new FIFOWorklist(), widened, wideningPoints);
+		ConstraintSystem<IntervalTotalFunction> narrowed = f.constraintSystem();
+		WideningWorklistAlgorithm.solveConstraintSystem(new FIFOWorklist(), narrowed, wideningPoints, 1);
+		
+		assertEquals(wideningPoints.cardinality(), 1);
+		assertTrue(wideningPoints.get(1));
+		assertEquals(widened.getValueOf(1).getValue("i"), new Interval(0, Interval.INFINITY));
+		assertEquals(widened.getValueOf(2).getValue("i"), new Interval(0, 99));
+		assertEquals(widened.getValueOf(3).getValue("i"), new Interval(100, Interval.INFINITY));
+		assertEquals(narrowed.getValueOf(1).getValue("i"), new Interval(0, 100));
+		assertEquals(narrowed.getValueOf(3).getValue("i"), new Interval(100, 100));
+	}
+	
+	@Test
+	public void priorityWorklistExtractsUnreachableStatesInReversePostorder(){
+		//0 -> 1, and 3 -> 2 not reachable from 0
+		MonotoneFramework<String, SignTotalFunction, SignPowerSet> f = framework(4, 0, true, 0,1, 3,2);
+		PriorityWorklist w = f.priorityWorklist();
+		for(int i = 0; i<4; i++){
+			w.insert(i);
+		}
+		
+		assertEquals(w.extractNextFlowVariable(), 0);
+		assertEquals(w.extractNextFlowVariable(), 1);
+		assertEquals(w.extractNextFlowVariable(), 3);
+		assertEquals(w.extractNextFlowVariable(), 2);
+	}
+	
+	@Test
+	public void seesChangesToJGraphTGraphAfterConstruction(){
+		SimpleDirectedGraph<Integer, String> graph = new SimpleDirectedGraph<Integer, String>(String.class);
+		for(int i = 0; i<3; i++){
+			graph.addVertex(i);
+		}
+		graph.addEdge(0, 1, "skip#0");
+		MonotoneFramework<String, SignTotalFunction, SignPowerSet> f = new MonotoneFramework<String, SignTotalFunction, SignPowerSet>(
+				SignAssignment.state(Sign.PLUS), graph, 0, true, new SignAssignment());
+		graph.addEdge(1, 2, "x=MINUS#1");
+		
+		ConstraintSystem<SignTotalFunction> cS = f.constraintSystem();
+		AbstractWorklistAlgorithm.solveConstraintSystem(new FIFOWorklist(), cS);
+		
+		assertEquals(cS.getValueOf(2).getValue("x"), new SignPowerSet(Sign.MINUS));
+		assertEquals(cS.getNumberOfConstraintsOf(2), 1);
+	}
+	
+	@Test
+	public void reusesSnapshotOfJGraphTGraphUntilItChanges(){
+		SimpleDirectedGraph<Integer, String> graph = new SimpleDirectedGraph<Integer, String>(String.class);
+		for(int i = 0; i<3; i++){
+			graph.addVertex(i);
+		}
+		graph.addEdge(0, 1, "skip#0");
+		MonotoneFramework<String, SignTotalFunction, SignPowerSet> f = new MonotoneFramework<String, SignTotalFunction, SignPowerSet>(
+				SignAssignment.state(Sign.PLUS), graph, 0, true, new SignAssignment());
+		ConstraintSystem<SignTotalFunction> cS = f.constraintSystem();
+		assertSame(f.getGraphToAnalyse(), f.getGraphToAnalyse());
+		
+		//A replaced edge keeps the numbers of edges, so it is only seen when reported
+		graph.removeEdge("skip#0");
+		graph.addEdge(0, 2, "skip#1");
+		f.transitionRemoved(cS, 0, 1);
+		f.transitionAdded(cS, 0, 2, "skip#1");
+		assertEquals(f.getGraphToAnalyse().getTarget(0), 2);
+		
+		//An unreported edge changes the number of edges
+		graph.addEdge(1, 2, "x=MINUS#2");
+		assertEquals(f.getGraphToAnalyse().getNumberOfTransitions(), 2);
+	}
+	
+	@Test
+	public void analysesSnapshotOfJGraphTGraph(){
+		SimpleDirectedGraph<Integer, String> graph = new SimpleDirectedGraph<Integer, String>(String.class);
+		for(int i = 0; i<3; i++){
+			graph.addVertex(i);
+		}
+		graph.addEdge(0, 1, "skip#0");
+		MonotoneFramework<String, SignTotalFunction, SignPowerSet> f = new MonotoneFramework<String, SignTotalFunction, SignPowerSet>(
+				SignAssignment.state(Sign.PLUS), CSRProgramGraph.fromGraph(graph), 0, true, new SignAssignment());
+		graph.addEdge(1, 2, "x=MINUS#1");
+		
+		ConstraintSystem<SignTotalFunction> cS = f.constraintSystem();
+		
+		assertEquals(cS.getNumberOfConstraintsOf(2), 0);
+	}
+	
+	@Test
+	public void removingOneOfParallelTransitionsKeepsTheOther(){
+		//0 -> 1 twice, assigning different signs
+		MonotoneFramework<String, SignTotalFunction, SignPowerSet> f = 
+				framework(2, 0, true, new String[]{"x=MINUS", "x=ZERO"}, 0,1, 0,1);
+		ConstraintSystem<SignTotalFunction> cS = f.constraintSystem();
+		AbstractWorklistAlgorithm.solveConstraintSystem(new FIFOWorklist(), cS);
+		assertEquals(cS.getValueOf(1).getValue("x"), new SignPowerSet(Sign.MINUS, Sign.ZERO));
+		
+		int changed = f.transitionRemoved(cS, 0, 1, "x=MINUS");
+		AbstractWorklistAlgorithm.resolveAfterRemoval(new FIFOWorklist(), cS, changed);
+		
+		assertEquals(cS.getNumberOfConstraintsOf(1), 1);
+		assertEquals(cS.getValueOf(1).getValue("x"), new SignPowerSet(Sign.ZERO));
+		assertEquals(cS.getVariablesInfluencedBy(0), Arrays.asList(1));
+	}
+	
+	@Test
+	public void removingAllTransitionsBetweenStates(){
+		MonotoneFramework<String, SignTotalFunction, SignPowerSet> f = 
+				framework(2, 0, true, new String[]{"x=MINUS", "x=ZERO"}, 0,1, 0,1);
+		ConstraintSystem<SignTotalFunction> cS = f.constraintSystem();
+		AbstractWorklistAlgorithm.solveConstraintSystem(new FIFOWorklist(), cS);
+		
+		int changed = f.transitionRemoved(cS, 0, 1);
+		AbstractWorklistAlgorithm.resolveAfterRemoval(new FIFOWorklist(), cS, changed);
+		
+		assertEquals(cS.getNumberOfConstraintsOf(1), 0);
+		assertTrue(cS.getValueOf(1).isBottom());
+		assertTrue(cS.getVariablesInfluencedBy(0).isEmpty());
+	}
+	
+	@Test
+	public void removingTransitionOfBackwardAnalysis(){
+		//0 -> 1 -> 2 and 0 -> 2, analysed backwards from 2
+		MonotoneFramework<String, SignTotalFunction, SignPowerSet> f = 
+				framework(3, 2, false, new String[]{"x=MINUS", "skip", "x=ZERO"}, 0,1, 1,2, 0,2);
+		ConstraintSystem<SignTotalFunction> cS = f.constraintSystem();
+		AbstractWorklistAlgorithm.solveConstraintSystem(new FIFOWorklist(), cS);
+		assertEquals(cS.getValueOf(0).getValue("x"), new SignPowerSet(Sign.MINUS, Sign.ZERO));
+		
+		int changed = f.transitionRemoved(cS, 0, 2, "x=ZERO");
+		AbstractWorklistAlgorithm.resolveAfterRemoval(new FIFOWorklist(), cS, changed);
+		
+		assertEquals(changed, 0);
+		assertEquals(cS.getValueOf(0).getValue("x"), new SignPowerSet(Sign.MINUS));
+	}
+	
+	@Test
+	public void constraintsOfDistributiveFunctionsAreDistributive(){
+		DistributiveMonotoneFunction<String, SignTotalFunction> distributive = new DistributiveMonotoneFunction<String, SignTotalFunction>(){
+			@Override
+			public boolean applicableFor(String action) {
+				return true;
+			}
+			
+			@Override
+			public SignTotalFunction apply(String action, Evaluable<SignTotalFunction> state) {
+				return state.value();
+			}
+		};
+		MonotoneFramework<String, SignTotalFunction, SignPowerSet> f = new MonotoneFramework<String, SignTotalFunction, SignPowerSet>(
+				SignAssignment.state(Sign.PLUS), graph(2, new String[]{"skip"}, 0,1), 0, true, distributive);
+		ConstraintSystem<SignTotalFunction> cS = f.constraintSystem();
+		
+		FlowVariableConstraint<SignTotalFunction> c = (FlowVariableConstraint<SignTotalFunction>) cS.getConstraintsOf(1).get(0);
+		assertTrue(c.getConstraintCalculator() instanceof DistributiveFunction);
+		
+		cS = framework(2, 0, true, 0,1).constraintSystem();
+		c = (FlowVariableConstraint<SignTotalFunction>) cS.getConstraintsOf(1).get(0);
+		assertFalse(c.getConstraintCalculator() instanceof DistributiveFunction);
+	}
+
+	@Test
+	public void deltaWorklistAlgorithmGivesDistributiveFunctionsOnlyAddedValues(){
+		//0 -> 1 -> 2 -> 1 and 1 -> 3, where the loop adds ZERO to the PLUS of 'x'
+		class DistributiveSignAssignment extends SignAssignment implements DistributiveMonotoneFunction<String, SignTotalFunction>{
+			List<SignPowerSet> exitSigns = new ArrayList<SignPowerSet>();
+			
+			@Override
+			public SignTotalFunction apply(String action, Evaluable<SignTotalFunction> state) {
+				if(action.equals("exit")){
+					exitSigns.add(state.value().getValue("x"));
+				}
+				return super.apply(action, state);
+			}
+		}
+		String[] actions = {"skip", "y=MINUS", "x+=ZERO", "exit"};
+		DistributiveSignAssignment distributive = new DistributiveSignAssignment();
+		ConstraintSystem<SignTotalFunction> actual = new MonotoneFramework<String, SignTotalFunction, SignPowerSet>(
+				SignAssignment.state(Sign.PLUS), graph(4, actions, 0,1, 1,2, 2,1, 1,3), 0, true, distributive).constraintSystem();
+		ConstraintSystem<SignTotalFunction> expected = new MonotoneFramework<String, SignTotalFunction, SignPowerSet>(
+				SignAssignment.state(Sign.PLUS), graph(4, actions, 0,1, 1,2, 2,1, 1,3), 0, true, new SignAssignment()).constraintSystem();
+		
+		DeltaWorklistAlgorithm.solveTotalFunctionConstraintSystem(new FIFOWorklist(), actual);
+		AbstractWorklistAlgorithm.solveConstraintSystem(new FIFOWorklist(), expected);
+		
+		TestUtilities.assertSameValues(expected, actual);
+		assertEquals(actual.getValueOf(3).getValue("x"), new SignPowerSet(Sign.PLUS, Sign.ZERO));
+		//The exit is first given PLUS, and then only the ZERO added by the loop
+		assertEquals(distributive.exitSigns, Arrays.asList(new SignPowerSet(Sign.PLUS), new SignPowerSet(Sign.ZERO)));
+	}
+	
+	@Test
+	public void onlyPureFunctionsAreMemoized(){
+		SignAssignment impure = new SignAssignment();
+		ConstraintSystem<SignTotalFunction> cS = new MonotoneFramework<String, SignTotalFunction, SignPowerSet>(
+				SignAssignment.state(Sign.PLUS), graph(2, new String[]{"x=MINUS"}, 0,1), 0, true, impure).constraintSystem();
+		cS.updateValueOf(0);
+		cS.evaluateValueOf(1);
+		cS.evaluateValueOf(1);
+		assertEquals(impure.applications, 2);
+
+		class PureSignAssignment extends SignAssignment implements PureMonotoneFunction<String, SignTotalFunction>{}
+		PureSignAssignment pure = new PureSignAssignment();
+		cS = new MonotoneFramework<String, SignTotalFunction, SignPowerSet>(
+				SignAssignment.state(Sign.PLUS), graph(2, new String[]{"x=MINUS"}, 0,1), 0, true, pure).constraintSystem();
+		cS.updateValueOf(0);
+		cS.evaluateValueOf(1);
+		cS.evaluateValueOf(1);
+		//Equal to the first state, so its result is also kept
+		cS.setValueOf(0, SignAssignment.state(Sign.PLUS));
+		cS.evaluateValueOf(1);
+		assertEquals(pure.applications, 1);
+	}
+
+	//Helper methods
+	/**
+	 * @param numberOfStates
+	 * @param q0
+	 * @param forward
+	 * @param edges
+	 * Pairs of source and target states. All transitions have the action "skip".
+	 * @return
+	 * A sign analysis of the given graph.
+	 */
+	static MonotoneFramework<String, SignTotalFunction, SignPowerSet> framework(int numberOfStates, int q0, boolean forward, int... edges){
+		String[] actions = new String[edges.length/2];
+		Arrays.fill(actions, "skip");
+		return framework(numberOfStates, q0, forward, actions, edges);
+	}
+	
+	/**
+	 * @param numberOfStates
+	 * @param q0
+	 * @param forward
+	 * @param actions
+	 * The action of each transition.
+	 * @param edges
+	 * Pairs of source and target states.
+	 * @return
+	 * A sign analysis of the given graph, where 'x' is {@link Sign#PLUS} at q0.
+	 */
+	static MonotoneFramework<String, SignTotalFunction, SignPowerSet> framework(int numberOfStates, int q0, boolean forward, String[] actions, int... edges){
+		return new MonotoneFramework<String, SignTotalFunction, SignPowerSet>(
+				SignAssignment.state(Sign.PLUS), graph(numberOfStates, actions, edges), q0, forward, new SignAssignment());
+	}
 	
+	/**
+	 * @param numberOfStates
+	 * @param actions
+	 * The action of each transition.
+	 * @param edges
+	 * Pairs of source and target states.
+	 * @return
+	 */
+	static CSRProgramGraph<String> graph(int numberOfStates, String[] actions, int... edges){
+		int[] sources = new int[edges.length/2], targets = new int[edges.length/2];
+		for(int i = 0; i<sources.length; i++){
+			sources[i] = edges[2*i];
+			targets[i] = edges[2*i+1];
+		}
+		return new CSRProgramGraph<String>(numberOfStates, sources, targets, actions);
+	}
 }
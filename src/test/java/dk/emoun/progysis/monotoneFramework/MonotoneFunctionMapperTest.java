@@ -0,0 +1,89 @@
+package dk.emoun.progysis.monotoneFramework;
+
+import org.testng.annotations.*;
+import static org.testng.Assert.*;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import dk.emoun.progysis.lattices.Evaluable;
+import dk.emoun.progysis.lattices.Sign;
+import dk.emoun.progysis.lattices.SignTotalFunction;
+
+public class MonotoneFunctionMapperTest {
+	
+	/**
+	 * Applicable for the actions starting with a given prefix, counting how often it is asked.
+	 */
+	private static class Prefixed implements MonotoneFunction<String, SignTotalFunction>{
+		
+		final String prefix;
+		
+		int asked;
+		
+		Prefixed(String prefix){
+			this.prefix = prefix;
+		}
+		
+		@Override
+		public boolean applicableFor(String action) {
+			asked++;
+			return action.startsWith(prefix);
+		}
+		
+		@Override
+		public SignTotalFunction apply(String action, Evaluable<SignTotalFunction> state) {
+			return state.value();
+		}
+	}
+	
+	@Test
+	public void findsApplicableMember(){
+		Prefixed a = new Prefixed("a"), b = new Prefixed("b");
+		MonotoneFunctionMapper<String, SignTotalFunction> mapper = new MonotoneFunctionMapper<String, SignTotalFunction>(a, b);
+		
+		assertSame(mapper.getApplicableFunction("a1"), a);
+		assertSame(mapper.getApplicableFunction("b1"), b);
+		assertNull(mapper.getApplicableFunction("c1"));
+		assertFalse(mapper.applicableFor("c1"));
+	}
+	
+	@Test(expectedExceptions = IllegalStateException.class)
+	public void applyingWithoutApplicableMemberThrows(){
+		MonotoneFunctionMapper<String, SignTotalFunction> mapper = 
+				new MonotoneFunctionMapper<String, SignTotalFunction>(new Prefixed("a"));
+		mapper.apply("b", SignAssignment.state(Sign.PLUS));
+	}
+	
+	@Test
+	public void classifiedActionsAskMembersOncePerKey(){
+		Prefixed a = new Prefixed("a"), b = new Prefixed("b");
+		MonotoneFunctionMapper<String, SignTotalFunction> mapper = new MonotoneFunctionMapper<String, SignTotalFunction>(
+				(String action) -> action.charAt(0), Collections.emptyMap(), a, b);
+		
+		for(int i = 0; i<10; i++){
+			assertSame(mapper.getApplicableFunction("a" + i), a);
+			assertSame(mapper.getApplicableFunction("b" + i), b);
+			assertNull(mapper.getApplicableFunction("c" + i));
+		}
+		
+		//Once for each of the keys 'a', 'b' and 'c', except that 'b' is not asked about 'a'
+		assertEquals(a.asked, 3);
+		assertEquals(b.asked, 2);
+	}
+	
+	@Test
+	public void registeredMembersAreNotAsked(){
+		Prefixed a = new Prefixed("a");
+		Map<Character, MonotoneFunction<String, SignTotalFunction>> registered = 
+				new HashMap<Character, MonotoneFunction<String, SignTotalFunction>>();
+		registered.put('x', a);
+		MonotoneFunctionMapper<String, SignTotalFunction> mapper = new MonotoneFunctionMapper<String, SignTotalFunction>(
+				(String action) -> action.charAt(0), registered);
+		
+		assertSame(mapper.getApplicableFunction("x1"), a);
+		assertNull(mapper.getApplicableFunction("a1"));
+		assertEquals(a.asked, 0);
+	}
+}
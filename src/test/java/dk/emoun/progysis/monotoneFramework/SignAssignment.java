@@ -0,0 +1,54 @@
+package dk.emoun.progysis.monotoneFramework;
+
+import dk.emoun.progysis.lattices.Evaluable;
+import dk.emoun.progysis.lattices.Sign;
+import dk.emoun.progysis.lattices.SignPowerSet;
+import dk.emoun.progysis.lattices.SignTotalFunction;
+
+/**
+ * Transfer function of a sign analysis, for actions of the form {@code "x=PLUS"}, which assign 
+ * the given sign to the given variable, and {@code "x+=PLUS"}, which add the sign to the variable's signs.
+ * Any other action leaves the state unchanged. 
+ * Anything after a '#' in an action is ignored, which allows distinct actions with the same effect.
+ */
+public class SignAssignment implements MonotoneFunction<String, SignTotalFunction>{
+	
+	/**
+	 * The number of times the function has been applied.
+	 */
+	public int applications;
+	
+	@Override
+	public boolean applicableFor(String action) {
+		return true;
+	}
+
+	@Override
+	public SignTotalFunction apply(String action, Evaluable<SignTotalFunction> state) {
+		applications++;
+		SignTotalFunction s = state.value();
+		if(action.indexOf('#') >= 0){
+			action = action.substring(0, action.indexOf('#'));
+		}
+		int add = action.indexOf("+="), assign = action.indexOf('=');
+		if(add > 0){
+			String variable = action.substring(0, add);
+			Sign sign = Sign.valueOf(action.substring(add+2));
+			return s.getUpdateValue(variable, s.getValue(variable).join(new SignPowerSet(sign)));
+		}else if(assign > 0){
+			return s.getUpdateValue(action.substring(0, assign), new SignPowerSet(Sign.valueOf(action.substring(assign+1))));
+		}
+		return s;
+	}
+	
+	/**
+	 * @param extremal
+	 * The signs of the variable 'x' at q0
+	 * @return
+	 * A state of the variables 'x' and 'y', where 'x' has the given signs and 'y' is bottom.
+	 */
+	public static SignTotalFunction state(Sign... extremal){
+		return new SignTotalFunction(new SignPowerSet(), new String[]{"x", "y"})
+				.getUpdateValue("x", new SignPowerSet(extremal));
+	}
+}
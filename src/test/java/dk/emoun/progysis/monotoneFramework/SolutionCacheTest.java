@@ -0,0 +1,248 @@
+package dk.emoun.progysis.monotoneFramework;
+
+import org.testng.annotations.*;
+import static org.testng.Assert.*;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.EnumSet;
+import java.util.Set;
+
+import dk.emoun.progysis.TestUtilities;
+import dk.emoun.progysis.lattices.LatticeCodec;
+import dk.emoun.progysis.lattices.Sign;
+import dk.emoun.progysis.lattices.SignPowerSet;
+import dk.emoun.progysis.lattices.SignTotalFunction;
+import dk.emoun.progysis.worklist.AbstractWorklistAlgorithm;
+import dk.emoun.progysis.worklist.ConstraintSystem;
+import dk.emoun.progysis.worklist.FIFOWorklist;
+import dk.emoun.progysis.worklist.UniqueFIFOWorklist;
+
+public class SolutionCacheTest {
+
+	private static final String[] VARIABLES = {"x", "y"};
+
+	/**
+	 * Writes the signs of 'x' and 'y' as a bit mask each.
+	 */
+	private static final LatticeCodec<SignTotalFunction> CODEC = new LatticeCodec<SignTotalFunction>(){
+		@Override
+		public void write(SignTotalFunction element, DataOutput out) throws IOException {
+			for(String variable: VARIABLES){
+				int mask = 0;
+				for(Sign sign: element.getValue(variable).getValueSet()){
+					mask |= 1 << sign.ordinal();
+				}
+				out.writeByte(mask);
+			}
+		}
+
+		@Override
+		public SignTotalFunction read(DataInput in) throws IOException {
+			SignTotalFunction result = new SignTotalFunction(new SignPowerSet(), VARIABLES);
+			for(String variable: VARIABLES){
+				int mask = in.readByte();
+				Set<Sign> signs = EnumSet.noneOf(Sign.class);
+				for(Sign sign: Sign.values()){
+					if((mask & (1 << sign.ordinal())) != 0){
+						signs.add(sign);
+					}
+				}
+				result = result.getUpdateValue(variable, new SignPowerSet(signs));
+			}
+			return result;
+		}
+	};
+
+	private Path directory;
+
+	@BeforeMethod
+	public void setUp() throws IOException{
+		directory = Files.createTempDirectory("solutions");
+	}
+
+	@AfterMethod
+	public void tearDown() throws IOException{
+		try(DirectoryStream<Path> files = Files.newDirectoryStream(directory)){
+			for(Path file: files){
+				Files.delete(file);
+			}
+		}
+		Files.delete(directory);
+	}
+
+	@Test
+	public void storedSolutionIsLoadedWithoutSolving() throws IOException{
+		SolutionCache<String, SignTotalFunction, SignPowerSet> cache = cache(1 << 20, "v1");
+		SignAssignment solving = new SignAssignment();
+		ConstraintSystem<SignTotalFunction> solved = cache.solve(framework("x=MINUS", solving), new UniqueFIFOWorklist());
+		assertTrue(solving.applications > 0);
+
+		SignAssignment loading = new SignAssignment();
+		ConstraintSystem<SignTotalFunction> loaded = cache.solve(framework("x=MINUS", loading), new UniqueFIFOWorklist());
+
+		assertEquals(loading.applications, 0);
+		TestUtilities.assertSameValues(solved, loaded);
+		ConstraintSystem<SignTotalFunction> expected = framework("x=MINUS", new SignAssignment()).constraintSystem();
+		AbstractWorklistAlgorithm.solveConstraintSystem(new FIFOWorklist(), expected);
+		TestUtilities.assertSameValues(expected, loaded);
+	}
+
+	@Test
+	public void otherFrameworkOrVersionIsNotFound() throws IOException{
+		SolutionCache<String, SignTotalFunction, SignPowerSet> cache = cache(1 << 20, "v1");
+		MonotoneFramework<String, SignTotalFunction, SignPowerSet> stored = framework("x=MINUS", new SignAssignment());
+		cache.solve(stored, new UniqueFIFOWorklist());
+
+		MonotoneFramework<String, SignTotalFunction, SignPowerSet> other = framework("x=ZERO", new SignAssignment());
+		assertFalse(cache.load(other, other.constraintSystem()));
+		assertFalse(cache(1 << 20, "v2").load(stored, stored.constraintSystem()));
+		assertTrue(cache.load(stored, stored.constraintSystem()));
+	}
+
+	@Test
+	public void corruptSolutionIsDeletedAndMissed() throws IOException{
+		SolutionCache<String, SignTotalFunction, SignPowerSet> cache = cache(1 << 20, "v1");
+		MonotoneFramework<String, SignTotalFunction, SignPowerSet> f = framework("x=MINUS", new SignAssignment());
+		Path file = directory.resolve(cache.keyOf(f) + ".solution");
+
+		//Truncated
+		Files.write(file, new byte[]{1, 2, 3});
+		assertFalse(cache.load(f, f.constraintSystem()));
+		assertFalse(Files.exists(file));
+
+		//Wrong header
+		Files.write(file, new byte[64]);
+		ConstraintSystem<SignTotalFunction> cS = f.constraintSystem();
+		assertFalse(cache.load(f, cS));
+		assertFalse(Files.exists(file));
+		for(int i = 0; i<cS.getNumberOfFlowVariables(); i++){
+			assertTrue(cS.getValueOf(i).isBottom());
+		}
+	}
+
+	@Test
+	public void solutionTheCodecRejectsIsDeletedAndMissed() throws IOException{
+		MonotoneFramework<String, SignTotalFunction, SignPowerSet> f = framework("x=MINUS", new SignAssignment());
+		cache(1 << 20, "v1").solve(f, new UniqueFIFOWorklist());
+
+		LatticeCodec<SignTotalFunction> rejecting = new LatticeCodec<SignTotalFunction>(){
+			@Override
+			public void write(SignTotalFunction element, DataOutput out) throws IOException {
+				CODEC.write(element, out);
+			}
+
+			@Override
+			public SignTotalFunction read(DataInput in) throws IOException {
+				throw new IllegalArgumentException("Unknown value");
+			}
+		};
+		SolutionCache<String, SignTotalFunction, SignPowerSet> cache = new SolutionCache<String, SignTotalFunction, SignPowerSet>(
+				directory, 1 << 20, "v1", rejecting, String::valueOf);
+		assertFalse(cache.load(f, f.constraintSystem()));
+		assertEquals(solutionFiles(), 0);
+	}
+
+	@Test
+	public void loadedSolutionIsMarkedSolved() throws IOException{
+		SolutionCache<String, SignTotalFunction, SignPowerSet> cache = cache(1 << 20, "v1");
+		cache.solve(framework("x=MINUS", new SignAssignment()), new UniqueFIFOWorklist());
+
+		ConstraintSystem<SignTotalFunction> loaded = cache.solve(framework("x=MINUS", new SignAssignment()), new UniqueFIFOWorklist());
+		for(int i = 0; i<loaded.getNumberOfFlowVariables(); i++){
+			assertTrue(loaded.isSolved(i));
+		}
+	}
+
+	@Test
+	public void leastRecentlyUsedSolutionIsEvicted() throws IOException{
+		MonotoneFramework<String, SignTotalFunction, SignPowerSet> a = framework("x=MINUS#a", new SignAssignment());
+		MonotoneFramework<String, SignTotalFunction, SignPowerSet> b = framework("x=MINUS#b", new SignAssignment());
+		MonotoneFramework<String, SignTotalFunction, SignPowerSet> c = framework("x=MINUS#c", new SignAssignment());
+
+		//Find the size of a solution, which is the same for all three
+		SolutionCache<String, SignTotalFunction, SignPowerSet> sizing = cache(1 << 20, "v1");
+		sizing.solve(a, new UniqueFIFOWorklist());
+		long size = Files.size(directory.resolve(sizing.keyOf(a) + ".solution"));
+		sizing.clear();
+
+		//Room for two solutions, also after evicting down to three quarters
+		SolutionCache<String, SignTotalFunction, SignPowerSet> cache = cache(size*2 + size*4/5, "v1");
+		cache.solve(a, new UniqueFIFOWorklist());
+		cache.solve(b, new UniqueFIFOWorklist());
+		Path fileA = directory.resolve(cache.keyOf(a) + ".solution");
+		Path fileB = directory.resolve(cache.keyOf(b) + ".solution");
+		long now = System.currentTimeMillis();
+		Files.setLastModifiedTime(fileA, FileTime.fromMillis(now - 20000));
+		Files.setLastModifiedTime(fileB, FileTime.fromMillis(now - 10000));
+		//Using a makes b the least recently used
+		assertTrue(cache.load(a, a.constraintSystem()));
+
+		cache.solve(c, new UniqueFIFOWorklist());
+
+		assertTrue(Files.exists(fileA));
+		assertFalse(Files.exists(fileB));
+		assertTrue(Files.exists(directory.resolve(cache.keyOf(c) + ".solution")));
+	}
+
+	@Test
+	public void directoryIsOnlyListedWhenEstimateExceedsCapacity() throws IOException{
+		MonotoneFramework<String, SignTotalFunction, SignPowerSet> a = framework("x=MINUS#a", new SignAssignment());
+		MonotoneFramework<String, SignTotalFunction, SignPowerSet> b = framework("x=MINUS#b", new SignAssignment());
+		MonotoneFramework<String, SignTotalFunction, SignPowerSet> c = framework("x=MINUS#c", new SignAssignment());
+		SolutionCache<String, SignTotalFunction, SignPowerSet> first = cache(4*(long) Integer.MAX_VALUE, "v1");
+		first.solve(a, new UniqueFIFOWorklist());
+		Path fileA = directory.resolve(first.keyOf(a) + ".solution");
+		long size = Files.size(fileA);
+		
+		//Solutions stored by another process, which are not in the estimate
+		for(int i = 0; i<4; i++){
+			Path foreign = directory.resolve("foreign" + i + ".solution");
+			Files.copy(fileA, foreign);
+			Files.setLastModifiedTime(foreign, FileTime.fromMillis(System.currentTimeMillis() - 10000));
+		}
+		
+		//The estimate is shared by the caches of the directory, so it is 2 solutions after storing b
+		SolutionCache<String, SignTotalFunction, SignPowerSet> second = cache(size*5/2, "v1");
+		second.solve(b, new UniqueFIFOWorklist());
+		assertEquals(solutionFiles(), 6);
+		
+		//Exceeding the estimate lists the directory, and evicts down to three quarters of the capacity
+		second.solve(c, new UniqueFIFOWorklist());
+		assertEquals(solutionFiles(), 1);
+		assertTrue(Files.exists(directory.resolve(second.keyOf(c) + ".solution")));
+	}
+
+//Private methods
+	private SolutionCache<String, SignTotalFunction, SignPowerSet> cache(long capacity, String versionTag) throws IOException{
+		return new SolutionCache<String, SignTotalFunction, SignPowerSet>(
+				directory, capacity, versionTag, CODEC, String::valueOf);
+	}
+
+	/**
+	 * @param action
+	 * The action of the transition 1 -> 2.
+	 * @param function
+	 * @return
+	 * A sign analysis of 0 -> 1 -> 2 -> 1, where 0 -> 1 assigns ZERO to 'y'.
+	 */
+	private static MonotoneFramework<String, SignTotalFunction, SignPowerSet> framework(String action, SignAssignment function){
+		return new MonotoneFramework<String, SignTotalFunction, SignPowerSet>(SignAssignment.state(Sign.PLUS),
+				MonotoneFrameworkTest.graph(3, new String[]{"y=ZERO", action, "skip"}, 0,1, 1,2, 2,1), 0, true, function);
+	}
+
+	private int solutionFiles() throws IOException{
+		int count = 0;
+		try(DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.solution")){
+			for(@SuppressWarnings("unused") Path file: files){
+				count++;
+			}
+		}
+		return count;
+	}
+}
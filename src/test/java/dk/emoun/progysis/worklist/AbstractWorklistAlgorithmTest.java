@@ -0,0 +1,208 @@
+package dk.emoun.progysis.worklist;
+
+import org.testng.annotations.*;
+import static org.testng.Assert.*;
+
+import java.util.Random;
+import java.util.function.Function;
+
+import dk.emoun.progysis.TestUtilities;
+import dk.emoun.progysis.lattices.IntegerPowerSet;
+import dk.emoun.progysis.lattices.Sign;
+import dk.emoun.progysis.lattices.SignPowerSet;
+
+public class AbstractWorklistAlgorithmTest {
+	
+	@DataProvider
+	public Object[][] seeds(){
+		return new Object[][]{{1L}, {2L}, {3L}, {4L}, {5L}};
+	}
+	
+	@Test(dataProvider = "seeds")
+	public void resolveAfterRemovalEqualsSolvingFromScratch(long seed){
+		ConstraintSystem<IntegerPowerSet> cS = RandomConstraintSystems.generate(seed, 200, 400, null);
+		ConstraintSystem<IntegerPowerSet> fresh = RandomConstraintSystems.generate(seed, 200, 400, null);
+		RandomConstraintSystems.solveSequentially(cS);
+		
+		Random random = new Random(seed);
+		int[] changed = new int[10];
+		for(int i = 0; i<changed.length; i++){
+			int fV, dependency;
+			do{
+				fV = random.nextInt(200);
+			}while(cS.getVariablesInfluencing(fV).length == 0);
+			dependency = cS.getVariablesInfluencing(fV)[0];
+			cS.removeConstraintsFromVariableDependentOnVariable(fV, dependency);
+			fresh.removeConstraintsFromVariableDependentOnVariable(fV, dependency);
+			changed[i] = fV;
+		}
+		AbstractWorklistAlgorithm.resolveAfterRemoval(new FIFOWorklist(), cS, changed);
+		RandomConstraintSystems.solveSequentially(fresh);
+		
+		TestUtilities.assertSameValues(fresh, cS);
+	}
+	
+	@Test(dataProvider = "seeds")
+	public void repeatedResolveAfterRemovalEqualsSolvingFromScratch(long seed){
+		ConstraintSystem<IntegerPowerSet> cS = RandomConstraintSystems.generate(seed, 200, 400, null);
+		ConstraintSystem<IntegerPowerSet> fresh = RandomConstraintSystems.generate(seed, 200, 400, null);
+		RandomConstraintSystems.solveSequentially(cS);
+		
+		//Every removal must find the scratch arrays reset by the previous one
+		Random random = new Random(seed);
+		for(int i = 0; i<20; i++){
+			int fV;
+			do{
+				fV = random.nextInt(200);
+			}while(cS.getVariablesInfluencing(fV).length == 0);
+			int dependency = cS.getVariablesInfluencing(fV)[0];
+			cS.removeConstraintsFromVariableDependentOnVariable(fV, dependency);
+			fresh.removeConstraintsFromVariableDependentOnVariable(fV, dependency);
+			AbstractWorklistAlgorithm.resolveAfterRemoval(new FIFOWorklist(), cS, fV);
+		}
+		RandomConstraintSystems.solveSequentially(fresh);
+		
+		TestUtilities.assertSameValues(fresh, cS);
+	}
+	
+	@Test
+	public void resolveAfterRemovalRecoversFromFailingConstraint(){
+		//0 -> 1 -> 2, where 2 fails once while being re-derived
+		boolean[] fail = new boolean[1];
+		ConstraintSystem<SignPowerSet> cS = new ConstraintSystem<SignPowerSet>(3, new SignPowerSet());
+		cS.addIndependentConstraintToVariable(0, new SignPowerSet(Sign.PLUS));
+		cS.addConstraintToVariableDependentOnVariable(1, 0, Function.identity());
+		cS.addConstraintToVariableDependentOnVariable(1, 0, (v) -> new SignPowerSet(Sign.MINUS));
+		cS.addConstraintToVariableDependentOnVariable(2, 1, (v) -> {
+			if(fail[0]){
+				fail[0] = false;
+				throw new IllegalStateException("Failing constraint");
+			}
+			return v;
+		});
+		AbstractWorklistAlgorithm.solveConstraintSystem(new FIFOWorklist(), cS);
+		
+		cS.removeConstraintFromVariableDependentOnVariable(1, 0, (c) -> true);
+		fail[0] = true;
+		try{
+			AbstractWorklistAlgorithm.resolveAfterRemoval(new FIFOWorklist(), cS, 1);
+			fail("The constraint did not fail");
+		}catch(IllegalStateException e){
+			//Expected
+		}
+		//2 was reset when it failed, so it is given as changed too
+		AbstractWorklistAlgorithm.resolveAfterRemoval(new FIFOWorklist(), cS, 1, 2);
+		
+		assertEquals(cS.getValueOf(1), new SignPowerSet(Sign.MINUS));
+		assertEquals(cS.getValueOf(2), new SignPowerSet(Sign.MINUS));
+	}
+	
+	@Test
+	public void resolveAfterRemovalShrinksCycle(){
+		//0 is a source of PLUS for the cycle 1 <-> 2, which feeds 3
+		ConstraintSystem<SignPowerSet> cS = new ConstraintSystem<SignPowerSet>(4, new SignPowerSet());
+		cS.addIndependentConstraintToVariable(0, new SignPowerSet(Sign.PLUS));
+		cS.addConstraintToVariableDependentOnVariable(1, 0, Function.identity());
+		cS.addConstraintToVariableDependentOnVariable(1, 2, Function.identity());
+		cS.addConstraintToVariableDependentOnVariable(2, 1, Function.identity());
+		cS.addConstraintToVariableDependentOnVariable(3, 2, Function.identity());
+		AbstractWorklistAlgorithm.solveConstraintSystem(new FIFOWorklist(), cS);
+		assertEquals(cS.getValueOf(3), new SignPowerSet(Sign.PLUS));
+		
+		cS.removeConstraintsFromVariableDependentOnVariable(1, 0);
+		AbstractWorklistAlgorithm.resolveAfterRemoval(new FIFOWorklist(), cS, 1);
+		
+		for(int i = 1; i<4; i++){
+			assertTrue(cS.getValueOf(i).isBottom());
+		}
+	}
+	
+	@Test
+	public void resolveAfterRemovalStopsWhereValuesAreUnchanged(){
+		//1 gets PLUS both from 0 and independently, and 2 depends on 1
+		int[] evaluations = new int[1];
+		ConstraintSystem<SignPowerSet> cS = new ConstraintSystem<SignPowerSet>(3, new SignPowerSet());
+		cS.addIndependentConstraintToVariable(0, new SignPowerSet(Sign.PLUS));
+		cS.addIndependentConstraintToVariable(1, new SignPowerSet(Sign.PLUS));
+		cS.addConstraintToVariableDependentOnVariable(1, 0, Function.identity());
+		cS.addConstraintToVariableDependentOnVariable(2, 1, (v) -> {
+			evaluations[0]++;
+			return v;
+		});
+		AbstractWorklistAlgorithm.solveConstraintSystem(new FIFOWorklist(), cS);
+		evaluations[0] = 0;
+		
+		cS.removeConstraintsFromVariableDependentOnVariable(1, 0);
+		AbstractWorklistAlgorithm.resolveAfterRemoval(new FIFOWorklist(), cS, 1);
+		
+		assertEquals(cS.getValueOf(2), new SignPowerSet(Sign.PLUS));
+		assertEquals(evaluations[0], 0);
+	}
+	
+	@Test(dataProvider = "seeds")
+	public void solveForEqualsSolvingFromScratchInsideCone(long seed){
+		ConstraintSystem<IntegerPowerSet> cS = RandomConstraintSystems.generate(seed, 300, 350, null);
+		ConstraintSystem<IntegerPowerSet> full = RandomConstraintSystems.generate(seed, 300, 350, null);
+		RandomConstraintSystems.solveSequentially(full);
+		
+		Random random = new Random(seed);
+		int[] targets = {random.nextInt(300), random.nextInt(300)};
+		AbstractWorklistAlgorithm.solveFor(new FIFOWorklist(), cS, targets);
+		
+		for(int fV = 0; fV<300; fV++){
+			if(cS.isSolved(fV)){
+				TestUtilities.assertEquals(full.getValueOf(fV), cS.getValueOf(fV));
+			}
+		}
+		for(int fV: targets){
+			assertTrue(cS.isSolved(fV));
+		}
+	}
+	
+	@Test
+	public void solveForOnlyEvaluatesDependencyCone(){
+		//0 -> 1 -> 2, while 3 depends on 2 and is not asked for
+		int[] evaluations = new int[1];
+		ConstraintSystem<SignPowerSet> cS = new ConstraintSystem<SignPowerSet>(4, new SignPowerSet());
+		cS.addIndependentConstraintToVariable(0, new SignPowerSet(Sign.PLUS));
+		cS.addConstraintToVariableDependentOnVariable(1, 0, Function.identity());
+		cS.addConstraintToVariableDependentOnVariable(2, 1, Function.identity());
+		cS.addConstraintToVariableDependentOnVariable(3, 2, (v) -> {
+			evaluations[0]++;
+			return v;
+		});
+		
+		cS.solveFor(1);
+		
+		assertEquals(cS.getValueOf(1), new SignPowerSet(Sign.PLUS));
+		assertTrue(cS.isSolved(0));
+		assertTrue(cS.isSolved(1));
+		assertFalse(cS.isSolved(2));
+		assertTrue(cS.getValueOf(2).isBottom());
+		assertEquals(evaluations[0], 0);
+	}
+	
+	@Test
+	public void solveForReusesSolvedVariablesUntilSystemChanges(){
+		int[] evaluations = new int[1];
+		ConstraintSystem<SignPowerSet> cS = new ConstraintSystem<SignPowerSet>(3, new SignPowerSet());
+		cS.addIndependentConstraintToVariable(0, new SignPowerSet(Sign.PLUS));
+		cS.addConstraintToVariableDependentOnVariable(1, 0, (v) -> {
+			evaluations[0]++;
+			return v;
+		});
+		cS.addConstraintToVariableDependentOnVariable(2, 1, Function.identity());
+		cS.solveFor(1);
+		evaluations[0] = 0;
+		
+		cS.solveFor(2);
+		assertEquals(cS.getValueOf(2), new SignPowerSet(Sign.PLUS));
+		assertEquals(evaluations[0], 0);
+		
+		cS.addIndependentConstraintToVariable(0, new SignPowerSet(Sign.MINUS));
+		assertFalse(cS.isSolved(1));
+		cS.solveFor(2);
+		assertEquals(cS.getValueOf(2), new SignPowerSet(Sign.PLUS, Sign.MINUS));
+		assertTrue(evaluations[0] > 0);
+	}
+}
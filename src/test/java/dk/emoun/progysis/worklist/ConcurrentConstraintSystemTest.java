@@ -0,0 +1,129 @@
+package dk.emoun.progysis.worklist;
+
+import org.testng.annotations.*;
+import static org.testng.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+
+import dk.emoun.progysis.TestUtilities;
+import dk.emoun.progysis.lattices.IntegerPowerSet;
+import dk.emoun.progysis.lattices.LatticeInterner;
+import dk.emoun.progysis.lattices.Sign;
+import dk.emoun.progysis.lattices.SignPowerSet;
+
+public class ConcurrentConstraintSystemTest {
+
+	private static final int THREADS = 4;
+
+	@DataProvider
+	public Object[][] seeds(){
+		return new Object[][]{{1L}, {2L}, {3L}};
+	}
+
+	@Test
+	public void storeDecidesWhetherConcurrent(){
+		assertTrue(new ConstraintSystem<SignPowerSet>(2, new SignPowerSet(), null,
+				new ConcurrentFlowValueStore<SignPowerSet>(2)).isConcurrent());
+		assertFalse(new ConstraintSystem<SignPowerSet>(2, new SignPowerSet()).isConcurrent());
+		assertFalse(new ConstraintSystem<SignPowerSet>(2, new SignPowerSet(), null,
+				new ArrayFlowValueStore<SignPowerSet>(2)).isConcurrent());
+	}
+
+	@Test
+	public void storeComparesInstances(){
+		ConcurrentFlowValueStore<SignPowerSet> store = new ConcurrentFlowValueStore<SignPowerSet>(1);
+		SignPowerSet plus = new SignPowerSet(Sign.PLUS), minus = new SignPowerSet(Sign.MINUS);
+		store.set(0, plus);
+
+		assertFalse(store.compareAndSet(0, new SignPowerSet(Sign.PLUS), minus));
+		assertSame(store.get(0), plus);
+		assertTrue(store.compareAndSet(0, plus, minus));
+		assertSame(store.get(0), minus);
+		assertEquals(store.size(), 1);
+	}
+
+	@Test
+	public void updateJoinsWithCurrentValue(){
+		ConstraintSystem<SignPowerSet> cS = new ConstraintSystem<SignPowerSet>(2, new SignPowerSet(), null,
+				new ConcurrentFlowValueStore<SignPowerSet>(2));
+		cS.addConstraintToVariableDependentOnVariable(1, 0, (v) -> v);
+		cS.setValueOf(0, new SignPowerSet(Sign.PLUS));
+		SignPowerSet plus = cS.updateValueOf(1);
+		assertEquals(plus, new SignPowerSet(Sign.PLUS));
+
+		//A smaller value does not change the flow variable
+		cS.setValueOf(0, new SignPowerSet());
+		assertSame(cS.updateValueOf(1), plus);
+
+		cS.setValueOf(0, new SignPowerSet(Sign.MINUS));
+		assertEquals(cS.updateValueOf(1), new SignPowerSet(Sign.PLUS, Sign.MINUS));
+		assertEquals(cS.getValueOf(1), new SignPowerSet(Sign.PLUS, Sign.MINUS));
+	}
+
+	@Test
+	public void updateInternsJoinedValue(){
+		LatticeInterner<SignPowerSet> interner = new LatticeInterner<SignPowerSet>();
+		ConstraintSystem<SignPowerSet> cS = new ConstraintSystem<SignPowerSet>(2, new SignPowerSet(), interner,
+				new ConcurrentFlowValueStore<SignPowerSet>(2));
+		cS.addConstraintToVariableDependentOnVariable(1, 0, (v) -> v);
+		cS.setValueOf(0, new SignPowerSet(Sign.PLUS));
+		cS.updateValueOf(1);
+		cS.setValueOf(0, new SignPowerSet(Sign.ZERO));
+
+		SignPowerSet joined = cS.updateValueOf(1);
+
+		assertSame(joined, interner.intern(new SignPowerSet(Sign.ZERO, Sign.PLUS)));
+	}
+
+	@Test(invocationCount = 10)
+	public void racingUpdatesKeepEveryValue() throws Exception{
+		int rounds = 200;
+		ConstraintSystem<IntegerPowerSet> cS = new ConstraintSystem<IntegerPowerSet>(2, new IntegerPowerSet(), null,
+				new ConcurrentFlowValueStore<IntegerPowerSet>(2));
+		//Each thread evaluates flow variable 1 to a value of its own
+		ThreadLocal<Integer> element = new ThreadLocal<Integer>();
+		cS.addConstraintToVariableDependentOnVariable(1, 0, (v) -> new IntegerPowerSet(element.get()));
+		CyclicBarrier start = new CyclicBarrier(THREADS);
+		List<Throwable> failures = new ArrayList<Throwable>();
+		List<Thread> threads = new ArrayList<Thread>();
+		for(int t = 0; t<THREADS; t++){
+			int thread = t;
+			threads.add(new Thread(() -> {
+				try{
+					start.await();
+					for(int r = 0; r<rounds; r++){
+						element.set(r*THREADS + thread);
+						cS.updateValueOf(1);
+					}
+				}catch(Throwable e){
+					synchronized(failures){
+						failures.add(e);
+					}
+				}
+			}));
+		}
+		for(Thread thread: threads){
+			thread.start();
+		}
+		for(Thread thread: threads){
+			thread.join();
+		}
+
+		assertTrue(failures.isEmpty(), failures.toString());
+		assertEquals(cS.getValueOf(1).getValueSet().size(), rounds*THREADS);
+	}
+
+	@Test(dataProvider = "seeds")
+	public void sequentialSolutionEqualsNonConcurrentSolution(long seed){
+		ConstraintSystem<IntegerPowerSet> expected = RandomConstraintSystems.generate(seed, 200, 400, null);
+		ConstraintSystem<IntegerPowerSet> actual = RandomConstraintSystems.generate(seed, 200, 400,
+				(n) -> new ConcurrentFlowValueStore<IntegerPowerSet>(n));
+
+		RandomConstraintSystems.solveSequentially(expected);
+		RandomConstraintSystems.solveSequentially(actual);
+
+		TestUtilities.assertSameValues(expected, actual);
+	}
+}
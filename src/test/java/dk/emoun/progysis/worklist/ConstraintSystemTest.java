@@ -3,9 +3,104 @@ package dk.emoun.progysis.worklist;
 import org.testng.annotations.*;
 import static org.testng.Assert.*;
 
-import dk.emoun.progysis.lattices.IncomparableLatticeException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+import dk.emoun.progysis.lattices.Sign;
+import dk.emoun.progysis.lattices.SignPowerSet;
 
 public class ConstraintSystemTest {
+
+	private ConstraintSystem<SignPowerSet> cS;
+
+	@BeforeMethod
+	public void setUp(){
+		cS = new ConstraintSystem<SignPowerSet>(5, new SignPowerSet());
+	}
+
+	@Test
+	public void influencedByIsEmptyWithoutConstraints(){
+		for(int i = 0; i<5; i++){
+			assertTrue(cS.getVariablesInfluencedBy(i).isEmpty());
+			assertEquals(cS.getNumberOfVariablesInfluencedBy(i), 0);
+		}
+	}
+
+	@Test
+	public void influencedByListsDependentsInAscendingOrder(){
+		cS.addConstraintToVariableDependentOnVariable(4, 0, Function.identity());
+		cS.addConstraintToVariableDependentOnVariable(1, 0, Function.identity());
+		cS.addConstraintToVariableDependentOnVariable(3, 0, Function.identity());
+
+		assertEquals(cS.getVariablesInfluencedBy(0), Arrays.asList(1, 3, 4));
+	}
+
+	@Test
+	public void influencedByListsEachDependentOnce(){
+		cS.addConstraintToVariableDependentOnVariable(1, 0, Function.identity());
+		cS.addConstraintToVariableDependentOnVariable(1, 0, (v) -> v.join(new SignPowerSet(Sign.PLUS)));
+
+		assertEquals(cS.getVariablesInfluencedBy(0), Arrays.asList(1));
+		List<Integer> visited = new ArrayList<Integer>();
+		cS.forEachVariableInfluencedBy(0, visited::add);
+		assertEquals(visited, Arrays.asList(1));
+	}
+
+	@Test
+	public void independentlyAddedFlowVariableConstraintIsIndexed(){
+		cS.addIndependentConstraintToVariable(2, new FlowVariableConstraint<SignPowerSet>(cS, 0, Function.identity()));
+
+		assertEquals(cS.getVariablesInfluencedBy(0), Arrays.asList(2));
+		assertEquals(cS.getVariableInfluencedBy(0, 0), 2);
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void independentlyAddedFlowVariableConstraintMustDependOnExistingVariable(){
+		cS.addIndependentConstraintToVariable(2, new FlowVariableConstraint<SignPowerSet>(cS, 7, Function.identity()));
+	}
+
+	@Test
+	public void removingConstraintsRemovesDependent(){
+		cS.addConstraintToVariableDependentOnVariable(1, 0, Function.identity());
+		cS.addConstraintToVariableDependentOnVariable(2, 0, Function.identity());
+
+		assertTrue(cS.removeConstraintsFromVariableDependentOnVariable(1, 0));
+		assertFalse(cS.removeConstraintsFromVariableDependentOnVariable(1, 0));
+		assertEquals(cS.getVariablesInfluencedBy(0), Arrays.asList(2));
+	}
+
+	@Test
+	public void removingSingleConstraintKeepsDependentWhileOthersRemain(){
+		Function<SignPowerSet, SignPowerSet> first = Function.identity(), second = (v) -> v;
+		cS.addConstraintToVariableDependentOnVariable(1, 0, first);
+		cS.addConstraintToVariableDependentOnVariable(1, 0, second);
+		
+		assertTrue(cS.removeConstraintFromVariableDependentOnVariable(1, 0, (c) -> c == first));
+		assertEquals(cS.getNumberOfConstraintsOf(1), 1);
+		assertEquals(cS.getVariablesInfluencedBy(0), Arrays.asList(1));
+		
+		assertFalse(cS.removeConstraintFromVariableDependentOnVariable(1, 0, (c) -> c == first));
+		assertTrue(cS.removeConstraintFromVariableDependentOnVariable(1, 0, (c) -> c == second));
+		assertTrue(cS.getVariablesInfluencedBy(0).isEmpty());
+	}
 	
-	
+	@Test
+	public void solvingPropagatesThroughIndependentlyAddedDependency(){
+		cS.addIndependentConstraintToVariable(0, new SignPowerSet(Sign.ZERO));
+		cS.addIndependentConstraintToVariable(1, new FlowVariableConstraint<SignPowerSet>(cS, 0, Function.identity()));
+
+		//Evaluate 1 before 0, so its value depends on being reinserted
+		LIFOWorklist w = new LIFOWorklist();
+		AbstractWorklistAlgorithm.solveConstraintSystem(w, cS);
+
+		assertEquals(cS.getValueOf(1), new SignPowerSet(Sign.ZERO));
+	}
+
+	@Test(expectedExceptions = IndexOutOfBoundsException.class)
+	public void influencedByIndexIsBounded(){
+		cS.addConstraintToVariableDependentOnVariable(1, 0, Function.identity());
+		cS.getVariableInfluencedBy(0, 1);
+	}
 }
@@ -0,0 +1,116 @@
+package dk.emoun.progysis.worklist;
+
+import org.testng.annotations.*;
+import static org.testng.Assert.*;
+
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.Set;
+
+import dk.emoun.progysis.TestUtilities;
+import dk.emoun.progysis.lattices.IntegerPowerSet;
+import dk.emoun.progysis.lattices.Sign;
+import dk.emoun.progysis.lattices.SignPowerSet;
+
+public class DeltaWorklistAlgorithmTest {
+	
+	@DataProvider
+	public Object[][] seeds(){
+		return new Object[][]{{1L}, {2L}, {3L}, {4L}, {5L}};
+	}
+	
+	@Test(dataProvider = "seeds")
+	public void solvesPowerSetsLikeAbstractWorklistAlgorithm(long seed){
+		ConstraintSystem<IntegerPowerSet> expected = RandomConstraintSystems.generate(seed, 300, 600, null);
+		ConstraintSystem<IntegerPowerSet> actual = RandomConstraintSystems.generate(seed, 300, 600, null);
+		//Non-distributive constraints are given the whole set
+		Random random = new Random(seed);
+		for(int i = 0; i<50; i++){
+			int t = random.nextInt(300), s = random.nextInt(300);
+			expected.addConstraintToVariableDependentOnVariable(t, s, DeltaWorklistAlgorithmTest::zeroIfLarge);
+			actual.addConstraintToVariableDependentOnVariable(t, s, DeltaWorklistAlgorithmTest::zeroIfLarge);
+		}
+		
+		RandomConstraintSystems.solveSequentially(expected);
+		DeltaWorklistAlgorithm.solveConstraintSystem(new FIFOWorklist(), actual);
+		
+		TestUtilities.assertSameValues(expected, actual);
+	}
+	
+	@Test(dataProvider = "seeds")
+	public void solvesEnumPowerSetsLikeAbstractWorklistAlgorithm(long seed){
+		ConstraintSystem<SignPowerSet> expected = signSystem(seed);
+		ConstraintSystem<SignPowerSet> actual = signSystem(seed);
+		
+		RandomConstraintSystems.solveSequentially(expected);
+		DeltaWorklistAlgorithm.solveConstraintSystem(new FIFOWorklist(), actual);
+		
+		TestUtilities.assertSameValues(expected, actual);
+	}
+	
+	@Test
+	public void distributiveConstraintIsOnlyGivenAddedValues(){
+		//0 gets PLUS, then MINUS through 1, and 2 copies 0 distributively
+		ConstraintSystem<SignPowerSet> cS = new ConstraintSystem<SignPowerSet>(3, new SignPowerSet());
+		cS.addIndependentConstraintToVariable(0, new SignPowerSet(Sign.PLUS));
+		cS.addIndependentConstraintToVariable(1, new SignPowerSet(Sign.MINUS));
+		cS.addConstraintToVariableDependentOnVariable(0, 1, (DistributiveFunction<SignPowerSet>) (v) -> v);
+		int[] largest = new int[1];
+		cS.addConstraintToVariableDependentOnVariable(2, 0, (DistributiveFunction<SignPowerSet>) (v) -> {
+			largest[0] = Math.max(largest[0], v.getValueSet().size());
+			return v;
+		});
+		
+		DeltaWorklistAlgorithm.solveConstraintSystem(new FIFOWorklist(), cS);
+		
+		assertEquals(cS.getValueOf(2), new SignPowerSet(Sign.PLUS, Sign.MINUS));
+		assertEquals(largest[0], 1);
+	}
+	
+//Helper methods
+	/**
+	 * @return
+	 * The set with 0 added, if it has 10 or more values, and otherwise the empty set. 
+	 * The function is monotone, but not distributive.
+	 */
+	private static IntegerPowerSet zeroIfLarge(IntegerPowerSet v){
+		if(v.getValueSet().size() < 10){
+			return v.getBottom();
+		}
+		return v.join(new IntegerPowerSet(0));
+	}
+	
+	/**
+	 * @param seed
+	 * @return
+	 * A constraint system of random gen/kill constraints over signs, 
+	 * and some constraints that are not distributive.
+	 */
+	private static ConstraintSystem<SignPowerSet> signSystem(long seed){
+		Random random = new Random(seed);
+		Sign[] signs = Sign.values();
+		int n = 100;
+		ConstraintSystem<SignPowerSet> cS = new ConstraintSystem<SignPowerSet>(n, new SignPowerSet());
+		for(int i = 0; i<n; i += 7){
+			cS.addIndependentConstraintToVariable(i, new SignPowerSet(signs[random.nextInt(signs.length)]));
+		}
+		for(int i = 0; i<250; i++){
+			Sign gen = signs[random.nextInt(signs.length)], kill = signs[random.nextInt(signs.length)];
+			int t = random.nextInt(n), s = random.nextInt(n);
+			if(i%10 == 0){
+				//Adds 'gen' only if the whole set has two or more values
+				cS.addConstraintToVariableDependentOnVariable(t, s, (v) -> 
+					(v.getValueSet().size() >= 2)? v.join(new SignPowerSet(gen)) : v.getBottom());
+			}else{
+				cS.addConstraintToVariableDependentOnVariable(t, s, (DistributiveFunction<SignPowerSet>) (v) -> {
+					Set<Sign> result = EnumSet.noneOf(Sign.class);
+					result.addAll(v.getValueSet());
+					result.remove(kill);
+					result.add(gen);
+					return v.createPowerSet(result);
+				});
+			}
+		}
+		return cS;
+	}
+}
@@ -0,0 +1,140 @@
+package dk.emoun.progysis.worklist;
+
+import org.testng.annotations.*;
+import static org.testng.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import dk.emoun.progysis.TestUtilities;
+import dk.emoun.progysis.lattices.BitPowerSet;
+import dk.emoun.progysis.lattices.IntegerPowerSet;
+
+public class FlowValueStoreTest {
+
+	@DataProvider
+	public Object[][] seeds(){
+		return new Object[][]{{1L}, {2L}, {3L}};
+	}
+
+	@Test
+	public void arrayStoreKeepsInstances(){
+		ArrayFlowValueStore<IntegerPowerSet> store = new ArrayFlowValueStore<IntegerPowerSet>(2);
+		IntegerPowerSet value = new IntegerPowerSet(1, 2);
+
+		assertNull(store.get(0));
+		store.set(0, value);
+
+		assertSame(store.get(0), value);
+		assertNull(store.get(1));
+		assertEquals(store.size(), 2);
+		assertTrue(store.keepsInstances());
+	}
+
+	@Test
+	public void bitRowsReadEqualValues(){
+		//More than one word per row
+		List<Integer> universe = universe(130);
+		BitRowFlowValueStore<IntegerPowerSet, Integer> store =
+				new BitRowFlowValueStore<IntegerPowerSet, Integer>(3, universe, new IntegerPowerSet());
+		IntegerPowerSet value = new IntegerPowerSet(0, 63, 64, 129);
+
+		assertTrue(store.get(1).isBottom());
+		store.set(1, value);
+		store.set(2, new IntegerPowerSet(5));
+
+		assertEquals(store.get(1), value);
+		assertEquals(store.get(2), new IntegerPowerSet(5));
+		assertTrue(store.get(0).isBottom());
+		assertEquals(store.size(), 3);
+		assertFalse(store.keepsInstances());
+
+		store.set(1, new IntegerPowerSet());
+		assertTrue(store.get(1).isBottom());
+	}
+
+	@Test
+	public void bitRowsOfBitSetsAreReadAsMasks(){
+		BitPowerSet<Integer> prototype = new BitPowerSet<Integer>(universe(130));
+		BitRowFlowValueStore<BitPowerSet<Integer>, Integer> store =
+				new BitRowFlowValueStore<BitPowerSet<Integer>, Integer>(2, universe(130), prototype);
+		BitPowerSet<Integer> value = prototype.withWords(new long[]{1L, 0, 0b10L});
+
+		assertTrue(store.get(0).isBottom());
+		store.set(0, value);
+		BitPowerSet<Integer> read = store.get(0);
+
+		assertEquals(read, value);
+		assertSame(read.getUniverse(), prototype.getUniverse());
+		assertEquals(read.getValueSet(), new HashSet<Integer>(Arrays.asList(0, 129)));
+		assertTrue(store.get(1).compare(read));
+	}
+
+	@Test
+	public void mappedBitRowsAreKeptInFile() throws IOException{
+		Path file = Files.createTempFile("rows", ".bin");
+		try{
+			BitRowFlowValueStore<IntegerPowerSet, Integer> store =
+					new BitRowFlowValueStore<IntegerPowerSet, Integer>(10, universe(70), new IntegerPowerSet(), file);
+			store.set(9, new IntegerPowerSet(3, 69));
+
+			assertEquals(store.get(9), new IntegerPowerSet(3, 69));
+			//Two words for each row
+			assertEquals(Files.size(file), 10*2*8);
+
+			BitRowFlowValueStore<IntegerPowerSet, Integer> reopened =
+					new BitRowFlowValueStore<IntegerPowerSet, Integer>(10, universe(70), new IntegerPowerSet(), file);
+			assertEquals(reopened.get(9), new IntegerPowerSet(3, 69));
+		}finally{
+			Files.deleteIfExists(file);
+		}
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void bitRowsRejectElementOutsideUniverse(){
+		new BitRowFlowValueStore<IntegerPowerSet, Integer>(1, universe(4), new IntegerPowerSet())
+			.set(0, new IntegerPowerSet(4));
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void bitRowsRejectDuplicateInUniverse(){
+		new BitRowFlowValueStore<IntegerPowerSet, Integer>(1, Arrays.asList(1, 2, 1), new IntegerPowerSet());
+	}
+
+	@Test(expectedExceptions = IndexOutOfBoundsException.class)
+	public void bitRowsRejectMissingFlowVariable(){
+		new BitRowFlowValueStore<IntegerPowerSet, Integer>(2, universe(4), new IntegerPowerSet()).get(2);
+	}
+
+	@Test(dataProvider = "seeds")
+	public void solutionWithBitRowsEqualsSolutionOnHeap(long seed){
+		ConstraintSystem<IntegerPowerSet> expected = RandomConstraintSystems.generate(seed, 200, 400, null);
+		ConstraintSystem<IntegerPowerSet> actual = RandomConstraintSystems.generate(seed, 200, 400,
+				(n) -> new BitRowFlowValueStore<IntegerPowerSet, Integer>(
+						n, universe(RandomConstraintSystems.UNIVERSE), new IntegerPowerSet()));
+
+		RandomConstraintSystems.solveSequentially(expected);
+		RandomConstraintSystems.solveSequentially(actual);
+
+		TestUtilities.assertSameValues(expected, actual);
+	}
+
+//Private methods
+	/**
+	 * @param size
+	 * @return
+	 * The integers 0 through size-1.
+	 */
+	private static List<Integer> universe(int size){
+		List<Integer> universe = new ArrayList<Integer>();
+		for(int i = 0; i<size; i++){
+			universe.add(i);
+		}
+		return universe;
+	}
+}
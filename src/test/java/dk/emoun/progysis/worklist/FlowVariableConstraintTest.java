@@ -0,0 +1,104 @@
+package dk.emoun.progysis.worklist;
+
+import org.testng.annotations.*;
+import static org.testng.Assert.*;
+
+import java.util.function.Function;
+
+import dk.emoun.progysis.lattices.Sign;
+import dk.emoun.progysis.lattices.SignPowerSet;
+
+public class FlowVariableConstraintTest {
+
+	private ConstraintSystem<SignPowerSet> cS;
+
+	/**
+	 * The number of times {@link #counting} has been called.
+	 */
+	private int calls;
+
+	/**
+	 * The identity function, counting its calls in {@link #calls}.
+	 */
+	private Function<SignPowerSet, SignPowerSet> counting;
+
+	@BeforeMethod
+	public void setUp(){
+		cS = new ConstraintSystem<SignPowerSet>(2, new SignPowerSet());
+		cS.setValueOf(0, new SignPowerSet(Sign.PLUS));
+		calls = 0;
+		counting = (v) -> {
+			calls++;
+			return v;
+		};
+	}
+
+	@Test
+	public void constraintsAreUnmemoizedByDefault(){
+		cS.addConstraintToVariableDependentOnVariable(1, 0, counting);
+
+		cS.evaluateValueOf(1);
+		cS.evaluateValueOf(1);
+
+		assertEquals(calls, 2);
+		assertFalse(new FlowVariableConstraint<SignPowerSet>(cS, 0, counting).isMemoized());
+	}
+
+	@Test
+	public void unmemoizedConstraintIsCalledEveryTime(){
+		cS.addConstraintToVariableDependentOnVariable(1, 0, counting);
+
+		cS.evaluateValueOf(1);
+		cS.evaluateValueOf(1);
+		cS.setValueOf(0, new SignPowerSet(Sign.PLUS));
+		cS.evaluateValueOf(1);
+
+		assertEquals(calls, 3);
+	}
+
+	@Test
+	public void memoizedConstraintIsCalledOnceForSameInstance(){
+		cS.addConstraintToVariableDependentOnVariable(1, 0, counting, 0);
+
+		cS.evaluateValueOf(1);
+		cS.evaluateValueOf(1);
+		assertEquals(calls, 1);
+
+		//Without recent inputs, only the last input instance is recognised
+		cS.setValueOf(0, new SignPowerSet(Sign.PLUS));
+		cS.evaluateValueOf(1);
+		assertEquals(calls, 2);
+	}
+
+	@Test
+	public void memoizedConstraintIsCalledOnceForEqualInputs(){
+		cS.addConstraintToVariableDependentOnVariable(1, 0, counting, 2);
+
+		cS.evaluateValueOf(1);
+		cS.setValueOf(0, new SignPowerSet(Sign.MINUS));
+		cS.evaluateValueOf(1);
+		cS.setValueOf(0, new SignPowerSet(Sign.PLUS));
+		SignPowerSet value = cS.evaluateValueOf(1);
+
+		assertEquals(calls, 2);
+		assertEquals(value, new SignPowerSet(Sign.PLUS));
+	}
+
+	@Test
+	public void memoizedConstraintForgetsOldestInput(){
+		cS.addConstraintToVariableDependentOnVariable(1, 0, counting, 1);
+
+		cS.evaluateValueOf(1);
+		cS.setValueOf(0, new SignPowerSet(Sign.MINUS));
+		cS.evaluateValueOf(1);
+		cS.setValueOf(0, new SignPowerSet(Sign.PLUS));
+		cS.evaluateValueOf(1);
+
+		assertEquals(calls, 3);
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void unmemoizedConstraintCannotKeepRecentInputs(){
+		new FlowVariableConstraint<SignPowerSet>(cS, 0, counting, false, 1);
+	}
+}
@@ -0,0 +1,94 @@
+package dk.emoun.progysis.worklist;
+
+import org.testng.annotations.*;
+import static org.testng.Assert.*;
+
+import java.util.Random;
+
+public class PriorityWorklistTest {
+	
+	@Test
+	public void extractsLowestRankFirst(){
+		PriorityWorklist w = new PriorityWorklist(new int[]{2, 0, 3, 1});
+		for(int i = 0; i<4; i++){
+			w.insert(i);
+		}
+		
+		assertEquals(w.extractNextFlowVariable(), 1);
+		assertEquals(w.extractNextFlowVariable(), 3);
+		assertEquals(w.extractNextFlowVariable(), 0);
+		assertEquals(w.extractNextFlowVariable(), 2);
+		assertTrue(w.isEmpty());
+	}
+	
+	@Test
+	public void ignoresDuplicateInsertions(){
+		PriorityWorklist w = new PriorityWorklist(new int[]{1, 0});
+		w.insert(0);
+		w.insert(0);
+		w.insert(1);
+		
+		assertEquals(w.size(), 2);
+		assertEquals(w.extractNextFlowVariable(), 1);
+		assertEquals(w.extractNextFlowVariable(), 0);
+		assertTrue(w.isEmpty());
+	}
+	
+	@Test
+	public void keepsHeapOrderUnderInterleavedOperations(){
+		int n = 500;
+		int[] rank = new int[n];
+		for(int i = 0; i<n; i++){
+			rank[i] = (i*7919) % n;
+		}
+		PriorityWorklist w = new PriorityWorklist(rank);
+		boolean[] present = new boolean[n];
+		Random random = new Random(42);
+		
+		for(int step = 0; step<10000; step++){
+			if(random.nextInt(3) != 0 || w.isEmpty()){
+				int fV = random.nextInt(n);
+				w.insert(fV);
+				present[fV] = true;
+			}else{
+				int extracted = w.extractNextFlowVariable();
+				assertTrue(present[extracted]);
+				present[extracted] = false;
+				for(int i = 0; i<n; i++){
+					assertFalse(present[i] && rank[i] < rank[extracted], 
+							"Variable " + i + " has lower rank than extracted " + extracted);
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void reusedWithNewRanksOrdersByThem(){
+		PriorityWorklist w = new PriorityWorklist(new int[]{0, 1});
+		w.insert(1);
+		w.insert(0);
+		assertEquals(w.extractNextFlowVariable(), 0);
+		assertEquals(w.extractNextFlowVariable(), 1);
+		
+		w.setRank(new int[]{2, 1, 0});
+		for(int i = 0; i<3; i++){
+			w.insert(i);
+		}
+		assertEquals(w.extractNextFlowVariable(), 2);
+		assertEquals(w.extractNextFlowVariable(), 1);
+		assertEquals(w.extractNextFlowVariable(), 0);
+		assertTrue(w.isEmpty());
+	}
+	
+	@Test(expectedExceptions = IllegalStateException.class)
+	public void replacingRanksOfNonEmptyThrows(){
+		PriorityWorklist w = new PriorityWorklist(new int[2]);
+		w.insert(0);
+		w.setRank(new int[2]);
+	}
+	
+	@Test(expectedExceptions = IllegalStateException.class)
+	public void extractingFromEmptyThrows(){
+		new PriorityWorklist(new int[3]).extractNextFlowVariable();
+	}
+}
@@ -0,0 +1,71 @@
+package dk.emoun.progysis.worklist;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+import dk.emoun.progysis.lattices.IntegerPowerSet;
+import dk.emoun.progysis.lattices.LatticeElement;
+
+/**
+ * Generates constraint systems of gen/kill constraints between random flow variables, 
+ * over sets of the integers 0 through {@value #UNIVERSE}-1.
+ */
+public class RandomConstraintSystems {
+	
+	public static final int UNIVERSE = 64;
+	
+	/**
+	 * @param seed
+	 * @param numberOfFlowVariables
+	 * @param numberOfDependencies
+	 * The number of constraints dependent on a random flow variable.
+	 * @param stores
+	 * Gives the value store for the given number of flow variables, or {@code null} for the default store.
+	 * @return
+	 * A constraint system where every fifth flow variable has an independent constraint of one value.
+	 */
+	public static ConstraintSystem<IntegerPowerSet> generate(	long seed, int numberOfFlowVariables, int numberOfDependencies, 
+																IntFunction<FlowValueStore<IntegerPowerSet>> stores)
+	{
+		Random random = new Random(seed);
+		ConstraintSystem<IntegerPowerSet> cS = (stores == null)?
+				new ConstraintSystem<IntegerPowerSet>(numberOfFlowVariables, new IntegerPowerSet()) :
+				new ConstraintSystem<IntegerPowerSet>(numberOfFlowVariables, new IntegerPowerSet(), null, 
+						stores.apply(numberOfFlowVariables));
+		for(int i = 0; i<numberOfFlowVariables; i += 5){
+			cS.addIndependentConstraintToVariable(i, new IntegerPowerSet(random.nextInt(UNIVERSE)));
+		}
+		for(int i = 0; i<numberOfDependencies; i++){
+			int gen = random.nextInt(UNIVERSE), kill = random.nextInt(UNIVERSE);
+			cS.addConstraintToVariableDependentOnVariable(
+					random.nextInt(numberOfFlowVariables), random.nextInt(numberOfFlowVariables), 
+					genKill(gen, kill));
+		}
+		return cS;
+	}
+	
+	/**
+	 * @param gen
+	 * @param kill
+	 * @return
+	 * The distributive function removing 'kill' from its input, and adding 'gen'.
+	 */
+	public static DistributiveFunction<IntegerPowerSet> genKill(int gen, int kill){
+		return (v) -> {
+			Set<Integer> result = new HashSet<Integer>(v.getValueSet());
+			result.remove(kill);
+			result.add(gen);
+			return v.createPowerSet(result);
+		};
+	}
+	
+	/**
+	 * @param cS
+	 * Solved using {@link AbstractWorklistAlgorithm} and a {@link FIFOWorklist}.
+	 */
+	public static <V extends LatticeElement<V>> void solveSequentially(ConstraintSystem<V> cS){
+		AbstractWorklistAlgorithm.solveConstraintSystem(new FIFOWorklist(), cS);
+	}
+}
@@ -0,0 +1,51 @@
+package dk.emoun.progysis.worklist;
+
+import org.testng.annotations.*;
+import static org.testng.Assert.*;
+
+import java.util.concurrent.ForkJoinPool;
+
+import dk.emoun.progysis.TestUtilities;
+import dk.emoun.progysis.lattices.IntegerPowerSet;
+
+public class SCCWorklistAlgorithmTest {
+	
+	private ForkJoinPool pool;
+	
+	@BeforeClass
+	public void createPool(){
+		pool = new ForkJoinPool(4);
+	}
+	
+	@AfterClass
+	public void shutdownPool(){
+		pool.shutdown();
+	}
+	
+	@DataProvider
+	public Object[][] sizes(){
+		return new Object[][]{{1, 0}, {10, 30}, {300, 400}, {2000, 2500}, {2000, 6000}};
+	}
+	
+	@Test(dataProvider = "sizes")
+	public void findsSameSolutionAsAbstractWorklistAlgorithm(int flowVariables, int dependencies){
+		for(long seed = 0; seed<5; seed++){
+			ConstraintSystem<IntegerPowerSet> expected = RandomConstraintSystems.generate(seed, flowVariables, dependencies, null);
+			RandomConstraintSystems.solveSequentially(expected);
+			ConstraintSystem<IntegerPowerSet> actual = RandomConstraintSystems.generate(seed, flowVariables, dependencies, null);
+			SCCWorklistAlgorithm.solveConstraintSystem(actual, pool, UniqueFIFOWorklist::new);
+			
+			TestUtilities.assertSameValues(expected, actual);
+		}
+	}
+	
+	@Test
+	public void marksAllFlowVariablesSolved(){
+		ConstraintSystem<IntegerPowerSet> cS = RandomConstraintSystems.generate(1, 50, 80, null);
+		SCCWorklistAlgorithm.solveConstraintSystem(cS);
+		
+		for(int i = 0; i<cS.getNumberOfFlowVariables(); i++){
+			assertTrue(cS.isSolved(i));
+		}
+	}
+}
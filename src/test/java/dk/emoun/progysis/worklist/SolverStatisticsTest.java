@@ -0,0 +1,147 @@
+package dk.emoun.progysis.worklist;
+
+import org.testng.annotations.*;
+import static org.testng.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import dk.emoun.progysis.lattices.IntegerPowerSet;
+import dk.emoun.progysis.worklist.SolverListener.Phase;
+
+public class SolverStatisticsTest {
+
+	private SolverStatistics statistics;
+
+	@BeforeMethod
+	public void setUp(){
+		statistics = new SolverStatistics();
+	}
+
+	@Test
+	public void countsUpdatesOfEachFlowVariable(){
+		statistics.flowVariableUpdated(0, true, 2);
+		statistics.flowVariableUpdated(3, false, 5);
+		statistics.flowVariableUpdated(3, true, 1);
+
+		assertEquals(statistics.getUpdates(), 3);
+		assertEquals(statistics.getChangedUpdates(), 2);
+		assertEquals(statistics.getUnchangedUpdates(), 1);
+		assertEquals(statistics.getUpdatesOf(0), 1);
+		assertEquals(statistics.getUpdatesOf(3), 2);
+		assertEquals(statistics.getUpdatesOf(1), 0);
+		assertEquals(statistics.getMostUpdatedFlowVariable(), 3);
+		assertEquals(statistics.getWorklistHighWaterMark(), 5);
+	}
+
+	@Test
+	public void countsFlowVariablesBeyondInitialCapacity(){
+		statistics.flowVariableUpdated(100000, true, -1);
+		statistics.flowVariableUpdated(100000, true, -1);
+
+		assertEquals(statistics.getUpdatesOf(100000), 2);
+		assertEquals(statistics.getUpdatesOf(200000), 0);
+		assertEquals(statistics.getUpdatesOf(-1), 0);
+		assertEquals(statistics.getMostUpdatedFlowVariable(), 100000);
+	}
+
+	@Test
+	public void noMostUpdatedFlowVariableWithoutUpdates(){
+		assertEquals(statistics.getMostUpdatedFlowVariable(), -1);
+	}
+
+	@Test
+	public void resetClearsStatistics(){
+		statistics.phaseStarted(Phase.SOLVING);
+		statistics.flowVariableUpdated(4, true, 3);
+		statistics.phaseFinished(Phase.SOLVING);
+
+		statistics.reset();
+
+		assertEquals(statistics.getUpdates(), 0);
+		assertEquals(statistics.getUpdatesOf(4), 0);
+		assertEquals(statistics.getMostUpdatedFlowVariable(), -1);
+		assertEquals(statistics.getWorklistHighWaterMark(), 0);
+		assertEquals(statistics.getSolvingTime(), 0);
+	}
+
+	@Test
+	public void recordsUpdatesOfSolver(){
+		ConstraintSystem<IntegerPowerSet> cS = new ConstraintSystem<IntegerPowerSet>(3, new IntegerPowerSet());
+		cS.addIndependentConstraintToVariable(0, new IntegerPowerSet(1));
+		cS.addConstraintToVariableDependentOnVariable(1, 0, Function.identity());
+		cS.addConstraintToVariableDependentOnVariable(2, 1, Function.identity());
+
+		AbstractWorklistAlgorithm.solveConstraintSystem(new UniqueFIFOWorklist(), cS, statistics);
+
+		assertTrue(statistics.getUpdates() >= 3);
+		assertEquals(statistics.getChangedUpdates(), 3);
+		for(int i = 0; i<3; i++){
+			assertTrue(statistics.getUpdatesOf(i) >= 1);
+		}
+		assertTrue(statistics.getSolvingTime() > 0);
+	}
+
+	@Test
+	public void countsJoinsAndComparesOfSolver(){
+		ConstraintSystem<IntegerPowerSet> cS = new ConstraintSystem<IntegerPowerSet>(2, new IntegerPowerSet());
+		cS.addIndependentConstraintToVariable(0, new IntegerPowerSet(1));
+		cS.addIndependentConstraintToVariable(1, new IntegerPowerSet(2));
+		cS.addConstraintToVariableDependentOnVariable(1, 0, Function.identity());
+
+		AbstractWorklistAlgorithm.solveConstraintSystem(new UniqueFIFOWorklist(), cS, statistics);
+
+		//1 joins its two constraints, and each changed value is compared both ways with the old value, 
+		//since it is above it
+		assertEquals(statistics.getJoins(), 1);
+		assertEquals(statistics.getCompares(), 4);
+
+		//Solving again, 0 is identical to its old value, while 1 is a new, equal, value compared both ways
+		statistics.reset();
+		AbstractWorklistAlgorithm.solveConstraintSystem(new UniqueFIFOWorklist(), cS, statistics);
+		assertEquals(statistics.getJoins(), 1);
+		assertEquals(statistics.getCompares(), 2);
+	}
+
+	@Test
+	public void phasesOnDifferentThreadsAreTimedSeparately() throws InterruptedException{
+		statistics.phaseStarted(Phase.SOLVING);
+		Thread.sleep(50);
+		Thread other = new Thread(() -> {
+			statistics.phaseStarted(Phase.SOLVING);
+			statistics.phaseFinished(Phase.SOLVING);
+		});
+		other.start();
+		other.join();
+		statistics.phaseFinished(Phase.SOLVING);
+
+		assertTrue(statistics.getSolvingTime() >= 50000000L);
+	}
+
+	@Test
+	public void countsConcurrentUpdatesExactly() throws InterruptedException{
+		int threads = 4, updatesPerThread = 20000;
+		List<Thread> started = new ArrayList<Thread>();
+		for(int t = 0; t<threads; t++){
+			Thread thread = new Thread(() -> {
+				for(int i = 0; i<updatesPerThread; i++){
+					//Spread over many flow variables, so the counts grow while other threads count
+					statistics.flowVariableUpdated(i, (i & 1) == 0, i);
+				}
+			});
+			thread.start();
+			started.add(thread);
+		}
+		for(Thread thread: started){
+			thread.join();
+		}
+
+		assertEquals(statistics.getUpdates(), threads*updatesPerThread);
+		assertEquals(statistics.getChangedUpdates(), threads*updatesPerThread/2);
+		for(int i = 0; i<updatesPerThread; i++){
+			assertEquals(statistics.getUpdatesOf(i), threads);
+		}
+		assertEquals(statistics.getWorklistHighWaterMark(), updatesPerThread - 1);
+	}
+}
@@ -0,0 +1,88 @@
+package dk.emoun.progysis.worklist;
+
+import org.testng.annotations.*;
+import static org.testng.Assert.*;
+
+public class UniqueFIFOWorklistTest {
+	
+	@Test
+	public void extractsInInsertionOrder(){
+		UniqueFIFOWorklist w = new UniqueFIFOWorklist();
+		w.insert(3);
+		w.insert(1);
+		w.insert(2);
+		
+		assertEquals(w.extractNextFlowVariable(), 3);
+		assertEquals(w.extractNextFlowVariable(), 1);
+		assertEquals(w.extractNextFlowVariable(), 2);
+		assertTrue(w.isEmpty());
+	}
+	
+	@Test
+	public void ignoresDuplicateInsertions(){
+		UniqueFIFOWorklist w = new UniqueFIFOWorklist();
+		w.insert(1);
+		w.insert(2);
+		w.insert(1);
+		
+		assertEquals(w.size(), 2);
+		assertEquals(w.extractNextFlowVariable(), 1);
+		assertEquals(w.extractNextFlowVariable(), 2);
+		assertTrue(w.isEmpty());
+	}
+	
+	@Test
+	public void acceptsExtractedVariableAgain(){
+		UniqueFIFOWorklist w = new UniqueFIFOWorklist();
+		w.insert(1);
+		w.insert(2);
+		assertEquals(w.extractNextFlowVariable(), 1);
+		assertFalse(w.contains(1));
+		
+		w.insert(1);
+		assertTrue(w.contains(1));
+		assertEquals(w.extractNextFlowVariable(), 2);
+		assertEquals(w.extractNextFlowVariable(), 1);
+	}
+	
+	@Test
+	public void growsWhileWrappedAround(){
+		UniqueFIFOWorklist w = new UniqueFIFOWorklist(4);
+		for(int i = 0; i<4; i++){
+			w.insert(i);
+		}
+		//Move the head to the middle of the ring buffer, such that the content wraps around
+		assertEquals(w.extractNextFlowVariable(), 0);
+		assertEquals(w.extractNextFlowVariable(), 1);
+		w.insert(4);
+		w.insert(5);
+		//Full and wrapped around, so this grows the buffer
+		for(int i = 6; i<20; i++){
+			w.insert(i);
+		}
+		
+		assertEquals(w.size(), 18);
+		for(int i = 2; i<20; i++){
+			assertEquals(w.extractNextFlowVariable(), i);
+		}
+		assertTrue(w.isEmpty());
+	}
+	
+	@Test
+	public void clearEmptiesTheWorklist(){
+		UniqueFIFOWorklist w = new UniqueFIFOWorklist();
+		w.insert(1);
+		w.insert(2);
+		w.clear();
+		
+		assertTrue(w.isEmpty());
+		assertFalse(w.contains(1));
+		w.insert(2);
+		assertEquals(w.extractNextFlowVariable(), 2);
+	}
+	
+	@Test(expectedExceptions = IllegalStateException.class)
+	public void extractingFromEmptyThrows(){
+		new UniqueFIFOWorklist().extractNextFlowVariable();
+	}
+}
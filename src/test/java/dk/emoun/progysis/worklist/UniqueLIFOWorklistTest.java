@@ -0,0 +1,52 @@
+package dk.emoun.progysis.worklist;
+
+import org.testng.annotations.*;
+import static org.testng.Assert.*;
+
+public class UniqueLIFOWorklistTest {
+	
+	@Test
+	public void extractsInReverseInsertionOrder(){
+		UniqueLIFOWorklist w = new UniqueLIFOWorklist();
+		w.insert(3);
+		w.insert(1);
+		w.insert(2);
+		
+		assertEquals(w.extractNextFlowVariable(), 2);
+		assertEquals(w.extractNextFlowVariable(), 1);
+		assertEquals(w.extractNextFlowVariable(), 3);
+		assertTrue(w.isEmpty());
+	}
+	
+	@Test
+	public void ignoresDuplicateInsertions(){
+		UniqueLIFOWorklist w = new UniqueLIFOWorklist();
+		w.insert(1);
+		w.insert(2);
+		w.insert(1);
+		
+		assertEquals(w.size(), 2);
+		assertEquals(w.extractNextFlowVariable(), 2);
+		assertEquals(w.extractNextFlowVariable(), 1);
+		assertTrue(w.isEmpty());
+	}
+	
+	@Test
+	public void growsBeyondExpectedSize(){
+		UniqueLIFOWorklist w = new UniqueLIFOWorklist(1);
+		for(int i = 0; i<100; i++){
+			w.insert(i);
+		}
+		
+		assertEquals(w.size(), 100);
+		for(int i = 99; i>=0; i--){
+			assertEquals(w.extractNextFlowVariable(), i);
+		}
+		assertTrue(w.isEmpty());
+	}
+	
+	@Test(expectedExceptions = IllegalStateException.class)
+	public void extractingFromEmptyThrows(){
+		new UniqueLIFOWorklist().extractNextFlowVariable();
+	}
+}
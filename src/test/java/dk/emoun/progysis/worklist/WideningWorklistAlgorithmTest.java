@@ -0,0 +1,67 @@
+package dk.emoun.progysis.worklist;
+
+import org.testng.annotations.*;
+import static org.testng.Assert.*;
+
+import java.util.BitSet;
+
+import dk.emoun.progysis.lattices.Interval;
+
+public class WideningWorklistAlgorithmTest {
+	
+	/**
+	 * @return
+	 * The constraint system of the loop 'i = 0; while(i < 100) i++', where 
+	 * 0 is the value of 'i' at the loop head, 1 in the body and 2 after the increment.
+	 */
+	private static ConstraintSystem<Interval> countingLoop(){
+		ConstraintSystem<Interval> cS = new ConstraintSystem<Interval>(3, new Interval());
+		cS.addIndependentConstraintToVariable(0, new Interval(0, 0));
+		cS.addConstraintToVariableDependentOnVariable(0, 2, (v) -> v);
+		cS.addConstraintToVariableDependentOnVariable(1, 0, (v) -> v.atMost(99));
+		cS.addConstraintToVariableDependentOnVariable(2, 1, (v) -> v.plus(1));
+		return cS;
+	}
+	
+	@Test(timeOut = 10000)
+	public void wideningTerminatesOnInfiniteAscendingChain(){
+		ConstraintSystem<Interval> cS = countingLoop();
+		BitSet wideningPoints = new BitSet();
+		wideningPoints.set(0);
+		
+		WideningWorklistAlgorithm.solveConstraintSystem(new FIFOWorklist(), cS, wideningPoints);
+		
+		assertEquals(cS.getValueOf(0), new Interval(0, Interval.INFINITY));
+		assertEquals(cS.getValueOf(1), new Interval(0, 99));
+		assertEquals(cS.getValueOf(2), new Interval(1, 100));
+	}
+	
+	@Test(timeOut = 10000)
+	public void narrowingRegainsBound(){
+		ConstraintSystem<Interval> cS = countingLoop();
+		BitSet wideningPoints = new BitSet();
+		wideningPoints.set(0);
+		
+		WideningWorklistAlgorithm.solveConstraintSystem(new FIFOWorklist(), cS, wideningPoints, 1);
+		
+		assertEquals(cS.getValueOf(0), new Interval(0, 100));
+	}
+	
+	@Test(timeOut = 10000)
+	public void wideningTerminatesOnUnboundedCycle(){
+		//0 and 1 increment each other without bound, 
+		//and 2 is only reachable from the cycle
+		ConstraintSystem<Interval> cS = new ConstraintSystem<Interval>(3, new Interval());
+		cS.addIndependentConstraintToVariable(0, new Interval(0, 0));
+		cS.addConstraintToVariableDependentOnVariable(0, 1, (v) -> v.plus(1));
+		cS.addConstraintToVariableDependentOnVariable(1, 0, (v) -> v.plus(1));
+		cS.addConstraintToVariableDependentOnVariable(2, 1, (v) -> v);
+		BitSet wideningPoints = new BitSet();
+		wideningPoints.set(1);
+		
+		WideningWorklistAlgorithm.solveConstraintSystem(new FIFOWorklist(), cS, wideningPoints);
+		
+		assertEquals(cS.getValueOf(2).getHigh(), Interval.INFINITY);
+		assertEquals(cS.getValueOf(2).getLow(), 1);
+	}
+}
@@ -0,0 +1,89 @@
+package dk.emoun.progysis.worklist;
+
+import org.testng.annotations.*;
+import static org.testng.Assert.*;
+
+import java.util.concurrent.ForkJoinPool;
+
+import dk.emoun.progysis.TestUtilities;
+import dk.emoun.progysis.lattices.IntegerPowerSet;
+
+public class WorkStealingWorklistAlgorithmTest {
+
+	private ForkJoinPool pool;
+
+	@BeforeClass
+	public void setUp(){
+		pool = new ForkJoinPool(4);
+	}
+
+	@AfterClass
+	public void tearDown(){
+		pool.shutdownNow();
+	}
+
+	@DataProvider
+	public Object[][] systems(){
+		Object[][] systems = new Object[5*4][];
+		int[] workers = {1, 2, 4, 8};
+		for(int seed = 0; seed<5; seed++){
+			for(int w = 0; w<workers.length; w++){
+				systems[seed*workers.length + w] = new Object[]{(long) seed, workers[w]};
+			}
+		}
+		return systems;
+	}
+
+	@Test(dataProvider = "systems")
+	public void solutionEqualsSequentialSolution(long seed, int workers){
+		//More flow variables per worker than the initial capacity of a deque
+		int flowVariables = 1000, dependencies = 2500;
+		ConstraintSystem<IntegerPowerSet> expected = RandomConstraintSystems.generate(seed, flowVariables, dependencies, null);
+		RandomConstraintSystems.solveSequentially(expected);
+		ConstraintSystem<IntegerPowerSet> actual = RandomConstraintSystems.generate(seed, flowVariables, dependencies,
+				(n) -> new ConcurrentFlowValueStore<IntegerPowerSet>(n));
+
+		WorkStealingWorklistAlgorithm.solveConstraintSystem(actual, pool, workers);
+
+		TestUtilities.assertSameValues(expected, actual);
+		for(int i = 0; i<flowVariables; i++){
+			assertTrue(actual.isSolved(i));
+		}
+	}
+
+	@Test
+	public void commonPoolSolution(){
+		ConstraintSystem<IntegerPowerSet> expected = RandomConstraintSystems.generate(7, 300, 600, null);
+		RandomConstraintSystems.solveSequentially(expected);
+		ConstraintSystem<IntegerPowerSet> actual = RandomConstraintSystems.generate(7, 300, 600,
+				(n) -> new ConcurrentFlowValueStore<IntegerPowerSet>(n));
+
+		WorkStealingWorklistAlgorithm.solveConstraintSystem(actual);
+
+		TestUtilities.assertSameValues(expected, actual);
+	}
+
+	@Test(expectedExceptions = IllegalStateException.class)
+	public void exceptionOfConstraintIsThrown(){
+		ConstraintSystem<IntegerPowerSet> cS = RandomConstraintSystems.generate(1, 100, 200,
+				(n) -> new ConcurrentFlowValueStore<IntegerPowerSet>(n));
+		cS.addConstraintToVariableDependentOnVariable(50, 0, (v) -> {
+			throw new IllegalStateException("Failing constraint");
+		});
+
+		WorkStealingWorklistAlgorithm.solveConstraintSystem(cS, pool, 4);
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void constraintSystemMustBeConcurrent(){
+		WorkStealingWorklistAlgorithm.solveConstraintSystem(RandomConstraintSystems.generate(1, 10, 10, null), pool, 2);
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void thereMustBeWorkers(){
+		ConstraintSystem<IntegerPowerSet> cS = RandomConstraintSystems.generate(1, 10, 10,
+				(n) -> new ConcurrentFlowValueStore<IntegerPowerSet>(n));
+
+		WorkStealingWorklistAlgorithm.solveConstraintSystem(cS, pool, 0);
+	}
+}